@@ -1,5 +1,7 @@
 package it.polimi.ingsw.client;
 
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
+
 /**
  * This class represents the initial configuration of the game client
  *
@@ -16,6 +18,31 @@ public class ClientConfig {
      */
     private int socketPort;
 
+    /**
+     * The kind of threads running the blocking loops of the connector
+     */
+    private ExecutorFactory.ExecutionMode executionMode = ExecutorFactory.ExecutionMode.PLATFORM;
+
+    /**
+     * True if the server should send binary frames to socket clients instead of JSON ones
+     */
+    private boolean binaryCodec;
+
+    /**
+     * True if the server should compress the big frames sent to socket clients
+     */
+    private boolean compression;
+
+    /**
+     * The maximum number of messages written to the socket with a single flush
+     */
+    private int socketMaxBatchSize = 32;
+
+    /**
+     * The maximum time in milliseconds a batch of messages waits for other messages before being written to the socket
+     */
+    private int socketMaxBatchDelay = 0;
+
     public int getRMIPort() {
         return rmiPort;
     }
@@ -23,4 +50,24 @@ public class ClientConfig {
     public int getSocketPort() {
         return socketPort;
     }
+
+    public ExecutorFactory.ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public boolean isBinaryCodec() {
+        return binaryCodec;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public int getSocketMaxBatchSize() {
+        return socketMaxBatchSize;
+    }
+
+    public int getSocketMaxBatchDelay() {
+        return socketMaxBatchDelay;
+    }
 }
@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import it.polimi.ingsw.client.ui.cli.CLI;
 import it.polimi.ingsw.client.ui.gui.GUI;
 import it.polimi.ingsw.utils.ConfigFileMaker;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
 import javafx.fxml.FXMLLoader;
 
 /**
@@ -19,6 +20,7 @@ public class Main {
     public static void main( String[] args ) {
 
         ClientConfig config = new Gson().fromJson(ConfigFileMaker.load(CONFIG_JSON_PATH, CONFIG_JSON_PATH_RES), ClientConfig.class);
+        ExecutorFactory.initialize(config.getExecutionMode());
 
         if (args.length > 0 && !args[0].equalsIgnoreCase("gui")) {
             CLI cli;
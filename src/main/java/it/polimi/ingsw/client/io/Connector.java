@@ -15,6 +15,8 @@ import it.polimi.ingsw.shared.messages.Message;
 import it.polimi.ingsw.shared.messages.ServerApi;
 import it.polimi.ingsw.shared.messages.templates.Answer;
 import it.polimi.ingsw.shared.messages.templates.Question;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
+import it.polimi.ingsw.utils.concurrent.HashedWheelTimer;
 
 import java.awt.*;
 import java.util.Arrays;
@@ -22,6 +24,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
@@ -32,7 +35,11 @@ import java.util.logging.Logger;
  */
 public abstract class Connector implements AutoCloseable {
 
+    /**
+     * Interval in milliseconds between two heartbeats, a heartbeat is only sent if no other message was sent in the meantime
+     */
     private static final long HEARTBEAT_TIMEOUT = 1000;
+
     /**
      * Logging utility
      */
@@ -60,19 +67,37 @@ public abstract class Connector implements AutoCloseable {
 
     private String nickname;
 
+    /**
+     * The version of the match state reached with the last event applied by the listeners
+     */
+    private volatile long lastStateVersion = Message.NO_STATE_VERSION;
+
     /**
      * The thread pools that schedules the execution of the receiveAsync method for events and questions
      */
-    private final ExecutorService eventThreadPool = Executors.newSingleThreadExecutor();
-    private final ExecutorService questionThreadPool = Executors.newSingleThreadExecutor();
-    private final ExecutorService heartbeatThreadPool = Executors.newSingleThreadExecutor();
+    private final ExecutorService eventThreadPool = ExecutorFactory.newSingleThreadExecutor();
+    private final ExecutorService questionThreadPool = ExecutorFactory.newSingleThreadExecutor();
 
     private final List<ExecutorService> threadPools = Arrays.asList(
             eventThreadPool,
-            questionThreadPool,
-            heartbeatThreadPool
+            questionThreadPool
     );
 
+    /**
+     * The pending heartbeat on the shared timer
+     */
+    private volatile HashedWheelTimer.Timeout heartbeat;
+
+    /**
+     * True if a message has been sent since the last heartbeat, which makes the next heartbeat unnecessary
+     */
+    private final AtomicBoolean sentSinceHeartbeat = new AtomicBoolean(false);
+
+    /**
+     * Boolean indicating whether or not the close method has been invoked
+     */
+    private volatile boolean closing = false;
+
 
     /**
      * Question message listeners
@@ -99,17 +124,31 @@ public abstract class Connector implements AutoCloseable {
         outputMessageQueue.add(Message.createEvent(ServerApi.VIEW_INIT_EVENT, clientInitializationInfo));
         nickname = clientInitializationInfo.getNickname();
         eventThreadPool.execute(() -> receiveAsync(Message.Type.EVENT));
-        heartbeatThreadPool.execute(() -> {
-            while (!heartbeatThreadPool.isShutdown()) {
-                outputMessageQueue.add(Message.createEvent(ServerApi.HEARTBEAT, new ClientEvent(nickname)));
-                try {
-                    Thread.sleep(HEARTBEAT_TIMEOUT);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    logger.warning("Thread stopped");
-                }
-            }
-        });
+        sendHeartbeat();
+    }
+
+    /**
+     * Sends a heartbeat unless another message has been sent since the last one, then schedules the next heartbeat on
+     * the shared timer
+     */
+    private void sendHeartbeat() {
+        if (closing) {
+            return;
+        }
+        if (!sentSinceHeartbeat.getAndSet(false)) {
+            outputMessageQueue.add(Message.createEvent(ServerApi.HEARTBEAT, new ClientEvent(nickname)));
+        }
+        heartbeat = ExecutorFactory.getTimer().newTimeout(this::sendHeartbeat, HEARTBEAT_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the version of the match state reached with the last event applied. A client that keeps its state can
+     * report it in the ClientInitializationInfo of a new connection to receive only the events it missed
+     *
+     * @return the version of the match state, Message.NO_STATE_VERSION if no versioned event has been applied
+     */
+    public long getLastStateVersion() {
+        return lastStateVersion;
     }
 
     public void startListeningToQuestions() {
@@ -126,10 +165,11 @@ public abstract class Connector implements AutoCloseable {
             switch (type) {
                 case EVENT:
                     try {
-                        notifyEventMessageReceivedListeners(
-                                inputMessageQueue
-                                        .dequeueEvent(DEQUEUE_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS)
-                        );
+                        Message event = inputMessageQueue.dequeueEvent(DEQUEUE_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+                        notifyEventMessageReceivedListeners(event);
+                        if (event.getStateVersion() != Message.NO_STATE_VERSION) {
+                            lastStateVersion = event.getStateVersion();
+                        }
                     } catch (TimeoutException ignored) {
                         // No message received within the timeout
                     }
@@ -169,6 +209,7 @@ public abstract class Connector implements AutoCloseable {
      */
     public void sendMessage(Message message) {
         outputMessageQueue.add(message);
+        sentSinceHeartbeat.set(true);
     }
 
     /**
@@ -189,9 +230,10 @@ public abstract class Connector implements AutoCloseable {
         questionListeners.remove(l);
     }
 
-    private <T> void enqueueAnswer(T choice, String flowId) {
+    private <T> void enqueueAnswer(T choice, long flowId) {
         outputMessageQueue
                 .add(Message.createAnswer(ServerApi.ANSWER, new Answer<>(choice), flowId));
+        sentSinceHeartbeat.set(true);
     }
 
     /**
@@ -515,6 +557,10 @@ public abstract class Connector implements AutoCloseable {
      */
     @Override
     public void close() throws Exception {
+        closing = true;
+        if (heartbeat != null) {
+            heartbeat.cancel();
+        }
         for (ExecutorService pool : threadPools) {
             synchronized (pool) {
                 pool.shutdown();
@@ -0,0 +1,77 @@
+package it.polimi.ingsw.client.io;
+
+import it.polimi.ingsw.server.bootstrap.acceptors.LocalAcceptor;
+import it.polimi.ingsw.server.view.local.LocalView;
+import it.polimi.ingsw.shared.MessageDispatcher;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.Message;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class is the concrete connector for the clients running in the same JVM of the server. The messages are moved
+ * between the queues of the connector and the ones of the server-side view as they are, without any serialization
+ */
+public class LocalConnector extends Connector {
+    /**
+     * The maximum number of messages moved at once
+     */
+    private static final int MAX_BATCH_SIZE = 64;
+
+    /**
+     * Message dispatching utility for IO
+     */
+    private MessageDispatcher messageDispatcher;
+
+    /**
+     * Initializes the in-process implementation of the Connector
+     *
+     * @param clientInitializationInfo the user preferences for the match
+     * @param acceptor the acceptor of the server the client connects to
+     */
+    public void initialize(ClientInitializationInfo clientInitializationInfo, LocalAcceptor acceptor) {
+        LocalView view = acceptor.connect();
+        super.initialize(clientInitializationInfo);
+
+        messageDispatcher = new MessageDispatcher(
+                inputMessageQueue,
+                outputMessageQueue,
+                MAX_BATCH_SIZE,
+                (timeout, unit) -> {
+                    try {
+                        Message message = view.getOutputMessageQueue().poll(timeout, unit);
+                        if (message == null) {
+                            if (!view.isConnected()) {
+                                throw new IOException("The server closed the connection");
+                            }
+                            throw new TimeoutException("Poll timeout");
+                        }
+                        List<Message> messages = new ArrayList<>();
+                        messages.add(message);
+                        view.getOutputMessageQueue().drainTo(messages, MAX_BATCH_SIZE - 1);
+                        return messages;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(e.toString());
+                    }
+                },
+                messages -> messages.forEach(view::receiveMessage)
+        );
+    }
+
+    /**
+     * Closes this object and stops the background threads execution
+     *
+     * @throws Exception if the closing process is forced to stop
+     */
+    @Override
+    public void close() throws Exception {
+        if (messageDispatcher != null) {
+            messageDispatcher.close();
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,187 @@
+package it.polimi.ingsw.client.io;
+
+import it.polimi.ingsw.shared.messages.FrameFormat;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * A socket connection to the multiplexed port of the server, shared by the connectors of many players. Every frame is
+ * prefixed by its length and by the identifier of the session it belongs to, a single thread reads all the frames and
+ * hands them to the queue of their session
+ */
+public class MultiplexedSocket implements AutoCloseable {
+
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The socket shared by the sessions
+     */
+    private final Socket socket;
+
+    /**
+     * The stream the frames are written to
+     */
+    private final DataOutputStream outputStream;
+
+    /**
+     * The stream the frames are read from
+     */
+    private final DataInputStream inputStream;
+
+    /**
+     * The input queues of the open sessions, identified by their id
+     */
+    private final Map<Integer, BlockingQueue<Message>> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * The identifier of the next session
+     */
+    private int nextSessionId = 1;
+
+    /**
+     * The thread pool running the reading loop
+     */
+    private final ExecutorService readThreadPool = ExecutorFactory.newSingleThreadExecutor();
+
+    /**
+     * Boolean indicating whether the connection has been closed
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Opens a connection to the multiplexed port of the server
+     *
+     * @param address the remote address of the multiplexed port
+     * @throws IOException if the socket cannot be connected
+     */
+    public MultiplexedSocket(InetSocketAddress address) throws IOException {
+        socket = new Socket();
+        socket.connect(address);
+        socket.setTcpNoDelay(true);
+        outputStream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        readThreadPool.execute(this::read);
+    }
+
+    /**
+     * Reads the frames and hands them to their sessions until the connection is closed
+     */
+    private void read() {
+        try {
+            while (!closed) {
+                int frameSize = inputStream.readInt();
+                int sessionId = inputStream.readInt();
+                byte[] content = new byte[frameSize];
+                inputStream.readFully(content);
+                if (frameSize == 0) {
+                    sessions.remove(sessionId);
+                } else {
+                    BlockingQueue<Message> session = sessions.get(sessionId);
+                    if (session != null) {
+                        session.add(Message.fromFrame(content));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                logger.warning("Unable to receive data " + e);
+            }
+        }
+        closed = true;
+        sessions.clear();
+    }
+
+    /**
+     * Opens a new session
+     *
+     * @param inputQueue the queue that will receive the messages of the session
+     * @return the identifier of the session
+     */
+    public synchronized int openSession(BlockingQueue<Message> inputQueue) {
+        int sessionId = nextSessionId++;
+        sessions.put(sessionId, inputQueue);
+        return sessionId;
+    }
+
+    /**
+     * @param sessionId the identifier of a session
+     * @return true if the session is open
+     */
+    public boolean isOpen(int sessionId) {
+        return !closed && sessions.containsKey(sessionId);
+    }
+
+    /**
+     * Sends the messages of a session with a single flush
+     *
+     * @param sessionId the identifier of the session
+     * @param messages the messages to send, in order
+     * @throws IOException if the socket cannot be written
+     */
+    public void send(int sessionId, List<Message> messages) throws IOException {
+        synchronized (outputStream) {
+            for (Message message : messages) {
+                // JSON frames use a fixed charset to prevent incompatibility that can be caused by different defaults
+                writeFrame(sessionId, message.toFrame(FrameFormat.JSON));
+            }
+            outputStream.flush();
+        }
+    }
+
+    /**
+     * Closes a session, telling the server with an empty frame
+     *
+     * @param sessionId the identifier of the session
+     * @throws IOException if the socket cannot be written
+     */
+    public void closeSession(int sessionId) throws IOException {
+        if (sessions.remove(sessionId) != null && !closed) {
+            synchronized (outputStream) {
+                writeFrame(sessionId, new byte[0]);
+                outputStream.flush();
+            }
+        }
+    }
+
+    /**
+     * Writes a frame, the caller must hold the lock of the output stream
+     *
+     * @param sessionId the identifier of the session
+     * @param content the content of the frame
+     * @throws IOException if the socket cannot be written
+     */
+    private void writeFrame(int sessionId, byte[] content) throws IOException {
+        outputStream.writeInt(content.length);
+        outputStream.writeInt(sessionId);
+        outputStream.write(content);
+    }
+
+    /**
+     * Closes the socket and every session it carries
+     *
+     * @throws Exception if the closing process is forced to stop
+     */
+    @Override
+    public void close() throws Exception {
+        closed = true;
+        socket.close();
+        readThreadPool.shutdown();
+        while (!readThreadPool.awaitTermination(5, TimeUnit.SECONDS)) {
+            logger.warning("Thread pool hasn't shut down yet, waiting...");
+        }
+    }
+}
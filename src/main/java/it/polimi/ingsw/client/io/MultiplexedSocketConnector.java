@@ -0,0 +1,122 @@
+package it.polimi.ingsw.client.io;
+
+import it.polimi.ingsw.shared.MessageDispatcher;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.BinaryMessageCodec;
+import it.polimi.ingsw.shared.messages.Message;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class is the concrete connector of a player session carried by a MultiplexedSocket, which lets many players
+ * share a single connection to the server
+ */
+public class MultiplexedSocketConnector extends Connector {
+    /**
+     * The maximum number of messages written to the socket with a single flush
+     */
+    private static final int MAX_BATCH_SIZE = 32;
+
+    /**
+     * Message dispatching utility for IO
+     */
+    private MessageDispatcher messageDispatcher;
+
+    /**
+     * The shared connection
+     */
+    private MultiplexedSocket socket;
+
+    /**
+     * The identifier of the session of this connector
+     */
+    private int sessionId;
+
+    /**
+     * True if the server should send binary frames instead of JSON ones
+     */
+    private final boolean binaryCodec;
+
+    /**
+     * Constructs a connector that will receive JSON frames
+     */
+    public MultiplexedSocketConnector() {
+        this(false);
+    }
+
+    /**
+     * Constructs a connector
+     *
+     * @param binaryCodec true if the server should send binary frames instead of JSON ones
+     */
+    public MultiplexedSocketConnector(boolean binaryCodec) {
+        this.binaryCodec = binaryCodec;
+    }
+
+    /**
+     * Initializes the connector opening a new session on the given connection
+     *
+     * @param clientInitializationInfo the user preferences for the match
+     * @param socket the connection shared with the other sessions
+     */
+    public void initialize(ClientInitializationInfo clientInitializationInfo, MultiplexedSocket socket) {
+        if (binaryCodec) {
+            clientInitializationInfo.setBinaryCodecFingerprint(BinaryMessageCodec.FINGERPRINT);
+        }
+        super.initialize(clientInitializationInfo);
+
+        this.socket = socket;
+        BlockingQueue<Message> receivedMessages = new LinkedBlockingQueue<>();
+        sessionId = socket.openSession(receivedMessages);
+
+        messageDispatcher = new MessageDispatcher(
+                inputMessageQueue,
+                outputMessageQueue,
+                MAX_BATCH_SIZE,
+                (timeout, unit) -> {
+                    try {
+                        Message message = receivedMessages.poll(timeout, unit);
+                        if (message == null) {
+                            if (!socket.isOpen(sessionId)) {
+                                throw new IOException("The session has been closed");
+                            }
+                            throw new TimeoutException("Poll timeout");
+                        }
+                        List<Message> messages = new ArrayList<>();
+                        messages.add(message);
+                        receivedMessages.drainTo(messages);
+                        return messages;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(e.toString());
+                    }
+                },
+                messages -> socket.send(sessionId, messages)
+        );
+    }
+
+    /**
+     * Closes the session, leaving the shared connection open for the other sessions
+     *
+     * @throws Exception if the closing process is forced to stop
+     */
+    @Override
+    public void close() throws Exception {
+        if (socket != null) {
+            try {
+                socket.closeSession(sessionId);
+            } catch (IOException e) {
+                logger.info("The connection was already closed " + e);
+            }
+        }
+        if (messageDispatcher != null) {
+            messageDispatcher.close();
+        }
+        super.close();
+    }
+}
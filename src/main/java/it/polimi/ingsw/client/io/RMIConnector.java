@@ -3,7 +3,6 @@ package it.polimi.ingsw.client.io;
 import it.polimi.ingsw.server.view.exceptions.ViewDisconnectedException;
 import it.polimi.ingsw.shared.MessageDispatcher;
 import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
-import it.polimi.ingsw.shared.rmi.RMIMessageProxy;
 import it.polimi.ingsw.shared.rmi.RMIStreamProvider;
 
 import java.io.IOException;
@@ -19,15 +18,25 @@ import java.rmi.registry.LocateRegistry;
  * @author Carlo Dell'Acqua
  */
 public class RMIConnector extends Connector {
+    /**
+     * The maximum number of messages moved by a single remote call
+     */
+    private static final int MAX_BATCH_SIZE = 64;
+
     /**
      * Message dispatching utility for IO
      */
     private MessageDispatcher messageDispatcher;
 
     /**
-     * The object that represents the connection between the client and the server used to send and receive messages
+     * The remote end point of the server used to send and receive messages
+     */
+    private RMIStreamProvider provider;
+
+    /**
+     * The session token identifying this client at the end point
      */
-    private RMIMessageProxy messageProxy;
+    private String token;
 
     /**
      * Initializes the RMI-based implementation of the Connector
@@ -35,20 +44,21 @@ public class RMIConnector extends Connector {
      * @param clientInitializationInfo the user preferences for the match
      * @param address the remote address the client needs to connect to
      * @throws RemoteException if the RMI registry cannot be reached
-     * @throws NotBoundException if the server couldn't provide a valid RMIMessageProxy
-     * @throws InterruptedException if the server couldn't provide a valid RMIMessageProxy
+     * @throws NotBoundException if the server did not bind its end point
+     * @throws InterruptedException if the server couldn't open a session
      */
     public void initialize(ClientInitializationInfo clientInitializationInfo, InetSocketAddress address) throws RemoteException, NotBoundException, InterruptedException {
         super.initialize(clientInitializationInfo);
-        RMIStreamProvider provider = (RMIStreamProvider) LocateRegistry.getRegistry(address.getHostName(), address.getPort()).lookup("RMIConnectionEndPoint");
-        messageProxy = (RMIMessageProxy) LocateRegistry.getRegistry(address.getHostName(), address.getPort()).lookup(provider.connect());
+        provider = (RMIStreamProvider) LocateRegistry.getRegistry(address.getHostName(), address.getPort()).lookup("RMIConnectionEndPoint");
+        token = provider.connect();
 
         messageDispatcher = new MessageDispatcher(
                 inputMessageQueue,
                 outputMessageQueue,
+                MAX_BATCH_SIZE,
                 (timeout, unit) -> {
                     try {
-                        return messageProxy.receiveMessage(timeout, unit);
+                        return provider.receiveMessages(token, MAX_BATCH_SIZE, timeout, unit);
                     } catch (RemoteException e) {
                         throw new IOException(e.toString());
                     } catch (InterruptedException e) {
@@ -56,9 +66,9 @@ public class RMIConnector extends Connector {
                         throw new IOException(e.toString());
                     }
                 },
-                message -> {
+                messages -> {
                     try {
-                        messageProxy.sendMessage(message);
+                        provider.sendMessages(token, messages);
                     } catch (RemoteException e) {
                         throw new IOException(e.toString());
                     }
@@ -74,8 +84,8 @@ public class RMIConnector extends Connector {
     @Override
     public void close() throws Exception {
         try {
-            if (messageProxy != null) {
-                messageProxy.close();
+            if (token != null) {
+                provider.disconnect(token);
             }
             if (messageDispatcher != null) {
                 messageDispatcher.close();
@@ -4,12 +4,16 @@ import it.polimi.ingsw.shared.InputStreamMessageSupplier;
 import it.polimi.ingsw.shared.MessageDispatcher;
 import it.polimi.ingsw.shared.OutputStreamMessageConsumer;
 import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.BinaryMessageCodec;
+import it.polimi.ingsw.shared.messages.CompressionDictionary;
 
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.Collections;
 
 /**
  * This class is the concrete connector implemented with classic socket IO
@@ -17,6 +21,11 @@ import java.net.Socket;
  * @author Carlo Dell'Acqua
  */
 public class SocketConnector extends Connector {
+    /**
+     * The default maximum number of messages written to the socket with a single flush
+     */
+    private static final int DEFAULT_MAX_BATCH_SIZE = 32;
+
     /**
      * Message supplier object that provides input messages
      */
@@ -32,6 +41,57 @@ public class SocketConnector extends Connector {
      */
     private Socket socket;
 
+    /**
+     * True if the server should send binary frames instead of JSON ones
+     */
+    private final boolean binaryCodec;
+
+    /**
+     * True if the server should compress the big frames
+     */
+    private final boolean compression;
+
+    /**
+     * The maximum number of messages written to the socket with a single flush
+     */
+    private final int maxBatchSize;
+
+    /**
+     * The maximum time in milliseconds a batch of messages waits for other messages before being written
+     */
+    private final int maxBatchDelayMilliseconds;
+
+    /**
+     * Constructs a connector that will receive JSON frames
+     */
+    public SocketConnector() {
+        this(false);
+    }
+
+    /**
+     * Constructs a connector that writes every pending message at once without waiting for other ones
+     *
+     * @param binaryCodec true if the server should send binary frames instead of JSON ones
+     */
+    public SocketConnector(boolean binaryCodec) {
+        this(binaryCodec, false, DEFAULT_MAX_BATCH_SIZE, 0);
+    }
+
+    /**
+     * Constructs a connector
+     *
+     * @param binaryCodec true if the server should send binary frames instead of JSON ones
+     * @param compression true if the server should compress the big frames
+     * @param maxBatchSize the maximum number of messages written to the socket with a single flush
+     * @param maxBatchDelayMilliseconds the maximum time a batch of messages waits for other messages before being written
+     */
+    public SocketConnector(boolean binaryCodec, boolean compression, int maxBatchSize, int maxBatchDelayMilliseconds) {
+        this.binaryCodec = binaryCodec;
+        this.compression = compression;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayMilliseconds = maxBatchDelayMilliseconds;
+    }
+
     /**
      * Initializes the Socket-based implementation of the Connector
      *
@@ -41,17 +101,25 @@ public class SocketConnector extends Connector {
      */
     public void initialize(ClientInitializationInfo clientInitializationInfo, InetSocketAddress address) throws IOException {
 
+        if (binaryCodec) {
+            clientInitializationInfo.setBinaryCodecFingerprint(BinaryMessageCodec.FINGERPRINT);
+        }
+        if (compression) {
+            clientInitializationInfo.setCompressionFingerprint(CompressionDictionary.FINGERPRINT);
+        }
         super.initialize(clientInitializationInfo);
 
         socket = new Socket();
         socket.connect(address);
 
-        inputMessageStreamSupplier = new InputStreamMessageSupplier(new DataInputStream(socket.getInputStream()));
+        inputMessageStreamSupplier = new InputStreamMessageSupplier(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
 
         messageDispatcher = new MessageDispatcher(
                 inputMessageQueue,
                 outputMessageQueue,
-                inputMessageStreamSupplier,
+                maxBatchSize,
+                maxBatchDelayMilliseconds,
+                (timeout, unit) -> Collections.singletonList(inputMessageStreamSupplier.get(timeout, unit)),
                 new OutputStreamMessageConsumer(new DataOutputStream(socket.getOutputStream()))
         );
     }
@@ -206,7 +206,7 @@ public class CLI implements AutoCloseable, QuestionMessageReceivedListener, Boar
                     ((RMIConnector) connector).initialize(new ClientInitializationInfo(nickname, preset, skulls, mode), new InetSocketAddress(serverAddress, config.getRMIPort()));
                     break;
                 case "Socket":
-                    connector = new SocketConnector();
+                    connector = new SocketConnector(config.isBinaryCodec(), config.isCompression(), config.getSocketMaxBatchSize(), config.getSocketMaxBatchDelay());
                     addAllListeners();
                     ((SocketConnector) connector).initialize(new ClientInitializationInfo(nickname, preset, skulls, mode), new InetSocketAddress(serverAddress, config.getSocketPort()));
                     break;
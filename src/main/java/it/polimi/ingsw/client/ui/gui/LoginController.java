@@ -280,7 +280,7 @@ public class LoginController extends WindowController implements MatchListener,
                     ((RMIConnector) connector).initialize(info, new InetSocketAddress(serverAddressField.getText(), config.getRMIPort()));
                     break;
                 case "socket":
-                    connector = new SocketConnector();
+                    connector = new SocketConnector(config.isBinaryCodec(), config.isCompression(), config.getSocketMaxBatchSize(), config.getSocketMaxBatchDelay());
                     connector.addMatchListener(this);
                     connector.addDuplicatedNicknameListener(this);
                     connector.addClientListener(this);
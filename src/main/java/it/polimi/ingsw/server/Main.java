@@ -1,6 +1,7 @@
 package it.polimi.ingsw.server;
 
 import com.google.gson.Gson;
+import it.polimi.ingsw.server.cluster.ClusterRouter;
 import it.polimi.ingsw.utils.ConfigFileMaker;
 
 import java.io.IOException;
@@ -17,7 +18,8 @@ public class Main {
 
     /**
      * This method is the entry-point of our application. After reading the basic configuration file, command line
-     * parameters are scanned to search for overwritten settings
+     * parameters are scanned to search for overwritten settings. If the first parameter is "router", a cluster router
+     * is started on the socket port instead of a server, and the nodes register with it on the cluster router port
      *
      * @param args the CLI arguments
      * @throws IOException thrown if the configuration file is not found
@@ -34,6 +36,7 @@ public class Main {
          * "rmiPort"
          * "socketPort"
          * "rmiHostname"
+         * "clusterRouterHost"
          */
 
         ServerConfig config = new Gson().fromJson(ConfigFileMaker.load(SERVER_CONFIG_JSON_PATH, SERVER_CONFIG_JSON_PATH_RES), ServerConfig.class);
@@ -57,6 +60,21 @@ public class Main {
             config.setSocketPort(Integer.parseInt(args[settingCount]));
         if (args.length > settingCount++)
             config.setRMIHostname(args[settingCount]);
+        if (args.length > settingCount++)
+            config.setClusterRouterHost(args[settingCount]);
+
+        if (args.length > 0 && args[0].equals("router")) {
+            ClusterRouter router = new ClusterRouter(config.getSocketPort(), config.getClusterRouterPort(), config.getClusterAffinityTimeout());
+            router.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    router.close();
+                } catch (Exception ex) {
+                    Runtime.getRuntime().halt(0);
+                }
+            }));
+            return;
+        }
 
         Server server = new Server(config);
         server.start();
@@ -1,18 +1,28 @@
 package it.polimi.ingsw.server;
 
 import it.polimi.ingsw.server.bootstrap.GameInitializer;
+import it.polimi.ingsw.server.bootstrap.LobbyAllocator;
+import it.polimi.ingsw.server.bootstrap.MatchPreferences;
+import it.polimi.ingsw.server.bootstrap.MatchRecovery;
 import it.polimi.ingsw.server.bootstrap.WaitingRoom;
+import it.polimi.ingsw.server.bootstrap.acceptors.LocalAcceptor;
+import it.polimi.ingsw.server.bootstrap.factories.LocalViewFactory;
 import it.polimi.ingsw.server.bootstrap.factories.RMIViewFactory;
 import it.polimi.ingsw.server.bootstrap.factories.SocketViewFactory;
+import it.polimi.ingsw.server.cluster.NodeAgent;
+import it.polimi.ingsw.server.cluster.NodeRegistration;
 import it.polimi.ingsw.server.controller.Controller;
 import it.polimi.ingsw.server.controller.events.MatchEnded;
 import it.polimi.ingsw.server.controller.events.listeners.ControllerListener;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -39,7 +49,7 @@ public class Server implements ControllerListener, AutoCloseable {
     private WaitingRoom waitingRoom;
 
     /**
-     * A thread pool used for background task execution
+     * A thread pool resuming the matches when the players answer, shared by all the rooms
      */
     private final ExecutorService threadPool;
 
@@ -48,6 +58,31 @@ public class Server implements ControllerListener, AutoCloseable {
      */
     private final List<Controller> activeRooms = new LinkedList<>();
 
+    /**
+     * The thread pool forming the rooms, each room waits for its participants on its own thread
+     */
+    private final ExecutorService roomFormationPool;
+
+    /**
+     * The allocator distributing the new clients among the rooms being formed
+     */
+    private final LobbyAllocator lobbyAllocator = new LobbyAllocator();
+
+    /**
+     * The agent registering this server with the cluster router, null if the server runs standalone
+     */
+    private NodeAgent nodeAgent = null;
+
+    /**
+     * The directory the journals of the matches are written to, null if the matches are not journaled
+     */
+    private final Path journalDirectory;
+
+    /**
+     * The directory the events of the matches are logged to, null if the events are not logged
+     */
+    private final Path eventLogDirectory;
+
     /**
      * Constructs the server of the game
      *
@@ -57,56 +92,145 @@ public class Server implements ControllerListener, AutoCloseable {
 
         System.setProperty("java.rmi.server.hostname", config.getRMIHostname());
 
-        RMIViewFactory.initialize(config.getClientAnswerTimeout());
-        SocketViewFactory.initialize(config.getClientAnswerTimeout());
+        // A match holds at most one blocking thread at a time, the powerups reacting to its damages run on that thread
+        ExecutorFactory.initialize(config.getExecutionMode(), Math.max(1, config.getMaxParallelMatches()));
+        logger.info("Blocking loops will run on " + ExecutorFactory.getExecutionMode() + " threads");
+
+        RMIViewFactory.initialize(config.getClientAnswerTimeout(), config.getOutputQueueCapacity(), config.getOutputQueuePolicy());
+        SocketViewFactory.initialize(config.getClientAnswerTimeout(), config.getSocketCompressionThreshold(), config.getOutputQueueCapacity(), config.getOutputQueuePolicy());
+        LocalViewFactory.initialize(config.getClientAnswerTimeout(), config.getOutputQueueCapacity(), config.getOutputQueuePolicy());
 
         this.config = config;
-        waitingRoom = new WaitingRoom(config.getSocketPort(), config.getRMIPort());
-        threadPool = Executors.newFixedThreadPool(config.getMaxParallelMatches());
+        waitingRoom = new WaitingRoom(config.getSocketPort(), config.getSocketMultiplexedPort(), config.getRMIPort(), config.getSocketIOThreads(), config.getMatchmakingRelaxationTimeout());
+        threadPool = ExecutorFactory.newFixedThreadPool(config.getControllerThreads());
+        roomFormationPool = ExecutorFactory.newFixedThreadPool(Math.max(1, config.getMaxParallelMatches()));
+        journalDirectory = config.getMatchJournalDirectory() == null ? null : Paths.get(config.getMatchJournalDirectory());
+        eventLogDirectory = config.getMatchEventLogDirectory() == null ? null : Paths.get(config.getMatchEventLogDirectory());
     }
 
     /**
-     * Starts collecting players from the waiting room and fills up the available rooms
+     * Starts collecting players from the waiting room and opens the available rooms, which are formed at the same time.
+     * The matches interrupted by a crash are recovered first and take the place of a room each. If a cluster router is
+     * configured, the server joins the cluster as one of its nodes
      *
-     * @throws IOException if errors regarding the socket infrastructure occur
-     * @throws InterruptedException if the thread is forced to stop
+     * @throws IOException if errors regarding the socket infrastructure occur, the cluster router cannot be reached or
+     *                     the journals cannot be read
      */
-    public void start() throws IOException, InterruptedException {
+    public void start() throws IOException {
         logger.info("Server started!");
         logger.info("Opening the waiting room...");
 
         waitingRoom.collectAsync();
 
-        for (int i = 0; i < config.getMaxParallelMatches(); i++) {
-            createRoom();
+        if (config.getClusterRouterHost() != null) {
+            nodeAgent = new NodeAgent(
+                    new InetSocketAddress(config.getClusterRouterHost(), config.getClusterRouterPort()),
+                    new NodeRegistration(config.getClusterNodeHost(), config.getSocketPort(), config.getMaxParallelMatches() * config.getMaxClients())
+            );
+            nodeAgent.connect();
         }
 
-        logger.info("Reached the maximum amount of parallel matches, waiting for a room to free up...");
+        int recoveredMatches = journalDirectory == null ? 0 : recoverMatches();
+
+        for (int i = recoveredMatches; i < config.getMaxParallelMatches(); i++) {
+            openRoom();
+        }
     }
 
     /**
-     * Creates a virtual room using the GameInitializer class and start the execution of the controller
+     * Recovers the matches interrupted by a crash from their journals, each of them is started once its players had
+     * the chance to reconnect
+     *
+     * @return the number of recovered matches
+     * @throws IOException if the journals cannot be read
+     */
+    private int recoverMatches() throws IOException {
+        MatchRecovery recovery = new MatchRecovery(
+                journalDirectory,
+                waitingRoom.getSessionRegistry(),
+                config.getReplayBufferSize(),
+                threadPool,
+                config.getMatchRecoveryTimeout()
+        );
+        recovery.setEventLogDirectory(eventLogDirectory);
+        List<Controller> controllers = recovery.recover(this::startController);
+        for (Controller controller : controllers) {
+            controller.addListener(this);
+            synchronized (activeRooms) {
+                activeRooms.add(controller);
+            }
+        }
+        return controllers.size();
+    }
+
+    /**
+     * Submits the formation of a room, the number of rooms being formed or played never exceeds the maximum number of
+     * parallel matches since a new room is only opened when a match ends
+     */
+    private void openRoom() {
+        synchronized (roomFormationPool) {
+            if (!roomFormationPool.isShutdown()) {
+                roomFormationPool.execute(() -> {
+                    try {
+                        createRoom();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Returns the acceptor the clients running in the same JVM, such as bots and load tests, use to join the server
+     *
+     * @return the in-process acceptor of the waiting room
+     */
+    public LocalAcceptor getLocalAcceptor() {
+        return waitingRoom.getLocalAcceptor();
+    }
+
+    /**
+     * Creates a virtual room using the GameInitializer class and start the execution of the controller. The rooms
+     * being formed share the lobby allocator, which decides the room every new client joins
      *
      * @throws InterruptedException if the thread is forced to stop
      */
     private void createRoom() throws InterruptedException {
-        // This synchronization is needed to prevent multiple threads from polling the waitingRoom concurrently
+        GameInitializer initializer = new GameInitializer(
+                waitingRoom,
+                config.getMatchStartTimeout(),
+                config.getMinClients(),
+                config.getMaxClients(),
+                config.getReplayBufferSize(),
+                threadPool,
+                lobbyAllocator
+        );
+        initializer.setJournalDirectory(journalDirectory);
+        initializer.setEventLogDirectory(eventLogDirectory);
+        Controller controller = initializer.initialize();
+        controller.addListener(this);
         synchronized (activeRooms) {
-            GameInitializer initializer = new GameInitializer(
-                    waitingRoom,
-                    config.getMatchStartTimeout(),
-                    config.getMinClients(),
-                    config.getMaxClients()
-            );
-            Controller controller = initializer.initialize();
-            controller.addListener(this);
             activeRooms.add(controller);
-            logger.info("Room setup completed, starting the match controller...");
+        }
+        logger.info("Room setup completed, starting the match controller...");
+        MatchPreferences preferences = initializer.getPreferences();
+        waitingRoom.getMedianTimeToMatch(preferences).ifPresent(median ->
+                logger.info("Median time to match for " + preferences + ": " + median.toMillis() + "ms")
+        );
 
-            synchronized (threadPool) {
-                if (!threadPool.isShutdown()) {
-                    threadPool.execute(controller);
-                }
+        startController(controller);
+    }
+
+    /**
+     * Starts the match of a controller, unless the server is shutting down
+     *
+     * @param controller the controller to start
+     */
+    private void startController(Controller controller) {
+        synchronized (threadPool) {
+            if (!threadPool.isShutdown()) {
+                controller.start();
             }
         }
     }
@@ -119,15 +243,10 @@ public class Server implements ControllerListener, AutoCloseable {
     @Override
     public void onMatchEnd(MatchEnded e) {
         logger.info("Room available, waiting for new clients...");
-        try {
-            synchronized (activeRooms) {
-                activeRooms.remove(e.getSource());
-            }
-            createRoom();
-        } catch (InterruptedException ex) {
-            logger.warning("Unable to start a new Room, thread interrupted");
-            Thread.currentThread().interrupt();
+        synchronized (activeRooms) {
+            activeRooms.remove(e.getSource());
         }
+        openRoom();
     }
 
     /**
@@ -138,8 +257,17 @@ public class Server implements ControllerListener, AutoCloseable {
     @Override
     public void close() throws Exception {
 
+        if (nodeAgent != null) {
+            nodeAgent.close();
+        }
+        synchronized (roomFormationPool) {
+            roomFormationPool.shutdownNow();
+        }
+        // The matches are closed before their connections, so that the journals do not record the disconnections
+        synchronized (activeRooms) {
+            activeRooms.forEach(Controller::close);
+        }
         waitingRoom.close();
-        activeRooms.forEach(Controller::close);
 
         synchronized (threadPool) {
             threadPool.shutdown();
@@ -147,5 +275,9 @@ public class Server implements ControllerListener, AutoCloseable {
         while (!threadPool.awaitTermination(5, TimeUnit.SECONDS)) {
             logger.warning("Thread pool hasn't shut down yet, waiting...");
         }
+        ExecutorService blockingExecutor = ExecutorFactory.shutdownBlockingExecutor();
+        while (blockingExecutor != null && !blockingExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+            logger.warning("Blocking executor hasn't shut down yet, waiting...");
+        }
     }
 }
@@ -1,5 +1,10 @@
 package it.polimi.ingsw.server;
 
+import it.polimi.ingsw.server.bootstrap.WaitingRoom;
+import it.polimi.ingsw.server.view.MatchEventBroadcaster;
+import it.polimi.ingsw.server.view.OutputMessageQueue;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
+
 /**
  * This class represents the initial configuration of the game server
  *
@@ -41,11 +46,93 @@ public class ServerConfig {
      */
     private int socketPort;
 
+    /**
+     * Listening port of the socket connections carrying many player sessions, negative to disable them
+     */
+    private int socketMultiplexedPort = -1;
+
     /**
      * The hostname or IP that the RMI Registry will use
      */
     private String rmiHostname;
 
+    /**
+     * The number of IO threads serving all the socket clients
+     */
+    private int socketIOThreads = 2;
+
+    /**
+     * The minimum size in bytes of a frame to be compressed for the socket clients that asked for it
+     */
+    private int socketCompressionThreshold = 1024;
+
+    /**
+     * The number of threads resuming the matches when the players answer
+     */
+    private int controllerThreads = 2;
+
+    /**
+     * The number of messages waiting for a client above which its match events are dropped until it catches up
+     */
+    private int outputQueueCapacity = OutputMessageQueue.DEFAULT_CAPACITY;
+
+    /**
+     * The number of recent events of each match kept to resume the reconnected clients without a snapshot
+     */
+    private int replayBufferSize = MatchEventBroadcaster.DEFAULT_HISTORY_SIZE;
+
+    /**
+     * The time in milliseconds after which a waiting player can join a room with match preferences different from its own
+     */
+    private int matchmakingRelaxationTimeout = WaitingRoom.DEFAULT_RELAXATION_TIMEOUT;
+
+    /**
+     * The host of the cluster router this server registers with as a node, null to run standalone
+     */
+    private String clusterRouterHost = null;
+
+    /**
+     * The port the cluster router accepts the nodes on
+     */
+    private int clusterRouterPort = 9100;
+
+    /**
+     * The host the cluster router relays the clients to, null to use the address this server registered from
+     */
+    private String clusterNodeHost = null;
+
+    /**
+     * The time in milliseconds the cluster router keeps routing a disconnected nickname to the node that hosted it
+     */
+    private int clusterAffinityTimeout = 600000;
+
+    /**
+     * The directory the decisions of the matches are written to, so that they can be recovered after a crash, null to
+     * disable the journals
+     */
+    private String matchJournalDirectory = null;
+
+    /**
+     * The time in milliseconds a recovered match waits for its players to reconnect before going on without them
+     */
+    private int matchRecoveryTimeout = 60000;
+
+    /**
+     * The directory the events of the matches are logged to, so that they can be replayed offline, null to disable the
+     * event logs
+     */
+    private String matchEventLogDirectory = null;
+
+    /**
+     * What the output queue of a client does when it fills up
+     */
+    private OutputMessageQueue.Policy outputQueuePolicy = OutputMessageQueue.Policy.COALESCE;
+
+    /**
+     * The kind of threads running the blocking loops of the server
+     */
+    private ExecutorFactory.ExecutionMode executionMode = ExecutorFactory.ExecutionMode.PLATFORM;
+
     public int getMaxParallelMatches() {
         return maxParallelMatches;
     }
@@ -102,6 +189,14 @@ public class ServerConfig {
         this.socketPort = socketPort;
     }
 
+    public int getSocketMultiplexedPort() {
+        return socketMultiplexedPort;
+    }
+
+    public void setSocketMultiplexedPort(int socketMultiplexedPort) {
+        this.socketMultiplexedPort = socketMultiplexedPort;
+    }
+
     public String getRMIHostname() {
         return rmiHostname;
     }
@@ -109,4 +204,124 @@ public class ServerConfig {
     public void setRMIHostname(String rmiHostname) {
         this.rmiHostname = rmiHostname;
     }
+
+    public int getSocketIOThreads() {
+        return socketIOThreads;
+    }
+
+    public void setSocketIOThreads(int socketIOThreads) {
+        this.socketIOThreads = socketIOThreads;
+    }
+
+    public int getSocketCompressionThreshold() {
+        return socketCompressionThreshold;
+    }
+
+    public void setSocketCompressionThreshold(int socketCompressionThreshold) {
+        this.socketCompressionThreshold = socketCompressionThreshold;
+    }
+
+    public int getControllerThreads() {
+        return controllerThreads;
+    }
+
+    public void setControllerThreads(int controllerThreads) {
+        this.controllerThreads = controllerThreads;
+    }
+
+    public int getReplayBufferSize() {
+        return replayBufferSize;
+    }
+
+    public void setReplayBufferSize(int replayBufferSize) {
+        this.replayBufferSize = replayBufferSize;
+    }
+
+    public int getMatchmakingRelaxationTimeout() {
+        return matchmakingRelaxationTimeout;
+    }
+
+    public void setMatchmakingRelaxationTimeout(int matchmakingRelaxationTimeout) {
+        this.matchmakingRelaxationTimeout = matchmakingRelaxationTimeout;
+    }
+
+    public int getOutputQueueCapacity() {
+        return outputQueueCapacity;
+    }
+
+    public void setOutputQueueCapacity(int outputQueueCapacity) {
+        this.outputQueueCapacity = outputQueueCapacity;
+    }
+
+    public OutputMessageQueue.Policy getOutputQueuePolicy() {
+        return outputQueuePolicy;
+    }
+
+    public void setOutputQueuePolicy(OutputMessageQueue.Policy outputQueuePolicy) {
+        this.outputQueuePolicy = outputQueuePolicy;
+    }
+
+    public ExecutorFactory.ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(ExecutorFactory.ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public String getClusterRouterHost() {
+        return clusterRouterHost;
+    }
+
+    public void setClusterRouterHost(String clusterRouterHost) {
+        this.clusterRouterHost = clusterRouterHost;
+    }
+
+    public int getClusterRouterPort() {
+        return clusterRouterPort;
+    }
+
+    public void setClusterRouterPort(int clusterRouterPort) {
+        this.clusterRouterPort = clusterRouterPort;
+    }
+
+    public String getClusterNodeHost() {
+        return clusterNodeHost;
+    }
+
+    public void setClusterNodeHost(String clusterNodeHost) {
+        this.clusterNodeHost = clusterNodeHost;
+    }
+
+    public int getClusterAffinityTimeout() {
+        return clusterAffinityTimeout;
+    }
+
+    public void setClusterAffinityTimeout(int clusterAffinityTimeout) {
+        this.clusterAffinityTimeout = clusterAffinityTimeout;
+    }
+
+    public String getMatchJournalDirectory() {
+        return matchJournalDirectory;
+    }
+
+    public void setMatchJournalDirectory(String matchJournalDirectory) {
+        this.matchJournalDirectory = matchJournalDirectory;
+    }
+
+    public int getMatchRecoveryTimeout() {
+        return matchRecoveryTimeout;
+    }
+
+    public void setMatchRecoveryTimeout(int matchRecoveryTimeout) {
+        this.matchRecoveryTimeout = matchRecoveryTimeout;
+    }
+
+    public String getMatchEventLogDirectory() {
+        return matchEventLogDirectory;
+    }
+
+    public void setMatchEventLogDirectory(String matchEventLogDirectory) {
+        this.matchEventLogDirectory = matchEventLogDirectory;
+    }
 }
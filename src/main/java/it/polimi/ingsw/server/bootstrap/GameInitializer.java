@@ -2,17 +2,28 @@ package it.polimi.ingsw.server.bootstrap;
 
 import it.polimi.ingsw.server.bootstrap.events.listeners.ViewReconnectedListener;
 import it.polimi.ingsw.server.controller.Controller;
+import it.polimi.ingsw.server.journal.DecisionLog;
+import it.polimi.ingsw.server.journal.JournalHeader;
+import it.polimi.ingsw.server.journal.MatchEventLog;
+import it.polimi.ingsw.server.journal.MatchJournal;
 import it.polimi.ingsw.server.model.match.Match;
 import it.polimi.ingsw.server.model.match.MatchFactory;
+import it.polimi.ingsw.server.view.MatchEventBroadcaster;
 import it.polimi.ingsw.server.view.View;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.function.Function;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * This class initializes a Game waiting for the correct amount of views from the waiting room
@@ -22,7 +33,7 @@ import java.util.stream.Stream;
  */
 public class GameInitializer {
     /**
-     * Delay between waiting room queries
+     * Maximum time to wait for a participant before checking whether the waiting ones are still connected
      */
     private static final int WAITING_ROOM_QUERY_DELAY = 1000;
 
@@ -36,21 +47,62 @@ public class GameInitializer {
      */
     private int maxParticipants;
 
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
     /**
      * The minimum number of participants needed to start a match
      */
     private int minParticipants;
 
+    /**
+     * The number of recent events of the match kept to resume the reconnected clients
+     */
+    private int replayBufferSize;
+
     /**
      * This list accumulates the participants waiting for a match
      */
     private final List<View> participants = new LinkedList<>();
 
+    /**
+     * The number of participants, read by the allocator from the threads of the other lobbies
+     */
+    private volatile int participantCount = 0;
+
+    /**
+     * The preferences of the first participant, which decide the settings of the match, null while there are no
+     * participants
+     */
+    private volatile MatchPreferences preferences = null;
+
     /**
      * The waiting room that will be queried periodically to get new participants
      */
     private WaitingRoom participantSource;
 
+    /**
+     * The executor resuming the match when the players answer
+     */
+    private final Executor executor;
+
+    /**
+     * The allocator deciding which of the lobbies gathering participants at the same time receives the new ones
+     */
+    private final LobbyAllocator allocator;
+
+    /**
+     * The directory the journals of the matches are written to, null if the matches are not journaled
+     */
+    private Path journalDirectory = null;
+
+    /**
+     * The directory the events of the matches are logged to, null if the events are not logged
+     */
+    private Path eventLogDirectory = null;
+
     /**
      * Constructs a game initializer
      *
@@ -58,21 +110,93 @@ public class GameInitializer {
      * @param matchStartTimeoutMilliseconds the time to wait before starting a match with at least the minimum number of participants
      * @param minParticipants the minimum number of participants
      * @param maxParticipants the maximum number of participants
+     * @param replayBufferSize the number of recent events of the match kept to resume the reconnected clients
+     * @param executor the executor resuming the match when the players answer
+     */
+    public GameInitializer(WaitingRoom participantSource, int matchStartTimeoutMilliseconds, int minParticipants, int maxParticipants, int replayBufferSize, Executor executor) {
+        this(participantSource, matchStartTimeoutMilliseconds, minParticipants, maxParticipants, replayBufferSize, executor, new LobbyAllocator());
+    }
+
+    /**
+     * Constructs a game initializer that gathers participants at the same time of the other ones sharing its allocator
+     *
+     * @param participantSource a waiting room to take participants from
+     * @param matchStartTimeoutMilliseconds the time to wait before starting a match with at least the minimum number of participants
+     * @param minParticipants the minimum number of participants
+     * @param maxParticipants the maximum number of participants
+     * @param replayBufferSize the number of recent events of the match kept to resume the reconnected clients
+     * @param executor the executor resuming the match when the players answer
+     * @param allocator the allocator shared by the lobbies gathering participants at the same time
      */
-    public GameInitializer(WaitingRoom participantSource, int matchStartTimeoutMilliseconds, int minParticipants, int maxParticipants) {
+    public GameInitializer(WaitingRoom participantSource, int matchStartTimeoutMilliseconds, int minParticipants, int maxParticipants, int replayBufferSize, Executor executor, LobbyAllocator allocator) {
         this.matchStartTimeoutMilliseconds = matchStartTimeoutMilliseconds;
         this.minParticipants = minParticipants;
         this.maxParticipants = maxParticipants;
+        this.replayBufferSize = replayBufferSize;
         this.participantSource = participantSource;
+        this.executor = executor;
+        this.allocator = allocator;
+    }
+
+    /**
+     * Makes the match write its decisions to a journal, so that it can be recovered after a crash of the server
+     *
+     * @param journalDirectory the directory of the journals, null if the match is not journaled
+     */
+    public void setJournalDirectory(@Nullable Path journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    /**
+     * Makes the match log its events, so that it can be replayed offline
+     *
+     * @param eventLogDirectory the directory of the event logs, null if the events are not logged
+     */
+    public void setEventLogDirectory(@Nullable Path eventLogDirectory) {
+        this.eventLogDirectory = eventLogDirectory;
+    }
+
+    /**
+     * @return the number of participants gathered so far
+     */
+    int getParticipantCount() {
+        return participantCount;
+    }
+
+    /**
+     * @return the preferences of the players this lobby is gathering, null if it has no participants
+     */
+    public MatchPreferences getPreferences() {
+        return preferences;
     }
 
     /**
-     * Starts a blocking loop that will wait until the conditions needed to create a match are fulfilled
+     * Starts a blocking loop that will wait until the conditions needed to create a match are fulfilled. The loop is
+     * woken up as soon as the waiting room has a new participant, so the match starts as soon as the maximum number of
+     * participants is reached or the timeout expires with at least the minimum number of them. While other lobbies are
+     * gathering participants, this one only takes new participants when the allocator assigns them to it.
+     * The lobby adopts the preferences of its first participant and then takes the players sharing them, or the ones
+     * that waited too long for compatible players
      *
      * @return a Controller instance initialized with a valid Match and the Views
      * @throws InterruptedException if the loop is forced to stop
      */
     public Controller initialize() throws InterruptedException {
+        allocator.join(this);
+        try {
+            gatherParticipants();
+        } finally {
+            allocator.leave(this);
+        }
+        return createController();
+    }
+
+    /**
+     * Waits until the conditions needed to create a match are fulfilled
+     *
+     * @throws InterruptedException if the loop is forced to stop
+     */
+    private void gatherParticipants() throws InterruptedException {
 
         java.time.Instant deadline = Instant.now().plus(Duration.ofMillis(matchStartTimeoutMilliseconds));
 
@@ -80,31 +204,59 @@ public class GameInitializer {
             (deadline.isAfter(Instant.now()) || participants.size() < minParticipants) &&
             participants.size() != maxParticipants
         ) {
-            Thread.sleep(WAITING_ROOM_QUERY_DELAY);
+            long wait = WAITING_ROOM_QUERY_DELAY;
+            if (participants.size() >= minParticipants) {
+                wait = Math.max(1, Math.min(wait, Duration.between(Instant.now(), deadline).toMillis()));
+            }
+            long waitStart = System.nanoTime();
+            Optional<View> newParticipant = Optional.empty();
+            if (allocator.awaitTurn(this, wait, TimeUnit.MILLISECONDS)) {
+                long remaining = wait - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
+                newParticipant = participantSource.poll(preferences, allocator::isClaimed, Math.max(1, remaining), TimeUnit.MILLISECONDS);
+            }
 
             participants.removeIf(view -> !view.isConnected());
 
-            participantSource.pop().ifPresent(view -> {
+            newParticipant.filter(View::isConnected).ifPresent(view -> {
                 participants.forEach(participant -> {
                     participant.addViewListener(view);
                     view.addViewListener(participant);
                 });
+                if (participants.isEmpty()) {
+                    preferences = MatchPreferences.of(view);
+                }
                 participants.add(view);
                 view.setReady();
             });
 
+            if (participants.isEmpty()) {
+                preferences = null;
+            }
+            if (participantCount != participants.size()) {
+                participantCount = participants.size();
+                allocator.participantsChanged();
+            }
+
             if (participants.size() < minParticipants) {
                 deadline = Instant.now().plus(Duration.ofMillis(matchStartTimeoutMilliseconds));
             }
         }
+    }
 
+    /**
+     * Creates the match of the gathered participants and its controller
+     *
+     * @return a Controller instance initialized with a valid Match and the Views
+     */
+    private Controller createController() {
+        List<String> nicknames = participants.stream().map(View::getNickname).collect(Collectors.toList());
+        long seed = new Random().nextLong();
         Match match = MatchFactory.create(
-                participants.stream()
-                        .map(View::getNickname)
-                        .collect(Collectors.toList()),
-                playersChoice(participants.stream().map(View::getChosenPreset)),
-                playersChoice(participants.stream().map(View::getChosenSkulls)),
-                playersChoice(participants.stream().map(View::getChosenMode))
+                nicknames,
+                preferences.getPreset(),
+                preferences.getSkulls(),
+                preferences.getMode(),
+                seed
         );
         // Associates all the views with their respective player
         match.getPlayers().forEach(player -> {
@@ -116,42 +268,62 @@ public class GameInitializer {
                     .orElseThrow(() -> new IllegalStateException("Players nickname haven't been saved correctly in the model"));
             view.setPlayer(player);
         });
-        participants.forEach(match::addMatchListener);
-        participants.forEach(match.getBoard()::addBoardListener);
-        participants.forEach(
-                view -> match
-                        .getPlayers()
-                        .forEach(
-                                player -> player.addPlayerListener(view)
-                        )
-        );
+        MatchJournal journal = openJournal(new JournalHeader(seed, nicknames, preferences.getPreset(), preferences.getSkulls(), preferences.getMode(), minParticipants));
         Controller controller = new Controller(
                 match,
                 participants,
-                minParticipants
+                minParticipants,
+                new MatchEventBroadcaster(
+                        match,
+                        participants,
+                        replayBufferSize,
+                        openEventLog(eventLogDirectory, journal == null ? MatchJournal.newMatchId() : journal.getMatchId())
+                ),
+                executor,
+                journal == null ? new DecisionLog() : new DecisionLog(journal)
         );
-        controller.addListener((e) -> {
-            participantSource.removeViewReconnectedListener((ViewReconnectedListener)e.getSource());
-        });
-        participantSource.addViewReconnectedListener(controller);
+        SessionRegistry sessions = participantSource.getSessionRegistry();
+        controller.addListener(e -> sessions.endMatch(nicknames, (ViewReconnectedListener) e.getSource()));
+        sessions.startMatch(participants, controller);
         return controller;
     }
 
     /**
-     * Determines the result of the player votes about some choices regarding the match initial setup
+     * Creates the journal of the match if the matches are journaled
      *
-     * @param choices a stream of players' choices
-     * @param <T> the type of those choices
-     * @return the winning choice
-     */
-    private <T> T playersChoice(Stream<T> choices) {
-        return choices
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
-                .entrySet()
-                .stream()
-                .sorted((o1, o2) -> -1 * Long.compare(o1.getValue(), o2.getValue()))
-                .collect(Collectors.toList())
-                .get(0)
-                .getKey();
+     * @param header the description of the match
+     * @return the journal of the match, null if the match is not journaled or the journal cannot be created
+     */
+    @Nullable
+    private MatchJournal openJournal(JournalHeader header) {
+        if (journalDirectory == null) {
+            return null;
+        }
+        try {
+            return MatchJournal.create(journalDirectory, header);
+        } catch (IOException e) {
+            logger.warning("Couldn't create the journal, the match won't be recovered after a crash " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Creates the event log of a match if the events are logged
+     *
+     * @param directory the directory of the event logs, null if the events are not logged
+     * @param matchId the identifier of the match
+     * @return the event log of the match, null if the events are not logged or the log cannot be created
+     */
+    @Nullable
+    static MatchEventLog openEventLog(@Nullable Path directory, String matchId) {
+        if (directory == null) {
+            return null;
+        }
+        try {
+            return MatchEventLog.create(directory, matchId);
+        } catch (IOException e) {
+            Logger.getLogger(GameInitializer.class.getName()).warning("Couldn't create the event log, the match won't be replayed offline " + e);
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+package it.polimi.ingsw.server.bootstrap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class coordinates the lobbies that are gathering participants at the same time. Among the lobbies gathering
+ * players with the same preferences, the new participants are allocated to the one with the most participants, the
+ * oldest one on a tie, so that the clients that connected first are the first to play and the players are not spread
+ * among lobbies that would all wait for their timeout. The empty lobbies take turns in the same way and adopt the
+ * preferences of their first participant
+ */
+public class LobbyAllocator {
+
+    /**
+     * The lobbies gathering participants, in the order they were opened
+     */
+    private final List<GameInitializer> lobbies = new ArrayList<>();
+
+    /**
+     * Opens a lobby
+     *
+     * @param lobby the lobby that starts gathering participants
+     */
+    synchronized void join(GameInitializer lobby) {
+        lobbies.add(lobby);
+        notifyAll();
+    }
+
+    /**
+     * Closes a lobby, the next one in line starts receiving the new participants
+     *
+     * @param lobby the lobby that stopped gathering participants
+     */
+    synchronized void leave(GameInitializer lobby) {
+        lobbies.remove(lobby);
+        notifyAll();
+    }
+
+    /**
+     * Tells the other lobbies that the participants or the preferences of a lobby changed
+     */
+    synchronized void participantsChanged() {
+        notifyAll();
+    }
+
+    /**
+     * Waits until the given lobby is the one receiving the new participants
+     *
+     * @param lobby the lobby waiting for its turn
+     * @param timeout the maximum time to wait
+     * @param unit the measurement unit of the timeout
+     * @return true if it is the turn of the lobby, false if the timeout expired
+     * @throws InterruptedException if the thread is forced to stop
+     */
+    synchronized boolean awaitTurn(GameInitializer lobby, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remaining;
+        while (next(lobby.getPreferences()) != lobby) {
+            remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of lobbies gathering participants
+     */
+    public synchronized int getLobbyCount() {
+        return lobbies.size();
+    }
+
+    /**
+     * @param preferences some match preferences, null for the lobbies without participants
+     * @return true if a lobby with participants is gathering the players with the given preferences
+     */
+    synchronized boolean isClaimed(MatchPreferences preferences) {
+        return lobbies.stream().anyMatch(lobby -> preferences.equals(lobby.getPreferences()));
+    }
+
+    /**
+     * @param preferences the preferences of the lobbies, null for the lobbies without participants
+     * @return the lobby with the given preferences receiving the new participants, null if there are no such lobbies
+     */
+    private GameInitializer next(MatchPreferences preferences) {
+        GameInitializer next = null;
+        for (GameInitializer lobby : lobbies) {
+            if (!Objects.equals(preferences, lobby.getPreferences())) {
+                continue;
+            }
+            if (next == null || lobby.getParticipantCount() > next.getParticipantCount()) {
+                next = lobby;
+            }
+        }
+        return next;
+    }
+}
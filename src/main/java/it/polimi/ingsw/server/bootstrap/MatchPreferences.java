@@ -0,0 +1,93 @@
+package it.polimi.ingsw.server.bootstrap;
+
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.view.View;
+
+import java.util.Objects;
+
+/**
+ * The settings of the match a player asked for, the players asking for the same settings are compatible with each
+ * other and wait in the same matchmaking bucket
+ */
+public final class MatchPreferences {
+
+    /**
+     * The preset of the board
+     */
+    private final BoardFactory.Preset preset;
+
+    /**
+     * The number of skulls on the killshot track
+     */
+    private final int skulls;
+
+    /**
+     * The mode of the match
+     */
+    private final Match.Mode mode;
+
+    /**
+     * Constructs the preferences of a player
+     *
+     * @param preset the preset of the board
+     * @param skulls the number of skulls on the killshot track
+     * @param mode the mode of the match
+     */
+    public MatchPreferences(BoardFactory.Preset preset, int skulls, Match.Mode mode) {
+        this.preset = preset;
+        this.skulls = skulls;
+        this.mode = mode;
+    }
+
+    /**
+     * @param view an initialized view
+     * @return the preferences the player sent when the view was initialized
+     */
+    public static MatchPreferences of(View view) {
+        return new MatchPreferences(view.getChosenPreset(), view.getChosenSkulls(), view.getChosenMode());
+    }
+
+    /**
+     * @return the preset of the board
+     */
+    public BoardFactory.Preset getPreset() {
+        return preset;
+    }
+
+    /**
+     * @return the number of skulls on the killshot track
+     */
+    public int getSkulls() {
+        return skulls;
+    }
+
+    /**
+     * @return the mode of the match
+     */
+    public Match.Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        MatchPreferences that = (MatchPreferences) o;
+        return skulls == that.skulls && preset == that.preset && mode == that.mode;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(preset, skulls, mode);
+    }
+
+    @Override
+    public String toString() {
+        return preset + "/" + skulls + " skulls/" + mode;
+    }
+}
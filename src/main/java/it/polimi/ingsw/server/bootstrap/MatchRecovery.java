@@ -0,0 +1,263 @@
+package it.polimi.ingsw.server.bootstrap;
+
+import it.polimi.ingsw.server.bootstrap.factories.LocalViewFactory;
+import it.polimi.ingsw.server.controller.Controller;
+import it.polimi.ingsw.server.journal.DecisionLog;
+import it.polimi.ingsw.server.journal.JournalHeader;
+import it.polimi.ingsw.server.journal.MatchJournal;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.model.match.MatchFactory;
+import it.polimi.ingsw.server.model.player.Player;
+import it.polimi.ingsw.server.view.MatchEventBroadcaster;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.server.view.local.LocalView;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.shared.messages.ServerApi;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Recovers the matches interrupted by a crash of the server from the journals they left behind. Each match is created
+ * again from the seed in its journal, with disconnected views standing for its players, so that the players can
+ * reconnect to it as soon as it is recovered. Once all of them did, or the recovery timeout expired, the match replays
+ * the recorded decisions and goes on from the point it reached
+ */
+public class MatchRecovery {
+
+    /**
+     * Delay between two checks of the players that reconnected to a recovered match
+     */
+    private static final int REJOIN_CHECK_DELAY = 500;
+
+    /**
+     * The extension given to the journals that cannot be recovered, so that they are not read again
+     */
+    private static final String FAILED_EXTENSION = ".failed";
+
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The directory of the journals
+     */
+    private final Path journalDirectory;
+
+    /**
+     * The sessions the players of the recovered matches reconnect through
+     */
+    private final SessionRegistry sessions;
+
+    /**
+     * The number of recent events of a match kept to resume the reconnected clients
+     */
+    private final int replayBufferSize;
+
+    /**
+     * The executor resuming the matches when the players answer
+     */
+    private final Executor executor;
+
+    /**
+     * The time a recovered match waits for its players to reconnect
+     */
+    private final int recoveryTimeoutMilliseconds;
+
+    /**
+     * The directory the events of the recovered matches are logged to, null if the events are not logged
+     */
+    private Path eventLogDirectory = null;
+
+    /**
+     * Constructs the recovery of the matches
+     *
+     * @param journalDirectory the directory of the journals
+     * @param sessions the sessions the players of the recovered matches reconnect through
+     * @param replayBufferSize the number of recent events of a match kept to resume the reconnected clients
+     * @param executor the executor resuming the matches when the players answer
+     * @param recoveryTimeoutMilliseconds the time a recovered match waits for its players to reconnect
+     */
+    public MatchRecovery(Path journalDirectory, SessionRegistry sessions, int replayBufferSize, Executor executor, int recoveryTimeoutMilliseconds) {
+        this.journalDirectory = journalDirectory;
+        this.sessions = sessions;
+        this.replayBufferSize = replayBufferSize;
+        this.executor = executor;
+        this.recoveryTimeoutMilliseconds = recoveryTimeoutMilliseconds;
+    }
+
+    /**
+     * Makes the recovered matches log their events again, in place of the logs left behind by the crash
+     *
+     * @param eventLogDirectory the directory of the event logs, null if the events are not logged
+     */
+    public void setEventLogDirectory(@Nullable Path eventLogDirectory) {
+        this.eventLogDirectory = eventLogDirectory;
+    }
+
+    /**
+     * Recovers the interrupted matches. A journal that cannot be read is set aside, the journals of the matches that are
+     * over are deleted and the other ones are recovered
+     *
+     * @param starter the action starting a recovered controller once its players had the chance to reconnect, it is
+     *                always invoked by another thread after this method returned
+     * @return the controllers of the recovered matches, not started yet
+     * @throws IOException if the directory of the journals cannot be read
+     */
+    public List<Controller> recover(Consumer<Controller> starter) throws IOException {
+        List<Controller> controllers = new LinkedList<>();
+        for (Path file : MatchJournal.list(journalDirectory)) {
+            try {
+                if (MatchJournal.isEnded(file)) {
+                    logger.info("The match of " + file + " is over, deleting its journal");
+                    deleteEnded(file);
+                    continue;
+                }
+                controllers.add(recover(file, starter));
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                logger.warning("Couldn't recover the match of " + file + " " + e);
+                Files.move(file, file.resolveSibling(file.getFileName() + FAILED_EXTENSION), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return controllers;
+    }
+
+    /**
+     * Deletes the journal of a match that is over, a journal that still cannot be deleted is left where it is since it
+     * is never recovered anyway
+     *
+     * @param file the journal file
+     */
+    private void deleteEnded(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warning("Couldn't delete the journal " + file + " " + e);
+        }
+    }
+
+    /**
+     * Recovers the match of a journal
+     *
+     * @param file the journal file
+     * @param starter the action starting the recovered controller
+     * @return the controller of the match, not started yet
+     * @throws IOException if the journal cannot be read
+     */
+    private Controller recover(Path file, Consumer<Controller> starter) throws IOException {
+        MatchJournal journal = MatchJournal.open(file);
+        JournalHeader header = journal.getHeader();
+        List<View> placeholders = new ArrayList<>();
+        Controller controller;
+        try {
+            Match match = MatchFactory.create(header.getNicknames(), header.getPreset(), header.getSkulls(), header.getMode(), header.getSeed());
+            for (Player player : match.getPlayers()) {
+                View placeholder = createPlaceholder(player.getPlayerInfo().getNickname(), header);
+                placeholder.setPlayer(player);
+                placeholders.add(placeholder);
+            }
+            controller = new Controller(
+                    match,
+                    placeholders,
+                    header.getMinClients(),
+                    new MatchEventBroadcaster(
+                            match,
+                            placeholders,
+                            replayBufferSize,
+                            GameInitializer.openEventLog(eventLogDirectory, journal.getMatchId())
+                    ),
+                    executor,
+                    new DecisionLog(journal, journal.getRecords())
+            );
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        List<String> nicknames = header.getNicknames();
+        controller.addListener(e -> sessions.endMatch(nicknames, controller));
+        sessions.restoreMatch(placeholders, controller);
+        logger.info("Recovered the match of " + nicknames + " with " + journal.getRecords().size() + " recorded decisions, waiting for the players to reconnect...");
+        scheduleRejoinCheck(controller, nicknames, Instant.now().plusMillis(recoveryTimeoutMilliseconds), starter);
+        return controller;
+    }
+
+    /**
+     * Creates a disconnected view standing for a player until the player reconnects
+     *
+     * @param nickname the nickname of the player
+     * @param header the description of the match
+     * @return the disconnected view
+     * @throws IOException if the thread is interrupted
+     */
+    private static View createPlaceholder(String nickname, JournalHeader header) throws IOException {
+        LocalView view = LocalViewFactory.createLocalView();
+        view.receiveMessage(Message.createEvent(
+                ServerApi.VIEW_INIT_EVENT,
+                new ClientInitializationInfo(nickname, header.getPreset(), header.getSkulls(), header.getMode())
+        ));
+        try {
+            view.initialize();
+            view.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while recovering the match of " + nickname);
+        } catch (Exception e) {
+            throw new IOException("Couldn't create the view of " + nickname, e);
+        }
+        return view;
+    }
+
+    /**
+     * Schedules the next check of the players that reconnected to a recovered match on the shared timer
+     *
+     * @param controller the controller of the match
+     * @param nicknames the nicknames of the players
+     * @param deadline the instant the match starts even if some players did not reconnect
+     * @param starter the action starting the controller
+     */
+    private void scheduleRejoinCheck(Controller controller, List<String> nicknames, Instant deadline, Consumer<Controller> starter) {
+        ExecutorFactory.getTimer().newTimeout(
+                () -> checkRejoined(controller, nicknames, deadline, starter),
+                REJOIN_CHECK_DELAY,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Starts a recovered match if all its players reconnected or the deadline expired, otherwise checks again later
+     *
+     * @param controller the controller of the match
+     * @param nicknames the nicknames of the players
+     * @param deadline the instant the match starts even if some players did not reconnect
+     * @param starter the action starting the controller
+     */
+    private void checkRejoined(Controller controller, List<String> nicknames, Instant deadline, Consumer<Controller> starter) {
+        boolean rejoined = nicknames.stream().allMatch(nickname -> sessions.get(nickname)
+                .map(session -> session.getState() == SessionRegistry.State.IN_MATCH)
+                .orElse(false)
+        );
+        if (rejoined || !deadline.isAfter(Instant.now())) {
+            logger.info("Replaying the match of " + nicknames + (rejoined ? "" : ", some players did not reconnect"));
+            starter.accept(controller);
+        } else {
+            scheduleRejoinCheck(controller, nicknames, deadline, starter);
+        }
+    }
+}
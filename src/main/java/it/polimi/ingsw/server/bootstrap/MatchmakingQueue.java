@@ -0,0 +1,189 @@
+package it.polimi.ingsw.server.bootstrap;
+
+import it.polimi.ingsw.server.view.View;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * The queue of the views waiting for a match, indexed by the preferences of their players. A lobby gathering players
+ * with given preferences takes the head of their bucket in constant time, while the players that waited longer than
+ * the relaxation timeout may be taken by any lobby, so that nobody waits forever for compatible players. The time each
+ * player waited is recorded in its bucket. This class is not thread-safe, the waiting room guards it with its monitor
+ */
+public class MatchmakingQueue {
+
+    /**
+     * The number of recent waiting times of each bucket the median is computed on
+     */
+    private static final int SAMPLE_WINDOW = 64;
+
+    /**
+     * The views asking for the same preferences and the recent times they waited
+     */
+    private static class Bucket {
+        /**
+         * The waiting views, the oldest first, mapped to the instant they entered the queue from {@link System#nanoTime()}
+         */
+        private final LinkedHashMap<View, Long> views = new LinkedHashMap<>();
+
+        /**
+         * @return the view that waited the longest, null if the bucket is empty
+         */
+        @Nullable
+        private Map.Entry<View, Long> head() {
+            return views.isEmpty() ? null : views.entrySet().iterator().next();
+        }
+
+        /**
+         * The recent waiting times in nanoseconds, used as a ring
+         */
+        private final long[] samples = new long[SAMPLE_WINDOW];
+
+        /**
+         * The number of waiting times recorded since the bucket was created
+         */
+        private long sampleCount = 0;
+    }
+
+    /**
+     * The buckets, in the order their preferences were first seen
+     */
+    private final Map<MatchPreferences, Bucket> buckets = new LinkedHashMap<>();
+
+    /**
+     * The time after which a view can be taken by a lobby with different preferences, in nanoseconds
+     */
+    private final long relaxationNanos;
+
+    /**
+     * The number of views in the queue
+     */
+    private int size = 0;
+
+    /**
+     * Constructs an empty queue
+     *
+     * @param relaxationTimeout the time after which a view can be taken by a lobby with different preferences
+     */
+    public MatchmakingQueue(Duration relaxationTimeout) {
+        this.relaxationNanos = relaxationTimeout.toNanos();
+    }
+
+    /**
+     * Adds a view to the bucket of its preferences
+     *
+     * @param view an initialized view
+     */
+    public void add(View view) {
+        if (buckets.computeIfAbsent(MatchPreferences.of(view), p -> new Bucket()).views.putIfAbsent(view, System.nanoTime()) == null) {
+            size++;
+        }
+    }
+
+    /**
+     * Takes the view a lobby should receive. A lobby with preferences takes the head of their bucket, a lobby without
+     * participants takes the oldest view whose preferences are not claimed by another lobby. If there is no such view,
+     * the oldest view that waited longer than the relaxation timeout is taken
+     *
+     * @param preferences the preferences of the lobby, null if the lobby has no participants yet
+     * @param claimed tells whether the preferences are already gathered by a lobby
+     * @return the view, null if no view can be taken
+     */
+    @Nullable
+    public View poll(@Nullable MatchPreferences preferences, Predicate<MatchPreferences> claimed) {
+        Map.Entry<MatchPreferences, Bucket> chosen = null;
+        if (preferences != null) {
+            Bucket bucket = buckets.get(preferences);
+            if (bucket != null && !bucket.views.isEmpty()) {
+                chosen = new AbstractMap.SimpleEntry<>(preferences, bucket);
+            }
+        } else {
+            chosen = oldest(entry -> !claimed.test(entry.getKey()));
+        }
+        if (chosen == null) {
+            long now = System.nanoTime();
+            chosen = oldest(entry -> now - entry.getValue().head().getValue() >= relaxationNanos);
+        }
+        if (chosen == null) {
+            return null;
+        }
+        Bucket bucket = chosen.getValue();
+        Map.Entry<View, Long> head = bucket.head();
+        bucket.views.remove(head.getKey());
+        size--;
+        bucket.samples[(int) (bucket.sampleCount++ % SAMPLE_WINDOW)] = System.nanoTime() - head.getValue();
+        return head.getKey();
+    }
+
+    /**
+     * @param filter the condition the bucket must satisfy, only tested on buckets that are not empty
+     * @return the non-empty bucket satisfying the condition whose head waited the longest, null if there is none
+     */
+    @Nullable
+    private Map.Entry<MatchPreferences, Bucket> oldest(Predicate<Map.Entry<MatchPreferences, Bucket>> filter) {
+        Map.Entry<MatchPreferences, Bucket> oldest = null;
+        for (Map.Entry<MatchPreferences, Bucket> entry : buckets.entrySet()) {
+            Map.Entry<View, Long> head = entry.getValue().head();
+            if (head != null && filter.test(entry) && (oldest == null || head.getValue() - oldest.getValue().head().getValue() < 0)) {
+                oldest = entry;
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * Removes a view, without recording its waiting time
+     *
+     * @param view the view to remove
+     * @return true if the view was in the queue
+     */
+    public boolean remove(View view) {
+        Bucket bucket = buckets.get(MatchPreferences.of(view));
+        if (bucket == null || bucket.views.remove(view) == null) {
+            return false;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes all the views, the waiting times recorded so far are kept
+     */
+    public void clear() {
+        buckets.values().forEach(bucket -> bucket.views.clear());
+        size = 0;
+    }
+
+    /**
+     * @return the number of views in the queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if no view is waiting
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Computes the median of the recent times the players with the given preferences waited before joining a lobby
+     *
+     * @param preferences the preferences of the bucket
+     * @return the median waiting time, empty if no player of the bucket joined a lobby yet
+     */
+    public Optional<Duration> getMedianTimeToMatch(MatchPreferences preferences) {
+        Bucket bucket = buckets.get(preferences);
+        if (bucket == null || bucket.sampleCount == 0) {
+            return Optional.empty();
+        }
+        long[] recent = Arrays.copyOf(bucket.samples, (int) Math.min(bucket.sampleCount, SAMPLE_WINDOW));
+        Arrays.sort(recent);
+        return Optional.of(Duration.ofNanos(recent[recent.length / 2]));
+    }
+}
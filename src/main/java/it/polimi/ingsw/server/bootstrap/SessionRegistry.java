@@ -0,0 +1,273 @@
+package it.polimi.ingsw.server.bootstrap;
+
+import it.polimi.ingsw.server.bootstrap.events.listeners.ViewReconnectedListener;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.server.view.events.ViewEvent;
+import it.polimi.ingsw.server.view.events.listeners.ViewListener;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * The index of the players known to the server, shared by the waiting room and the controllers of the matches. Each
+ * nickname is mapped to the session of its player, so checking duplicates and routing a reconnection to the match of
+ * the player take constant time. The sessions follow the disconnections of their views as they happen: a player that
+ * disconnects while waiting is forgotten immediately, while the session of a player in a match is kept until the match
+ * ends so that the player can reconnect
+ */
+public class SessionRegistry {
+
+    /**
+     * The state of a session
+     */
+    public enum State {
+        /**
+         * The player is waiting for a match, in the queue of the waiting room or in a room being formed
+         */
+        WAITING,
+        /**
+         * The player is connected to a match
+         */
+        IN_MATCH,
+        /**
+         * The player disconnected from a match and can reconnect to it
+         */
+        DISCONNECTED
+    }
+
+    /**
+     * The session of a player, identified by its nickname
+     */
+    public class Session implements ViewListener {
+
+        /**
+         * The nickname of the player
+         */
+        private final String nickname;
+
+        /**
+         * The current view of the player
+         */
+        private View view;
+
+        /**
+         * The state of the session
+         */
+        private State state = State.WAITING;
+
+        /**
+         * The controller of the match of the player, null while the player is waiting
+         */
+        private ViewReconnectedListener owner = null;
+
+        /**
+         * Constructs a waiting session
+         *
+         * @param view the view of the player
+         */
+        private Session(View view) {
+            this.nickname = view.getNickname();
+            this.view = view;
+        }
+
+        /**
+         * @return the nickname of the player
+         */
+        public String getNickname() {
+            return nickname;
+        }
+
+        /**
+         * @return the current view of the player
+         */
+        public synchronized View getView() {
+            return view;
+        }
+
+        /**
+         * @return the state of the session
+         */
+        public synchronized State getState() {
+            return state;
+        }
+
+        /**
+         * @return the controller of the match of the player, null while the player is waiting
+         */
+        synchronized ViewReconnectedListener getOwner() {
+            return owner;
+        }
+
+        /**
+         * Starts following the disconnection of a view of the player
+         *
+         * @param view the view to follow
+         */
+        private void follow(View view) {
+            view.addViewListener(this);
+            if (!view.isConnected()) {
+                onViewDisconnected(new ViewEvent(view));
+            }
+        }
+
+        /**
+         * Updates the session when its current view disconnects
+         *
+         * @param e the event corresponding to the view disconnection
+         */
+        @Override
+        public void onViewDisconnected(ViewEvent e) {
+            synchronized (this) {
+                if (e.getView() != view || state == State.DISCONNECTED) {
+                    return;
+                }
+                if (state == State.IN_MATCH) {
+                    state = State.DISCONNECTED;
+                    return;
+                }
+            }
+            if (sessions.remove(nickname, this)) {
+                waitingViewDisconnected.accept(e.getView());
+            }
+        }
+
+        /**
+         * The session does not react to this event
+         *
+         * @param e the event corresponding to the view being ready
+         */
+        @Override
+        public void onViewReady(ViewEvent e) {
+            // nothing to do here
+        }
+    }
+
+    /**
+     * The sessions, indexed by nickname
+     */
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * The action performed when a waiting player disconnects, after its session has been removed
+     */
+    private final Consumer<View> waitingViewDisconnected;
+
+    /**
+     * Constructs an empty registry
+     *
+     * @param waitingViewDisconnected the action performed when a waiting player disconnects
+     */
+    public SessionRegistry(Consumer<View> waitingViewDisconnected) {
+        this.waitingViewDisconnected = waitingViewDisconnected;
+    }
+
+    /**
+     * Registers a new player as waiting, unless its nickname is already taken
+     *
+     * @param view an initialized view
+     * @return the session of the nickname of the view, which is a new one following the view if the nickname was free
+     */
+    public Session register(View view) {
+        Session created = new Session(view);
+        Session session = sessions.putIfAbsent(view.getNickname(), created);
+        if (session != null) {
+            return session;
+        }
+        created.follow(view);
+        return created;
+    }
+
+    /**
+     * Hands a reconnecting view to the match of the session, which decides whether to take it
+     *
+     * @param session the session the view reconnects to
+     * @param view the reconnecting view
+     * @param consumer the action offering the view to the controller of the match, it returns true if the view was taken
+     * @return true if the view replaced the one of the session
+     */
+    boolean reconnect(Session session, View view, Predicate<ViewReconnectedListener> consumer) {
+        ViewReconnectedListener owner = session.getOwner();
+        if (owner == null || !consumer.test(owner)) {
+            return false;
+        }
+        synchronized (session) {
+            session.view = view;
+            session.state = State.IN_MATCH;
+        }
+        session.follow(view);
+        return true;
+    }
+
+    /**
+     * Moves the players of a new match to the match
+     *
+     * @param views the views of the players
+     * @param owner the controller of the match
+     */
+    public void startMatch(Collection<View> views, ViewReconnectedListener owner) {
+        for (View view : views) {
+            Session session = sessions.get(view.getNickname());
+            if (session != null) {
+                synchronized (session) {
+                    if (session.view == view) {
+                        session.owner = owner;
+                        session.state = view.isConnected() ? State.IN_MATCH : State.DISCONNECTED;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers the players of a match recovered after a restart of the server, as disconnected from the match until
+     * they reconnect
+     *
+     * @param views the views standing for the players until they reconnect
+     * @param owner the controller of the match
+     */
+    public void restoreMatch(Collection<View> views, ViewReconnectedListener owner) {
+        for (View view : views) {
+            Session session = new Session(view);
+            session.owner = owner;
+            session.state = State.DISCONNECTED;
+            if (sessions.putIfAbsent(view.getNickname(), session) == null) {
+                view.addViewListener(session);
+            }
+        }
+    }
+
+    /**
+     * Forgets the players of an ended match, so that their nicknames can be used again
+     *
+     * @param nicknames the nicknames of the players
+     * @param owner the controller of the match
+     */
+    public void endMatch(Collection<String> nicknames, ViewReconnectedListener owner) {
+        for (String nickname : nicknames) {
+            Session session = sessions.get(nickname);
+            if (session != null && session.getOwner() == owner) {
+                session.getView().removeViewListener(session);
+                sessions.remove(nickname, session);
+            }
+        }
+    }
+
+    /**
+     * @param nickname the nickname of a player
+     * @return the session of the player, empty if the nickname is not known
+     */
+    public Optional<Session> get(String nickname) {
+        return Optional.ofNullable(sessions.get(nickname));
+    }
+
+    /**
+     * @return the number of known players
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+}
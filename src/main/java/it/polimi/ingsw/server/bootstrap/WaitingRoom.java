@@ -1,32 +1,42 @@
 package it.polimi.ingsw.server.bootstrap;
 
+import it.polimi.ingsw.server.bootstrap.acceptors.Acceptor;
+import it.polimi.ingsw.server.bootstrap.acceptors.LocalAcceptor;
 import it.polimi.ingsw.server.bootstrap.acceptors.RMIAcceptor;
 import it.polimi.ingsw.server.bootstrap.acceptors.SocketAcceptor;
 import it.polimi.ingsw.server.bootstrap.events.ViewReconnected;
-import it.polimi.ingsw.server.bootstrap.events.listeners.ViewReconnectedListener;
 import it.polimi.ingsw.server.view.View;
 import it.polimi.ingsw.server.view.exceptions.ViewDisconnectedException;
 import it.polimi.ingsw.shared.messages.ClientApi;
 import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
- * This class is used to create a virtual waiting room in which RMI and Socket clients will wait until a virtual
- * game room is available
+ * This class is used to create a virtual waiting room in which RMI, Socket and in-process clients will wait until a
+ * virtual game room is available. Each acceptor is served by its own loop, which initializes the new views and
+ * publishes them to the lobby queue as soon as they are ready, waking up the rooms waiting for participants. The
+ * queue is indexed by the match preferences of the players, so each room takes the players compatible with it first
  *
  * @author Carlo Dell'Acqua
  */
 public class WaitingRoom implements AutoCloseable {
     /**
-     * Interval between the execution of the scheduleTask method
+     * The default time after which a player can join a room with preferences different from its own, in milliseconds
      */
-    private static final int SCHEDULED_TASK_PERIOD = 1000;
+    public static final int DEFAULT_RELAXATION_TIMEOUT = 10000;
 
+    /**
+     * The number of threads initializing the new views, a client slow to send its preferences only holds one of them
+     */
+    private static final int INITIALIZATION_THREADS = 4;
 
 
     /**
@@ -45,179 +55,170 @@ public class WaitingRoom implements AutoCloseable {
     private RMIAcceptor rmiAcceptor;
 
     /**
-     * A queue containing an updated collection of connected views
+     * The acceptor of the clients running in the same JVM
+     */
+    private final LocalAcceptor localAcceptor = new LocalAcceptor();
+
+    /**
+     * A queue of the connected views indexed by their preferences, its monitor is notified when a view is added
      */
-    private final Queue<View> connectedViews = new LinkedList<>();
+    private final MatchmakingQueue connectedViews;
 
     /**
-     * A list containing the collection of the nicknames of the players that are connected
+     * The sessions of the players, shared with the rooms and the matches
      */
-    private final List<String> connectedNicknames = new LinkedList<>();
+    private final SessionRegistry sessionRegistry = new SessionRegistry(this::onWaitingViewDisconnected);
 
     /**
-     * The thread pool that runs the background tasks
+     * The thread pool that runs the accepting loops, one for each acceptor
      */
-    private final ExecutorService threadPool = Executors.newFixedThreadPool(3);
+    private final ExecutorService threadPool = ExecutorFactory.newFixedThreadPool(3);
 
     /**
-     * The current RMI task that will hold the result as a future "promise"
+     * The thread pool that initializes the accepted views
      */
-    private Future<View> currentRMITask;
+    private final ExecutorService initializationPool = ExecutorFactory.newFixedThreadPool(INITIALIZATION_THREADS);
 
     /**
-     * The current Socket task that will hold the result as a future "promise"
+     * Boolean indicating whether or not the close method has been invoked
      */
-    private Future<View> currentSocketTask;
+    private volatile boolean closing = false;
 
     /**
      * The socket listening port
      */
     private int socketPort;
 
+    /**
+     * The port listening for the multiplexed socket connections, negative if they are disabled
+     */
+    private int socketMultiplexedPort;
+
     /**
      * The RMI listening port
      */
     private int rmiPort;
 
     /**
-     * The listener for the reconnection event
+     * The number of IO threads serving the socket clients
      */
-    private Set<ViewReconnectedListener> viewReconnectedListeners = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private int socketIOThreads;
 
 
     /**
      * Constructs a waiting room to let clients connect to the server and wait till there is a room available for a Match
      *
      * @param socketPort the port to listen for the socket clients
+     * @param socketMultiplexedPort the port to listen for the multiplexed socket connections, negative to disable them
+     * @param rmiPort the port to listen for the RMI clients
+     * @param socketIOThreads the number of IO threads serving the socket clients
+     */
+    public WaitingRoom(int socketPort, int socketMultiplexedPort, int rmiPort, int socketIOThreads) {
+        this(socketPort, socketMultiplexedPort, rmiPort, socketIOThreads, DEFAULT_RELAXATION_TIMEOUT);
+    }
+
+    /**
+     * Constructs a waiting room with the given matchmaking relaxation timeout
+     *
+     * @param socketPort the port to listen for the socket clients
+     * @param socketMultiplexedPort the port to listen for the multiplexed socket connections, negative to disable them
      * @param rmiPort the port to listen for the RMI clients
+     * @param socketIOThreads the number of IO threads serving the socket clients
+     * @param relaxationTimeout the time in milliseconds after which a player can join a room with different preferences
      */
-    public WaitingRoom(int socketPort, int rmiPort) {
+    public WaitingRoom(int socketPort, int socketMultiplexedPort, int rmiPort, int socketIOThreads, int relaxationTimeout) {
         this.socketPort = socketPort;
+        this.socketMultiplexedPort = socketMultiplexedPort;
         this.rmiPort = rmiPort;
+        this.socketIOThreads = socketIOThreads;
+        this.connectedViews = new MatchmakingQueue(Duration.ofMillis(relaxationTimeout));
     }
 
     /**
-     * Starts the background task that will collect clients
+     * Starts the background tasks that will collect clients
      *
      * @throws IOException if the server socket creation fails
      */
     public void collectAsync() throws IOException {
         rmiAcceptor = new RMIAcceptor(rmiPort);
-        socketAcceptor = new SocketAcceptor(socketPort);
-        // We prepare the task to get our first Future, it will then be overwritten once we get the promised result
-        currentRMITask = threadPool.submit(rmiAcceptor);
-        currentSocketTask = threadPool.submit(socketAcceptor);
-
-        threadPool.execute(this::scheduledTask);
-    }
-
-    /**
-     * Periodically retrieves clients from the acceptors and removes the ones that disconnected
-     */
-    private void scheduledTask() {
-        connectToNewViews();
-        removeDisconnectedViews();
-        try {
-            Thread.sleep(SCHEDULED_TASK_PERIOD);
-            // Scheduling future execution
-
-            synchronized (threadPool) {
-                if (!threadPool.isShutdown()) {
-                    threadPool.execute(this::scheduledTask);
-                }
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        socketAcceptor = new SocketAcceptor(socketPort, socketMultiplexedPort, socketIOThreads);
+        for (Acceptor acceptor : Arrays.asList(rmiAcceptor, socketAcceptor, localAcceptor)) {
+            threadPool.execute(() -> acceptLoop(acceptor));
         }
     }
 
     /**
-     * Using the acceptors verifies that one client per technology (socket or RMI) connected and adds
-     * it to the queue
+     * Takes the views from an acceptor as soon as they connect and hands them to the initialization pool, until the
+     * waiting room is closed
+     *
+     * @param acceptor the acceptor to take the views from
      */
-    private void connectToNewViews() {
-        try {
-
-            if (currentSocketTask.isDone()) {
-                addNewView(currentSocketTask.get());
-
-                // The previous task has been consumed, we can now submit a new task for waiting new views
-                synchronized (threadPool) {
-                    if (!threadPool.isShutdown()) {
-                        currentSocketTask = threadPool.submit(socketAcceptor);
-                    }
-                }
-            }
-        } catch (ExecutionException ex) {
-            synchronized (threadPool) {
-                if (!threadPool.isShutdown()) {
-                    currentSocketTask = threadPool.submit(socketAcceptor);
-                }
-            }
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-        }
-
-        try {
-            if (currentRMITask.isDone()) {
-                addNewView(currentRMITask.get());
-
-                // The previous task has been consumed, we can now submit a new task for waiting new views
-                synchronized (threadPool) {
-                    if (!threadPool.isShutdown()) {
-                        currentRMITask = threadPool.submit(rmiAcceptor);
+    private void acceptLoop(Acceptor acceptor) {
+        while (!closing) {
+            try {
+                View view = acceptor.call();
+                synchronized (initializationPool) {
+                    if (!initializationPool.isShutdown()) {
+                        initializationPool.execute(() -> addNewView(view));
                     }
                 }
-            }
-        } catch (ExecutionException ex) {
-            synchronized (threadPool) {
-                if (!threadPool.isShutdown()) {
-                    currentRMITask = threadPool.submit(rmiAcceptor);
+            } catch (InterruptedException ex) {
+                if (!closing) {
+                    logger.warning("Acceptor interrupted " + ex);
                 }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                logger.warning("Unable to accept a view " + ex);
             }
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Removes views that disconnected while waiting in the queue
+     * Removes a view that disconnected while waiting, as soon as its session is closed
+     *
+     * @param view the disconnected view
      */
-    private void removeDisconnectedViews() {
-        List<View> disconnectedViews;
+    private void onWaitingViewDisconnected(View view) {
         synchronized (connectedViews) {
-            disconnectedViews = connectedViews
-                    .stream()
-                    .filter(view -> !view.isConnected())
-                    .collect(Collectors.toList());
-            connectedViews.removeAll(disconnectedViews);
+            connectedViews.remove(view);
         }
-        synchronized (connectedNicknames) {
-            disconnectedViews.forEach(v -> connectedNicknames.remove(v.getNickname()));
+        synchronized (initializationPool) {
+            if (!initializationPool.isShutdown()) {
+                initializationPool.execute(() -> closeView(view, null));
+            }
         }
-        disconnectedViews.forEach(this::closeView);
     }
 
+    /**
+     * Initializes a new view and registers its player. A new player joins the lobby queue, while a known nickname is
+     * routed to the match of its session, which decides whether the view is a reconnection or a duplicate
+     *
+     * @param view the new view
+     */
     private void addNewView(View view) {
 
         try {
             view.initialize();
-            synchronized (connectedViews) {
-                if (connectedNicknames.stream().anyMatch(n -> n.equals(view.getNickname()))) {
-                    ViewReconnected e = new ViewReconnected(this, view);
-                    Iterator<ViewReconnectedListener> iterator = viewReconnectedListeners.iterator();
-                    while (iterator.hasNext() && !e.isConsumed()) {
-                        iterator.next().onViewReconnected(e);
-                    }
-                    if (e.isConsumed()) {
-                        logger.info("View reconnected. Nickname: " + view.getNickname());
-                    } else {
-                        logger.info("Cannot add player. Duplicated nickname " + view.getNickname());
-                        closeView(view);
-                    }
+            SessionRegistry.Session session = sessionRegistry.register(view);
+            if (session.getView() != view) {
+                ViewReconnected e = new ViewReconnected(this, view);
+                if (sessionRegistry.reconnect(session, view, owner -> {
+                    owner.onViewReconnected(e);
+                    return e.isConsumed();
+                })) {
+                    logger.info("View reconnected. Nickname: " + view.getNickname());
                 } else {
+                    logger.info("Cannot add player. Duplicated nickname " + view.getNickname());
+                    closeView(view, Message.createEvent(ClientApi.DUPLICATE_NICKNAME_EVENT, new Object()));
+                }
+                return;
+            }
+            synchronized (connectedViews) {
+                // A view disconnecting from now on is removed by its session
+                if (view.isConnected()) {
                     connectedViews.add(view);
-                    connectedNicknames.add(view.getNickname());
+                    connectedViews.notifyAll();
                 }
             }
         } catch (InterruptedException e) {
@@ -228,9 +229,19 @@ public class WaitingRoom implements AutoCloseable {
         }
     }
 
-    private void closeView(View view) {
+    /**
+     * Closes a view, telling its client why if there is a reason
+     *
+     * @param view the view to close
+     * @param lastMessage the message sent before closing the view, null to close it without a message
+     */
+    private void closeView(View view, Message lastMessage) {
         try {
-            view.close(Message.createEvent(ClientApi.DUPLICATE_NICKNAME_EVENT, new Object()));
+            if (lastMessage == null) {
+                view.close();
+            } else {
+                view.close(lastMessage);
+            }
         } catch (Exception e) {
             logger.warning("Unable to close view " + e);
         }
@@ -242,28 +253,68 @@ public class WaitingRoom implements AutoCloseable {
      */
     public Optional<View> pop() {
         synchronized (connectedViews) {
-            if (connectedViews.isEmpty()) {
-                return Optional.empty();
-            } else {
-                return Optional.of(connectedViews.remove());
+            return Optional.ofNullable(connectedViews.poll(null, preferences -> false));
+        }
+    }
+
+    /**
+     * @return the acceptor the clients running in the same JVM connect to
+     */
+    public LocalAcceptor getLocalAcceptor() {
+        return localAcceptor;
+    }
+
+    /**
+     * Waits for a connected view, returning it as soon as it is available
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the measurement unit of the timeout
+     * @return an optional of a view, empty if no view became available within the timeout
+     * @throws InterruptedException if the thread is forced to stop
+     */
+    public Optional<View> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return poll(null, preferences -> false, timeout, unit);
+    }
+
+    /**
+     * Waits for a connected view a room can receive, returning it as soon as it is available. A room with preferences
+     * receives the players sharing them, a room without participants receives the oldest player whose preferences are
+     * not claimed by another room, and any room can receive the players that waited longer than the relaxation timeout
+     *
+     * @param preferences the preferences of the room, null if the room has no participants yet
+     * @param claimed tells whether some preferences are already gathered by another room
+     * @param timeout the maximum time to wait
+     * @param unit the measurement unit of the timeout
+     * @return an optional of a view, empty if no suitable view became available within the timeout
+     * @throws InterruptedException if the thread is forced to stop
+     */
+    public Optional<View> poll(@Nullable MatchPreferences preferences, Predicate<MatchPreferences> claimed, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (connectedViews) {
+            View view;
+            long remaining;
+            while ((view = connectedViews.poll(preferences, claimed)) == null && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(connectedViews, remaining);
             }
+            return Optional.ofNullable(view);
         }
     }
 
     /**
-     * Add a new listener of the reconnection event
-     * @param l the listener
+     * @param preferences the preferences of a matchmaking bucket
+     * @return the median of the recent times the players of the bucket waited before joining a room, empty if none did
      */
-    public void addViewReconnectedListener(ViewReconnectedListener l) {
-        this.viewReconnectedListeners.add(l);
+    public Optional<Duration> getMedianTimeToMatch(MatchPreferences preferences) {
+        synchronized (connectedViews) {
+            return connectedViews.getMedianTimeToMatch(preferences);
+        }
     }
 
     /**
-     * Remove a listener of the reconnection event
-     * @param l the listener
+     * @return the sessions of the players, shared with the rooms and the matches
      */
-    public void removeViewReconnectedListener(ViewReconnectedListener l) {
-        this.viewReconnectedListeners.remove(l);
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
     }
 
     /**
@@ -274,15 +325,22 @@ public class WaitingRoom implements AutoCloseable {
     @Override
     public void close() throws Exception {
 
+        closing = true;
         socketAcceptor.close();
         rmiAcceptor.close();
-        connectedViews.clear();
+        localAcceptor.close();
+        synchronized (connectedViews) {
+            connectedViews.clear();
+        }
 
-        synchronized (threadPool) {
-            threadPool.shutdown();
+        threadPool.shutdown();
+        synchronized (initializationPool) {
+            initializationPool.shutdown();
         }
-        while (!threadPool.awaitTermination(5, TimeUnit.SECONDS)) {
-            logger.warning("Thread pool hasn't shut down yet, waiting...");
+        for (ExecutorService pool : Arrays.asList(threadPool, initializationPool)) {
+            while (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Thread pool hasn't shut down yet, waiting...");
+            }
         }
     }
 }
@@ -0,0 +1,76 @@
+package it.polimi.ingsw.server.bootstrap.acceptors;
+
+import it.polimi.ingsw.server.bootstrap.factories.LocalViewFactory;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.server.view.local.LocalView;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * This class is used to accept the clients running in the same JVM of the server, such as bots and load tests. The
+ * clients connect by calling a method instead of opening a connection, and receive the view they will talk to
+ */
+public class LocalAcceptor implements Acceptor, AutoCloseable {
+    /**
+     * Timeout needed to prevent deadlocks
+     */
+    private static final int ACCEPT_TIMEOUT = 1000;
+
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * A queue of views waiting to be taken out
+     */
+    private final LinkedBlockingQueue<View> acceptedViews = new LinkedBlockingQueue<>();
+
+    /**
+     * Boolean indicating whether or not the close method has been invoked
+     */
+    private volatile boolean closing = false;
+
+    /**
+     * Connects a new in-process client
+     *
+     * @return the view the client will exchange its messages with
+     * @throws IllegalStateException if the acceptor has been closed
+     */
+    public LocalView connect() {
+        if (closing) {
+            throw new IllegalStateException("LocalAcceptor stopped");
+        }
+        LocalView view = LocalViewFactory.createLocalView();
+        acceptedViews.add(view);
+        logger.info("New local client connected");
+        return view;
+    }
+
+    /**
+     * Stops accepting the clients
+     */
+    @Override
+    public void close() {
+        closing = true;
+    }
+
+    /**
+     * Returns a view once an in-process client connects
+     *
+     * @return a LocalView bound to the client
+     * @throws InterruptedException if the task is forced to stop
+     */
+    @Override
+    public View call() throws InterruptedException {
+        do {
+            View view = acceptedViews.poll(ACCEPT_TIMEOUT, TimeUnit.MILLISECONDS);
+            if (view != null) {
+                return view;
+            }
+        } while (!closing);
+        throw new InterruptedException("LocalAcceptor stopped");
+    }
+}
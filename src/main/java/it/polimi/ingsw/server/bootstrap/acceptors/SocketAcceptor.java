@@ -2,14 +2,23 @@ package it.polimi.ingsw.server.bootstrap.acceptors;
 
 import it.polimi.ingsw.server.bootstrap.factories.SocketViewFactory;
 import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.server.view.remote.SelectorLoop;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
- * This class is used to listen for socket clients
+ * This class is used to listen for socket clients. Connections are accepted by a non-blocking server channel and then
+ * distributed among a fixed set of IO loops, so that the number of threads does not depend on the number of clients.
+ * An optional second port accepts multiplexed connections, each one carrying the sessions of many players
  */
 public class SocketAcceptor implements Acceptor, AutoCloseable {
     /**
@@ -23,42 +32,182 @@ public class SocketAcceptor implements Acceptor, AutoCloseable {
     protected final Logger logger = Logger.getLogger(this.getClass().getName());
 
     /**
-     * Server socket used to listen for clients
+     * Server channel used to listen for clients
      */
-    private final ServerSocket socket;
+    private final ServerSocketChannel serverChannel;
 
+    /**
+     * Server channel used to listen for multiplexed connections, null if they are disabled
+     */
+    private final ServerSocketChannel multiplexedServerChannel;
+
+    /**
+     * The IO loops serving the accepted channels
+     */
+    private final List<SelectorLoop> loops = new ArrayList<>();
+
+    /**
+     * Index of the loop that will serve the next accepted channel
+     */
+    private int nextLoop = 0;
+
+    /**
+     * A queue of views waiting to be taken out
+     */
+    private final LinkedBlockingQueue<View> acceptedViews = new LinkedBlockingQueue<>();
+
+    /**
+     * Boolean indicating whether or not the close method has been invoked
+     */
+    private volatile boolean closing = false;
 
     /**
      * Constructs a SocketAcceptor that will listen on the given port
      *
      * @param port listening port
+     * @param ioThreads the number of IO loops that will serve the connected clients
      * @throws IOException if the socket cannot be set up correctly
      */
-    public SocketAcceptor(int port) throws IOException {
-        socket = new ServerSocket(port);
-        socket.setSoTimeout(ACCEPT_TIMEOUT);
+    public SocketAcceptor(int port, int ioThreads) throws IOException {
+        this(port, -1, ioThreads);
+    }
+
+    /**
+     * Constructs a SocketAcceptor that will listen on the given ports
+     *
+     * @param port listening port
+     * @param multiplexedPort listening port of the multiplexed connections, a negative value disables them
+     * @param ioThreads the number of IO loops that will serve the connected clients
+     * @throws IOException if the sockets cannot be set up correctly
+     */
+    public SocketAcceptor(int port, int multiplexedPort, int ioThreads) throws IOException {
+        for (int i = 0; i < Math.max(1, ioThreads); i++) {
+            loops.add(new SelectorLoop("socket-io-" + i));
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        loops.get(0).register(serverChannel, SelectionKey.OP_ACCEPT, new SelectorLoop.ChannelHandler() {
+            @Override
+            public void onReady(SelectionKey key) throws IOException {
+                accept();
+            }
+
+            @Override
+            public void onClosed() {
+                logger.info("Socket acceptor stopped");
+            }
+        });
+        if (multiplexedPort >= 0) {
+            multiplexedServerChannel = ServerSocketChannel.open();
+            multiplexedServerChannel.bind(new InetSocketAddress(multiplexedPort));
+            multiplexedServerChannel.configureBlocking(false);
+            loops.get(0).register(multiplexedServerChannel, SelectionKey.OP_ACCEPT, new SelectorLoop.ChannelHandler() {
+                @Override
+                public void onReady(SelectionKey key) throws IOException {
+                    acceptMultiplexed();
+                }
+
+                @Override
+                public void onClosed() {
+                    logger.info("Multiplexed socket acceptor stopped");
+                }
+            });
+        } else {
+            multiplexedServerChannel = null;
+        }
+    }
+
+    /**
+     * @return the IO loop that will serve the next accepted channel
+     */
+    private SelectorLoop nextLoop() {
+        SelectorLoop loop = loops.get(nextLoop);
+        nextLoop = (nextLoop + 1) % loops.size();
+        return loop;
+    }
+
+    /**
+     * Accepts all the pending connections, assigning them to the IO loops in a round-robin fashion
+     *
+     * @throws IOException if the server channel fails
+     */
+    private void accept() throws IOException {
+        SocketChannel clientChannel;
+        while ((clientChannel = serverChannel.accept()) != null) {
+            try {
+                acceptedViews.add(SocketViewFactory.createSocketView(clientChannel, nextLoop()));
+                logger.info("New socket client connected");
+            } catch (IOException e) {
+                logger.warning("Unable to set up the client channel " + e);
+                clientChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Accepts all the pending multiplexed connections, every session they open becomes a view waiting to be taken out
+     *
+     * @throws IOException if the server channel fails
+     */
+    private void acceptMultiplexed() throws IOException {
+        SocketChannel clientChannel;
+        while ((clientChannel = multiplexedServerChannel.accept()) != null) {
+            try {
+                SocketViewFactory.createMultiplexedConnection(clientChannel, nextLoop(), acceptedViews::add);
+                logger.info("New multiplexed connection opened");
+            } catch (IOException e) {
+                logger.warning("Unable to set up the multiplexed channel " + e);
+                clientChannel.close();
+            }
+        }
+    }
+
+    /**
+     * @return the port the socket clients connect to
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return the port the multiplexed clients connect to, -1 if the multiplexed connections are not accepted
+     */
+    public int getMultiplexedPort() {
+        return multiplexedServerChannel == null ? -1 : multiplexedServerChannel.socket().getLocalPort();
     }
 
     /**
-     * Closes the listening socket
+     * Closes the listening channels and the IO loops
      *
-     * @throws Exception if the socket close method fails
+     * @throws Exception if the channel close method fails
      */
     @Override
     public void close() throws Exception {
-        socket.close();
+        closing = true;
+        serverChannel.close();
+        if (multiplexedServerChannel != null) {
+            multiplexedServerChannel.close();
+        }
+        for (SelectorLoop loop : loops) {
+            loop.close();
+        }
     }
 
     /**
-     * Creates a view once a socket-based client connects
+     * Returns a view once a socket-based client connects
      *
      * @return a Socket View bound to the client
-     * @throws IOException if any socket IO operation fails
+     * @throws InterruptedException if the task is forced to stop
      */
     @Override
-    public View call() throws IOException {
-        Socket clientSocket = socket.accept();
-        logger.info("New socket client connected");
-        return SocketViewFactory.createSocketView(clientSocket);
+    public View call() throws InterruptedException {
+        do {
+            View view = acceptedViews.poll(ACCEPT_TIMEOUT, TimeUnit.MILLISECONDS);
+            if (view != null) {
+                return view;
+            }
+        } while (!closing);
+        throw new InterruptedException("SocketAcceptor stopped");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package it.polimi.ingsw.server.bootstrap.factories;
+
+import it.polimi.ingsw.server.view.OutputMessageQueue;
+import it.polimi.ingsw.server.view.local.LocalView;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates a LocalView with the initial configuration
+ */
+public class LocalViewFactory {
+
+    private LocalViewFactory() { }
+
+    /**
+     * The answer timeout
+     */
+    private static int answerTimeoutMilliseconds = 1000;
+
+    /**
+     * The number of messages waiting for a client above which its match events are dropped
+     */
+    private static int outputQueueCapacity = OutputMessageQueue.DEFAULT_CAPACITY;
+
+    /**
+     * What the output queue of a client does when it fills up
+     */
+    private static OutputMessageQueue.Policy outputQueuePolicy = OutputMessageQueue.Policy.COALESCE;
+
+    /**
+     * Initializes this factory
+     *
+     * @param answerTimeoutMilliseconds the time to wait before considering the view disconnected
+     * @param outputQueueCapacity the number of messages waiting for a client above which its match events are dropped
+     * @param outputQueuePolicy what the output queue of a client does when it fills up
+     */
+    public static void initialize(int answerTimeoutMilliseconds, int outputQueueCapacity, OutputMessageQueue.Policy outputQueuePolicy) {
+        LocalViewFactory.answerTimeoutMilliseconds = answerTimeoutMilliseconds;
+        LocalViewFactory.outputQueueCapacity = outputQueueCapacity;
+        LocalViewFactory.outputQueuePolicy = outputQueuePolicy;
+    }
+
+    /**
+     * Creates a LocalView
+     *
+     * @return a LocalView
+     */
+    public static LocalView createLocalView() {
+        return new LocalView(answerTimeoutMilliseconds, TimeUnit.MILLISECONDS, new OutputMessageQueue(outputQueueCapacity, outputQueuePolicy));
+    }
+}
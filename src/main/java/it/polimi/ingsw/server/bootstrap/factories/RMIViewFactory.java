@@ -1,5 +1,6 @@
 package it.polimi.ingsw.server.bootstrap.factories;
 
+import it.polimi.ingsw.server.view.OutputMessageQueue;
 import it.polimi.ingsw.server.view.remote.RMIView;
 
 import java.util.concurrent.TimeUnit;
@@ -16,13 +17,27 @@ public class RMIViewFactory {
      */
     private static int answerTimeoutMilliseconds = 1000;
 
+    /**
+     * The number of messages waiting for a client above which its match events are dropped
+     */
+    private static int outputQueueCapacity = OutputMessageQueue.DEFAULT_CAPACITY;
+
+    /**
+     * What the output queue of a client does when it fills up
+     */
+    private static OutputMessageQueue.Policy outputQueuePolicy = OutputMessageQueue.Policy.COALESCE;
+
     /**
      * Initializes this factory
      *
      * @param answerTimeoutMilliseconds the time to wait before considering the view disconnected
+     * @param outputQueueCapacity the number of messages waiting for a client above which its match events are dropped
+     * @param outputQueuePolicy what the output queue of a client does when it fills up
      */
-    public static void initialize(int answerTimeoutMilliseconds) {
+    public static void initialize(int answerTimeoutMilliseconds, int outputQueueCapacity, OutputMessageQueue.Policy outputQueuePolicy) {
         RMIViewFactory.answerTimeoutMilliseconds = answerTimeoutMilliseconds;
+        RMIViewFactory.outputQueueCapacity = outputQueueCapacity;
+        RMIViewFactory.outputQueuePolicy = outputQueuePolicy;
     }
 
     /**
@@ -31,6 +46,6 @@ public class RMIViewFactory {
      * @return an RMIView
      */
     public static RMIView createRMIView() {
-        return new RMIView(answerTimeoutMilliseconds, TimeUnit.MILLISECONDS);
+        return new RMIView(answerTimeoutMilliseconds, TimeUnit.MILLISECONDS, new OutputMessageQueue(outputQueueCapacity, outputQueuePolicy));
     }
 }
@@ -1,13 +1,18 @@
 package it.polimi.ingsw.server.bootstrap.factories;
 
-import it.polimi.ingsw.server.view.remote.SocketView;
+import it.polimi.ingsw.server.view.OutputMessageQueue;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.server.view.remote.MultiplexedConnection;
+import it.polimi.ingsw.server.view.remote.SelectorLoop;
+import it.polimi.ingsw.server.view.remote.SocketChannelView;
 
 import java.io.IOException;
-import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
- * Creates a SocketView with the initial configuration
+ * Creates a SocketChannelView with the initial configuration
  */
 public class SocketViewFactory {
 
@@ -18,23 +23,65 @@ public class SocketViewFactory {
      */
     private static int answerTimeoutMilliseconds = 1000;
 
+    /**
+     * The minimum size in bytes of a frame to be compressed
+     */
+    private static int compressionThreshold = 1024;
+
+    /**
+     * The number of messages waiting for a client above which its match events are dropped
+     */
+    private static int outputQueueCapacity = OutputMessageQueue.DEFAULT_CAPACITY;
+
+    /**
+     * What the output queue of a client does when it fills up
+     */
+    private static OutputMessageQueue.Policy outputQueuePolicy = OutputMessageQueue.Policy.COALESCE;
+
     /**
      * Initializes this factory
      *
      * @param answerTimeoutMilliseconds the time to wait before considering the view disconnected
+     * @param compressionThreshold the minimum size in bytes of a frame to be compressed for the clients that asked for it
+     * @param outputQueueCapacity the number of messages waiting for a client above which its match events are dropped
+     * @param outputQueuePolicy what the output queue of a client does when it fills up
      */
-    public static void initialize(int answerTimeoutMilliseconds) {
+    public static void initialize(int answerTimeoutMilliseconds, int compressionThreshold, int outputQueueCapacity, OutputMessageQueue.Policy outputQueuePolicy) {
         SocketViewFactory.answerTimeoutMilliseconds = answerTimeoutMilliseconds;
+        SocketViewFactory.compressionThreshold = compressionThreshold;
+        SocketViewFactory.outputQueueCapacity = outputQueueCapacity;
+        SocketViewFactory.outputQueuePolicy = outputQueuePolicy;
+    }
+
+    /**
+     * Creates a SocketChannelView
+     *
+     * @param channel the channel that is associated with the view
+     * @param loop the IO loop that will serve the channel
+     * @return a SocketChannelView
+     * @throws IOException if a network error occurs
+     */
+    public static SocketChannelView createSocketView(SocketChannel channel, SelectorLoop loop) throws IOException {
+        return new SocketChannelView(channel, loop, answerTimeoutMilliseconds, TimeUnit.MILLISECONDS, compressionThreshold, new OutputMessageQueue(outputQueueCapacity, outputQueuePolicy));
     }
 
     /**
-     * Creates a SocketView
+     * Creates a MultiplexedConnection whose sessions are configured like the socket views
      *
-     * @param socket the socket that is associated with the SocketView
-     * @return a SocketView
+     * @param channel the channel that is associated with the connection
+     * @param loop the IO loop that will serve the channel
+     * @param sessionListener receives the view of each session opened by the client
+     * @return a MultiplexedConnection
      * @throws IOException if a network error occurs
      */
-    public static SocketView createSocketView(Socket socket) throws IOException {
-        return new SocketView(socket, answerTimeoutMilliseconds, TimeUnit.MILLISECONDS);
+    public static MultiplexedConnection createMultiplexedConnection(SocketChannel channel, SelectorLoop loop, Consumer<View> sessionListener) throws IOException {
+        return new MultiplexedConnection(
+                channel,
+                loop,
+                answerTimeoutMilliseconds,
+                TimeUnit.MILLISECONDS,
+                () -> new OutputMessageQueue(outputQueueCapacity, outputQueuePolicy),
+                sessionListener
+        );
     }
 }
@@ -0,0 +1,449 @@
+package it.polimi.ingsw.server.cluster;
+
+import com.google.gson.Gson;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.BinaryMessageCodec;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.shared.messages.ServerApi;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
+import it.polimi.ingsw.utils.concurrent.HashedWheelTimer;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * The front door of a cluster of server nodes. The router owns the public socket port and relays every client to one
+ * of the nodes registered on its control port: a new player goes to the node with the lowest load, while a nickname
+ * seen recently goes back to the node that hosted it, so that a reconnecting player finds its match. The nickname is
+ * read from the initialization frame of the client, which is then relayed unchanged together with the rest of the
+ * connection
+ */
+public class ClusterRouter implements AutoCloseable {
+
+    /**
+     * The maximum time in milliseconds to wait for the initialization frame of a client or for a node to accept it
+     */
+    private static final int HANDSHAKE_TIMEOUT = 5000;
+
+    /**
+     * The maximum size in bytes of the initialization frame of a client
+     */
+    private static final int MAX_INIT_FRAME_SIZE = 64 * 1024;
+
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * A server node of the cluster
+     */
+    private static class Node {
+        /**
+         * The control connection of the node
+         */
+        private final Socket control;
+
+        /**
+         * The address the clients are relayed to
+         */
+        private final InetSocketAddress address;
+
+        /**
+         * The number of players the node can host at the same time
+         */
+        private final int capacity;
+
+        /**
+         * The number of clients currently relayed to the node
+         */
+        private final AtomicInteger connections = new AtomicInteger();
+
+        /**
+         * False once the control connection of the node is closed
+         */
+        private volatile boolean alive = true;
+
+        /**
+         * @param control the control connection of the node
+         * @param address the address the clients are relayed to
+         * @param capacity the number of players the node can host at the same time
+         */
+        private Node(Socket control, InetSocketAddress address, int capacity) {
+            this.control = control;
+            this.address = address;
+            this.capacity = Math.max(1, capacity);
+        }
+
+        /**
+         * @return the fraction of the capacity of the node in use
+         */
+        private double load() {
+            return connections.get() / (double) capacity;
+        }
+    }
+
+    /**
+     * The node a nickname was last relayed to
+     */
+    private static class Affinity {
+        /**
+         * The node hosting the player
+         */
+        private final Node node;
+
+        /**
+         * The number of open connections of the player
+         */
+        private int connections = 0;
+
+        /**
+         * The instant the last connection of the player was closed, from {@link System#nanoTime()}
+         */
+        private long lastSeen = System.nanoTime();
+
+        /**
+         * @param node the node hosting the player
+         */
+        private Affinity(Node node) {
+            this.node = node;
+        }
+    }
+
+    /**
+     * The socket the clients connect to
+     */
+    private final ServerSocket publicSocket;
+
+    /**
+     * The socket the nodes register on
+     */
+    private final ServerSocket controlSocket;
+
+    /**
+     * The time in milliseconds a disconnected nickname keeps being routed to its node
+     */
+    private final int affinityTimeout;
+
+    /**
+     * The registered nodes, in registration order
+     */
+    private final List<Node> nodes = new CopyOnWriteArrayList<>();
+
+    /**
+     * The node each recently seen nickname is routed to, guarded by the monitor of the router
+     */
+    private final Map<String, Affinity> affinities = new HashMap<>();
+
+    /**
+     * The thread pool that runs the accepting loops of the public and the control ports
+     */
+    private final ExecutorService threadPool = ExecutorFactory.newFixedThreadPool(2);
+
+    /**
+     * The pending removal of the expired affinities on the shared timer
+     */
+    private volatile HashedWheelTimer.Timeout purge;
+
+    /**
+     * Boolean indicating whether or not the close method has been invoked
+     */
+    private volatile boolean closing = false;
+
+    /**
+     * Constructs a router
+     *
+     * @param publicPort the port the clients connect to, 0 to pick a free one
+     * @param controlPort the port the nodes register on, 0 to pick a free one
+     * @param affinityTimeout the time in milliseconds a disconnected nickname keeps being routed to its node
+     * @throws IOException if the ports cannot be opened
+     */
+    public ClusterRouter(int publicPort, int controlPort, int affinityTimeout) throws IOException {
+        this.publicSocket = new ServerSocket(publicPort);
+        this.controlSocket = new ServerSocket(controlPort);
+        this.affinityTimeout = affinityTimeout;
+    }
+
+    /**
+     * Starts accepting the nodes and the clients
+     */
+    public void start() {
+        threadPool.execute(() -> acceptLoop(controlSocket, this::serveNode));
+        threadPool.execute(() -> acceptLoop(publicSocket, this::serveClient));
+        schedulePurge();
+        logger.info("Cluster router listening on port " + getPublicPort() + ", nodes register on port " + getControlPort());
+    }
+
+    /**
+     * Accepts the connections of a socket until the router is closed, serving each one on its own thread
+     *
+     * @param serverSocket the socket to accept the connections from
+     * @param handler the task serving a connection
+     */
+    private void acceptLoop(ServerSocket serverSocket, Consumer<Socket> handler) {
+        while (!closing) {
+            try {
+                Socket socket = serverSocket.accept();
+                ExecutorFactory.newThread(() -> handler.accept(socket)).start();
+            } catch (IOException ex) {
+                if (!closing) {
+                    logger.warning("Unable to accept a connection " + ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers a node and removes it when its control connection is closed
+     *
+     * @param control the control connection of the node
+     */
+    private void serveNode(Socket control) {
+        Node node = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(control.getInputStream(), StandardCharsets.UTF_8))) {
+            control.setSoTimeout(HANDSHAKE_TIMEOUT);
+            NodeRegistration registration = new Gson().fromJson(reader.readLine(), NodeRegistration.class);
+            if (registration == null) {
+                throw new IOException("Missing node registration");
+            }
+            String host = registration.getHost() == null ? control.getInetAddress().getHostAddress() : registration.getHost();
+            node = new Node(control, new InetSocketAddress(host, registration.getSocketPort()), registration.getCapacity());
+            nodes.add(node);
+            logger.info("Node " + node.address + " joined the cluster with capacity " + node.capacity);
+
+            control.setSoTimeout(0);
+            while (reader.readLine() != null) {
+                // The nodes do not send anything else, the connection is only watched for its end
+            }
+        } catch (IOException | RuntimeException ex) {
+            if (!closing) {
+                logger.warning("Node control connection failed " + ex);
+            }
+        } finally {
+            closeQuietly(control);
+            if (node != null) {
+                node.alive = false;
+                nodes.remove(node);
+                logger.info("Node " + node.address + " left the cluster");
+            }
+        }
+    }
+
+    /**
+     * Relays a client to the node chosen for its nickname
+     *
+     * @param client the connection of the client
+     */
+    private void serveClient(Socket client) {
+        Node node = null;
+        String nickname = null;
+        try (Socket upstream = new Socket()) {
+            client.setSoTimeout(HANDSHAKE_TIMEOUT);
+            DataInputStream input = new DataInputStream(client.getInputStream());
+            int length = input.readInt();
+            if (length <= 0 || length > MAX_INIT_FRAME_SIZE) {
+                throw new IOException("Invalid initialization frame of " + length + " bytes");
+            }
+            byte[] frame = new byte[length];
+            input.readFully(frame);
+            nickname = nicknameOf(frame);
+
+            node = assign(nickname);
+            if (node == null) {
+                logger.warning("No node available for " + nickname);
+                return;
+            }
+            upstream.connect(node.address, HANDSHAKE_TIMEOUT);
+            DataOutputStream output = new DataOutputStream(upstream.getOutputStream());
+            output.writeInt(length);
+            output.write(frame);
+            output.flush();
+            client.setSoTimeout(0);
+
+            Thread downstream = ExecutorFactory.newThread(() -> pump(upstream, client));
+            downstream.start();
+            pump(client, upstream);
+            downstream.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException ex) {
+            logger.warning("Unable to relay a client " + ex);
+        } finally {
+            closeQuietly(client);
+            if (node != null) {
+                release(node, nickname);
+            }
+        }
+    }
+
+    /**
+     * Copies the data from a socket to another one until either of them is closed, then closes both
+     *
+     * @param from the socket to read from
+     * @param to the socket to write to
+     */
+    private void pump(Socket from, Socket to) {
+        try {
+            from.getInputStream().transferTo(to.getOutputStream());
+        } catch (IOException ignored) {
+            // The connection ended, either side closing it ends the relay
+        } finally {
+            closeQuietly(from);
+            closeQuietly(to);
+        }
+    }
+
+    /**
+     * @param frame the initialization frame of a client
+     * @return the nickname of the player, null if the frame is not a JSON initialization event
+     */
+    @Nullable
+    private static String nicknameOf(byte[] frame) {
+        // A client cannot have negotiated the binary format before its initialization event
+        if (BinaryMessageCodec.isBinary(frame)) {
+            return null;
+        }
+        Message message = Message.fromFrame(frame);
+        if (message.getType() != Message.Type.EVENT || !ServerApi.VIEW_INIT_EVENT.toString().equals(message.getName())) {
+            return null;
+        }
+        return new Gson().fromJson(message.getPayload(), ClientInitializationInfo.class).getNickname();
+    }
+
+    /**
+     * Chooses the node of a client: the node that hosted its nickname if it is still alive, the least loaded one
+     * otherwise
+     *
+     * @param nickname the nickname of the player, null if unknown
+     * @return the node the client is relayed to, null if no node is registered
+     */
+    @Nullable
+    private synchronized Node assign(@Nullable String nickname) {
+        Affinity affinity = nickname == null ? null : affinities.get(nickname);
+        if (affinity == null || !affinity.node.alive) {
+            Node leastLoaded = null;
+            for (Node node : nodes) {
+                if (leastLoaded == null || node.load() < leastLoaded.load()) {
+                    leastLoaded = node;
+                }
+            }
+            if (leastLoaded == null) {
+                return null;
+            }
+            affinity = new Affinity(leastLoaded);
+            if (nickname != null) {
+                affinities.put(nickname, affinity);
+            }
+        }
+        affinity.connections++;
+        affinity.node.connections.incrementAndGet();
+        return affinity.node;
+    }
+
+    /**
+     * Records the end of a relayed connection
+     *
+     * @param node the node the client was relayed to
+     * @param nickname the nickname of the player, null if unknown
+     */
+    private synchronized void release(Node node, @Nullable String nickname) {
+        node.connections.decrementAndGet();
+        Affinity affinity = nickname == null ? null : affinities.get(nickname);
+        if (affinity != null && affinity.node == node) {
+            affinity.connections--;
+            affinity.lastSeen = System.nanoTime();
+        }
+    }
+
+    /**
+     * Removes the affinities of the nicknames that have been disconnected for longer than the timeout, then schedules
+     * the next removal on the shared timer
+     */
+    private void schedulePurge() {
+        if (!closing) {
+            purge = ExecutorFactory.getTimer().newTimeout(() -> {
+                long now = System.nanoTime();
+                synchronized (this) {
+                    affinities.values().removeIf(affinity -> affinity.connections == 0 &&
+                            (!affinity.node.alive || now - affinity.lastSeen > TimeUnit.MILLISECONDS.toNanos(affinityTimeout)));
+                }
+                schedulePurge();
+            }, Math.max(1, affinityTimeout), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Closes a socket ignoring the errors
+     *
+     * @param socket the socket to close
+     */
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Nothing else can be done
+        }
+    }
+
+    /**
+     * @return the port the clients connect to
+     */
+    public int getPublicPort() {
+        return publicSocket.getLocalPort();
+    }
+
+    /**
+     * @return the port the nodes register on
+     */
+    public int getControlPort() {
+        return controlSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of registered nodes
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * @return the number of clients currently relayed to the nodes
+     */
+    public int getRelayedClientCount() {
+        return nodes.stream().mapToInt(node -> node.connections.get()).sum();
+    }
+
+    /**
+     * Stops accepting the nodes and the clients and closes the control connections, the relayed connections are closed
+     * by their ends
+     *
+     * @throws Exception if the ports cannot be closed or the closing process is forced to stop
+     */
+    @Override
+    public void close() throws Exception {
+        closing = true;
+        if (purge != null) {
+            purge.cancel();
+        }
+        publicSocket.close();
+        controlSocket.close();
+        nodes.forEach(node -> closeQuietly(node.control));
+        threadPool.shutdown();
+        while (!threadPool.awaitTermination(5, TimeUnit.SECONDS)) {
+            logger.warning("Thread pool hasn't shut down yet, waiting...");
+        }
+    }
+}
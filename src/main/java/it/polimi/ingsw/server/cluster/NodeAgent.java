@@ -0,0 +1,94 @@
+package it.polimi.ingsw.server.cluster;
+
+import com.google.gson.Gson;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+/**
+ * The member of a cluster running inside a server node. It registers the node with the router over a control
+ * connection, which stays open as long as the node accepts the clients the router assigns to it
+ */
+public class NodeAgent implements AutoCloseable {
+
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The address of the control port of the router
+     */
+    private final InetSocketAddress routerAddress;
+
+    /**
+     * The registration sent to the router
+     */
+    private final NodeRegistration registration;
+
+    /**
+     * The control connection to the router
+     */
+    private Socket socket;
+
+    /**
+     * Boolean indicating whether or not the close method has been invoked
+     */
+    private volatile boolean closing = false;
+
+    /**
+     * Constructs the agent of a node
+     *
+     * @param routerAddress the address of the control port of the router
+     * @param registration the registration sent to the router
+     */
+    public NodeAgent(InetSocketAddress routerAddress, NodeRegistration registration) {
+        this.routerAddress = routerAddress;
+        this.registration = registration;
+    }
+
+    /**
+     * Connects to the router and registers the node
+     *
+     * @throws IOException if the router cannot be reached
+     */
+    public void connect() throws IOException {
+        socket = new Socket();
+        socket.connect(routerAddress);
+        Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        writer.write(new Gson().toJson(registration) + "\n");
+        writer.flush();
+        logger.info("Registered with the cluster router at " + routerAddress);
+
+        InputStream input = socket.getInputStream();
+        ExecutorFactory.newThread(() -> {
+            try {
+                while (input.read() >= 0) {
+                    // The router does not send anything, the connection is only watched for its end
+                }
+            } catch (IOException ignored) {
+                // Handled below, as the end of the stream
+            }
+            if (!closing) {
+                logger.warning("Connection to the cluster router lost, no new clients will be routed to this node");
+            }
+        }).start();
+    }
+
+    /**
+     * Leaves the cluster closing the control connection
+     *
+     * @throws IOException if the connection cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        if (socket != null) {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package it.polimi.ingsw.server.cluster;
+
+/**
+ * The description a server node sends to the router when it joins the cluster
+ */
+public class NodeRegistration {
+
+    /**
+     * The host the router reaches the node at, null to use the address of the control connection
+     */
+    private String host;
+
+    /**
+     * The port the node listens on for the socket clients
+     */
+    private int socketPort;
+
+    /**
+     * The number of players the node can host at the same time
+     */
+    private int capacity;
+
+    /**
+     * Constructs the registration of a node
+     *
+     * @param host the host the router reaches the node at, null to use the address of the control connection
+     * @param socketPort the port the node listens on for the socket clients
+     * @param capacity the number of players the node can host at the same time
+     */
+    public NodeRegistration(String host, int socketPort, int capacity) {
+        this.host = host;
+        this.socketPort = socketPort;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the host the router reaches the node at, null to use the address of the control connection
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return the port the node listens on for the socket clients
+     */
+    public int getSocketPort() {
+        return socketPort;
+    }
+
+    /**
+     * @return the number of players the node can host at the same time
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Package grouping the entities that let several server processes share the load of the clients behind a single
+ * router that owns the public port
+ */
+@ParametersAreNonnullByDefault
+package it.polimi.ingsw.server.cluster;
+
+import javax.annotation.ParametersAreNonnullByDefault;
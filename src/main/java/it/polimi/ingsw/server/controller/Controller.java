@@ -8,12 +8,12 @@ import it.polimi.ingsw.server.controller.powerup.Powerup;
 import it.polimi.ingsw.server.controller.powerup.PowerupFactory;
 import it.polimi.ingsw.server.controller.weapons.Weapon;
 import it.polimi.ingsw.server.controller.weapons.WeaponFactory;
+import it.polimi.ingsw.server.journal.DecisionLog;
 import it.polimi.ingsw.server.model.battlefield.SpawnpointBlock;
 import it.polimi.ingsw.server.model.battlefield.TurretBlock;
 import it.polimi.ingsw.server.model.collections.Deck;
 import it.polimi.ingsw.server.model.currency.AmmoCube;
 import it.polimi.ingsw.server.model.currency.BonusTile;
-import it.polimi.ingsw.server.model.currency.Coin;
 import it.polimi.ingsw.server.model.currency.PowerupTile;
 import it.polimi.ingsw.server.model.events.*;
 import it.polimi.ingsw.server.model.events.listeners.PlayerListener;
@@ -23,14 +23,23 @@ import it.polimi.ingsw.server.model.player.BasicAction;
 import it.polimi.ingsw.server.model.player.CompoundAction;
 import it.polimi.ingsw.server.model.player.Player;
 import it.polimi.ingsw.server.model.weapons.WeaponTile;
-import it.polimi.ingsw.server.view.Interviewer;
+import it.polimi.ingsw.server.view.AsyncInterviewer;
+import it.polimi.ingsw.server.view.MatchEventBroadcaster;
 import it.polimi.ingsw.server.view.View;
 import it.polimi.ingsw.server.view.events.ViewEvent;
 import it.polimi.ingsw.server.view.events.listeners.ViewListener;
 import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.utils.concurrent.Continuations;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -68,6 +77,14 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * Associates each player to its view
      */
     private Map<Player, View> playerViews = new HashMap<>();
+    /**
+     * Associates each player to the interviewer the match asks its questions with
+     */
+    private final Map<Player, JournaledInterviewer> interviewers = new HashMap<>();
+    /**
+     * The decisions taken in the match, written to its journal or replayed from it
+     */
+    private final DecisionLog decisions;
     /**
      * The minimum amount of clients
      */
@@ -76,19 +93,59 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * A set of listeners for controller events
      */
     private Set<ControllerListener> listeners = new HashSet<>();
+    /**
+     * The broadcaster delivering the match events to the views
+     */
+    private final MatchEventBroadcaster broadcaster;
     /**
      * Whether or not the match should be closed
      */
-    private boolean closed = false;
+    private volatile boolean closed = false;
+    /**
+     * Whether the match was closed with its journal kept, so that it is recovered when the server starts again
+     */
+    private volatile boolean suspended = false;
+    /**
+     * The executor resuming the match when an answer is received, the match does not hold any of its threads while it
+     * waits for the players
+     */
+    private final Executor executor;
+
+    /**
+     * Constructs a new controller whose match events are not delivered to the views, for the tests
+     *
+     * @param match the match to manage
+     * @param views the players' views
+     * @param minClients the minimum amount of clients for the match
+     */
+    Controller(Match match, List<View> views, int minClients) {
+        this(match, views, minClients, new MatchEventBroadcaster(match, Collections.emptyList()));
+    }
+
+    /**
+     * Constructs a new controller whose match is resumed by the thread delivering each answer, for the tests
+     *
+     * @param match the match to manage
+     * @param views the players' views
+     * @param minClients the minimum amount of clients for the match
+     * @param broadcaster the broadcaster delivering the match events to the views
+     */
+    Controller(Match match, List<View> views, int minClients, MatchEventBroadcaster broadcaster) {
+        this(match, views, minClients, broadcaster, Runnable::run, new DecisionLog());
+    }
 
     /**
-     * Constructs a new controller
+     * Constructs a new controller whose decisions go through a decision log, so that the match can be recovered after
+     * a crash of the server
      *
      * @param match the match to manage
      * @param views the players' views
      * @param minClients the minimum amount of clients for the match
+     * @param broadcaster the broadcaster delivering the match events to the views
+     * @param executor the executor resuming the match when an answer is received
+     * @param decisions the decisions of the match, which are replayed first if they were recovered from a journal
      */
-    public Controller(Match match, List<View> views, int minClients) {
+    public Controller(Match match, List<View> views, int minClients, MatchEventBroadcaster broadcaster, Executor executor, DecisionLog decisions) {
 
         if (views.size() != match.getPlayers().size()) {
             throw new IllegalArgumentException("View number does not match player number");
@@ -97,8 +154,15 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
         this.minClients = minClients;
         this.match = match;
         this.views = views;
+        this.broadcaster = broadcaster;
+        this.executor = executor;
+        this.decisions = decisions;
         this.players = match.getPlayers();
         views.forEach(view -> this.playerViews.put(view.getPlayer(), view));
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+            interviewers.put(player, new JournaledInterviewer(i, () -> playerViews.get(player), decisions));
+        }
         views.forEach(view -> view.addViewListener(this));
         this.players.forEach(player -> player.addPlayerListener(this));
         this.weaponMap = WeaponFactory.createWeaponDictionary(match.getBoard());
@@ -107,41 +171,83 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
     }
 
     /**
-     * Runs a match, handling all the operations
+     * Runs a match, handling all the operations, and waits for its end
      */
     @Override
     public void run() {
-        for (Player player : players) {
-            //Picking up two powerups to choose the spawnpoint
-            List<PowerupTile> powerups = Arrays.asList(
-                    powerupTileDeck
-                            .pick()
-                            .orElseThrow(() -> new IllegalStateException("Empty deck")),
-                    powerupTileDeck
-                            .pick()
-                            .orElseThrow(() -> new IllegalStateException("Empty deck"))
-            );
-            //Discarding the selected powerup
-            PowerupTile spawnpoint = selectSpawnpointFromPowerup(powerups, player, playerViews.get(player));
-            //Grabbing the other powerup
-            player.grabPowerup(powerups.indexOf(spawnpoint) == 0 ? powerups.get(1) : powerups.get(0));
-            manageActivePlayerTurn(player, playerViews.get(player));
-        }
-
-        Player activePlayer;
+        Continuations.join(start());
+    }
 
-        int connectedViews = views.stream().mapToInt(view -> view.isConnected() ? 1 : 0).reduce(0, Integer::sum);
+    /**
+     * Starts a match on the executor of the controller. The match is resumed each time a player answers, so it does
+     * not hold any thread while it waits
+     *
+     * @return a future completed when the match is over
+     */
+    public CompletableFuture<Void> start() {
+        return CompletableFuture.runAsync(() -> { }, executor)
+                .thenCompose(ignored -> Continuations.forEach(new ArrayList<>(players), this::managePlayerSpawn))
+                .thenCompose(ignored -> Continuations.loop(
+                        () -> !closed && !match.isEnded() && countConnectedViews() >= minClients,
+                        () -> {
+                            Player activePlayer = match.getActivePlayer();
+                            return manageActivePlayerTurn(activePlayer, interviewers.get(activePlayer));
+                        }
+                ))
+                .whenCompleteAsync((ignored, e) -> {
+                    if (e != null) {
+                        logger.severe("The match was interrupted by an error " + e);
+                    }
+                    endMatch();
+                }, ExecutorFactory.getBlockingExecutor());
+    }
 
-        while (!match.isEnded() && connectedViews >= minClients && !closed) {
-            activePlayer = match.getActivePlayer();
-            manageActivePlayerTurn(activePlayer, playerViews.get(activePlayer));
+    /**
+     * @return the number of players that are still connected
+     */
+    private int countConnectedViews() {
+        return players.stream().mapToInt(player -> interviewers.get(player).isConnected() ? 1 : 0).reduce(0, Integer::sum);
+    }
 
-            connectedViews = views.stream().mapToInt(view -> view.isConnected() ? 1 : 0).reduce(0, Integer::sum);
+    /**
+     * Describes the state the match reached at the end of a turn, the description of a replayed match must be the same
+     * of the recorded one
+     *
+     * @return a digest of the state of the match
+     */
+    private String describeState() {
+        StringBuilder digest = new StringBuilder()
+                .append(match.getActivePlayer().getPlayerInfo().getNickname())
+                .append(' ').append(match.getMode())
+                .append(' ').append(match.getRemainingSkulls());
+        for (Player player : players) {
+            digest.append(" | ").append(player.getPlayerInfo().getNickname())
+                    .append(' ').append(player.getPoints())
+                    .append(' ').append(player.getDamageTokens().size())
+                    .append(' ').append(player.getMarks().size())
+                    .append(' ').append(player.getSkulls())
+                    .append(' ').append(player.getAmmoCubes().size())
+                    .append(' ').append(player.getPowerups().size())
+                    .append(' ').append(player.getWeapons().stream().map(WeaponTile::getName).collect(Collectors.joining(",")));
         }
-        if (!match.isEnded()) {
-            match.close();
+        return digest.toString();
+    }
+
+    /**
+     * Closes the match and the views, then notifies that the match is ended. A suspended match is not scored and its
+     * journal is kept instead. Closing the views waits for their queues to get empty, so this method is run on a thread
+     * of its own
+     */
+    private void endMatch() {
+        if (suspended && !match.isEnded()) {
+            logger.info("The match is suspended, its journal is kept to recover it");
+        } else {
+            if (!match.isEnded()) {
+                match.close();
+            }
+            decisions.discard();
+            logger.info("The match is over");
         }
-        logger.info("The match is over");
 
         for (View view: views) {
             if (view.isConnected()) {
@@ -164,34 +270,110 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
         listeners.forEach(l -> l.onMatchEnd(e));
     }
 
+    /**
+     * Resumes the match on the executor of the controller once an answer has been received
+     *
+     * @param answer the future of the answer
+     * @param <T> the type of the answer
+     * @return a future completed with the answer by a thread of the executor
+     */
+    private <T> CompletableFuture<T> resume(CompletableFuture<T> answer) {
+        return answer.thenApplyAsync(Function.identity(), executor);
+    }
+
+    /**
+     * Runs code that still uses the blocking Interviewer API, such as weapons and powerups, on the shared blocking
+     * executor so that it does not hold a thread of the executor while it waits for the answers
+     *
+     * @param task the blocking task
+     * @return a future completed when the task is over
+     */
+    private CompletableFuture<Void> runBlocking(Runnable task) {
+        return runBlocking(task, ExecutorFactory.getBlockingExecutor());
+    }
+
+    /**
+     * Runs code that still uses the blocking Interviewer API on a given executor, then resumes the match
+     *
+     * @param task the blocking task
+     * @param blockingExecutor the executor running the task
+     * @return a future completed when the task is over
+     */
+    private CompletableFuture<Void> runBlocking(Runnable task, Executor blockingExecutor) {
+        return resume(CompletableFuture.runAsync(task, blockingExecutor));
+    }
+
+    /**
+     * Lets a player choose the spawnpoint at the beginning of the match, then manages the first turn of the player
+     *
+     * @param player the player to spawn
+     * @return a future completed when the first turn of the player is over
+     */
+    private CompletableFuture<Void> managePlayerSpawn(Player player) {
+        //Picking up two powerups to choose the spawnpoint
+        List<PowerupTile> powerups = Arrays.asList(
+                powerupTileDeck
+                        .pick()
+                        .orElseThrow(() -> new IllegalStateException("Empty deck")),
+                powerupTileDeck
+                        .pick()
+                        .orElseThrow(() -> new IllegalStateException("Empty deck"))
+        );
+        //Discarding the selected powerup
+        return selectSpawnpointFromPowerup(powerups, player, interviewers.get(player))
+                .thenCompose(spawnpoint -> {
+                    //Grabbing the other powerup
+                    player.grabPowerup(powerups.indexOf(spawnpoint) == 0 ? powerups.get(1) : powerups.get(0));
+                    return manageActivePlayerTurn(player, interviewers.get(player));
+                });
+    }
+
     /**
      * This functions manages how to manage the player's turn
      * @param activePlayer is the player who has to execute his turn
      * @param view is the interface that manages the turn
+     * @return a future completed when the turn is over
      */
-    private void manageActivePlayerTurn(Player activePlayer, View view) {
+    private CompletableFuture<Void> manageActivePlayerTurn(Player activePlayer, JournaledInterviewer view) {
+        CompletableFuture<Void> actions;
         if (view.isConnected()) {
             logger.info("Managing actions...");
-            manageActions(activePlayer, view);
-            logger.info("No more actions to be managed");
+            actions = manageActions(activePlayer, view).thenRun(() -> logger.info("No more actions to be managed"));
         } else {
             logger.info("View is not connected, skipping player turn...");
+            actions = CompletableFuture.completedFuture(null);
         }
-        logger.info("Ending turn. Checking for died players...");
-        for (Player player : match.endTurn()) {
-            //Here we iterate on the dead players returned by match.endTurn()
-            logger.info("Player " + player.getColor() + " died.");
-            PowerupTile deckPowerup = powerupTileDeck.pick().orElseThrow(() -> new IllegalStateException("Run out of powerups!"));
-            List<PowerupTile> playerPowerups = new LinkedList<>(player.getPowerups());
-            playerPowerups.add(deckPowerup);
-            PowerupTile playerPowerup = selectSpawnpointFromPowerup(playerPowerups, player, playerViews.get(player));
-            if (playerPowerup != deckPowerup) {
-                player.discardPowerup(playerPowerup);
-                player.grabPowerup(deckPowerup);
-            }
-            player.bringBackToLife();
-        }
-        match.changeTurn();
+        return actions
+                .thenCompose(ignored -> {
+                    logger.info("Ending turn. Checking for died players...");
+                    //Here we iterate on the dead players returned by match.endTurn()
+                    return Continuations.forEach(match.endTurn(), this::manageRespawn);
+                })
+                .thenRun(() -> {
+                    match.changeTurn();
+                    decisions.checkpoint(this::describeState);
+                });
+    }
+
+    /**
+     * Lets a dead player choose the spawnpoint, then brings the player back to life
+     *
+     * @param player the dead player
+     * @return a future completed when the player has been brought back to life
+     */
+    private CompletableFuture<Void> manageRespawn(Player player) {
+        logger.info("Player " + player.getColor() + " died.");
+        PowerupTile deckPowerup = powerupTileDeck.pick().orElseThrow(() -> new IllegalStateException("Run out of powerups!"));
+        List<PowerupTile> playerPowerups = new LinkedList<>(player.getPowerups());
+        playerPowerups.add(deckPowerup);
+        return selectSpawnpointFromPowerup(playerPowerups, player, interviewers.get(player))
+                .thenAccept(playerPowerup -> {
+                    if (playerPowerup != deckPowerup) {
+                        player.discardPowerup(playerPowerup);
+                        player.grabPowerup(deckPowerup);
+                    }
+                    player.bringBackToLife();
+                });
     }
 
     /**
@@ -199,19 +381,20 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * @param powerups list of powerups to discard to choose spawnpoint
      * @param player active player
      * @param view the view to be asked
-     * @return the selected powerup to be discarded
+     * @return a future completed with the selected powerup to be discarded
      */
-    private PowerupTile selectSpawnpointFromPowerup(List<PowerupTile> powerups, Player player, Interviewer view){
+    private CompletableFuture<PowerupTile> selectSpawnpointFromPowerup(List<PowerupTile> powerups, Player player, AsyncInterviewer view){
         //Asking what powerup to discard
-        it.polimi.ingsw.shared.datatransferobjects.Powerup chosenPowerup = mandatorySpawnpointSelection(powerups, view, "Select your Spawnpoint");
-        PowerupTile discardedPowerup = powerups
-                .stream()
-                .filter(tile -> tile.getName().equals(chosenPowerup.getName()) && tile.getColor().equals(chosenPowerup.getColor()))
-                .findAny()
-                .orElseThrow(() -> new IllegalStateException("Selected powerup is not available"));
-        player.selectSpawnpoint(discardedPowerup);
-        logger.info("Selected Spawnpoint " + discardedPowerup.getColor());
-        return discardedPowerup;
+        return mandatorySpawnpointSelection(powerups, view, "Select your Spawnpoint").thenApply(chosenPowerup -> {
+            PowerupTile discardedPowerup = powerups
+                    .stream()
+                    .filter(tile -> tile.getName().equals(chosenPowerup.getName()) && tile.getColor().equals(chosenPowerup.getColor()))
+                    .findAny()
+                    .orElseThrow(() -> new IllegalStateException("Selected powerup is not available"));
+            player.selectSpawnpoint(discardedPowerup);
+            logger.info("Selected Spawnpoint " + discardedPowerup.getColor());
+            return discardedPowerup;
+        });
     }
 
     /**
@@ -219,31 +402,53 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * @param basicActionChosen is the action chosen
      * @param activePlayer is the player who is acting the move
      * @param view is the interface that manages the chosen action
+     * @return a future completed when the action is over
      */
-    private void manageChosenAction(BasicAction basicActionChosen, Player activePlayer, Interviewer view){
+    private CompletableFuture<Void> manageChosenAction(BasicAction basicActionChosen, Player activePlayer, AsyncInterviewer view){
+        // The events of a basic action are merged and delivered to the views together once the action is over
+        EventTransaction transaction = match.getEventTransaction();
+        transaction.begin();
+        CompletableFuture<Void> action;
+        try {
+            action = executeChosenAction(basicActionChosen, activePlayer, view);
+        } catch (RuntimeException e) {
+            transaction.commit();
+            throw e;
+        }
+        return action.whenComplete((ignored, e) -> transaction.commit());
+    }
+
+    /**
+     * This function executes the action chosen by the player
+     * @param basicActionChosen is the action chosen
+     * @param activePlayer is the player who is acting the move
+     * @param view is the interface that manages the chosen action
+     * @return a future completed when the action is over
+     */
+    private CompletableFuture<Void> executeChosenAction(BasicAction basicActionChosen, Player activePlayer, AsyncInterviewer view){
         switch (basicActionChosen){
             case GRAB:
                 logger.info("Managing GRAB move...");
                 if (activePlayer.isOnASpawnpoint()){
-                    if (!grabOnASpawnpoint(activePlayer, view)){
-                        throw new IllegalArgumentException("Grab on a spawnpoint not executed");
-                    }
+                    return grabOnASpawnpoint(activePlayer, view).thenAccept(grabbed -> {
+                        if (!grabbed) {
+                            throw new IllegalArgumentException("Grab on a spawnpoint not executed");
+                        }
+                    });
                 } else {
                     grabNotOnASpawnpoint(activePlayer);
+                    return CompletableFuture.completedFuture(null);
                 }
-                break;
             case MOVE:
                 logger.info("Managing MOVE move...");
-                activePlayer.move(view.select("Which direction do you want to move?", activePlayer.getAvailableDirections(), ClientApi.DIRECTION_QUESTION));
-                break;
+                return resume(view.selectAsync("Which direction do you want to move?", activePlayer.getAvailableDirections(), ClientApi.DIRECTION_QUESTION))
+                        .thenAccept(activePlayer::move);
             case SHOOT:
                 logger.info("Managing SHOOT move...");
-                executeShoot(activePlayer, view);
-                break;
+                return executeShoot(activePlayer, view);
             case RELOAD:
                 logger.info("Managing RELOAD move...");
-                executeReload(activePlayer, view);
-                break;
+                return executeReload(activePlayer, view);
             default:
                 throw new IllegalStateException("No valid action selected!");
         }
@@ -253,9 +458,9 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * This functions manage the action of grabbing if the player is on a spawnpoint
      * @param activePlayer the player who is grabbing
      * @param view the interface that manage the action of grabbing
-     * @return false if something goes wrong
+     * @return a future completed with false if something goes wrong
      */
-    private boolean grabOnASpawnpoint(Player activePlayer, Interviewer view){
+    private CompletableFuture<Boolean> grabOnASpawnpoint(Player activePlayer, AsyncInterviewer view){
         //choose weapon to be picked up
         List<WeaponTile> affordableWeapons = ((SpawnpointBlock) activePlayer.getBlock())
                 .getWeapons()
@@ -263,12 +468,14 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
                 .filter(weapon -> PaymentHandler.canAfford(weapon.getAcquisitionCost(), activePlayer))
                 .collect(Collectors.toList());
         if (!affordableWeapons.isEmpty()){
-            WeaponTile weapon = selectWeaponTile("Which weapon would you like to grab?", affordableWeapons, view);
-            //pick up
-            logger.info("picking up weapon " + weapon.getName() + "...");
-            pickUpWeapon(weapon, activePlayer, view);
-        } else return false;
-        return true;
+            return selectWeaponTile("Which weapon would you like to grab?", affordableWeapons, view)
+                    .thenCompose(weapon -> {
+                        //pick up
+                        logger.info("picking up weapon " + weapon.getName() + "...");
+                        return pickUpWeapon(weapon, activePlayer, view);
+                    })
+                    .thenApply(ignored -> true);
+        } else return CompletableFuture.completedFuture(false);
     }
 
     /**
@@ -292,20 +499,25 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * This functions manages the action of SHOOT
      * @param activePlayer the player who chose the action
      * @param view the interface that manages the shooting action
+     * @return a future completed when the shoot is over
      */
-    private void executeShoot(Player activePlayer, Interviewer view){
+    private CompletableFuture<Void> executeShoot(Player activePlayer, AsyncInterviewer view){
         List<WeaponTile> playerWeapons = activePlayer.getWeapons();
         List<WeaponTile> loadedPlayerWeapons = playerWeapons
                 .stream()
                 .filter(tile -> tile.isLoaded() && weaponMap.get(tile.getName()).hasAvailableAttacks(activePlayer))
                 .collect(Collectors.toList());
         if (!loadedPlayerWeapons.isEmpty()){
-            WeaponTile selectedWeapon = selectWeaponTile("Which weapon do you want to use for shooting?", loadedPlayerWeapons, view);
-            activePlayer.setActiveWeapon(selectedWeapon);
-            Weapon weapon = weaponMap.get(selectedWeapon.getName());
-            weapon.shoot(view, activePlayer);
-            activePlayer.unloadActiveWeapon();
-            activePlayer.putAwayActiveWeapon();
+            return selectWeaponTile("Which weapon do you want to use for shooting?", loadedPlayerWeapons, view)
+                    .thenCompose(selectedWeapon -> {
+                        activePlayer.setActiveWeapon(selectedWeapon);
+                        Weapon weapon = weaponMap.get(selectedWeapon.getName());
+                        return runBlocking(() -> weapon.shoot(view, activePlayer));
+                    })
+                    .thenRun(() -> {
+                        activePlayer.unloadActiveWeapon();
+                        activePlayer.putAwayActiveWeapon();
+                    });
         } else throw new IllegalStateException("Shoot executed while no weapon is loaded");
     }
 
@@ -313,68 +525,76 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * This function manages the action of RELOAD one of the weapon of the player
      * @param activePlayer the player who chose the action
      * @param view the interface that choose which weapon to reload and how to pay the reload-cost
+     * @return a future completed when the player does not want or cannot reload any other weapon
      */
-    private void executeReload(Player activePlayer, Interviewer view){
-        List<WeaponTile> playerWeapons = activePlayer.getWeapons();
-        List<WeaponTile> weaponsToReload = new ArrayList<>(playerWeapons);
-        List<WeaponTile> weaponsReloadable = weaponsToReload
-                .stream()
-                .filter(weaponOfPlayer -> PaymentHandler.canAfford(weaponOfPlayer.getReloadCost(), activePlayer) && !weaponOfPlayer.isLoaded())
-                .collect(Collectors.toList());
-        if (weaponsReloadable.isEmpty()){
+    private CompletableFuture<Void> executeReload(Player activePlayer, AsyncInterviewer view){
+        List<WeaponTile> weaponsToReload = new ArrayList<>(activePlayer.getWeapons());
+        if (reloadableWeapons(weaponsToReload, activePlayer).isEmpty()){
             throw new IllegalStateException("Player cannot afford to reload any weapon or all weapons are loaded. The reload shouldn't be selectable");
         } else {
-            WeaponTile weaponToReload;
-            List<String> weaponsReloadableForView = weaponsReloadable
-                    .stream()
-                    .map(WeaponTile::getName)
-                    .collect(Collectors.toList());
-            do {
-                Optional<String> selected = view.selectOptional("Which weapon would you like to reload?", weaponsReloadableForView, ClientApi.RELOAD_QUESTION);
-                if (selected.isPresent()) {
-
-                    weaponToReload = weaponsReloadable
-                            .stream()
-                            .filter(w -> w.getName().equals(selected.get()))
-                            .findAny()
-                            .orElseThrow(() -> new IllegalStateException("Weapon to reload does not exist"));
-
-                    reloadWeapon(weaponToReload, activePlayer, view);
-
-                    weaponsReloadable = weaponsToReload
-                            .stream()
-                            .filter(weaponOfPlayer -> PaymentHandler.canAfford(weaponOfPlayer.getReloadCost(), activePlayer) && !weaponOfPlayer.isLoaded())
-                            .collect(Collectors.toList());
-                    weaponsReloadableForView = weaponsReloadable
-                            .stream()
-                            .map(WeaponTile::getName)
-                            .collect(Collectors.toList());
-                } else {
-                    weaponToReload = null;
-                }
-            } while (weaponToReload != null && !weaponsReloadableForView.isEmpty());
+            AtomicBoolean reloading = new AtomicBoolean(true);
+            return Continuations.loop(reloading::get, () -> {
+                List<WeaponTile> weaponsReloadable = reloadableWeapons(weaponsToReload, activePlayer);
+                List<String> weaponsReloadableForView = weaponsReloadable
+                        .stream()
+                        .map(WeaponTile::getName)
+                        .collect(Collectors.toList());
+                return resume(view.selectOptionalAsync("Which weapon would you like to reload?", weaponsReloadableForView, ClientApi.RELOAD_QUESTION))
+                        .thenCompose(selected -> {
+                            if (selected.isPresent()) {
+
+                                WeaponTile weaponToReload = weaponsReloadable
+                                        .stream()
+                                        .filter(w -> w.getName().equals(selected.get()))
+                                        .findAny()
+                                        .orElseThrow(() -> new IllegalStateException("Weapon to reload does not exist"));
+
+                                return reloadWeapon(weaponToReload, activePlayer, view)
+                                        .thenRun(() -> reloading.set(!reloadableWeapons(weaponsToReload, activePlayer).isEmpty()));
+                            } else {
+                                reloading.set(false);
+                                return CompletableFuture.completedFuture(null);
+                            }
+                        });
+            });
         }
     }
 
+    /**
+     * Filters the weapons that are not loaded and whose reload cost can be afforded by the player
+     * @param weapons the weapons of the player
+     * @param activePlayer the player who wants to reload
+     * @return the weapons that can be reloaded
+     */
+    private List<WeaponTile> reloadableWeapons(List<WeaponTile> weapons, Player activePlayer) {
+        return weapons
+                .stream()
+                .filter(weaponOfPlayer -> PaymentHandler.canAfford(weaponOfPlayer.getReloadCost(), activePlayer) && !weaponOfPlayer.isLoaded())
+                .collect(Collectors.toList());
+    }
+
     /**
      * This function picks up the weapon for the given player, managing the pickup-cost
      * @param weapon weapon to be picked up
      * @param activePlayer player who wants to pick up the weapon
      * @param view the interface that manage how to pay the pick-up cost
+     * @return a future completed when the weapon has been picked up
      */
-    private void pickUpWeapon(WeaponTile weapon, Player activePlayer, Interviewer view){
+    private CompletableFuture<Void> pickUpWeapon(WeaponTile weapon, Player activePlayer, AsyncInterviewer view){
         List<AmmoCube> acquisitionCost = weapon.getAcquisitionCost();
-        List<Coin> paymentMethod = PaymentHandler.collectCoins(acquisitionCost, activePlayer, view);
-        if (activePlayer.getWeapons().size() == activePlayer.getConstraints().getMaxWeaponsForPlayer()) {
-            WeaponTile weaponToDiscard = selectWeaponTile("Which weapon do you want to discard?", activePlayer.getWeapons(), view);
-            activePlayer.grabWeapon(weapon, paymentMethod, weaponToDiscard);
-        } else {
-            activePlayer.grabWeapon(weapon, paymentMethod);
-            Optional<WeaponTile> newWeapon = match.getWeaponDeck().pick();
-            newWeapon.ifPresent(weaponTile -> {
-                activePlayer.getBlock().drop(weaponTile);
-            });
-        }
+        return resume(PaymentHandler.collectCoinsAsync(acquisitionCost, activePlayer, view)).thenCompose(paymentMethod -> {
+            if (activePlayer.getWeapons().size() == activePlayer.getConstraints().getMaxWeaponsForPlayer()) {
+                return selectWeaponTile("Which weapon do you want to discard?", activePlayer.getWeapons(), view)
+                        .thenAccept(weaponToDiscard -> activePlayer.grabWeapon(weapon, paymentMethod, weaponToDiscard));
+            } else {
+                activePlayer.grabWeapon(weapon, paymentMethod);
+                Optional<WeaponTile> newWeapon = match.getWeaponDeck().pick();
+                newWeapon.ifPresent(weaponTile -> {
+                    activePlayer.getBlock().drop(weaponTile);
+                });
+                return CompletableFuture.completedFuture(null);
+            }
+        });
     }
 
     /**
@@ -382,14 +602,15 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * @param question string to be sent as question to the client
      * @param weaponTiles selectable weapon tiles
      * @param view view that will manage the selection
-     * @return the selected weapon tile
+     * @return a future completed with the selected weapon tile
      */
-    private WeaponTile selectWeaponTile(String question, List<WeaponTile> weaponTiles, Interviewer view){
+    private CompletableFuture<WeaponTile> selectWeaponTile(String question, List<WeaponTile> weaponTiles, AsyncInterviewer view){
         List<String> weaponNames = weaponTiles
                 .stream()
                 .map(WeaponTile::getName)
                 .collect(Collectors.toList());
-        return weaponTiles.get(weaponNames.indexOf(view.select(question, weaponNames, ClientApi.WEAPON_CHOICE_QUESTION)));
+        return resume(view.selectAsync(question, weaponNames, ClientApi.WEAPON_CHOICE_QUESTION))
+                .thenApply(weaponName -> weaponTiles.get(weaponNames.indexOf(weaponName)));
     }
 
     /**
@@ -397,46 +618,67 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * @param weapon weapon that needs to be reloaded
      * @param activePlayer is the player who has to reload a weapon
      * @param view is the interface that decides what coin to use to reload the weapon
+     * @return a future completed when the weapon has been reloaded
      */
-    private void reloadWeapon(WeaponTile weapon, Player activePlayer, Interviewer view){
+    private CompletableFuture<Void> reloadWeapon(WeaponTile weapon, Player activePlayer, AsyncInterviewer view){
         List<AmmoCube> reloadCost = weapon.getReloadCost();
         if (PaymentHandler.canAfford(reloadCost, activePlayer)){
-            List<Coin> paymentMethod = PaymentHandler.collectCoins(reloadCost, activePlayer, view);
-            activePlayer.reload(weapon, paymentMethod);
+            return resume(PaymentHandler.collectCoinsAsync(reloadCost, activePlayer, view))
+                    .thenAccept(paymentMethod -> activePlayer.reload(weapon, paymentMethod));
         }
+        return CompletableFuture.completedFuture(null);
     }
 
     /**
      * This function manage the player's actions during player's turn
      * @param player is the player who is currently player
      * @param view is the interface who decides how to manage the player
+     * @return a future completed when the player has no more actions to play
      */
-    private void manageActions(Player player, View view){
+    private CompletableFuture<Void> manageActions(Player player, JournaledInterviewer view){
         ActionTile tile = player.getAvailableMacroActions();
-        for (List<CompoundAction> compoundActions : tile.getCompoundActions()) {
-            managePowerups(player, null, Powerup.Trigger.IN_BETWEEN_ACTIONS, "Do you want to use a powerup?");
-            //per every macro action
-            List<BasicAction> playedActions = new LinkedList<>();
-            Optional<BasicAction> move;
-            do {
-                //Here we select the possible basic actions the player can do
-                Set<BasicAction> availableActions = candidateBasicActions(playedActions, compoundActions)
-                        .stream()
-                        .filter(basicAction -> canPerformAction(player, basicAction))
-                        .collect(Collectors.toSet());
-                //Here we ask the view to choose a basic action
-                move = availableActions.isEmpty() ?
-                        Optional.empty() :
-                        view.selectOptional("Which move would you like to execute?", availableActions, ClientApi.BASIC_ACTION_QUESTION);
-                //Here we execute that basic action
-                move.ifPresent(basicAction -> {
-                    manageChosenAction(basicAction, player, view);
-                    playedActions.add(basicAction);
-                });
-            } while (move.isPresent() && view.isConnected());
-        }
-        managePowerups(player, null, Powerup.Trigger.IN_BETWEEN_ACTIONS, "Do you want to use a powerup?");
+        //per every macro action
+        return Continuations.forEach(tile.getCompoundActions(), compoundActions ->
+                managePowerups(player, null, Powerup.Trigger.IN_BETWEEN_ACTIONS, "Do you want to use a powerup?", ExecutorFactory.getBlockingExecutor())
+                        .thenCompose(ignored -> manageMacroAction(player, view, compoundActions))
+        ).thenCompose(ignored -> managePowerups(player, null, Powerup.Trigger.IN_BETWEEN_ACTIONS, "Do you want to use a powerup?", ExecutorFactory.getBlockingExecutor()));
     }
+
+    /**
+     * This function lets the player choose and play the basic actions of a macro action
+     * @param player is the player who is currently player
+     * @param view is the interface who decides how to manage the player
+     * @param compoundActions is the list of possible compound actions of the macro action
+     * @return a future completed when the player does not want or cannot play any other basic action
+     */
+    private CompletableFuture<Void> manageMacroAction(Player player, JournaledInterviewer view, List<CompoundAction> compoundActions) {
+        List<BasicAction> playedActions = new LinkedList<>();
+        AtomicBoolean playing = new AtomicBoolean(true);
+        return Continuations.loop(playing::get, () -> {
+            //Here we select the possible basic actions the player can do
+            Set<BasicAction> availableActions = candidateBasicActions(playedActions, compoundActions)
+                    .stream()
+                    .filter(basicAction -> canPerformAction(player, basicAction))
+                    .collect(Collectors.toSet());
+            //Here we ask the view to choose a basic action
+            CompletableFuture<Optional<BasicAction>> move = availableActions.isEmpty() ?
+                    CompletableFuture.completedFuture(Optional.empty()) :
+                    resume(view.selectOptionalAsync("Which move would you like to execute?", availableActions, ClientApi.BASIC_ACTION_QUESTION));
+            //Here we execute that basic action
+            return move.thenCompose(chosenAction -> {
+                if (chosenAction.isPresent()) {
+                    return manageChosenAction(chosenAction.get(), player, view).thenRun(() -> {
+                        playedActions.add(chosenAction.get());
+                        playing.set(view.isConnected());
+                    });
+                } else {
+                    playing.set(false);
+                    return CompletableFuture.completedFuture(null);
+                }
+            });
+        });
+    }
+
     /**
      * This private method calculate the possible BasicActions the player can do
      * @param playedActions is the list of actions done in this turn by the players
@@ -542,8 +784,17 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      */
     @Override
     public void onPlayerDamaged(PlayerDamaged e) {
-        managePowerups(e.getAttacker(), e.getVictim(), Powerup.Trigger.ON_DAMAGE_GIVEN, "Do you want to use a powerup against " + e.getVictim().getPlayerInfo().getNickname() + "?");
-        managePowerups(e.getVictim(), e.getAttacker(), Powerup.Trigger.ON_DAMAGE_RECEIVED, "Do you want to use a powerup against " + e.getAttacker().getPlayerInfo().getNickname() + "?");
+        // The players must see the damage before choosing whether to react with a powerup
+        match.getEventTransaction().flush();
+        // Damages are dealt by weapons and powerups running on a thread of the bounded blocking executor, which waits
+        // here for the reactions. The powerups it activates run on this same thread, since the executor may have no
+        // other thread left, and their damages nest further reactions on it
+        BlockingQueue<Runnable> activations = new LinkedBlockingQueue<>();
+        Continuations.join(
+                managePowerups(e.getAttacker(), e.getVictim(), Powerup.Trigger.ON_DAMAGE_GIVEN, "Do you want to use a powerup against " + e.getVictim().getPlayerInfo().getNickname() + "?", activations::add)
+                        .thenCompose(ignored -> managePowerups(e.getVictim(), e.getAttacker(), Powerup.Trigger.ON_DAMAGE_RECEIVED, "Do you want to use a powerup against " + e.getAttacker().getPlayerInfo().getNickname() + "?", activations::add)),
+                activations
+        );
     }
 
     /**
@@ -701,40 +952,46 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * @param powerupTarget the target of the powerup effect
      * @param trigger the trigger of the powerup
      * @param message the message to send to the player
+     * @param blockingExecutor the executor activating the chosen powerups
+     * @return a future completed when the player does not want or cannot use any other powerup
      */
-    private void managePowerups(Player powerupOwner, @Nullable Player powerupTarget, Powerup.Trigger trigger, String message) {
-        Interviewer interviewer = playerViews.get(powerupOwner);
-        List<PowerupTile> ownedTiles = new LinkedList<>(powerupOwner.getPowerups());
-        List<Powerup> availablePowerups = findAvailablePowerups(ownedTiles, trigger, powerupOwner);
-        ownedTiles = filterPowerupTiles(ownedTiles, availablePowerups);
-        while (!ownedTiles.isEmpty()) {
-            Optional<it.polimi.ingsw.shared.datatransferobjects.Powerup> selected = optionalPowerupSelection(ownedTiles, interviewer, message);
-            if (selected.isPresent()) {
+    private CompletableFuture<Void> managePowerups(Player powerupOwner, @Nullable Player powerupTarget, Powerup.Trigger trigger, String message, Executor blockingExecutor) {
+        AsyncInterviewer interviewer = interviewers.get(powerupOwner);
+        AtomicBoolean choosing = new AtomicBoolean(true);
+        return Continuations.loop(choosing::get, () -> {
+            List<PowerupTile> ownedTiles = new LinkedList<>(powerupOwner.getPowerups());
+            List<Powerup> availablePowerups = findAvailablePowerups(ownedTiles, trigger, powerupOwner);
+            List<PowerupTile> availableTiles = filterPowerupTiles(ownedTiles, availablePowerups);
+            if (availableTiles.isEmpty()) {
+                choosing.set(false);
+                return CompletableFuture.completedFuture(null);
+            }
+            return optionalPowerupSelection(availableTiles, interviewer, message).thenCompose(selected -> {
+                if (!selected.isPresent()) {
+                    choosing.set(false);
+                    return CompletableFuture.completedFuture(null);
+                }
                 Powerup chosenPowerup = availablePowerups
                         .stream()
                         .filter(p -> p.getName().equals(selected.get().getName()))
                         .findAny()
                         .orElseThrow(() -> new IllegalStateException("Powerup " + selected.get().getName() + " was not available"));
-                PowerupTile chosenTile = ownedTiles
+                PowerupTile chosenTile = availableTiles
                         .stream()
                         .filter(p -> p.getName().equals(selected.get().getName()) && p.getColor().equals(selected.get().getColor()))
                         .findAny()
                         .orElseThrow(() -> new IllegalStateException("PowerupTile " + selected.get().getName() + " does not exist"));
-                PaymentHandler.pay(chosenPowerup.getCost(), powerupOwner, interviewer, chosenTile);
-                discardPowerupTile(powerupOwner, chosenTile);
-                if (powerupTarget == null) {
-                    chosenPowerup.activate(powerupOwner, selectTarget(chosenPowerup, powerupOwner, interviewer), interviewer);
-                } else {
-                    chosenPowerup.activate(powerupOwner, powerupTarget, interviewer);
-                }
-                ownedTiles = new LinkedList<>(powerupOwner.getPowerups());
-                availablePowerups = findAvailablePowerups(ownedTiles, trigger, powerupOwner);
-                ownedTiles = filterPowerupTiles(ownedTiles, availablePowerups);
-            } else {
-                ownedTiles.clear();
-            }
-        }
-
+                return resume(PaymentHandler.collectCoinsAsync(chosenPowerup.getCost(), powerupOwner, interviewer, chosenTile))
+                        .thenCompose(coins -> {
+                            powerupOwner.pay(coins);
+                            discardPowerupTile(powerupOwner, chosenTile);
+                            CompletableFuture<Player> target = powerupTarget == null ?
+                                    selectTarget(chosenPowerup, powerupOwner, interviewer) :
+                                    CompletableFuture.completedFuture(powerupTarget);
+                            return target.thenCompose(t -> runBlocking(() -> chosenPowerup.activate(powerupOwner, t, interviewer), blockingExecutor));
+                        });
+            });
+        });
     }
 
 
@@ -743,12 +1000,12 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * @param powerup the Powerup that needs to know his targets
      * @param self the Player who is activating the powerup
      * @param view the interface that will select the target if needed
-     * @return the optional of the target, if available. Optional.Empty() otherwise
+     * @return a future completed with the target
      */
-    private Player selectTarget(Powerup powerup, Player self, Interviewer view){
+    private CompletableFuture<Player> selectTarget(Powerup powerup, Player self, AsyncInterviewer view){
         switch (powerup.getTarget()) {
             case SELF:
-                return self;
+                return CompletableFuture.completedFuture(self);
             case OTHERS:
                 List<Player> possibleTargets = new LinkedList<>(match.getPlayers());
                 if (powerup.getTargetConstraint() == Powerup.TargetConstraint.VISIBLE) {
@@ -756,16 +1013,17 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
                 } else if (powerup.getTargetConstraint() == Powerup.TargetConstraint.NONE) {
                     possibleTargets = possibleTargets.stream().filter(player -> player != self && match.getBoard().findPlayer(player).isPresent()).collect(Collectors.toList());
                 }
-                List<String> targetsForView = possibleTargets
+                List<Player> targets = possibleTargets;
+                List<String> targetsForView = targets
                         .stream()
                         .map(player -> player.getPlayerInfo().getNickname())
                         .collect(Collectors.toList());
-                String choice = view.select("Who do you want to use the powerup against?", targetsForView, ClientApi.TARGET_QUESTION);
-                return possibleTargets
-                        .stream()
-                        .filter(t -> t.getPlayerInfo().getNickname().equals(choice))
-                        .findAny()
-                        .orElseThrow(() -> new IllegalStateException("No target was selected"));
+                return resume(view.selectAsync("Who do you want to use the powerup against?", targetsForView, ClientApi.TARGET_QUESTION))
+                        .thenApply(choice -> targets
+                                .stream()
+                                .filter(t -> t.getPlayerInfo().getNickname().equals(choice))
+                                .findAny()
+                                .orElseThrow(() -> new IllegalStateException("No target was selected")));
             default:
                 throw new IllegalArgumentException("Can't select the target of the given powerup");
         }
@@ -806,13 +1064,10 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
                     e.getView().addViewListener(view);
                 }
             });
-            match.getPlayers().forEach(player -> {
-                player.addPlayerListener(e.getView());
-            });
-            match.addMatchListener(e.getView());
-            match.getBoard().addBoardListener(e.getView());
-
-            e.getView().setReady(match);
+            e.getView().setReady();
+            if (broadcaster.resumeView(oldView.get(), e.getView())) {
+                logger.info("Resumed " + e.getView().getNickname() + " sending the missed events only");
+            }
         }
     }
 
@@ -854,14 +1109,14 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * @param powerups the list of powerup to choose from
      * @param view the view to ask
      * @param message the message to present to the player
-     * @return the player selection
+     * @return a future completed with the player selection
      */
-    private Optional<it.polimi.ingsw.shared.datatransferobjects.Powerup> optionalPowerupSelection(List<PowerupTile> powerups, Interviewer view, String message) {
+    private CompletableFuture<Optional<it.polimi.ingsw.shared.datatransferobjects.Powerup>> optionalPowerupSelection(List<PowerupTile> powerups, AsyncInterviewer view, String message) {
         List<it.polimi.ingsw.shared.datatransferobjects.Powerup> playerPowerupsVM = powerups.stream()
                 .map(p -> new it.polimi.ingsw.shared.datatransferobjects.Powerup(p.getName(), p.getColor()))
                 .collect(Collectors.toList());
 
-        return view.selectOptional(message, playerPowerupsVM, ClientApi.POWERUP_QUESTION);
+        return resume(view.selectOptionalAsync(message, playerPowerupsVM, ClientApi.POWERUP_QUESTION));
     }
 
     /**
@@ -870,15 +1125,15 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
      * @param powerups the powerups to choose from
      * @param view the view to ask
      * @param message the message to show to the player
-     * @return the player selection
+     * @return a future completed with the player selection
      */
-    private it.polimi.ingsw.shared.datatransferobjects.Powerup mandatorySpawnpointSelection(List<PowerupTile> powerups, Interviewer view, String message) {
+    private CompletableFuture<it.polimi.ingsw.shared.datatransferobjects.Powerup> mandatorySpawnpointSelection(List<PowerupTile> powerups, AsyncInterviewer view, String message) {
         List<it.polimi.ingsw.shared.datatransferobjects.Powerup> playerPowerupsVM = powerups.stream()
                 .filter(p -> powerups.stream().anyMatch(powerupController -> powerupController.getName().equals(p.getName())))
                 .map(p -> new it.polimi.ingsw.shared.datatransferobjects.Powerup(p.getName(), p.getColor()))
                 .collect(Collectors.toList());
 
-        return view.select(message, playerPowerupsVM, ClientApi.SPAWNPOINT_QUESTION);
+        return resume(view.selectAsync(message, playerPowerupsVM, ClientApi.SPAWNPOINT_QUESTION));
     }
 
     /**
@@ -889,7 +1144,7 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
     @Override
     public void onViewDisconnected(ViewEvent e) {
         e.getView().removeViewListener(this);
-        new Thread(() -> {
+        ExecutorFactory.newThread(() -> {
             try {
                 e.getView().close();
             } catch (Exception ex) {
@@ -918,9 +1173,11 @@ public class Controller implements Runnable, PlayerListener, ViewReconnectedList
     }
 
     /**
-     * Signals to close the currently active match and controller
+     * Signals to close the currently active match and controller. A journaled match that has not ended keeps its
+     * journal, so that it is recovered when the server starts again
      */
     public void close() {
         closed = true;
+        suspended = decisions.suspend();
     }
 }
\ No newline at end of file
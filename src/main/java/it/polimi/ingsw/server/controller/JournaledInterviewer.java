@@ -0,0 +1,125 @@
+package it.polimi.ingsw.server.controller;
+
+import com.google.gson.Gson;
+import it.polimi.ingsw.server.journal.DecisionLog;
+import it.polimi.ingsw.server.view.AsyncInterviewer;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.shared.messages.ClientApi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The interviewer of a player used by the controller, which goes through the decision log of the match: the answers
+ * and the connection of the player are written to the journal as they are known, or they are read back from it while
+ * the match is being replayed after a crash. The current view of the player is looked up at each question, so the
+ * interviewer keeps working after a reconnection
+ */
+class JournaledInterviewer implements AsyncInterviewer {
+
+    /**
+     * The converter of the options to the form the clients see, which is stable across runs of the server
+     */
+    private static final Gson gson = new Gson();
+
+    /**
+     * The index of the player in the match
+     */
+    private final int player;
+
+    /**
+     * The supplier of the current view of the player
+     */
+    private final Supplier<View> view;
+
+    /**
+     * The decisions of the match
+     */
+    private final DecisionLog decisions;
+
+    /**
+     * Constructs the interviewer of a player
+     *
+     * @param player the index of the player in the match
+     * @param view the supplier of the current view of the player
+     * @param decisions the decisions of the match
+     */
+    JournaledInterviewer(int player, Supplier<View> view, DecisionLog decisions) {
+        this.player = player;
+        this.view = view;
+        this.decisions = decisions;
+    }
+
+    /**
+     * @param options the options of a question
+     * @return the options in the form the clients see
+     */
+    private static List<String> serialize(List<?> options) {
+        return options.stream().map(gson::toJson).collect(Collectors.toList());
+    }
+
+    /**
+     * Ask the player to select one of the options proposed, unless the answer is being replayed
+     *
+     * @param questionText the question to show to the user
+     * @param options a collection of options to choose from
+     * @param messageName the name which identifies the type of message that is been sent
+     * @param <T> the type of items in the collection of options
+     * @return a future completed with the selected option
+     */
+    @Override
+    public <T> CompletableFuture<T> selectAsync(String questionText, Collection<T> options, ClientApi messageName) {
+        if (!decisions.isEnabled()) {
+            return view.get().selectAsync(questionText, options, messageName);
+        }
+        List<T> list = new ArrayList<>(options);
+        List<String> serialized = serialize(list);
+        OptionalInt replayed = decisions.replayAnswer(player, serialized, false);
+        if (replayed.isPresent()) {
+            return CompletableFuture.completedFuture(list.get(replayed.getAsInt()));
+        }
+        return view.get().selectAsync(questionText, list, messageName).thenApply(answer -> {
+            decisions.recordAnswer(player, serialized, list.indexOf(answer));
+            return answer;
+        });
+    }
+
+    /**
+     * Ask the player to select one or none of the options proposed, unless the answer is being replayed
+     *
+     * @param questionText the question to show to the user
+     * @param options a collection of options to choose from
+     * @param messageName the name which identifies the type of message that is been sent
+     * @param <T> the type of items in the collection of options
+     * @return a future completed with the selected option
+     */
+    @Override
+    public <T> CompletableFuture<Optional<T>> selectOptionalAsync(String questionText, Collection<T> options, ClientApi messageName) {
+        if (!decisions.isEnabled()) {
+            return view.get().selectOptionalAsync(questionText, options, messageName);
+        }
+        List<T> list = new ArrayList<>(options);
+        List<String> serialized = serialize(list);
+        OptionalInt replayed = decisions.replayAnswer(player, serialized, true);
+        if (replayed.isPresent()) {
+            return CompletableFuture.completedFuture(replayed.getAsInt() < 0 ? Optional.empty() : Optional.of(list.get(replayed.getAsInt())));
+        }
+        return view.get().selectOptionalAsync(questionText, list, messageName).thenApply(answer -> {
+            decisions.recordAnswer(player, serialized, answer.map(list::indexOf).orElse(-1));
+            return answer;
+        });
+    }
+
+    /**
+     * @return true if the player is connected, as recorded while the match is being replayed
+     */
+    boolean isConnected() {
+        return decisions.observeConnection(player, () -> view.get().isConnected());
+    }
+}
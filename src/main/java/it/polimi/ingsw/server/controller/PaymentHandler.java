@@ -2,15 +2,18 @@ package it.polimi.ingsw.server.controller;
 
 import it.polimi.ingsw.server.model.currency.*;
 import it.polimi.ingsw.server.model.player.Player;
+import it.polimi.ingsw.server.view.AsyncInterviewer;
 import it.polimi.ingsw.server.view.Interviewer;
 import it.polimi.ingsw.shared.datatransferobjects.Powerup;
 import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.utils.concurrent.Continuations;
 
 import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -78,6 +81,18 @@ public class PaymentHandler {
         return collectCoins(debt, owner, payer, false);
     }
 
+    /**
+     * This methods let the player to choose what payment method to use without waiting for the answers of the player
+     *
+     * @param debt is the amount of coin the player needs to pay
+     * @param owner is the player who has to pay. He MUST have sufficient coins to cover his debt
+     * @param payer is the interface who will be asked to choose how to manage owner's debt
+     * @return a future completed with the selected Coin chosen to pay the debt
+     */
+    public static CompletableFuture<List<Coin>> collectCoinsAsync(List<? extends Coin> debt, Player owner, AsyncInterviewer payer){
+        return collectCoinsAsync(debt, owner, payer, false, null);
+    }
+
     /**
      * This methods let the player to choose what payment method to use
      *
@@ -89,78 +104,106 @@ public class PaymentHandler {
      * @return the selected Coin chosen to pay the debt
      */
     public static List<Coin> collectCoins(List<? extends Coin> debt, Player owner, Interviewer payer, boolean ignoreColor, @Nullable PowerupTile restrictedFunds) {
+        return Continuations.join(collectCoinsAsync(debt, owner, AsyncInterviewer.of(payer), ignoreColor, restrictedFunds));
+    }
+
+    /**
+     * This methods let the player to choose what payment method to use, one coin at a time without waiting for the
+     * answers of the player
+     *
+     * @param debt is the amount of coin the player needs to pay
+     * @param owner is the player who has to pay. He MUST have sufficient coins to cover his debt
+     * @param payer is the interface who will be asked to choose how to manage owner's debt
+     * @param ignoreColor determines whether or not the only criteria for the currency is the amount and not the color
+     * @param restrictedFunds a coin that should not be considered available for payments
+     * @return a future completed with the selected Coin chosen to pay the debt
+     */
+    public static CompletableFuture<List<Coin>> collectCoinsAsync(List<? extends Coin> debt, Player owner, AsyncInterviewer payer, boolean ignoreColor, @Nullable PowerupTile restrictedFunds) {
 
         List<PowerupTile> chosenPowerups = new LinkedList<>();
         List<AmmoCube> chosenAmmoCube = new LinkedList<>();
 
-        for (Coin coinOwed : debt){
+        return Continuations.forEach(
+                debt,
+                coinOwed -> collectCoin(coinOwed, owner, payer, ignoreColor, restrictedFunds, chosenPowerups, chosenAmmoCube)
+        ).thenApply(ignored -> Stream.concat(
+                chosenAmmoCube.stream(),
+                chosenPowerups.stream()
+        ).collect(Collectors.toList()));
+    }
+
+    /**
+     * Lets the player choose the coin used to pay a single coin of the debt
+     *
+     * @param coinOwed the coin to pay
+     * @param owner is the player who has to pay. He MUST have sufficient coins to cover his debt
+     * @param payer is the interface who will be asked to choose how to manage owner's debt
+     * @param ignoreColor determines whether or not the only criteria for the currency is the amount and not the color
+     * @param restrictedFunds a coin that should not be considered available for payments
+     * @param chosenPowerups the powerups already chosen to pay the previous coins of the debt
+     * @param chosenAmmoCube the ammo cubes already chosen to pay the previous coins of the debt
+     * @return a future completed when the chosen coin has been added to the chosen ones
+     */
+    private static CompletableFuture<Void> collectCoin(Coin coinOwed, Player owner, AsyncInterviewer payer, boolean ignoreColor, @Nullable PowerupTile restrictedFunds, List<PowerupTile> chosenPowerups, List<AmmoCube> chosenAmmoCube) {
+
+        List<PowerupTile> powerupTiles = owner.getPowerups().stream()
+                .filter(p -> (ignoreColor || p.hasSameValueAs(coinOwed)) && !chosenPowerups.contains(p) && p != restrictedFunds)
+                .collect(Collectors.toList());
 
-            List<PowerupTile> powerupTiles = owner.getPowerups().stream()
-                    .filter(p -> (ignoreColor || p.hasSameValueAs(coinOwed)) && !chosenPowerups.contains(p) && p != restrictedFunds)
-                    .collect(Collectors.toList());
+        List<AmmoCube> ammoCubes = owner.getAmmoCubes().stream()
+                .filter(a -> (ignoreColor || a.hasSameValueAs(coinOwed)) && !chosenAmmoCube.contains(a))
+                .collect(Collectors.toList());
 
-            for (PowerupTile chosenPowerup : chosenPowerups) {
-                powerupTiles.remove(chosenPowerup);
-            }
+        CompletableFuture<CurrencyColor> colorChoice;
+        if (ignoreColor) {
+            List<CurrencyColor> ownedColors = Stream.concat(powerupTiles.stream().map(PowerupTile::getColor), ammoCubes.stream().map(AmmoCube::getColor)).collect(Collectors.toList());
+            colorChoice = payer.selectAsync("Which color do you want your debt to be?", new HashSet<>(ownedColors), ClientApi.PAYMENT_COLOR_QUESTION);
+        } else if (!powerupTiles.isEmpty() || !ammoCubes.isEmpty()) {
+            colorChoice = CompletableFuture.completedFuture(coinOwed.getColor());
+        } else throw new IllegalStateException("Invalid player wallet status, cannot pay the debt");
 
-            List<AmmoCube> ammoCubes = owner.getAmmoCubes().stream()
-                    .filter(a -> (ignoreColor || a.hasSameValueAs(coinOwed)) && !chosenAmmoCube.contains(a))
-                    .collect(Collectors.toList());
+        return colorChoice.thenCompose(actualColor -> {
+            boolean powerupsAvailable = ignoreColor ?
+                    powerupTiles.stream().anyMatch(p -> AmmoCubeFactory.create(actualColor).hasSameValueAs(p)) :
+                    !powerupTiles.isEmpty();
+            boolean ammoCubesAvailable = ignoreColor ?
+                    ammoCubes.stream().anyMatch(a -> AmmoCubeFactory.create(actualColor).hasSameValueAs(a)) :
+                    !ammoCubes.isEmpty();
 
-            for (AmmoCube chosenAmmo : chosenAmmoCube) {
-                ammoCubes.remove(chosenAmmo);
+            CompletableFuture<String> paymentMethodChoice;
+            if (!powerupsAvailable) {
+                paymentMethodChoice = CompletableFuture.completedFuture(PAYMENT_METHOD_AMMO_CUBES);
+            } else if (!ammoCubesAvailable) {
+                paymentMethodChoice = CompletableFuture.completedFuture(PAYMENT_METHOD_POWERUPS);
+            } else {
+                List<String> paymentMethods = Arrays.asList(PAYMENT_METHOD_AMMO_CUBES, PAYMENT_METHOD_POWERUPS);
+                paymentMethodChoice = payer.selectAsync("Which payment method would you like to use to pay your debt?", paymentMethods, ClientApi.PAYMENT_METHOD_QUESTION);
             }
 
-            List<String> paymentMethods = Arrays.asList(PAYMENT_METHOD_AMMO_CUBES, PAYMENT_METHOD_POWERUPS);
-            String paymentMethod;
-            CurrencyColor actualColor;
-            if (ignoreColor) {
-                List<CurrencyColor> ownedColors = Stream.concat(powerupTiles.stream().map(PowerupTile::getColor), ammoCubes.stream().map(AmmoCube::getColor)).collect(Collectors.toList());
-                actualColor = payer.select("Which color do you want your debt to be?", new HashSet<>(ownedColors), ClientApi.PAYMENT_COLOR_QUESTION);
-                if (powerupTiles.stream().noneMatch(p -> AmmoCubeFactory.create(actualColor).hasSameValueAs(p))) {
-                    paymentMethod = PAYMENT_METHOD_AMMO_CUBES;
-                } else if (ammoCubes.stream().noneMatch(a -> AmmoCubeFactory.create(actualColor).hasSameValueAs(a))) {
-                    paymentMethod = PAYMENT_METHOD_POWERUPS;
-                } else {
-                    paymentMethod = payer.select("Which payment method would you like to use to pay your debt?", paymentMethods, ClientApi.PAYMENT_METHOD_QUESTION);
+            return paymentMethodChoice.thenCompose(paymentMethod -> {
+                switch (paymentMethod) {
+                    case PAYMENT_METHOD_AMMO_CUBES:
+                        List<AmmoCube> ammoCubesOfColor = ammoCubes.stream().filter(a -> a.getColor().equals(actualColor)).collect(Collectors.toList());
+                        chosenAmmoCube.add(ammoCubesOfColor.get(0));
+                        break;
+                    case PAYMENT_METHOD_POWERUPS:
+                        List<PowerupTile> powerupTilesOfColor = powerupTiles.stream().filter(p -> p.getColor().equals(actualColor)).collect(Collectors.toList());
+                        if (powerupTilesOfColor.size() > 1) {
+                            List<Powerup> powerups = powerupTilesOfColor.stream().map(p -> new Powerup(p.getName(), p.getColor())).collect(Collectors.toList());
+                            return payer.selectAsync("Which powerup would you like to discard to pay your debt?", powerups, ClientApi.POWERUP_QUESTION)
+                                    .thenAccept(powerup -> chosenPowerups.add(powerupTilesOfColor.stream()
+                                            .filter(p -> p.getName().equals(powerup.getName()) && p.getColor().equals(powerup.getColor()))
+                                            .findFirst()
+                                            .orElse(powerupTilesOfColor.get(0)) // Forced response in case of communication errors
+                                    ));
+                        } else {
+                            chosenPowerups.add(powerupTilesOfColor.get(0));
+                        }
+                        break;
                 }
-            } else if (!powerupTiles.isEmpty() && !ammoCubes.isEmpty()) {
-                actualColor = coinOwed.getColor();
-                paymentMethod = payer.select("Which payment method would you like to use to pay your debt?", paymentMethods, ClientApi.PAYMENT_METHOD_QUESTION);
-            } else if (!powerupTiles.isEmpty()) {
-                actualColor = coinOwed.getColor();
-                paymentMethod = PAYMENT_METHOD_POWERUPS;
-            } else if (!ammoCubes.isEmpty()) {
-                actualColor = coinOwed.getColor();
-                paymentMethod = PAYMENT_METHOD_AMMO_CUBES;
-            } else throw new IllegalStateException("Invalid player wallet status, cannot pay the debt");
-
-            switch (paymentMethod)  {
-                case PAYMENT_METHOD_AMMO_CUBES:
-                    ammoCubes = ammoCubes.stream().filter(a -> a.getColor().equals(actualColor)).collect(Collectors.toList());
-                    chosenAmmoCube.add(ammoCubes.get(0));
-                    break;
-                case PAYMENT_METHOD_POWERUPS:
-                    powerupTiles = powerupTiles.stream().filter(p -> p.getColor().equals(actualColor)).collect(Collectors.toList());
-                    if (powerupTiles.size() > 1) {
-                        List<Powerup> powerups = powerupTiles.stream().map(p -> new Powerup(p.getName(), p.getColor())).collect(Collectors.toList());
-                        Powerup powerup = payer.select("Which powerup would you like to discard to pay your debt?", powerups, ClientApi.POWERUP_QUESTION);
-                        PowerupTile choice = powerupTiles.stream()
-                                .filter(p -> p.getName().equals(powerup.getName()) && p.getColor().equals(powerup.getColor()))
-                                .findFirst()
-                                .orElse(powerupTiles.get(0)); // Forced response in case of communication errors
-                        chosenPowerups.add(choice);
-                    } else {
-                        chosenPowerups.add(powerupTiles.get(0));
-                    }
-                    break;
-            }
-        }
-
-        return Stream.concat(
-                chosenAmmoCube.stream(),
-                chosenPowerups.stream()
-        ).collect(Collectors.toList());
+                return CompletableFuture.completedFuture(null);
+            });
+        });
     }
 
     /**
@@ -199,6 +242,28 @@ public class PaymentHandler {
         );
     }
 
+    /**
+     * This methods let the player to choose what payment method to use without waiting for the answers of the player
+     *
+     * @param debt is the amount of coin of non specified colour the player needs to pay
+     * @param owner is the player who has to pay. He MUST have sufficient coins to cover his debt
+     * @param payer is the interface who will be asked to choose how to manage owner's debt
+     * @param restrictedFunds a coin that should not be considered available for payments
+     * @return a future completed with the selected Coin chosen to pay the debt
+     */
+    public static CompletableFuture<List<Coin>> collectCoinsAsync(int debt, Player owner, AsyncInterviewer payer, @Nullable PowerupTile restrictedFunds){
+        return collectCoinsAsync(
+                IntStream.range(0, debt)
+                        .boxed()
+                        .map(i -> new AmmoCube(CurrencyColor.BLUE))
+                        .collect(Collectors.toList()),
+                owner,
+                payer,
+                true,
+                restrictedFunds
+        );
+    }
+
     /**
      * This methods let the player to choose what payment method to use
      *
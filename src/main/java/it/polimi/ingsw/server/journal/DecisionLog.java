@@ -0,0 +1,286 @@
+package it.polimi.ingsw.server.journal;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * The decisions a match depends on, in the order the controller needs them: the answers of the players, the connection
+ * of the players each time the controller checks it and a digest of the state of the match at the end of each turn.
+ * Since the decks of a journaled match are shuffled from a known seed, these decisions are enough to play the match
+ * again. A live log appends each decision to the journal as soon as it is taken; a recovered log first hands back the
+ * decisions read from the journal, then goes live. The players are identified by their index in the match
+ */
+public class DecisionLog {
+
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The journal the decisions are written to, null if they are not kept
+     */
+    @Nullable
+    private MatchJournal journal;
+
+    /**
+     * The journal closed by a suspension, kept to delete it if the match ends anyway
+     */
+    @Nullable
+    private MatchJournal suspendedJournal;
+
+    /**
+     * The recorded decisions still to be handed back
+     */
+    private final Deque<MatchJournal.Record> replay;
+
+    /**
+     * The number of recorded decisions handed back so far
+     */
+    private int replayedCount = 0;
+
+    /**
+     * Constructs a log that keeps nothing
+     */
+    public DecisionLog() {
+        this(null, Collections.emptyList());
+    }
+
+    /**
+     * Constructs a live log
+     *
+     * @param journal the journal the decisions are written to
+     */
+    public DecisionLog(MatchJournal journal) {
+        this(journal, Collections.emptyList());
+    }
+
+    /**
+     * Constructs a log that hands back the recorded decisions before going live
+     *
+     * @param journal the journal the new decisions are written to, null if they are not kept
+     * @param replay the recorded decisions
+     */
+    public DecisionLog(@Nullable MatchJournal journal, List<MatchJournal.Record> replay) {
+        this.journal = journal;
+        this.replay = new ArrayDeque<>(replay);
+    }
+
+    /**
+     * @return true if the decisions are either written or handed back
+     */
+    public synchronized boolean isEnabled() {
+        return journal != null || !replay.isEmpty();
+    }
+
+    /**
+     * @return true if there are recorded decisions still to be handed back
+     */
+    public synchronized boolean isReplaying() {
+        return !replay.isEmpty();
+    }
+
+    /**
+     * Hands back the recorded answer to a question. The options are compared by their serialized form, since the order
+     * of some collections of options changes from a run of the server to another
+     *
+     * @param player the index of the player asked
+     * @param options the serialized options of the question
+     * @param optional whether the player can choose none of the options
+     * @return the index of the chosen option, -1 if none was chosen, empty if the answer must be asked to the player
+     */
+    public synchronized OptionalInt replayAnswer(int player, List<String> options, boolean optional) {
+        MatchJournal.Record record = replay.peek();
+        if (record == null) {
+            return OptionalInt.empty();
+        }
+        if (record.getType() == MatchJournal.Type.ANSWER) {
+            ByteBuffer body = ByteBuffer.wrap(record.getBody());
+            int recordedPlayer = body.getShort();
+            int index = body.getInt();
+            String option = StandardCharsets.UTF_8.decode(body).toString();
+            int chosen = index < 0 ? -1 : options.indexOf(option);
+            if (recordedPlayer == player && (chosen >= 0 || index < 0 && optional)) {
+                consume();
+                return OptionalInt.of(chosen);
+            }
+        }
+        diverge("the answer of player " + player);
+        return OptionalInt.empty();
+    }
+
+    /**
+     * Writes the answer of a player
+     *
+     * @param player the index of the player
+     * @param options the serialized options of the question
+     * @param index the index of the chosen option, -1 if none was chosen
+     */
+    public synchronized void recordAnswer(int player, List<String> options, int index) {
+        if (journal == null) {
+            return;
+        }
+        byte[] option = index < 0 ? new byte[0] : options.get(index).getBytes(StandardCharsets.UTF_8);
+        append(
+                MatchJournal.Type.ANSWER,
+                ByteBuffer.allocate(Short.BYTES + Integer.BYTES + option.length)
+                        .putShort((short) player)
+                        .putInt(index)
+                        .put(option)
+                        .array()
+        );
+    }
+
+    /**
+     * Tells whether a player is connected, handing back the recorded connection while replaying and writing the live
+     * one afterwards
+     *
+     * @param player the index of the player
+     * @param connection the live connection of the player
+     * @return true if the player is connected
+     */
+    public synchronized boolean observeConnection(int player, BooleanSupplier connection) {
+        MatchJournal.Record record = replay.peek();
+        if (record != null) {
+            ByteBuffer body = ByteBuffer.wrap(record.getBody());
+            if (record.getType() == MatchJournal.Type.CONNECTION && body.getShort() == player) {
+                consume();
+                return body.get() != 0;
+            }
+            diverge("the connection of player " + player);
+        }
+        boolean connected = connection.getAsBoolean();
+        if (journal != null) {
+            append(
+                    MatchJournal.Type.CONNECTION,
+                    ByteBuffer.allocate(Short.BYTES + 1)
+                            .putShort((short) player)
+                            .put((byte) (connected ? 1 : 0))
+                            .array()
+            );
+        }
+        return connected;
+    }
+
+    /**
+     * Writes a digest of the state of the match, or checks that the replayed match reached the recorded one
+     *
+     * @param digest the supplier of the digest, only invoked if the log is enabled
+     */
+    public synchronized void checkpoint(Supplier<String> digest) {
+        MatchJournal.Record record = replay.peek();
+        if (record != null) {
+            if (record.getType() == MatchJournal.Type.CHECKPOINT && new String(record.getBody(), StandardCharsets.UTF_8).equals(digest.get())) {
+                consume();
+            } else {
+                diverge("the checkpoint");
+            }
+        } else if (journal != null) {
+            append(MatchJournal.Type.CHECKPOINT, digest.get().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Removes the decision that has just been handed back
+     */
+    private void consume() {
+        replay.poll();
+        replayedCount++;
+        if (replay.isEmpty()) {
+            logger.info("Replayed " + replayedCount + " decisions, the match is live again");
+        }
+    }
+
+    /**
+     * Stops the replay when the match no longer follows the recorded decisions, the decisions still to be handed back
+     * are removed from the journal and the match goes on from the state it reached
+     *
+     * @param expected the decision the controller needed
+     */
+    private void diverge(String expected) {
+        MatchJournal.Record record = replay.peek();
+        logger.severe("The match diverged from its journal while replaying " + expected + ", " + replay.size() + " decisions discarded");
+        replay.clear();
+        if (journal != null && record != null) {
+            try {
+                journal.truncate(record.getPosition());
+            } catch (IOException e) {
+                abandon(e);
+            }
+        }
+    }
+
+    /**
+     * Appends a record to the journal
+     *
+     * @param type the type of the record
+     * @param body the content of the record
+     */
+    private void append(MatchJournal.Type type, byte[] body) {
+        try {
+            Objects.requireNonNull(journal).append(type, body);
+        } catch (IOException e) {
+            abandon(e);
+        }
+    }
+
+    /**
+     * Stops writing to a journal that failed, the match goes on without it
+     *
+     * @param e the failure of the journal
+     */
+    private void abandon(IOException e) {
+        logger.warning("Couldn't write the journal, the match goes on without it " + e);
+        try {
+            Objects.requireNonNull(journal).close();
+        } catch (IOException ex) {
+            logger.warning("Couldn't close the journal " + ex);
+        }
+        journal = null;
+    }
+
+    /**
+     * Stops writing the decisions and closes the journal without deleting it, so that the match can be recovered from
+     * it when the server starts again. The decisions taken afterwards, such as the ones caused by the server closing the
+     * connections, are not written
+     *
+     * @return true if a journal was kept
+     */
+    public synchronized boolean suspend() {
+        replay.clear();
+        if (journal == null) {
+            return false;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.warning("Couldn't close the journal " + e);
+        }
+        suspendedJournal = journal;
+        journal = null;
+        return true;
+    }
+
+    /**
+     * Deletes the journal of a match that is over, even if the log was suspended
+     */
+    public synchronized void discard() {
+        replay.clear();
+        MatchJournal kept = journal != null ? journal : suspendedJournal;
+        if (kept != null) {
+            try {
+                kept.delete();
+            } catch (IOException e) {
+                logger.warning("Couldn't delete the journal " + e);
+            }
+        }
+        journal = null;
+        suspendedJournal = null;
+    }
+}
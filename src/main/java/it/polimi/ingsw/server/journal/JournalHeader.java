@@ -0,0 +1,104 @@
+package it.polimi.ingsw.server.journal;
+
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.match.Match;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The first record of a journal, holding everything needed to create the match it describes again
+ */
+public class JournalHeader {
+
+    /**
+     * The seed of the colors of the players and of the shuffles of the decks
+     */
+    private final long seed;
+
+    /**
+     * The nicknames of the players, in the order they were given to the match
+     */
+    private final List<String> nicknames;
+
+    /**
+     * The board preset of the match
+     */
+    private final BoardFactory.Preset preset;
+
+    /**
+     * The number of skulls of the match
+     */
+    private final int skulls;
+
+    /**
+     * The initial mode of the match
+     */
+    private final Match.Mode mode;
+
+    /**
+     * The minimum number of connected players needed to go on with the match
+     */
+    private final int minClients;
+
+    /**
+     * Constructs a header
+     *
+     * @param seed the seed of the colors of the players and of the shuffles of the decks
+     * @param nicknames the nicknames of the players, in the order they were given to the match
+     * @param preset the board preset of the match
+     * @param skulls the number of skulls of the match
+     * @param mode the initial mode of the match
+     * @param minClients the minimum number of connected players needed to go on with the match
+     */
+    public JournalHeader(long seed, List<String> nicknames, BoardFactory.Preset preset, int skulls, Match.Mode mode, int minClients) {
+        this.seed = seed;
+        this.nicknames = new ArrayList<>(nicknames);
+        this.preset = preset;
+        this.skulls = skulls;
+        this.mode = mode;
+        this.minClients = minClients;
+    }
+
+    /**
+     * @return the seed of the colors of the players and of the shuffles of the decks
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the nicknames of the players, in the order they were given to the match
+     */
+    public List<String> getNicknames() {
+        return nicknames;
+    }
+
+    /**
+     * @return the board preset of the match
+     */
+    public BoardFactory.Preset getPreset() {
+        return preset;
+    }
+
+    /**
+     * @return the number of skulls of the match
+     */
+    public int getSkulls() {
+        return skulls;
+    }
+
+    /**
+     * @return the initial mode of the match
+     */
+    public Match.Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the minimum number of connected players needed to go on with the match
+     */
+    public int getMinClients() {
+        return minClients;
+    }
+}
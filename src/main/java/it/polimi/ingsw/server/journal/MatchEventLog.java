@@ -0,0 +1,215 @@
+package it.polimi.ingsw.server.journal;
+
+import com.google.gson.JsonParseException;
+import it.polimi.ingsw.shared.messages.FrameFormat;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+
+/**
+ * The append-only log of the events of a match, in the same typed form the clients receive them, each one tagged with
+ * the version of the match state it leads to. The log starts with a snapshot of the match taken when it started, so
+ * that replaying it needs nothing else. Each event is made of the length of its JSON frame followed by the frame. The
+ * events are appended to a buffer in memory, which the disk executor hands to the operating system shortly after, so
+ * the match never waits for the disk. The events still in the buffer are lost in a crash, but a recovered match writes
+ * its log again from the start anyway
+ */
+public class MatchEventLog implements AutoCloseable {
+
+    /**
+     * The extension of the event log files
+     */
+    public static final String EXTENSION = ".events";
+
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The event log file
+     */
+    private final Path file;
+
+    /**
+     * The stream the events are written to, only used by the disk executor and null once the log is closed
+     */
+    private OutputStream output;
+
+    /**
+     * The events appended and not handed to the stream yet
+     */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    /**
+     * Whether the disk executor is about to write the pending events
+     */
+    private boolean draining = false;
+
+    /**
+     * Whether or not the close method has been invoked
+     */
+    private boolean closed = false;
+
+    /**
+     * Constructs a log writing to an open stream
+     *
+     * @param file the event log file
+     * @param output the stream of the file
+     */
+    private MatchEventLog(Path file, OutputStream output) {
+        this.file = file;
+        this.output = output;
+    }
+
+    /**
+     * Creates the event log of a match. A match recovered after a crash writes its log again from the start, since
+     * replaying its decisions produces the same events
+     *
+     * @param directory the directory of the event logs
+     * @param matchId the identifier of the match, which names the file
+     * @return the empty event log
+     * @throws IOException if the file cannot be created
+     */
+    public static MatchEventLog create(Path directory, String matchId) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(matchId + EXTENSION);
+        return new MatchEventLog(file, Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Reads the events of a log, an event torn by a crash at the end of the file is ignored
+     *
+     * @param file the event log file
+     * @return the events in the order they were appended
+     * @throws IOException if the file cannot be read or it contains a malformed event
+     */
+    public static List<Message> read(Path file) throws IOException {
+        List<Message> events = new ArrayList<>();
+        try (InputStream stream = Files.newInputStream(file)) {
+            DataInputStream input = new DataInputStream(stream);
+            while (true) {
+                byte[] frame;
+                try {
+                    int length = input.readInt();
+                    if (length <= 0) {
+                        break;
+                    }
+                    frame = new byte[length];
+                    input.readFully(frame);
+                } catch (EOFException e) {
+                    break;
+                }
+                try {
+                    events.add(Message.fromFrame(frame));
+                } catch (JsonParseException e) {
+                    throw new IOException("The event log " + file + " contains a malformed event", e);
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Appends an event to the buffer and asks the disk executor to write it. A log that cannot be written is closed and
+     * the match goes on without it
+     *
+     * @param event the event to append
+     */
+    public synchronized void append(Message event) {
+        if (closed) {
+            return;
+        }
+        byte[] frame = event.toFrame(FrameFormat.JSON);
+        pending.writeBytes(ByteBuffer.allocate(Integer.BYTES + frame.length).putInt(frame.length).put(frame).array());
+        if (!draining) {
+            draining = true;
+            ExecutorFactory.getDiskExecutor().execute(this::drain);
+        }
+    }
+
+    /**
+     * Writes the pending events with a single write, so that only the last event can be torn by a crash. Executed by
+     * the disk executor
+     */
+    private void drain() {
+        byte[] events;
+        synchronized (this) {
+            events = pending.toByteArray();
+            pending.reset();
+            draining = false;
+        }
+        if (output == null || events.length == 0) {
+            return;
+        }
+        try {
+            output.write(events);
+        } catch (IOException e) {
+            logger.warning("Couldn't write the event log " + file + ", the match goes on without it " + e);
+            synchronized (this) {
+                closed = true;
+            }
+            closeOutput();
+        }
+    }
+
+    /**
+     * Closes the stream, executed by the disk executor
+     */
+    private void closeOutput() {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.close();
+        } catch (IOException e) {
+            logger.warning("Couldn't close the event log " + file + " " + e);
+        }
+        output = null;
+    }
+
+    /**
+     * @return the event log file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the pending events and closes the file, waiting for the disk executor. The following events are not logged
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            ExecutorFactory.getDiskExecutor().submit(() -> {
+                drain();
+                closeOutput();
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Interrupted while closing the event log " + file);
+        } catch (ExecutionException e) {
+            logger.warning("Couldn't close the event log " + file + " " + e.getCause());
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package it.polimi.ingsw.server.journal;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
+import it.polimi.ingsw.utils.concurrent.HashedWheelTimer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The journal of a match, stored in a memory-mapped file. Appending a record only copies it into the mapping, so the
+ * match never waits for the disk: the written pages belong to the operating system as soon as they are copied, hence
+ * they survive a crash of the server process, and they are forced to the disk in background. Each record is made of
+ * its length, its type and its body. The length is written last and a zero length marks the end of the journal, so a
+ * record torn by a crash is never read
+ */
+public class MatchJournal implements AutoCloseable {
+
+    /**
+     * The type of a record
+     */
+    public enum Type {
+        /**
+         * The description of the match, always the first record
+         */
+        HEADER,
+        /**
+         * The answer of a player to a question
+         */
+        ANSWER,
+        /**
+         * The connection of a player, as seen by the controller
+         */
+        CONNECTION,
+        /**
+         * A digest of the state of the match at the end of a turn
+         */
+        CHECKPOINT,
+        /**
+         * The end of the match, a journal ending with it is never recovered
+         */
+        END
+    }
+
+    /**
+     * A record read from a journal
+     */
+    public static class Record {
+
+        /**
+         * The type of the record
+         */
+        private final Type type;
+
+        /**
+         * The content of the record
+         */
+        private final byte[] body;
+
+        /**
+         * The offset of the record in the file
+         */
+        private final long position;
+
+        /**
+         * Constructs a record
+         *
+         * @param type the type of the record
+         * @param body the content of the record
+         * @param position the offset of the record in the file
+         */
+        private Record(Type type, byte[] body, long position) {
+            this.type = type;
+            this.body = body;
+            this.position = position;
+        }
+
+        /**
+         * @return the type of the record
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * @return the content of the record
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return the offset of the record in the file
+         */
+        public long getPosition() {
+            return position;
+        }
+    }
+
+    /**
+     * The extension of the journal files
+     */
+    public static final String EXTENSION = ".journal";
+
+    /**
+     * The size of the portion of the file mapped at once, a new one is mapped when the current one is full
+     */
+    private static final int REGION_SIZE = 1 << 20;
+
+    /**
+     * The period of the background flush of the written pages to the disk
+     */
+    private static final int FLUSH_PERIOD_MILLISECONDS = 1000;
+
+    /**
+     * The JSON converter of the header
+     */
+    private static final Gson gson = new Gson();
+
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The journal file
+     */
+    private final Path file;
+
+    /**
+     * The channel the regions are mapped from
+     */
+    private final FileChannel channel;
+
+    /**
+     * The description of the match
+     */
+    private final JournalHeader header;
+
+    /**
+     * The records found in the file when it was opened, the header excluded
+     */
+    private final List<Record> records;
+
+    /**
+     * The mapped portion of the file the next record is written to
+     */
+    private volatile MappedByteBuffer region;
+
+    /**
+     * The offset in the file of the mapped portion
+     */
+    private long regionStart;
+
+    /**
+     * Whether something was written after the last flush
+     */
+    private boolean dirty = false;
+
+    /**
+     * Whether a background flush is still waiting for the disk
+     */
+    private boolean flushing = false;
+
+    /**
+     * The next background flush
+     */
+    private HashedWheelTimer.Timeout flush;
+
+    /**
+     * Whether or not the close method has been invoked
+     */
+    private boolean closed = false;
+
+    /**
+     * Constructs a journal writing after the given position
+     *
+     * @param file the journal file
+     * @param channel the channel the regions are mapped from
+     * @param header the description of the match
+     * @param records the records already in the file, the header excluded
+     * @param position the offset of the end of the journal
+     * @throws IOException if the file cannot be mapped
+     */
+    private MatchJournal(Path file, FileChannel channel, JournalHeader header, List<Record> records, long position) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.header = header;
+        this.records = Collections.unmodifiableList(records);
+        map(position, REGION_SIZE);
+        scheduleFlush();
+    }
+
+    /**
+     * Creates the journal of a new match
+     *
+     * @param directory the directory of the journals
+     * @param header the description of the match
+     * @return the journal, containing the header only
+     * @throws IOException if the file cannot be created
+     */
+    public static MatchJournal create(Path directory, JournalHeader header) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(newMatchId() + EXTENSION);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MatchJournal journal;
+        try {
+            journal = new MatchJournal(file, channel, header, Collections.emptyList(), 0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        journal.append(Type.HEADER, gson.toJson(header).getBytes(StandardCharsets.UTF_8));
+        return journal;
+    }
+
+    /**
+     * @return a new identifier of a match, which names the files describing the match
+     */
+    public static String newMatchId() {
+        return "match-" + UUID.randomUUID();
+    }
+
+    /**
+     * Opens the journal of an interrupted match, the new records are written after the last complete one
+     *
+     * @param file the journal file
+     * @return the journal
+     * @throws IOException if the file cannot be read or it does not start with a header
+     */
+    public static MatchJournal open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            List<Record> records = new ArrayList<>();
+            long end = read(channel, records);
+            if (records.isEmpty() || records.get(0).getType() != Type.HEADER) {
+                throw new IOException("The journal " + file + " has no header");
+            }
+            JournalHeader header = gson.fromJson(new String(records.get(0).getBody(), StandardCharsets.UTF_8), JournalHeader.class);
+            zero(channel, end);
+            return new MatchJournal(file, channel, header, new ArrayList<>(records.subList(1, records.size())), end);
+        } catch (IOException | JsonParseException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e : new IOException("The journal " + file + " has a malformed header", e);
+        }
+    }
+
+    /**
+     * Tells whether the match of a journal is over, which is the case when its file could not be deleted once the match
+     * ended
+     *
+     * @param file the journal file
+     * @return true if the last record of the journal is the end of the match
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isEnded(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Record> records = new ArrayList<>();
+            read(channel, records);
+            return !records.isEmpty() && records.get(records.size() - 1).getType() == Type.END;
+        }
+    }
+
+    /**
+     * Lists the journals of a directory
+     *
+     * @param directory the directory of the journals
+     * @return the journal files, an empty list if the directory does not exist
+     * @throws IOException if the directory cannot be read
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads the complete records of a file
+     *
+     * @param channel the channel of the file
+     * @param records the list the records are added to
+     * @return the offset of the end of the last complete record
+     * @throws IOException if the file cannot be read
+     */
+    private static long read(FileChannel channel, List<Record> records) throws IOException {
+        ByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        int end = 0;
+        while (content.remaining() >= Integer.BYTES) {
+            int length = content.getInt();
+            if (length <= 0 || length > content.remaining()) {
+                break;
+            }
+            int type = content.get();
+            if (type < 0 || type >= Type.values().length) {
+                break;
+            }
+            byte[] body = new byte[length - 1];
+            content.get(body);
+            records.add(new Record(Type.values()[type], body, end));
+            end = content.position();
+        }
+        return end;
+    }
+
+    /**
+     * Fills a file with zeros from an offset to its end, so that the bytes of the records following the offset can no
+     * longer be read
+     *
+     * @param channel the channel of the file
+     * @param position the offset to start from
+     * @throws IOException if the file cannot be written
+     */
+    private static void zero(FileChannel channel, long position) throws IOException {
+        ByteBuffer zeros = ByteBuffer.allocate(8192);
+        for (long offset = position; offset < channel.size(); ) {
+            zeros.clear();
+            zeros.limit((int) Math.min(zeros.capacity(), channel.size() - offset));
+            offset += channel.write(zeros, offset);
+        }
+    }
+
+    /**
+     * Maps the portion of the file the next records are written to, extending the file if needed
+     *
+     * @param start the offset of the portion
+     * @param size the size of the portion
+     * @throws IOException if the file cannot be mapped
+     */
+    private void map(long start, int size) throws IOException {
+        if (region != null) {
+            // The full region is forced in background like the periodic flushes, the disk executor keeps their order
+            MappedByteBuffer full = region;
+            ExecutorFactory.getDiskExecutor().execute(() -> force(full));
+        }
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+        regionStart = start;
+    }
+
+    /**
+     * Appends a record
+     *
+     * @param type the type of the record
+     * @param body the content of the record
+     * @throws IOException if the journal is closed or a new portion of the file cannot be mapped
+     */
+    public synchronized void append(Type type, byte[] body) throws IOException {
+        if (closed) {
+            throw new IOException("The journal is closed");
+        }
+        int length = 1 + body.length;
+        if (region.remaining() < Integer.BYTES + length) {
+            map(getPosition(), Math.max(REGION_SIZE, Integer.BYTES + length));
+        }
+        int offset = region.position();
+        region.position(offset + Integer.BYTES);
+        region.put((byte) type.ordinal());
+        region.put(body);
+        // The length makes the record visible, so it is written once the rest of the record is in place
+        region.putInt(offset, length);
+        dirty = true;
+    }
+
+    /**
+     * Discards the records following an offset, the new records are written from there
+     *
+     * @param position the offset of the first record to discard
+     * @throws IOException if the journal is closed or the file cannot be written
+     */
+    public synchronized void truncate(long position) throws IOException {
+        if (closed) {
+            throw new IOException("The journal is closed");
+        }
+        region.force();
+        zero(channel, position);
+        region = null;
+        map(position, REGION_SIZE);
+    }
+
+    /**
+     * Schedules the next background flush on the shared timer
+     */
+    private void scheduleFlush() {
+        flush = ExecutorFactory.getTimer().newTimeout(this::flush, FLUSH_PERIOD_MILLISECONDS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hands the pages written since the last flush to the disk executor, which forces them to the disk without making
+     * the writers or the timer wait for it. A flush still waiting for the disk is not overlapped by the next one
+     */
+    private synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        if (dirty && !flushing) {
+            MappedByteBuffer written = region;
+            dirty = false;
+            flushing = true;
+            ExecutorFactory.getDiskExecutor().execute(() -> {
+                force(written);
+                synchronized (this) {
+                    flushing = false;
+                }
+            });
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Forces a mapped region to the disk, executed by the disk executor
+     *
+     * @param written the region to force
+     */
+    private void force(MappedByteBuffer written) {
+        try {
+            written.force();
+        } catch (RuntimeException e) {
+            logger.warning("Couldn't flush the journal " + file + " " + e);
+        }
+    }
+
+    /**
+     * @return the offset of the end of the journal
+     */
+    public synchronized long getPosition() {
+        return regionStart + region.position();
+    }
+
+    /**
+     * @return the description of the match
+     */
+    public JournalHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the records found in the file when it was opened, the header excluded
+     */
+    public List<Record> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return the identifier of the match, taken from the name of the file
+     */
+    public String getMatchId() {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.length() - EXTENSION.length());
+    }
+
+    /**
+     * @return the journal file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Forces the written records to the disk and closes the file
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flush.cancel();
+        region.force();
+        channel.close();
+    }
+
+    /**
+     * Ends the journal and deletes its file, the match it describes is over. The end of the match is written first, so
+     * a file that cannot be deleted, as it happens while it is still mapped on some systems, is never recovered
+     *
+     * @throws IOException if the end of the match cannot be written or the file cannot be deleted
+     */
+    public synchronized void delete() throws IOException {
+        if (closed) {
+            // A suspended journal is written through a channel of its own, its mapping is no longer used
+            ByteBuffer end = ByteBuffer.allocate(Integer.BYTES + 1).putInt(1).put((byte) Type.END.ordinal());
+            end.flip();
+            try (FileChannel writer = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                long position = getPosition();
+                while (end.hasRemaining()) {
+                    position += writer.write(end, position);
+                }
+                writer.force(false);
+            }
+        } else {
+            append(Type.END, new byte[0]);
+            close();
+        }
+        Files.deleteIfExists(file);
+        logger.fine("Deleted the journal " + file);
+    }
+}
@@ -0,0 +1,387 @@
+package it.polimi.ingsw.server.journal;
+
+import it.polimi.ingsw.server.model.battlefield.Board;
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.battlefield.SpawnpointBlock;
+import it.polimi.ingsw.server.model.currency.CurrencyColor;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.model.player.PlayerColor;
+import it.polimi.ingsw.shared.datatransferobjects.BonusTile;
+import it.polimi.ingsw.shared.datatransferobjects.Player;
+import it.polimi.ingsw.shared.events.networkevents.*;
+import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.utils.Tuple;
+
+import javax.annotation.Nullable;
+import java.awt.*;
+import java.util.List;
+import java.util.*;
+
+/**
+ * The state of a match rebuilt from its events, made of the same data transfer objects the clients receive. Each event
+ * replaces the part of the state it describes, so the projection never needs the rules of the game. The locations on
+ * the board are points whose x is the column and whose y is the row
+ */
+public class MatchProjection {
+
+    /**
+     * The board preset, null until the first snapshot is applied
+     */
+    @Nullable
+    private BoardFactory.Preset preset;
+
+    /**
+     * The number of skulls the match started with
+     */
+    private int skulls;
+
+    /**
+     * The current match mode
+     */
+    @Nullable
+    private Match.Mode mode;
+
+    /**
+     * The nickname of the active player
+     */
+    @Nullable
+    private String activePlayer;
+
+    /**
+     * The players by nickname, in the order of the match
+     */
+    private final Map<String, Player> players;
+
+    /**
+     * The location of the players which are on the board
+     */
+    private final Map<String, Point> locations;
+
+    /**
+     * The killshot track, made of the color of the killer and whether the killshot was an overkill
+     */
+    private List<Tuple<PlayerColor, Boolean>> killshots;
+
+    /**
+     * The weapons available on each spawnpoint
+     */
+    private final Map<Point, List<String>> spawnpointWeapons;
+
+    /**
+     * The bonus tiles lying on the turrets
+     */
+    private final Set<BonusTile> turretBonusTiles;
+
+    /**
+     * Whether the events reached the end of the match
+     */
+    private boolean ended = false;
+
+    /**
+     * The final score of each player, empty until the match ends
+     */
+    private final Map<String, Integer> scores;
+
+    /**
+     * The number of events applied so far
+     */
+    private int index;
+
+    /**
+     * The version of the match state reached with the last event carrying one
+     */
+    private long stateVersion = Message.NO_STATE_VERSION;
+
+    /**
+     * Constructs the projection of a match before its first event
+     */
+    MatchProjection() {
+        players = new LinkedHashMap<>();
+        locations = new HashMap<>();
+        killshots = new ArrayList<>();
+        spawnpointWeapons = new HashMap<>();
+        turretBonusTiles = new HashSet<>();
+        scores = new HashMap<>();
+    }
+
+    /**
+     * Copies a projection, the copy is updated independently of the original
+     *
+     * @param other the projection to copy
+     */
+    MatchProjection(MatchProjection other) {
+        preset = other.preset;
+        skulls = other.skulls;
+        mode = other.mode;
+        activePlayer = other.activePlayer;
+        players = new LinkedHashMap<>(other.players);
+        locations = new HashMap<>(other.locations);
+        killshots = new ArrayList<>(other.killshots);
+        spawnpointWeapons = new HashMap<>();
+        other.spawnpointWeapons.forEach((location, weapons) -> spawnpointWeapons.put(location, new ArrayList<>(weapons)));
+        turretBonusTiles = new HashSet<>(other.turretBonusTiles);
+        ended = other.ended;
+        scores = new HashMap<>(other.scores);
+        index = other.index;
+        stateVersion = other.stateVersion;
+    }
+
+    /**
+     * Applies the next event. The events which do not change the state of the match, such as the questions, only move
+     * the projection forward
+     *
+     * @param event the event to apply
+     */
+    void apply(Message event) {
+        index++;
+        if (event.getStateVersion() != Message.NO_STATE_VERSION) {
+            stateVersion = event.getStateVersion();
+        }
+        ClientApi type;
+        try {
+            type = event.getNameAsEnum(ClientApi.class);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        switch (type) {
+            case MATCH_STARTED_EVENT:
+                applySnapshot(NetworkEvent.fromJson(event.getPayload(), this, MatchStarted.class));
+                break;
+            case MATCH_RESUMED_EVENT:
+                applySnapshot(NetworkEvent.fromJson(event.getPayload(), this, MatchResumed.class));
+                break;
+            case MATCH_MODE_CHANGED_EVENT:
+                mode = NetworkEvent.fromJson(event.getPayload(), this, MatchModeChanged.class).getMode();
+                break;
+            case MATCH_KILLSHOT_TRACK_CHANGED_EVENT:
+                killshots = new ArrayList<>(NetworkEvent.fromJson(event.getPayload(), this, KillshotTrackChanged.class).getKillshots());
+                break;
+            case PLAYER_DIED_EVENT:
+            case PLAYER_OVERKILLED_EVENT:
+            case PLAYER_REBORN_EVENT:
+            case PLAYER_BOARD_FLIPPED_EVENT:
+            case PLAYER_TILE_FLIPPED_EVENT:
+            case PLAYER_WALLET_CHANGED_EVENT:
+            case PLAYER_HEALTH_CHANGED_EVENT:
+            case WEAPON_RELOADED_EVENT:
+            case WEAPON_UNLOADED_EVENT:
+                updatePlayer(NetworkEvent.fromJson(event.getPayload(), this, PlayerEvent.class).getPlayer());
+                break;
+            case ACTIVE_PLAYER_CHANGED_EVENT: {
+                Player player = NetworkEvent.fromJson(event.getPayload(), this, PlayerEvent.class).getPlayer();
+                updatePlayer(player);
+                activePlayer = player.getNickname();
+                break;
+            }
+            case PLAYER_MOVED_EVENT:
+            case PLAYER_TELEPORTED_EVENT: {
+                PlayerMoved e = NetworkEvent.fromJson(event.getPayload(), this, PlayerMoved.class);
+                updatePlayer(e.getPlayer());
+                locations.put(e.getPlayer().getNickname(), new Point(e.getColumn(), e.getRow()));
+                break;
+            }
+            case PLAYER_SPAWNED_EVENT: {
+                PlayerSpawned e = NetworkEvent.fromJson(event.getPayload(), this, PlayerSpawned.class);
+                updatePlayer(e.getPlayer());
+                locations.put(e.getPlayer().getNickname(), new Point(e.getColumn(), e.getRow()));
+                break;
+            }
+            case WEAPON_PICKED_EVENT: {
+                PlayerWeaponExchanged e = NetworkEvent.fromJson(event.getPayload(), this, PlayerWeaponExchanged.class);
+                updatePlayer(e.getPlayer());
+                spawnpointWeapons.computeIfAbsent(new Point(e.getColumn(), e.getRow()), l -> new ArrayList<>()).remove(e.getWeaponName());
+                break;
+            }
+            case WEAPON_DROPPED_EVENT: {
+                PlayerWeaponExchanged e = NetworkEvent.fromJson(event.getPayload(), this, PlayerWeaponExchanged.class);
+                updatePlayer(e.getPlayer());
+                spawnpointWeapons.computeIfAbsent(new Point(e.getColumn(), e.getRow()), l -> new ArrayList<>()).add(e.getWeaponName());
+                break;
+            }
+            case NEW_WEAPON_AVAILABLE_EVENT: {
+                WeaponEvent e = NetworkEvent.fromJson(event.getPayload(), this, WeaponEvent.class);
+                spawnpointWeapons.computeIfAbsent(new Point(e.getColumn(), e.getRow()), l -> new ArrayList<>()).add(e.getWeaponName());
+                break;
+            }
+            case BONUS_TILE_GRABBED_EVENT:
+                turretBonusTiles.remove(NetworkEvent.fromJson(event.getPayload(), this, BonusTileEvent.class).getBonusTile());
+                break;
+            case BONUS_TILE_DROPPED_EVENT:
+                turretBonusTiles.add(NetworkEvent.fromJson(event.getPayload(), this, BonusTileEvent.class).getBonusTile());
+                break;
+            case MATCH_ENDED_EVENT: {
+                MatchEnded e = NetworkEvent.fromJson(event.getPayload(), this, MatchEnded.class);
+                e.getRankings().values().forEach(ranked -> ranked.forEach(player -> {
+                    updatePlayer(player);
+                    scores.put(player.getNickname(), e.getScore(player.getNickname()));
+                }));
+                ended = true;
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Replaces the whole state with the one of a snapshot
+     *
+     * @param snapshot the initialization event of a match, the extended one if the match was resumed
+     */
+    private void applySnapshot(MatchStarted snapshot) {
+        preset = snapshot.getPreset();
+        skulls = snapshot.getSkulls();
+        activePlayer = snapshot.getCurrentActivePlayer().getNickname();
+        players.clear();
+        updatePlayer(snapshot.getSelf());
+        snapshot.getOpponents().forEach(this::updatePlayer);
+        locations.clear();
+        killshots = new ArrayList<>();
+        spawnpointWeapons.clear();
+        Board board = BoardFactory.create(preset);
+        for (CurrencyColor color : CurrencyColor.values()) {
+            // The snapshot tells the spawnpoints apart the same way the clients do
+            SpawnpointBlock block = board.getSpawnpoint(color);
+            List<String> weapons;
+            if (block.getRow() == 0) {
+                weapons = snapshot.getWeaponTop();
+            } else if (block.getColumn() == 0) {
+                weapons = snapshot.getWeaponLeft();
+            } else {
+                weapons = snapshot.getWeaponRight();
+            }
+            spawnpointWeapons.put(new Point(block.getColumn(), block.getRow()), new ArrayList<>(weapons));
+        }
+        turretBonusTiles.clear();
+        turretBonusTiles.addAll(snapshot.getTurretBonusTiles());
+        ended = false;
+        scores.clear();
+        if (snapshot instanceof MatchResumed) {
+            MatchResumed resumed = (MatchResumed) snapshot;
+            mode = resumed.getMatchMode();
+            killshots.addAll(resumed.getKillshots());
+            resumed.getPlayerLocations().forEach((color, location) -> players.values()
+                    .stream()
+                    .filter(player -> player.getColor() == color)
+                    .findAny()
+                    .ifPresent(player -> locations.put(player.getNickname(), location))
+            );
+        } else {
+            mode = Match.Mode.STANDARD;
+        }
+    }
+
+    /**
+     * Replaces a player with its most recent description
+     *
+     * @param player the player
+     */
+    private void updatePlayer(Player player) {
+        players.put(player.getNickname(), player);
+    }
+
+    /**
+     * @return the board preset, null before the first snapshot
+     */
+    @Nullable
+    public BoardFactory.Preset getPreset() {
+        return preset;
+    }
+
+    /**
+     * @return the number of skulls the match started with
+     */
+    public int getSkulls() {
+        return skulls;
+    }
+
+    /**
+     * @return the current match mode, null before the first snapshot
+     */
+    @Nullable
+    public Match.Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the nickname of the active player, null before the first snapshot
+     */
+    @Nullable
+    public String getActivePlayer() {
+        return activePlayer;
+    }
+
+    /**
+     * @return the players, in the order of the match
+     */
+    public List<Player> getPlayers() {
+        return Collections.unmodifiableList(new ArrayList<>(players.values()));
+    }
+
+    /**
+     * @param nickname the nickname of a player
+     * @return the player, if it takes part to the match
+     */
+    public Optional<Player> getPlayer(String nickname) {
+        return Optional.ofNullable(players.get(nickname));
+    }
+
+    /**
+     * @param nickname the nickname of a player
+     * @return the location of the player, empty if the player is not on the board
+     */
+    public Optional<Point> getLocation(String nickname) {
+        return Optional.ofNullable(locations.get(nickname)).map(Point::new);
+    }
+
+    /**
+     * @return the killshot track
+     */
+    public List<Tuple<PlayerColor, Boolean>> getKillshots() {
+        return Collections.unmodifiableList(killshots);
+    }
+
+    /**
+     * @param location the location of a spawnpoint
+     * @return the names of the weapons available on the spawnpoint, empty if there is no spawnpoint
+     */
+    public List<String> getSpawnpointWeapons(Point location) {
+        return Collections.unmodifiableList(spawnpointWeapons.getOrDefault(location, Collections.emptyList()));
+    }
+
+    /**
+     * @return the bonus tiles lying on the turrets
+     */
+    public Set<BonusTile> getTurretBonusTiles() {
+        return Collections.unmodifiableSet(turretBonusTiles);
+    }
+
+    /**
+     * @return true if the events reached the end of the match
+     */
+    public boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * @return the final score of each player, empty if the match is not over
+     */
+    public Map<String, Integer> getScores() {
+        return Collections.unmodifiableMap(scores);
+    }
+
+    /**
+     * @return the number of events the projection was built from
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the version of the match state the projection corresponds to
+     */
+    public long getStateVersion() {
+        return stateVersion;
+    }
+}
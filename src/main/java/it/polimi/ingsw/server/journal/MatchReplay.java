@@ -0,0 +1,113 @@
+package it.polimi.ingsw.server.journal;
+
+import it.polimi.ingsw.shared.messages.Message;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rebuilds the state of a match at any point of its event log, without the controller and without waiting for the
+ * players. The events are folded once when the replay is constructed and a copy of the projection is kept every few
+ * events, so rebuilding the state at an index only folds the events following the closest copy
+ */
+public class MatchReplay {
+
+    /**
+     * The number of events between two kept copies of the projection
+     */
+    private static final int SNAPSHOT_INTERVAL = 64;
+
+    /**
+     * The events of the match
+     */
+    private final List<Message> events;
+
+    /**
+     * The projections after every multiple of the interval of events
+     */
+    private final List<MatchProjection> snapshots = new ArrayList<>();
+
+    /**
+     * Constructs the replay of a sequence of events
+     *
+     * @param events the events of the match, starting with a snapshot of the match
+     */
+    public MatchReplay(List<Message> events) {
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+        MatchProjection projection = new MatchProjection();
+        snapshots.add(new MatchProjection(projection));
+        for (Message event : this.events) {
+            projection.apply(event);
+            if (projection.getIndex() % SNAPSHOT_INTERVAL == 0) {
+                snapshots.add(new MatchProjection(projection));
+            }
+        }
+    }
+
+    /**
+     * Loads the replay of an event log
+     *
+     * @param file the event log file
+     * @return the replay of the logged events
+     * @throws IOException if the file cannot be read
+     */
+    public static MatchReplay load(Path file) throws IOException {
+        return new MatchReplay(MatchEventLog.read(file));
+    }
+
+    /**
+     * Rebuilds the state of the match reached after a number of events
+     *
+     * @param index the number of events to apply, from zero to the number of events
+     * @return the state of the match, which the caller is free to keep
+     * @throws IndexOutOfBoundsException if the index is negative or greater than the number of events
+     */
+    public MatchProjection at(int index) {
+        if (index < 0 || index > events.size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of the " + events.size() + " events");
+        }
+        MatchProjection projection = new MatchProjection(snapshots.get(index / SNAPSHOT_INTERVAL));
+        for (int i = projection.getIndex(); i < index; i++) {
+            projection.apply(events.get(i));
+        }
+        return projection;
+    }
+
+    /**
+     * Rebuilds the state of the match reached at a state version
+     *
+     * @param stateVersion the version of the state, as tagged on the events
+     * @return the state of the match after the last event with a version not greater than the given one
+     */
+    public MatchProjection atVersion(long stateVersion) {
+        int index = 0;
+        while (index < events.size() && events.get(index).getStateVersion() <= stateVersion) {
+            index++;
+        }
+        return at(index);
+    }
+
+    /**
+     * @return the state of the match reached with the last event
+     */
+    public MatchProjection last() {
+        return at(events.size());
+    }
+
+    /**
+     * @return the events of the match
+     */
+    public List<Message> getEvents() {
+        return events;
+    }
+
+    /**
+     * @return the number of events of the match
+     */
+    public int size() {
+        return events.size();
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Package grouping the entities that write the decisions taken in a match to disk as they happen, so that a match
+ * interrupted by a crash of the server can be played again up to the point it reached
+ */
+@ParametersAreNonnullByDefault
+package it.polimi.ingsw.server.journal;
+
+import javax.annotation.ParametersAreNonnullByDefault;
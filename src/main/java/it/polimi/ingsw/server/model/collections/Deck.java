@@ -26,6 +26,11 @@ public class Deck<T> implements Collection<T> {
      */
     private boolean recycleDiscarded;
 
+    /**
+     * The source of randomness used to shuffle the cards
+     */
+    private final Random random;
+
     /**
      * This constructor creates a deck from a list of cards that acts like a Queue.
      * If autoRecycle is enabled, when the Queue is empty previously discarded cards
@@ -36,9 +41,23 @@ public class Deck<T> implements Collection<T> {
      *                             when it becomes empty, reshuffling the discarded cards
      */
     public Deck(List<T> cards, boolean recycleDiscarded) {
+        this(cards, recycleDiscarded, new Random());
+    }
+
+    /**
+     * This constructor creates a deck whose shuffles are all drawn from the given source of randomness, so that two
+     * decks created with equally seeded sources deal the same cards in the same order
+     *
+     * @param cards the initial cards in the deck
+     * @param recycleDiscarded specifies whether the deck should be reinitialized automatically
+     *                             when it becomes empty, reshuffling the discarded cards
+     * @param random the source of randomness used to shuffle the cards
+     */
+    public Deck(List<T> cards, boolean recycleDiscarded, Random random) {
         this.cards = new LinkedList<>(cards);
         this.discarded = new LinkedList<>();
         this.recycleDiscarded = recycleDiscarded;
+        this.random = random;
         shuffle();
     }
 
@@ -81,7 +100,7 @@ public class Deck<T> implements Collection<T> {
      * Shuffles the Deck
      */
     public void shuffle() {
-        Collections.shuffle(cards);
+        Collections.shuffle(cards, random);
     }
 
     /**
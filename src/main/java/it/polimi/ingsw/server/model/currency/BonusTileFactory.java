@@ -7,10 +7,11 @@ import it.polimi.ingsw.server.model.collections.Deck;
 import it.polimi.ingsw.utils.ConfigFileMaker;
 import it.polimi.ingsw.utils.EnumValueByString;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * Factory class for the bonus tiles
@@ -66,7 +67,7 @@ public final class BonusTileFactory {
      * This method creates the single tiles, mapping them with their amount, reading from the configuration file
      */
     private static void readTiles() {
-        tileQuantityMap = new HashMap<>();
+        tileQuantityMap = new LinkedHashMap<>();
         JsonElement jsonElement;
 
         jsonElement = new JsonParser().parse(ConfigFileMaker.load(BONUS_DECK_JSON_PATH, BONUS_DECK_JSON_PATH_RES));
@@ -103,6 +104,16 @@ public final class BonusTileFactory {
      * @return a full deck of bonus tiles
      */
     public static Deck<BonusTile> createDeck() {
+        return createDeck(new Random());
+    }
+
+    /**
+     * Creates the whole deck of bonus tiles, shuffled with the given source of randomness
+     *
+     * @param random the source of randomness used to shuffle the deck
+     * @return a full deck of bonus tiles
+     */
+    public static Deck<BonusTile> createDeck(Random random) {
         if (tileQuantityMap == null) {
             readTiles();
         }
@@ -112,6 +123,6 @@ public final class BonusTileFactory {
                 bonusTiles.add(new BonusTile(tile));
             }
         });
-        return new Deck<>(bonusTiles, true);
+        return new Deck<>(bonusTiles, true, random);
     }
 }
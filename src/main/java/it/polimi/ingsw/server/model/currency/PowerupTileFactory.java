@@ -7,10 +7,11 @@ import it.polimi.ingsw.server.model.collections.Deck;
 import it.polimi.ingsw.utils.ConfigFileMaker;
 import it.polimi.ingsw.utils.EnumValueByString;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * This class creates all the powerup tiles needed in the game
@@ -52,6 +53,15 @@ public final class PowerupTileFactory {
      * @return the Deck of PowerupTile
      */
     public static Deck<PowerupTile> createDeck() {
+        return createDeck(new Random());
+    }
+
+    /**
+     * This method creates a new Deck of PowerupTile, shuffled with the given source of randomness
+     * @param random the source of randomness used to shuffle the deck
+     * @return the Deck of PowerupTile
+     */
+    public static Deck<PowerupTile> createDeck(Random random) {
         if (tileQuantityMap == null) {
             readTiles();
         }
@@ -61,14 +71,14 @@ public final class PowerupTileFactory {
                 powerupCards.add(new PowerupTile(tile));
             }
         });
-        return new Deck<>(powerupCards, true);
+        return new Deck<>(powerupCards, true, random);
     }
 
     /**
      * This method creates the single tiles, mapping them with their amount, reading from the configuration file
      */
     private static void readTiles() {
-        tileQuantityMap = new HashMap<>();
+        tileQuantityMap = new LinkedHashMap<>();
         JsonElement jsonElement;
 
         jsonElement = new JsonParser().parse(ConfigFileMaker.load(POWERUP_DECK_JSON_PATH, POWERUP_DECK_JSON_PATH_RES));
@@ -0,0 +1,300 @@
+package it.polimi.ingsw.server.model.events;
+
+import it.polimi.ingsw.server.model.events.listeners.BoardListener;
+import it.polimi.ingsw.server.model.events.listeners.MatchListener;
+import it.polimi.ingsw.server.model.events.listeners.PlayerListener;
+import it.polimi.ingsw.server.model.player.Player;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A listener of the match, its board and its players which publishes every event to an {@link EventTransaction}
+ * before handing it to the wrapped listener. The events carrying the whole wallet, health or position of a player
+ * are merged with the previous ones about the same player, so that the wrapped listener only receives the final state
+ * of an action
+ *
+ * @param <T> the type of the wrapped listener
+ */
+public class BatchingListener<T extends MatchListener & PlayerListener & BoardListener> implements MatchListener, PlayerListener, BoardListener {
+
+    /**
+     * The transaction buffering the events
+     */
+    private final EventTransaction transaction;
+
+    /**
+     * The listener receiving the events
+     */
+    private final T listener;
+
+    /**
+     * Constructs a batching listener
+     *
+     * @param transaction the transaction buffering the events
+     * @param listener the listener receiving the events
+     */
+    public BatchingListener(EventTransaction transaction, T listener) {
+        this.transaction = transaction;
+        this.listener = listener;
+    }
+
+    /**
+     * @param kind the kind of state carried by the event
+     * @param player the player the state belongs to
+     * @return the merge key of the event
+     */
+    private static List<Object> key(String kind, Player player) {
+        return Arrays.asList(kind, player);
+    }
+
+    /**
+     * Publishes the end of the match
+     *
+     * @param event the event
+     */
+    @Override
+    public void onMatchEnded(MatchEnded event) {
+        transaction.publish(null, () -> listener.onMatchEnded(event));
+    }
+
+    /**
+     * Publishes the change of the match mode
+     *
+     * @param event the event
+     */
+    @Override
+    public void onMatchModeChanged(MatchModeChanged event) {
+        transaction.publish(null, () -> listener.onMatchModeChanged(event));
+    }
+
+    /**
+     * Publishes the beginning of the match
+     *
+     * @param event the event
+     */
+    @Override
+    public void onMatchStarted(MatchEvent event) {
+        transaction.publish(null, () -> listener.onMatchStarted(event));
+    }
+
+    /**
+     * Publishes the change of the killshot track
+     *
+     * @param e the event
+     */
+    @Override
+    public void onKillshotTrackChanged(KillshotTrackChanged e) {
+        transaction.publish(null, () -> listener.onKillshotTrackChanged(e));
+    }
+
+    /**
+     * Publishes the change of the active player
+     *
+     * @param e the event
+     */
+    @Override
+    public void onActivePlayerChanged(PlayerEvent e) {
+        transaction.publish(null, () -> listener.onActivePlayerChanged(e));
+    }
+
+    /**
+     * Publishes the death of a player
+     *
+     * @param e the event
+     */
+    @Override
+    public void onPlayerDied(PlayerDied e) {
+        transaction.publish(null, () -> listener.onPlayerDied(e));
+    }
+
+    /**
+     * Publishes the damage dealt to a player
+     *
+     * @param e the event
+     */
+    @Override
+    public void onPlayerDamaged(PlayerDamaged e) {
+        transaction.publish(null, () -> listener.onPlayerDamaged(e));
+    }
+
+    /**
+     * Publishes the overkill of a player
+     *
+     * @param e the event
+     */
+    @Override
+    public void onPlayerOverkilled(PlayerOverkilled e) {
+        transaction.publish(null, () -> listener.onPlayerOverkilled(e));
+    }
+
+    /**
+     * Publishes the rebirth of a player
+     *
+     * @param e the event
+     */
+    @Override
+    public void onPlayerReborn(PlayerEvent e) {
+        transaction.publish(null, () -> listener.onPlayerReborn(e));
+    }
+
+    /**
+     * Publishes the flipping of a player board
+     *
+     * @param e the event
+     */
+    @Override
+    public void onPlayerBoardFlipped(PlayerEvent e) {
+        transaction.publish(null, () -> listener.onPlayerBoardFlipped(e));
+    }
+
+    /**
+     * Publishes the flipping of a player action tile
+     *
+     * @param e the event
+     */
+    @Override
+    public void onPlayerTileFlipped(PlayerEvent e) {
+        transaction.publish(null, () -> listener.onPlayerTileFlipped(e));
+    }
+
+    /**
+     * Publishes the reload of a weapon
+     *
+     * @param e the event
+     */
+    @Override
+    public void onWeaponReloaded(PlayerWeaponEvent e) {
+        transaction.publish(null, () -> listener.onWeaponReloaded(e));
+    }
+
+    /**
+     * Publishes the unload of a weapon
+     *
+     * @param e the event
+     */
+    @Override
+    public void onWeaponUnloaded(PlayerWeaponEvent e) {
+        transaction.publish(null, () -> listener.onWeaponUnloaded(e));
+    }
+
+    /**
+     * Publishes the pick up of a weapon
+     *
+     * @param e the event
+     */
+    @Override
+    public void onWeaponPicked(WeaponExchanged e) {
+        transaction.publish(null, () -> listener.onWeaponPicked(e));
+    }
+
+    /**
+     * Publishes the drop of a weapon
+     *
+     * @param e the event
+     */
+    @Override
+    public void onWeaponDropped(WeaponExchanged e) {
+        transaction.publish(null, () -> listener.onWeaponDropped(e));
+    }
+
+    /**
+     * Publishes the new wallet of a player, merging it with the previous one
+     *
+     * @param e the event
+     */
+    @Override
+    public void onWalletChanged(PlayerWalletChanged e) {
+        transaction.publish(key("wallet", e.getPlayer()), () -> listener.onWalletChanged(e));
+    }
+
+    /**
+     * Publishes the new health of a player, merging it with the previous one
+     *
+     * @param e the event
+     */
+    @Override
+    public void onHealthChanged(PlayerEvent e) {
+        transaction.publish(key("health", e.getPlayer()), () -> listener.onHealthChanged(e));
+    }
+
+    /**
+     * Publishes the discard of a powerup
+     *
+     * @param e the event
+     */
+    @Override
+    public void onPowerupDiscarded(PowerupExchange e) {
+        transaction.publish(null, () -> listener.onPowerupDiscarded(e));
+    }
+
+    /**
+     * Publishes the grab of a powerup
+     *
+     * @param e the event
+     */
+    @Override
+    public void onPowerupGrabbed(PowerupExchange e) {
+        transaction.publish(null, () -> listener.onPowerupGrabbed(e));
+    }
+
+    /**
+     * Publishes the choice of a spawnpoint
+     *
+     * @param e the event
+     */
+    @Override
+    public void onSpawnpointChosen(SpawnpointChoiceEvent e) {
+        transaction.publish(null, () -> listener.onSpawnpointChosen(e));
+    }
+
+    /**
+     * Publishes the teleport of a player
+     *
+     * @param e the event
+     */
+    @Override
+    public void onPlayerTeleported(PlayerMoved e) {
+        transaction.publish(null, () -> listener.onPlayerTeleported(e));
+    }
+
+    /**
+     * Publishes the new position of a player, merging it with the previous one
+     *
+     * @param e the event
+     */
+    @Override
+    public void onPlayerMoved(PlayerMoved e) {
+        transaction.publish(key("position", e.getPlayer()), () -> listener.onPlayerMoved(e));
+    }
+
+    /**
+     * Publishes a new weapon on a spawnpoint
+     *
+     * @param e the event
+     */
+    @Override
+    public void onNewWeaponAvailable(NewWeaponAvailable e) {
+        transaction.publish(null, () -> listener.onNewWeaponAvailable(e));
+    }
+
+    /**
+     * Publishes the grab of a bonus tile
+     *
+     * @param e the event
+     */
+    @Override
+    public void onBonusTileGrabbed(BonusTileBoardEvent e) {
+        transaction.publish(null, () -> listener.onBonusTileGrabbed(e));
+    }
+
+    /**
+     * Publishes the drop of a bonus tile
+     *
+     * @param e the event
+     */
+    @Override
+    public void onBonusTileDropped(BonusTileBoardEvent e) {
+        transaction.publish(null, () -> listener.onBonusTileDropped(e));
+    }
+}
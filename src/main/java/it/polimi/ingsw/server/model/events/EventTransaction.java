@@ -0,0 +1,102 @@
+package it.polimi.ingsw.server.model.events;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A unit of work collecting the notifications of the model events. While a transaction is open the notifications
+ * published to it are buffered, and a notification which has the same merge key of a buffered one replaces it. When
+ * the outermost scope is committed the buffered notifications are delivered as a single batch, in the order in which
+ * their last event was published. Outside a transaction the notifications are delivered immediately
+ */
+public class EventTransaction {
+
+    /**
+     * The number of nested scopes that are currently open
+     */
+    private int depth = 0;
+
+    /**
+     * The buffered notifications, identified by their merge key
+     */
+    private final Map<Object, Runnable> pending = new LinkedHashMap<>();
+
+    /**
+     * The number of notifications replaced by a newer one with the same merge key
+     */
+    private long mergedCount = 0;
+
+    /**
+     * Opens a scope, scopes can be nested and the notifications are delivered when the outermost one is committed
+     */
+    public synchronized void begin() {
+        depth++;
+    }
+
+    /**
+     * Closes a scope, delivering the buffered notifications if it was the outermost one
+     *
+     * @throws IllegalStateException if no scope is open
+     */
+    public void commit() {
+        synchronized (this) {
+            if (depth == 0) {
+                throw new IllegalStateException("No open transaction to commit");
+            }
+            depth--;
+            if (depth > 0) {
+                return;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Delivers the notifications buffered so far without closing the open scopes
+     */
+    public void flush() {
+        List<Runnable> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        batch.forEach(Runnable::run);
+    }
+
+    /**
+     * Publishes the notification of an event, buffering it if a transaction is open
+     *
+     * @param mergeKey the key identifying the state the event carries, null if the event cannot be merged
+     * @param notification the notification of the event to the listeners
+     */
+    public void publish(@Nullable Object mergeKey, Runnable notification) {
+        synchronized (this) {
+            if (depth > 0) {
+                Object key = mergeKey == null ? new Object() : mergeKey;
+                if (pending.remove(key) != null) {
+                    mergedCount++;
+                }
+                pending.put(key, notification);
+                return;
+            }
+        }
+        notification.run();
+    }
+
+    /**
+     * @return true if a scope is open
+     */
+    public synchronized boolean isOpen() {
+        return depth > 0;
+    }
+
+    /**
+     * @return the number of notifications replaced by a newer one with the same merge key
+     */
+    public synchronized long getMergedCount() {
+        return mergedCount;
+    }
+}
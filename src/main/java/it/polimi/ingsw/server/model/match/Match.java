@@ -101,6 +101,11 @@ public class Match implements PlayerListener {
      */
     private final BoardFactory.Preset boardPreset;
 
+    /**
+     * The transaction buffering the events of the match for the listeners that receive them in batches
+     */
+    private final EventTransaction eventTransaction = new EventTransaction();
+
     /**
      * This constructor creates a new match from scratch
      *
@@ -112,14 +117,29 @@ public class Match implements PlayerListener {
      * @param playerSupplier a bi-function which provides a Player instance given this match and a PlayerInfo object
      */
     public Match(List<PlayerInfo> playerInfoList, Board board, int skulls, Mode mode, BoardFactory.Preset boardPreset, BiFunction<Match, PlayerInfo, Player> playerSupplier) {
+        this(playerInfoList, board, skulls, mode, boardPreset, playerSupplier, new Random());
+    }
+
+    /**
+     * This constructor creates a new match from scratch whose decks are shuffled with the given source of randomness
+     *
+     * @param playerInfoList the playerInfoList containing the information to create the players
+     * @param board the board that was chosen for the match
+     * @param skulls an int representing the number of skulls
+     * @param mode the initial match mode
+     * @param boardPreset the preset used for the board
+     * @param playerSupplier a bi-function which provides a Player instance given this match and a PlayerInfo object
+     * @param random the source of randomness shuffling the decks
+     */
+    public Match(List<PlayerInfo> playerInfoList, Board board, int skulls, Mode mode, BoardFactory.Preset boardPreset, BiFunction<Match, PlayerInfo, Player> playerSupplier, Random random) {
         this.skulls = skulls;
         this.players = playerInfoList.stream().map(info -> playerSupplier.apply(this, info)).collect(Collectors.toUnmodifiableList());
         this.board = board;
         this.activePlayer = this.players.get(0);
         this.killshots = new LinkedList<>();
-        this.bonusDeck = BonusTileFactory.createDeck();
-        this.weaponDeck = WeaponTileFactory.createDeck();
-        this.powerupDeck = PowerupTileFactory.createDeck();
+        this.bonusDeck = BonusTileFactory.createDeck(random);
+        this.weaponDeck = WeaponTileFactory.createDeck(random);
+        this.powerupDeck = PowerupTileFactory.createDeck(random);
         this.mode = mode;
         this.listeners = new HashSet<>();
         this.playersWhoDidFinalFrenzyTurn = new LinkedList<>();
@@ -496,6 +516,13 @@ public class Match implements PlayerListener {
         this.listeners.add(listener);
     }
 
+    /**
+     * @return the transaction buffering the events of the match for the listeners that receive them in batches
+     */
+    public EventTransaction getEventTransaction() {
+        return eventTransaction;
+    }
+
     private void scoreVictimPoints(Player victim) {
         List<Player> scoringPlayers = this.players.stream()
                 .filter(player -> player != victim && victim.getDamageTokens().stream().anyMatch(damageToken -> damageToken.getAttacker() == player))
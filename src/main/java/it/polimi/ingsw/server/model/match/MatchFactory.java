@@ -10,6 +10,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
@@ -32,9 +33,37 @@ public class MatchFactory {
      * @return an awesome match
      */
     public static Match create(List<String> playerNicknames, BoardFactory.Preset preset, int skulls, Match.Mode mode) {
+        return create(playerNicknames, preset, skulls, mode, new Random());
+    }
+
+    /**
+     * Creates a match whose colors and decks only depend on the given seed, so that the same match can be created again
+     *
+     * @param playerNicknames the unique identifiers of the players
+     * @param preset the board preset that was chosen for the match
+     * @param skulls an int representing the number of skulls
+     * @param mode the initial match mode
+     * @param seed the seed of the colors of the players and of the shuffles of the decks
+     * @return an awesome match
+     */
+    public static Match create(List<String> playerNicknames, BoardFactory.Preset preset, int skulls, Match.Mode mode, long seed) {
+        return create(playerNicknames, preset, skulls, mode, new Random(seed));
+    }
+
+    /**
+     * Creates a match drawing the colors of the players and the shuffles of the decks from a source of randomness
+     *
+     * @param playerNicknames the unique identifiers of the players
+     * @param preset the board preset that was chosen for the match
+     * @param skulls an int representing the number of skulls
+     * @param mode the initial match mode
+     * @param random the source of randomness
+     * @return an awesome match
+     */
+    private static Match create(List<String> playerNicknames, BoardFactory.Preset preset, int skulls, Match.Mode mode, Random random) {
 
         LinkedList<PlayerColor> colors = new LinkedList<>(Arrays.asList(PlayerColor.values()));
-        Collections.shuffle(colors);
+        Collections.shuffle(colors, random);
 
         return create(
                 playerNicknames
@@ -44,7 +73,8 @@ public class MatchFactory {
                 preset,
                 skulls,
                 mode,
-                PlayerFactory::create
+                PlayerFactory::create,
+                random
         );
     }
 
@@ -58,13 +88,28 @@ public class MatchFactory {
      * @return an awesome match
      */
     public static Match create(List<PlayerInfo> playersInfo, BoardFactory.Preset preset, int skulls, Match.Mode mode, BiFunction<Match, PlayerInfo, Player> playerSupplier) {
+        return create(playersInfo, preset, skulls, mode, playerSupplier, new Random());
+    }
+
+    /**
+     *
+     * @param playersInfo the PlayerInfo storing basic info about the players
+     * @param preset the board preset that was chosen for the match
+     * @param skulls an int representing the number of skulls
+     * @param mode the initial match mode
+     * @param playerSupplier a bi-function which provides a Player instance given this match and a PlayerInfo object
+     * @param random the source of randomness shuffling the decks
+     * @return an awesome match
+     */
+    private static Match create(List<PlayerInfo> playersInfo, BoardFactory.Preset preset, int skulls, Match.Mode mode, BiFunction<Match, PlayerInfo, Player> playerSupplier, Random random) {
         Match match = new Match(
                 playersInfo,
                 BoardFactory.create(preset),
                 skulls,
                 mode,
                 preset,
-                playerSupplier
+                playerSupplier,
+                random
         );
         match.getPlayers().forEach(player -> {
             player.addPlayerListener(match);
@@ -6,6 +6,7 @@ import it.polimi.ingsw.utils.ConfigFileMaker;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 /**
@@ -31,14 +32,24 @@ public final class WeaponTileFactory {
      * @return a deck containing the supported weapons
      */
     public static Deck<WeaponTile> createDeck() {
+        return createDeck(new Random());
+    }
 
-
+    /**
+     * This method initialize a new Deck containing all the known weapons, shuffled with the given source of randomness
+     *
+     * @param random the source of randomness used to shuffle the deck
+     * @return a deck containing the supported weapons
+     */
+    public static Deck<WeaponTile> createDeck(Random random) {
         return new Deck<>(
                 getMap()
                         .values()
                         .stream()
                         .map(WeaponTile::new)
-                        .collect(Collectors.toList())
+                        .collect(Collectors.toList()),
+                false,
+                random
         );
     }
 
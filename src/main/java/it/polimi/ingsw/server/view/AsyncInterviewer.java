@@ -0,0 +1,90 @@
+package it.polimi.ingsw.server.view;
+
+import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.utils.concurrent.Continuations;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous variant of the {@link Interviewer}: the question is sent immediately and the answer is delivered by a
+ * future, so that the caller does not hold a thread while the client is choosing. The blocking methods wait for the
+ * future and are kept for the code that has not been migrated yet
+ */
+public interface AsyncInterviewer extends Interviewer {
+
+    /**
+     * Ask the client to select one of the options proposed
+     *
+     * @param questionText the question to show to the user
+     * @param options a collection of options to choose from
+     * @param messageName the name which identifies the type of message that is been sent
+     * @param <T> the type of items in the collection of options
+     * @return a future completed with the selected option
+     */
+    <T> CompletableFuture<T> selectAsync(String questionText, Collection<T> options, ClientApi messageName);
+
+    /**
+     * Ask the client to select one or none of the options proposed
+     *
+     * @param questionText the question to show to the user
+     * @param options a collection of options to choose from
+     * @param messageName the name which identifies the type of message that is been sent
+     * @param <T> the type of items in the collection of options
+     * @return a future completed with the selected option
+     */
+    <T> CompletableFuture<Optional<T>> selectOptionalAsync(String questionText, Collection<T> options, ClientApi messageName);
+
+    /**
+     * Ask the client to select one of the options proposed, waiting for the answer
+     *
+     * @param questionText the question to show to the user
+     * @param options a collection of options to choose from
+     * @param messageName the name which identifies the type of message that is been sent
+     * @param <T> the type of items in the collection of options
+     * @return the selected option
+     */
+    @Override
+    default <T> T select(String questionText, Collection<T> options, ClientApi messageName) {
+        return Continuations.join(selectAsync(questionText, options, messageName));
+    }
+
+    /**
+     * Ask the client to select one or none of the options proposed, waiting for the answer
+     *
+     * @param questionText the question to show to the user
+     * @param options a collection of options to choose from
+     * @param messageName the name which identifies the type of message that is been sent
+     * @param <T> the type of items in the collection of options
+     * @return the selected option
+     */
+    @Override
+    default <T> Optional<T> selectOptional(String questionText, Collection<T> options, ClientApi messageName) {
+        return Continuations.join(selectOptionalAsync(questionText, options, messageName));
+    }
+
+    /**
+     * Adapts an interviewer to the asynchronous API. The answers of a blocking interviewer are collected when the
+     * question is asked, so the returned futures are already completed
+     *
+     * @param interviewer the interviewer to adapt
+     * @return the given interviewer if it is already asynchronous, an adapter otherwise
+     */
+    static AsyncInterviewer of(Interviewer interviewer) {
+        if (interviewer instanceof AsyncInterviewer) {
+            return (AsyncInterviewer) interviewer;
+        }
+        return new AsyncInterviewer() {
+            @Override
+            public <T> CompletableFuture<T> selectAsync(String questionText, Collection<T> options, ClientApi messageName) {
+                return CompletableFuture.completedFuture(interviewer.select(questionText, options, messageName));
+            }
+
+            @Override
+            public <T> CompletableFuture<Optional<T>> selectOptionalAsync(String questionText, Collection<T> options, ClientApi messageName) {
+                return CompletableFuture.completedFuture(interviewer.selectOptional(questionText, options, messageName));
+            }
+        };
+    }
+}
@@ -0,0 +1,101 @@
+package it.polimi.ingsw.server.view;
+
+import it.polimi.ingsw.shared.messages.Message;
+
+import java.util.function.Consumer;
+
+/**
+ * A fixed-size ring buffer of the most recent versioned events of a match. The events are stored in the slot given by
+ * their state version, so finding where a replay starts does not require scanning the buffer, and the oldest event is
+ * overwritten once the buffer is full
+ */
+public class EventRingBuffer {
+
+    /**
+     * The slots of the buffer, the event with version v is stored at index v modulo the capacity
+     */
+    private final Message[] slots;
+
+    /**
+     * The version of the last event added
+     */
+    private long lastVersion = Message.NO_STATE_VERSION;
+
+    /**
+     * The number of events currently stored
+     */
+    private int size = 0;
+
+    /**
+     * Constructs an empty buffer
+     *
+     * @param capacity the maximum number of events kept
+     */
+    public EventRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        slots = new Message[capacity];
+    }
+
+    /**
+     * Adds an event, overwriting the oldest one if the buffer is full
+     *
+     * @param event the event to add, its version must follow the one of the last event added
+     * @throws IllegalArgumentException if the version of the event does not follow the last one
+     */
+    public void add(Message event) {
+        if (event.getStateVersion() != lastVersion + 1) {
+            throw new IllegalArgumentException("Expected version " + (lastVersion + 1) + ", got " + event.getStateVersion());
+        }
+        lastVersion = event.getStateVersion();
+        slots[slot(lastVersion)] = event;
+        size = Math.min(size + 1, slots.length);
+    }
+
+    /**
+     * Replays the events following the given version, if they are all still in the buffer
+     *
+     * @param version the version of the last event the receiver already has
+     * @param receiver the consumer of the events, called in version order
+     * @return true if the events have been replayed, false if some of them have been overwritten or the version is unknown
+     */
+    public boolean replayAfter(long version, Consumer<Message> receiver) {
+        if (version < getFirstVersion() - 1 || version > lastVersion) {
+            return false;
+        }
+        for (long v = version + 1; v <= lastVersion; v++) {
+            receiver.accept(slots[slot(v)]);
+        }
+        return true;
+    }
+
+    /**
+     * @return the version of the oldest event stored, the version following the last one if the buffer is empty
+     */
+    public long getFirstVersion() {
+        return lastVersion - size + 1;
+    }
+
+    /**
+     * @return the version of the last event added
+     */
+    public long getLastVersion() {
+        return lastVersion;
+    }
+
+    /**
+     * @return the number of events currently stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param version a state version
+     * @return the index of the slot of the version
+     */
+    private int slot(long version) {
+        return (int) (version % slots.length);
+    }
+}
@@ -0,0 +1,486 @@
+package it.polimi.ingsw.server.view;
+
+import it.polimi.ingsw.server.journal.MatchEventLog;
+import it.polimi.ingsw.server.model.events.*;
+import it.polimi.ingsw.server.model.events.listeners.BoardListener;
+import it.polimi.ingsw.server.model.events.listeners.MatchListener;
+import it.polimi.ingsw.server.model.events.listeners.PlayerListener;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.model.player.PlayerColor;
+import it.polimi.ingsw.shared.events.networkevents.PlayerHealthChanged;
+import it.polimi.ingsw.shared.events.networkevents.PlayerWeaponExchanged;
+import it.polimi.ingsw.shared.events.networkevents.WeaponEvent;
+import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.utils.Tuple;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * This class delivers the model events of a match to the views of its players. Each event is mapped into a single
+ * message, which is enqueued to every connected view and encoded at most once per frame format, instead of being
+ * mapped and encoded again by every view.
+ * Every event is tagged with a monotonically increasing state version and the most recent ones are kept, so that a
+ * client that reconnects receives only the events it missed instead of a snapshot of the whole match.
+ * The events can also be appended to the event log of the match, which starts with a snapshot of the match taken when
+ * it started
+ */
+public class MatchEventBroadcaster implements MatchListener, PlayerListener, BoardListener {
+
+    /**
+     * The default number of events kept to resume the clients
+     */
+    public static final int DEFAULT_HISTORY_SIZE = 256;
+
+    /**
+     * The match whose events are broadcast
+     */
+    private final Match match;
+
+    /**
+     * The views receiving the events
+     */
+    private final List<View> views = new CopyOnWriteArrayList<>();
+
+    /**
+     * The most recent events, stored by state version
+     */
+    private final EventRingBuffer history;
+
+    /**
+     * The version of the match state reached with the last event
+     */
+    private long stateVersion = Message.NO_STATE_VERSION;
+
+    /**
+     * The log the events are appended to, null if they are not logged
+     */
+    @Nullable
+    private final MatchEventLog eventLog;
+
+    /**
+     * Constructs a broadcaster and registers it as a listener of the match, its board and its players
+     *
+     * @param match the match whose events will be broadcast
+     * @param views the views that will receive the events
+     */
+    public MatchEventBroadcaster(Match match, Collection<View> views) {
+        this(match, views, DEFAULT_HISTORY_SIZE);
+    }
+
+    /**
+     * Constructs a broadcaster and registers it as a listener of the match, its board and its players. The events are
+     * received through the event transaction of the match, so the events of an action are broadcast together once the
+     * action is over
+     *
+     * @param match the match whose events will be broadcast
+     * @param views the views that will receive the events
+     * @param historySize the maximum number of events kept to resume the clients
+     */
+    public MatchEventBroadcaster(Match match, Collection<View> views, int historySize) {
+        this(match, views, historySize, null);
+    }
+
+    /**
+     * Constructs a broadcaster which also appends the events to the event log of the match
+     *
+     * @param match the match whose events will be broadcast
+     * @param views the views that will receive the events
+     * @param historySize the maximum number of events kept to resume the clients
+     * @param eventLog the log the events are appended to, null if they are not logged
+     */
+    public MatchEventBroadcaster(Match match, Collection<View> views, int historySize, @Nullable MatchEventLog eventLog) {
+        this.match = match;
+        this.eventLog = eventLog;
+        this.history = new EventRingBuffer(historySize);
+        this.views.addAll(views);
+        BatchingListener<MatchEventBroadcaster> listener = new BatchingListener<>(match.getEventTransaction(), this);
+        match.addMatchListener(listener);
+        match.getBoard().addBoardListener(listener);
+        match.getPlayers().forEach(player -> player.addPlayerListener(listener));
+    }
+
+    /**
+     * Replaces a view with the one of a reconnected client and brings the client up to date. If the client reported a
+     * state version whose following events are all still in the history, only those events are sent, otherwise the
+     * client receives a snapshot of the match
+     *
+     * @param oldView the view to remove
+     * @param newView the view that will receive the events from now on
+     * @return true if the client received only the events it missed, false if it received a snapshot
+     */
+    public synchronized boolean resumeView(View oldView, View newView) {
+        views.remove(oldView);
+        long lastStateVersion = newView.getLastStateVersion();
+        // The replay happens while holding the lock of the broadcast, so no live event can get in between
+        boolean resumable = lastStateVersion != Message.NO_STATE_VERSION
+                && history.replayAfter(lastStateVersion, newView::sendMessage);
+        if (!resumable) {
+            newView.enqueueMatchInitializationEvent(match, true, stateVersion);
+        }
+        views.add(newView);
+        return resumable;
+    }
+
+    /**
+     * @return the version of the match state reached with the last event
+     */
+    public synchronized long getStateVersion() {
+        return stateVersion;
+    }
+
+    /**
+     * Tags an event with the next state version, stores it in the history and enqueues the same message to all the
+     * connected views. A view whose events were dropped because its client was too slow receives a snapshot of the
+     * match instead, as soon as its client has caught up
+     *
+     * @param name the name of the event
+     * @param event the payload of the event
+     */
+    private synchronized void broadcast(ClientApi name, Object event) {
+        Message message = Message.createEvent(name, event, ++stateVersion);
+        history.add(message);
+        if (eventLog != null) {
+            eventLog.append(message);
+        }
+        for (View view : views) {
+            if (view.isConnected()) {
+                boolean resynced = view.isResyncDue();
+                if (resynced) {
+                    view.resync(match, stateVersion);
+                }
+                // The snapshot already contains the effects of the event, but it cannot tell that the match ended
+                if (!resynced || name == ClientApi.MATCH_ENDED_EVENT) {
+                    view.sendMessage(message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifies the clients that the match has started, each view sends its own initialization event. The event log
+     * receives a snapshot of the match seen by its first player instead
+     *
+     * @param event the event corresponding to the beginning of the match
+     */
+    @Override
+    public synchronized void onMatchStarted(MatchEvent event) {
+        if (eventLog != null) {
+            eventLog.append(Message.createEvent(
+                    ClientApi.MATCH_RESUMED_EVENT,
+                    ModelMapper.mapMatchResumed(event.getMatch(), event.getMatch().getPlayers().get(0)),
+                    stateVersion
+            ));
+        }
+        views.forEach(view -> view.enqueueMatchInitializationEvent(event.getMatch(), false, stateVersion));
+    }
+
+    /**
+     * Notifies the clients that the match has ended, no more events are logged afterwards
+     * @param event the event corresponding to the end of the match
+     */
+    @Override
+    public void onMatchEnded(MatchEnded event) {
+        it.polimi.ingsw.shared.events.networkevents.MatchEnded convertedEvent;
+        Map<Integer, List<it.polimi.ingsw.shared.datatransferobjects.Player>> mappedRankings = new HashMap<>();
+        event.getRankings().forEach((key, value) -> mappedRankings.put(key, value.stream().map(ModelMapper::mapPlayer).collect(Collectors.toList())));
+        Map<String, Integer> scores = new HashMap<>();
+        event.getRankings()
+                .forEach((key, value) -> value.forEach(p -> scores.put(p.getPlayerInfo().getNickname(), p.getPoints())));
+        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.MatchEnded(mappedRankings, scores);
+        broadcast(ClientApi.MATCH_ENDED_EVENT, convertedEvent);
+        if (eventLog != null) {
+            eventLog.close();
+        }
+    }
+
+    /**
+     * Notifies the clients that the match mode has changed
+     *
+     * @param event the event corresponding to the match mode change
+     */
+    @Override
+    public void onMatchModeChanged(MatchModeChanged event) {
+        it.polimi.ingsw.shared.events.networkevents.MatchModeChanged convertedEvent = new it.polimi.ingsw.shared.events.networkevents.MatchModeChanged(event.getMode());
+        broadcast(ClientApi.MATCH_MODE_CHANGED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that the killshot track changed
+     *
+     * @param e the event corresponding to the killshot track change
+     */
+    @Override
+    public void onKillshotTrackChanged(KillshotTrackChanged e) {
+        List<Tuple<PlayerColor, Boolean>> killshots = e.getKillshots().stream().map(k -> new Tuple<>(k.getDamageToken().getAttacker().getPlayerInfo().getColor(), k.isOverkill())).collect(Collectors.toList());
+        it.polimi.ingsw.shared.events.networkevents.KillshotTrackChanged convertedEvent = new it.polimi.ingsw.shared.events.networkevents.KillshotTrackChanged(killshots);
+        broadcast(ClientApi.MATCH_KILLSHOT_TRACK_CHANGED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a player died
+     *
+     * @param e the event corresponding to the player's death
+     */
+    @Override
+    public void onPlayerDied(PlayerDied e) {
+        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = ModelMapper.mapPlayer(e.getVictim());
+        it.polimi.ingsw.shared.events.networkevents.PlayerEvent convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerEvent(playerVM);
+        broadcast(ClientApi.PLAYER_DIED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a player was damaged
+     *
+     * @param e this parameter contains info about the attacker and the damaged player
+     */
+    @Override
+    public void onPlayerDamaged(PlayerDamaged e) {
+        //View only cares about onPlayerHealthChanged
+    }
+
+    /**
+     * Notifies the clients that a player was overkilled
+     *
+     * @param e the event corresponding to the player's death
+     */
+    @Override
+    public void onPlayerOverkilled(PlayerOverkilled e) {
+        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = ModelMapper.mapPlayer(e.getVictim());
+        it.polimi.ingsw.shared.events.networkevents.PlayerEvent convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerEvent(playerVM);
+        broadcast(ClientApi.PLAYER_OVERKILLED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a player was brought back to life
+     *
+     * @param e the event corresponding to the player's rebirth
+     */
+    @Override
+    public void onPlayerReborn(PlayerEvent e) {
+        onBasicPlayerEvent(e, ClientApi.PLAYER_REBORN_EVENT);
+    }
+
+    /**
+     * Notifies the clients that a player's board flipped
+     *
+     * @param e the event corresponding to the player's board flipping
+     */
+    @Override
+    public void onPlayerBoardFlipped(PlayerEvent e) {
+        onBasicPlayerEvent(e, ClientApi.PLAYER_BOARD_FLIPPED_EVENT);
+    }
+
+
+    /**
+     * Notifies the clients that a player's tile flipped
+     *
+     * @param e the event corresponding to the player's tile flipping
+     */
+    @Override
+    public void onPlayerTileFlipped(PlayerEvent e) {
+        onBasicPlayerEvent(e, ClientApi.PLAYER_TILE_FLIPPED_EVENT);
+    }
+
+    /**
+     * Notifies the clients that a weapon was reloaded
+     *
+     * @param e the event corresponding to the player reloading a weapon
+     */
+    @Override
+    public void onWeaponReloaded(PlayerWeaponEvent e) {
+        it.polimi.ingsw.shared.events.networkevents.PlayerWeaponEvent convertedEvent;
+        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = ModelMapper.mapPlayer(e.getPlayer());
+        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerWeaponEvent(playerVM, playerVM.getNickname() + " reloaded their " + e.getWeaponTile().getName());
+        broadcast(ClientApi.WEAPON_RELOADED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a weapon was unloaded
+     *
+     * @param e the event corresponding to the player unloading a weapon
+     */
+    @Override
+    public void onWeaponUnloaded(PlayerWeaponEvent e) {
+        it.polimi.ingsw.shared.events.networkevents.PlayerWeaponEvent convertedEvent;
+        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = ModelMapper.mapPlayer(e.getPlayer());
+        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerWeaponEvent(playerVM, playerVM.getNickname() + " unloaded their " + e.getWeaponTile().getName());
+        broadcast(ClientApi.WEAPON_UNLOADED_EVENT, convertedEvent);
+
+    }
+
+    /**
+     * Notifies the clients that a weapon was picked
+     *
+     * @param e the event corresponding to the player picking up a weapon
+     */
+    @Override
+    public void onWeaponPicked(WeaponExchanged e) {
+        PlayerWeaponExchanged convertedEvent;
+        convertedEvent = new PlayerWeaponExchanged(ModelMapper.mapPlayer(e.getPlayer()), e.getWeaponTile().getName(), e.getBlock().getRow(), e.getBlock().getColumn());
+        broadcast(ClientApi.WEAPON_PICKED_EVENT, convertedEvent);
+
+    }
+
+    /**
+     * Notifies the clients that a weapon was dropped
+     *
+     * @param e the event corresponding to the player dropping a weapon
+     */
+    @Override
+    public void onWeaponDropped(WeaponExchanged e) {
+        PlayerWeaponExchanged convertedEvent;
+        convertedEvent = new PlayerWeaponExchanged(ModelMapper.mapPlayer(e.getPlayer()), e.getWeaponTile().getName(), e.getBlock().getRow(), e.getBlock().getColumn());
+        broadcast(ClientApi.WEAPON_DROPPED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a player's wallet has changed
+     *
+     * @param e the event corresponding to the player's wallet changing
+     */
+    @Override
+    public void onWalletChanged(PlayerWalletChanged e) {
+        it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged convertedEvent;
+        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = ModelMapper.mapPlayer(e.getPlayer());
+        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged(playerVM, playerVM.getNickname() + "'s wallet changed");
+        broadcast(ClientApi.PLAYER_WALLET_CHANGED_EVENT, convertedEvent);
+
+    }
+
+    /**
+     * Notifies the clients that a player's health has changed
+     *
+     * @param e the event corresponding to the player's health changing
+     */
+    @Override
+    public void onHealthChanged(PlayerEvent e) {
+        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = ModelMapper.mapPlayer(e.getPlayer());
+        PlayerHealthChanged convertedEvent = new PlayerHealthChanged(playerVM);
+        broadcast(ClientApi.PLAYER_HEALTH_CHANGED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a player teleported
+     *
+     * @param e the event corresponding to the player teleporting
+     */
+    @Override
+    public void onPlayerTeleported(PlayerMoved e) {
+        it.polimi.ingsw.shared.events.networkevents.PlayerMoved convertedEvent;
+        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerMoved(ModelMapper.mapPlayer(e.getPlayer()), e.getDestination().getRow(), e.getDestination().getColumn());
+        broadcast(ClientApi.PLAYER_TELEPORTED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a player moved
+     *
+     * @param e the event corresponding to the player moving
+     */
+    @Override
+    public void onPlayerMoved(PlayerMoved e) {
+        it.polimi.ingsw.shared.events.networkevents.PlayerMoved convertedEvent;
+        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerMoved(ModelMapper.mapPlayer(e.getPlayer()), e.getDestination().getRow(), e.getDestination().getColumn());
+        broadcast(ClientApi.PLAYER_MOVED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a new weapon is available
+     *
+     * @param e the event corresponding to a new weapon being available
+     */
+    @Override
+    public void onNewWeaponAvailable(NewWeaponAvailable e) {
+        WeaponEvent convertedEvent = new WeaponEvent(
+                e.getWeapon().getName(),
+                e.getBlock().getRow(),
+                e.getBlock().getColumn()
+        );
+        broadcast(ClientApi.NEW_WEAPON_AVAILABLE_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a bonus tile was grabbed
+     *
+     * @param e the event corresponding to a bonus tile being grabbed
+     */
+    @Override
+    public void onBonusTileGrabbed(BonusTileBoardEvent e) {
+        it.polimi.ingsw.shared.events.networkevents.BonusTileEvent convertedEvent = ModelMapper.mapBonusTileEvent(e);
+        broadcast(ClientApi.BONUS_TILE_GRABBED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a bonus tile was dropped
+     *
+     * @param e the event corresponding to a bonus tile being dropped
+     */
+    @Override
+    public void onBonusTileDropped(BonusTileBoardEvent e) {
+        it.polimi.ingsw.shared.events.networkevents.BonusTileEvent convertedEvent = ModelMapper.mapBonusTileEvent(e);
+        broadcast(ClientApi.BONUS_TILE_DROPPED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a powerup was discarded
+     *
+     * @param e the event corresponding to the player discarding a powerup
+     */
+    @Override
+    public void onPowerupDiscarded(PowerupExchange e){
+        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = ModelMapper.mapPlayer(e.getPlayer());
+        it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged convertedEvent;
+        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged(playerVM, "Powerup " + e.getPowerupTile().getColor().toString().toLowerCase() + " " + e.getPowerupTile().getName() + " was discarded");
+        broadcast(ClientApi.PLAYER_WALLET_CHANGED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a powerup was grabbed
+     *
+     * @param e the event corresponding to the player grabbing a powerup
+     */
+    @Override
+    public void onPowerupGrabbed(PowerupExchange e){
+        it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged convertedEvent;
+        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = ModelMapper.mapPlayer(e.getPlayer());
+        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged(playerVM, playerVM.getNickname() + " grabbed a " + e.getPowerupTile().getColor().toString().toLowerCase() + " " + e.getPowerupTile().getName());
+        broadcast(ClientApi.PLAYER_WALLET_CHANGED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that a spawnpoint was chosen by a player
+     *
+     * @param e the event corresponding to the player choosing a spawnpoint
+     */
+    @Override
+    public void onSpawnpointChosen(SpawnpointChoiceEvent e){
+        it.polimi.ingsw.shared.events.networkevents.PlayerSpawned convertedEvent;
+        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerSpawned(ModelMapper.mapPlayer(e.getPlayer()), e.getDestination().getRow(), e.getDestination().getColumn());
+        broadcast(ClientApi.PLAYER_SPAWNED_EVENT, convertedEvent);
+    }
+
+    /**
+     * Notifies the clients that the active player changed
+     *
+     * @param e the event corresponding to the changing of the turn
+     */
+    @Override
+    public void onActivePlayerChanged(PlayerEvent e) {
+        onBasicPlayerEvent(e, ClientApi.ACTIVE_PLAYER_CHANGED_EVENT);
+    }
+
+    /**
+     * Generic method to convert PlayerEvents from the model into the appropriate network events
+     *
+     * @param e the model event
+     * @param type the type of event
+     */
+    private void onBasicPlayerEvent(PlayerEvent e, ClientApi type) {
+        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = ModelMapper.mapPlayer(e.getPlayer());
+        it.polimi.ingsw.shared.events.networkevents.PlayerEvent convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerEvent(playerVM);
+        broadcast(type, convertedEvent);
+    }
+}
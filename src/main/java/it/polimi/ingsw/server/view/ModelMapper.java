@@ -0,0 +1,220 @@
+package it.polimi.ingsw.server.view;
+
+import it.polimi.ingsw.server.model.battlefield.Board;
+import it.polimi.ingsw.server.model.battlefield.SpawnpointBlock;
+import it.polimi.ingsw.server.model.battlefield.TurretBlock;
+import it.polimi.ingsw.server.model.currency.AmmoCube;
+import it.polimi.ingsw.server.model.currency.CurrencyColor;
+import it.polimi.ingsw.server.model.events.BonusTileBoardEvent;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.model.player.Player;
+import it.polimi.ingsw.server.model.player.PlayerColor;
+import it.polimi.ingsw.server.model.weapons.WeaponTile;
+import it.polimi.ingsw.shared.datatransferobjects.BonusTile;
+import it.polimi.ingsw.shared.datatransferobjects.PlayerHealth;
+import it.polimi.ingsw.shared.datatransferobjects.Powerup;
+import it.polimi.ingsw.shared.datatransferobjects.Wallet;
+import it.polimi.ingsw.shared.events.networkevents.MatchResumed;
+import it.polimi.ingsw.shared.events.networkevents.MatchStarted;
+import it.polimi.ingsw.utils.Tuple;
+
+import java.awt.*;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Helper class that maps the objects of the model into the corresponding data transfer objects
+ */
+final class ModelMapper {
+
+    private ModelMapper() { }
+
+    /**
+     * Maps the wallet of a Player of the Model to the appropriate data transfer object
+     *
+     * @param player the Player Model object
+     * @return the Wallet data transfer object
+     */
+    static Wallet mapWallets(Player player) {
+        List<CurrencyColor> ammoCubes = player.getAmmoCubes().stream().map(AmmoCube::getColor).collect(Collectors.toList());
+
+        List<Powerup> powerups = player.getPowerups().stream().map(p -> new Powerup(p.getName(), p.getColor())).collect(Collectors.toList());
+
+        List<String> unloadedWeapons = player.getWeapons()
+                .stream()
+                .map(WeaponTile::getName)
+                .collect(Collectors.toList());
+        List<String> loadedWeapons = player.getWeapons()
+                .stream()
+                .filter(WeaponTile::isLoaded)
+                .map(WeaponTile::getName)
+                .collect(Collectors.toList());
+        unloadedWeapons.removeAll(loadedWeapons);
+
+        return new Wallet(loadedWeapons, unloadedWeapons, ammoCubes, powerups);
+    }
+
+    /**
+     * Maps a Player into the relative data transfer object
+     *
+     * @param player the Player Model object
+     * @return the Player data transfer object
+     */
+    static it.polimi.ingsw.shared.datatransferobjects.Player mapPlayer(Player player) {
+        return new it.polimi.ingsw.shared.datatransferobjects.Player(
+                player.getPlayerInfo().getNickname(),
+                player.getPlayerInfo().getColor(),
+                mapWallets(player),
+                mapPlayerHealth(player),
+                player.isTileFlipped(),
+                player.isBoardFlipped()
+        );
+    }
+
+    /**
+     * Maps the health of a Player of the Model to the appropriate data transfer object
+     *
+     * @param player the Player Model object
+     * @return the PlayerHealth data transfer object
+     */
+    static PlayerHealth mapPlayerHealth(Player player) {
+
+        return new PlayerHealth(
+                player.getSkulls(),
+                player.getDamageTokens().stream().map(t -> t.getAttacker().getPlayerInfo().getColor()).collect(Collectors.toList()),
+                player.getMarks().stream().map(m -> m.getAttacker().getPlayerInfo().getColor()).collect(Collectors.toList())
+        );
+    }
+
+    /**
+     * Maps the content of the turrets of the model into the appropriate data transfer objects
+     *
+     * @param board the board containing the turrets
+     * @return a set with the data transfer object bonus tiles
+     */
+    static Set<BonusTile> mapTurretBonusTiles(Board board) {
+        return board.getTurretBlocks()
+                .stream()
+                .filter(block -> block.getBonusTile().isPresent())
+                .map(block ->
+                        new BonusTile(
+                                block.getBonusTile()
+                                        .orElseThrow(() -> new IllegalStateException("No bonus tile present on turret"))
+                                        .getRewards()
+                                        .stream()
+                                        .map(AmmoCube::getColor)
+                                        .collect(Collectors.toList()),
+                                new Point(block.getColumn(), block.getRow())
+                        )
+                )
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Maps a BonusTile Model event to the appropriate network event
+     * @param e the model bonus tile event
+     * @return the converted event
+     */
+    static it.polimi.ingsw.shared.events.networkevents.BonusTileEvent mapBonusTileEvent(BonusTileBoardEvent e) {
+        return new it.polimi.ingsw.shared.events.networkevents.BonusTileEvent(
+                new BonusTile(
+                        ((TurretBlock)e.getLocation())
+                                .getBonusTile()
+                                .orElseThrow(() -> new IllegalStateException("No bonus tile present on turret"))
+                                .getRewards()
+                                .stream()
+                                .map(AmmoCube::getColor)
+                                .collect(Collectors.toList()),
+                        new Point(e.getLocation().getColumn(), e.getLocation().getRow())
+                )
+        );
+    }
+
+    /**
+     * Maps the state of a match which has just started into the initialization event of one of its players
+     *
+     * @param match the match that was initialized
+     * @param self the player receiving the event
+     * @return the MatchStarted network event
+     */
+    static MatchStarted mapMatchStarted(Match match, Player self) {
+        List<it.polimi.ingsw.shared.datatransferobjects.Player> opponents = match.getPlayers()
+                .stream()
+                .filter(o -> !o.getPlayerInfo().getNickname().equals(self.getPlayerInfo().getNickname()))
+                .map(ModelMapper::mapPlayer)
+                .collect(Collectors.toList());
+        List<String> weaponTop = new LinkedList<>();
+        List<String> weaponLeft = new LinkedList<>();
+        List<String> weaponRight = new LinkedList<>();
+        for (CurrencyColor color : CurrencyColor.values()) {
+            SpawnpointBlock block = match.getBoard().getSpawnpoint(color);
+            List<String> weapons = block.getWeapons().stream().map(WeaponTile::getName).collect(Collectors.toList());
+            if (block.getRow() == 0) {
+                weaponTop = weapons;
+            } else if (block.getColumn() == 0) {
+                weaponLeft = weapons;
+            } else {
+                weaponRight = weapons;
+            }
+        }
+        return new MatchStarted(
+                match.getRemainingSkulls(),
+                match.getBoardPreset(),
+                mapPlayer(self),
+                opponents,
+                weaponTop,
+                weaponRight,
+                weaponLeft,
+                mapPlayer(match.getActivePlayer()),
+                mapTurretBonusTiles(match.getBoard())
+        );
+    }
+
+    /**
+     * Maps the whole state of a match into the snapshot sent to one of its players when it is resumed
+     *
+     * @param match the match to map
+     * @param self the player receiving the snapshot
+     * @return the MatchResumed network event
+     */
+    static MatchResumed mapMatchResumed(Match match, Player self) {
+        MatchStarted started = mapMatchStarted(match, self);
+        int totalSkulls = match.getRemainingSkulls();
+        for (Player player : match.getPlayers()) {
+            totalSkulls += player.getSkulls();
+        }
+        Map<PlayerColor, Point> playerLocations = match
+                .getPlayers()
+                .stream()
+                .filter(p -> {
+                    try {
+                        p.getBlock();
+                        return true;
+                    }
+                    catch (IllegalStateException e) {
+                        return false;
+                    }
+                })
+                .collect(Collectors.toMap((
+                        p -> p.getPlayerInfo().getColor()),
+                        p -> new Point(p.getBlock().getColumn(), p.getBlock().getRow())
+                ));
+        return new MatchResumed(
+                totalSkulls,
+                started.getPreset(),
+                started.getSelf(),
+                started.getOpponents(),
+                started.getWeaponTop(),
+                started.getWeaponRight(),
+                started.getWeaponLeft(),
+                started.getCurrentActivePlayer(),
+                started.getTurretBonusTiles(),
+                match.getMode(),
+                match.getKillshots().stream().map(k -> new Tuple<>(k.getDamageToken().getAttacker().getPlayerInfo().getColor(), k.isOverkill())).collect(Collectors.toList()),
+                playerLocations
+        );
+    }
+}
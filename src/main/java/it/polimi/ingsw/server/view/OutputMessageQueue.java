@@ -0,0 +1,317 @@
+package it.polimi.ingsw.server.view;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.shared.messages.Message;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * The output message queue of a server-side view. Questions, answers and the events which are not part of the match
+ * state are always accepted, while the match events are kept within a budget so that a client which stopped reading
+ * does not make the server buffer the whole match: depending on the policy, the events superseded by a newer one
+ * about the same subject are removed first, then the pending match events are dropped and the view waits for a
+ * snapshot of the match
+ */
+public class OutputMessageQueue extends LinkedBlockingQueue<Message> {
+
+    /**
+     * What the queue does when the budget of the match events is exceeded
+     */
+    public enum Policy {
+        /**
+         * The pending match events are dropped and the view needs a snapshot
+         */
+        RESYNC,
+        /**
+         * The superseded match events are removed first, the pending ones are dropped only if the queue is still full
+         */
+        COALESCE
+    }
+
+    /**
+     * The default number of messages in the queue above which the match events are dropped
+     */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    /**
+     * The events carrying the whole state of a player, each one supersedes the previous event of the same kind
+     * about the same player
+     */
+    private static final Set<String> COALESCABLE_EVENTS = Collections.unmodifiableSet(
+            Arrays.stream(new ClientApi[] {
+                    ClientApi.PLAYER_WALLET_CHANGED_EVENT,
+                    ClientApi.PLAYER_HEALTH_CHANGED_EVENT,
+                    ClientApi.PLAYER_MOVED_EVENT
+            }).map(ClientApi::toString).collect(Collectors.toSet())
+    );
+
+    /**
+     * The events that are never dropped, since a snapshot of the match cannot replace them
+     */
+    private static final Set<String> ESSENTIAL_EVENTS = Collections.singleton(ClientApi.MATCH_ENDED_EVENT.toString());
+
+    /**
+     * The number of messages in the queue above which the match events are dropped
+     */
+    private final int capacity;
+
+    /**
+     * The policy applied when the queue fills up
+     */
+    private final Policy policy;
+
+    /**
+     * Lock serializing the producers while the policy is applied
+     */
+    private final Object policyLock = new Object();
+
+    /**
+     * True if some match events have been dropped and the client needs a snapshot of the match
+     */
+    private volatile boolean resyncNeeded = false;
+
+    /**
+     * True if the client read from the queue after its events were dropped, leaving few messages in it
+     */
+    private volatile boolean caughtUp = false;
+
+    /**
+     * The number of events removed because a newer one superseded them
+     */
+    private final LongAdder coalescedEvents = new LongAdder();
+
+    /**
+     * The number of events dropped because the queue was full
+     */
+    private final LongAdder droppedEvents = new LongAdder();
+
+    /**
+     * The number of times the queue was full and the client needed a snapshot
+     */
+    private final LongAdder resyncs = new LongAdder();
+
+    /**
+     * Constructs a queue with the default capacity which coalesces the superseded events
+     */
+    public OutputMessageQueue() {
+        this(DEFAULT_CAPACITY, Policy.COALESCE);
+    }
+
+    /**
+     * Constructs a queue
+     *
+     * @param capacity the number of messages in the queue above which the match events are dropped
+     * @param policy the policy applied when the queue fills up
+     */
+    public OutputMessageQueue(int capacity, Policy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    /**
+     * Enqueues a message applying the policy if it is a match event. A match event which is dropped is considered
+     * delivered, so this method always returns true
+     *
+     * @param message the message to enqueue
+     * @return true
+     */
+    @Override
+    public boolean offer(Message message) {
+        if (message.getStateVersion() == Message.NO_STATE_VERSION || ESSENTIAL_EVENTS.contains(message.getName())) {
+            return super.offer(message);
+        }
+        synchronized (policyLock) {
+            if (resyncNeeded) {
+                droppedEvents.increment();
+                return true;
+            }
+            if (policy == Policy.COALESCE && size() >= capacity / 2) {
+                coalesce(message);
+            }
+            if (size() >= capacity) {
+                int pending = size();
+                removeIf(queued -> queued.getStateVersion() != Message.NO_STATE_VERSION && !ESSENTIAL_EVENTS.contains(queued.getName()));
+                droppedEvents.add(pending - size() + 1L);
+                resyncs.increment();
+                resyncNeeded = true;
+                caughtUp = false;
+                return true;
+            }
+            return super.offer(message);
+        }
+    }
+
+    /**
+     * Enqueues a message applying the policy if it is a match event, the queue never blocks
+     *
+     * @param message the message to enqueue
+     */
+    @Override
+    public void put(Message message) {
+        offer(message);
+    }
+
+    /**
+     * Enqueues a message applying the policy if it is a match event, the queue never blocks
+     *
+     * @param message the message to enqueue
+     * @param timeout ignored
+     * @param unit ignored
+     * @return true
+     */
+    @Override
+    public boolean offer(Message message, long timeout, TimeUnit unit) {
+        return offer(message);
+    }
+
+    /**
+     * Retrieves and removes the head of the queue, recording whether the client caught up
+     *
+     * @return the head of the queue, null if the queue is empty
+     */
+    @Override
+    public Message poll() {
+        Message message = super.poll();
+        checkCaughtUp();
+        return message;
+    }
+
+    /**
+     * Retrieves and removes the head of the queue, waiting up to the given time, recording whether the client caught up
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout
+     * @return the head of the queue, null if the timeout elapsed
+     * @throws InterruptedException if the thread is forced to stop
+     */
+    @Override
+    public Message poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Message message = super.poll(timeout, unit);
+        checkCaughtUp();
+        return message;
+    }
+
+    /**
+     * Retrieves and removes the head of the queue, waiting for it, recording whether the client caught up
+     *
+     * @return the head of the queue
+     * @throws InterruptedException if the thread is forced to stop
+     */
+    @Override
+    public Message take() throws InterruptedException {
+        Message message = super.take();
+        checkCaughtUp();
+        return message;
+    }
+
+    /**
+     * Removes the available messages and adds them to the given collection, recording whether the client caught up
+     *
+     * @param c the collection to transfer the messages into
+     * @param maxElements the maximum number of messages to transfer
+     * @return the number of messages transferred
+     */
+    @Override
+    public int drainTo(Collection<? super Message> c, int maxElements) {
+        int drained = super.drainTo(c, maxElements);
+        checkCaughtUp();
+        return drained;
+    }
+
+    /**
+     * Records that the client caught up if it is reading while few messages are left in the queue
+     */
+    private void checkCaughtUp() {
+        if (resyncNeeded && size() <= capacity / 4) {
+            caughtUp = true;
+        }
+    }
+
+    /**
+     * Removes the queued events superseded by the given one
+     *
+     * @param message the newer event
+     */
+    private void coalesce(Message message) {
+        String subject = subjectOf(message);
+        if (subject != null) {
+            int pending = size();
+            removeIf(queued -> queued.getName().equals(message.getName()) && subject.equals(subjectOf(queued)));
+            coalescedEvents.add((long) pending - size());
+        }
+    }
+
+    /**
+     * @param message an event
+     * @return the nickname of the player the event is about if the event can be superseded, null otherwise
+     */
+    private static String subjectOf(Message message) {
+        if (!COALESCABLE_EVENTS.contains(message.getName()) || !message.getPayload().isJsonObject()) {
+            return null;
+        }
+        JsonElement player = message.getPayload().getAsJsonObject().get("player");
+        if (player == null || !player.isJsonObject()) {
+            return null;
+        }
+        JsonElement nickname = ((JsonObject) player).get("nickname");
+        return nickname == null ? null : nickname.getAsString();
+    }
+
+    /**
+     * @return true if some match events have been dropped and the client has not received a snapshot yet
+     */
+    public boolean isResyncNeeded() {
+        return resyncNeeded;
+    }
+
+    /**
+     * @return true if the client needs a snapshot and it has read most of the pending messages, so the snapshot should
+     * be sent now
+     */
+    public boolean isResyncDue() {
+        return resyncNeeded && caughtUp;
+    }
+
+    /**
+     * Accepts the match events again, the snapshot must be the next match event enqueued
+     */
+    public void resynced() {
+        synchronized (policyLock) {
+            resyncNeeded = false;
+            caughtUp = false;
+        }
+    }
+
+    /**
+     * @return the number of events removed because a newer one superseded them
+     */
+    public long getCoalescedEventCount() {
+        return coalescedEvents.sum();
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * @return the number of times the queue was full and the client needed a snapshot
+     */
+    public long getResyncCount() {
+        return resyncs.sum();
+    }
+}
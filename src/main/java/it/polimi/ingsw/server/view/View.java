@@ -1,58 +1,44 @@
 package it.polimi.ingsw.server.view;
 
 import com.google.gson.Gson;
-import it.polimi.ingsw.server.model.battlefield.Board;
+import com.google.gson.JsonParseException;
 import it.polimi.ingsw.server.model.battlefield.BoardFactory;
-import it.polimi.ingsw.server.model.battlefield.SpawnpointBlock;
-import it.polimi.ingsw.server.model.battlefield.TurretBlock;
-import it.polimi.ingsw.server.model.currency.AmmoCube;
-import it.polimi.ingsw.server.model.currency.CurrencyColor;
-import it.polimi.ingsw.server.model.events.*;
-import it.polimi.ingsw.server.model.events.listeners.BoardListener;
-import it.polimi.ingsw.server.model.events.listeners.MatchListener;
-import it.polimi.ingsw.server.model.events.listeners.PlayerListener;
 import it.polimi.ingsw.server.model.match.Match;
 import it.polimi.ingsw.server.model.player.Player;
-import it.polimi.ingsw.server.model.player.PlayerColor;
-import it.polimi.ingsw.server.model.weapons.WeaponTile;
 import it.polimi.ingsw.server.view.events.ViewEvent;
 import it.polimi.ingsw.server.view.events.listeners.ViewListener;
 import it.polimi.ingsw.server.view.exceptions.ViewDisconnectedException;
 import it.polimi.ingsw.shared.InputMessageQueue;
 import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
-import it.polimi.ingsw.shared.datatransferobjects.BonusTile;
-import it.polimi.ingsw.shared.datatransferobjects.PlayerHealth;
-import it.polimi.ingsw.shared.datatransferobjects.Powerup;
-import it.polimi.ingsw.shared.datatransferobjects.Wallet;
 import it.polimi.ingsw.shared.events.networkevents.ClientEvent;
-import it.polimi.ingsw.shared.events.networkevents.PlayerHealthChanged;
-import it.polimi.ingsw.shared.events.networkevents.PlayerWeaponExchanged;
-import it.polimi.ingsw.shared.events.networkevents.WeaponEvent;
+import it.polimi.ingsw.shared.messages.BinaryMessageCodec;
 import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.shared.messages.CompressionDictionary;
+import it.polimi.ingsw.shared.messages.FrameFormat;
 import it.polimi.ingsw.shared.messages.Message;
 import it.polimi.ingsw.shared.messages.ServerApi;
 import it.polimi.ingsw.shared.messages.templates.Answer;
 import it.polimi.ingsw.shared.messages.templates.Question;
 import it.polimi.ingsw.shared.messages.templates.gsonadapters.AnswerOf;
-import it.polimi.ingsw.utils.Tuple;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
+import it.polimi.ingsw.utils.concurrent.HashedWheelTimer;
 
 import javax.annotation.Nullable;
-import java.awt.*;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * This class is an abstract server-side View. It contains all the methods needed for the interaction with the controller
- * and implements all the listeners needed to receive information from the model
+ * and the messages specific to its client, while the model events shared by all the clients of a match are delivered by
+ * the {@link MatchEventBroadcaster}
  *
  * @author Carlo Dell'Acqua
  */
-public abstract class View implements Interviewer, AutoCloseable, MatchListener, PlayerListener, BoardListener, ViewListener {
+public abstract class View implements AsyncInterviewer, AutoCloseable, ViewListener {
 
     /**
      * The view waits for this amount of milliseconds, with the purpose of emptying the queue, after a shutdown requests
@@ -60,17 +46,12 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
     private static final int CLOSE_TIMEOUT_MILLISECONDS = 10000;
 
     /**
-     * Timeout used in the waiting loop (when the view is waiting for the queue to get empty)
+     * Delay between two checks of the output queue while the view is waiting for it to get empty
      */
-    private static final int CLOSE_CHECK_DELAY = CLOSE_TIMEOUT_MILLISECONDS / 10;
+    private static final int CLOSE_CHECK_DELAY = 100;
 
     /**
-     * Timeout used when dequeueing an event
-     */
-    private static final int DEQUEUE_TIMEOUT_MILLISECONDS = 1000;
-
-    /**
-     * Timeout used to check the heartbeat
+     * The view is considered disconnected if it does not receive any message for this amount of milliseconds
      */
     private static final int HEARTBEAT_TIMEOUT = 10000;
 
@@ -88,7 +69,7 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
     /**
      * Boolean representing the virtual connection status
      */
-    private boolean connected = true;
+    private volatile boolean connected = true;
 
     /**
      * The message queue which accumulates input messages
@@ -96,9 +77,9 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
     protected InputMessageQueue inputMessageQueue = new InputMessageQueue();
 
     /**
-     * The message queue which stores output messages ready to be sent
+     * The message queue which stores output messages ready to be sent, it keeps the match events within a budget
      */
-    protected LinkedBlockingQueue<Message> outputMessageQueue = new LinkedBlockingQueue<>();
+    protected final OutputMessageQueue outputMessageQueue;
 
     /**
      * Maximum timeout before considering the view disconnected
@@ -112,7 +93,7 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
     /**
      * Player initialization information
      */
-    private ClientInitializationInfo setup;
+    private volatile ClientInitializationInfo setup;
 
     /**
      * The player instance associated with this View
@@ -125,29 +106,36 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
     private final Set<ViewListener> listeners = Collections.synchronizedSet(new HashSet<>());
 
     /**
-     * Thread pool used to check the heartbeat of the client
+     * The instant of the last message that was received, any message received from the client counts as a heartbeat
      */
-    private final ExecutorService heartbeatThreadPool = Executors.newSingleThreadExecutor();
+    private volatile Instant lastHeartbeat = Instant.now();
 
     /**
-     * Thread pool used to transmit events
+     * The pending check of the heartbeat on the shared timer
      */
-    private final ExecutorService eventThreadPool = Executors.newSingleThreadExecutor();
+    private volatile HashedWheelTimer.Timeout heartbeatCheck;
 
     /**
-     * The instant of the last heartbeat that was received
+     * Constructs a server-side view
+     *
+     * @param answerTimeout maximum timeout before considering the view disconnected
+     * @param answerTimeoutUnit measurement unit of the timeout
      */
-    private Instant lastHeartbeat;
+    public View(int answerTimeout, TimeUnit answerTimeoutUnit) {
+        this(answerTimeout, answerTimeoutUnit, new OutputMessageQueue());
+    }
 
     /**
      * Constructs a server-side view
      *
      * @param answerTimeout maximum timeout before considering the view disconnected
      * @param answerTimeoutUnit measurement unit of the timeout
+     * @param outputMessageQueue the queue which will store the output messages
      */
-    public View(int answerTimeout, TimeUnit answerTimeoutUnit) {
+    public View(int answerTimeout, TimeUnit answerTimeoutUnit, OutputMessageQueue outputMessageQueue) {
         this.answerTimeout = answerTimeout;
         this.answerTimeoutUnit = answerTimeoutUnit;
+        this.outputMessageQueue = outputMessageQueue;
     }
 
     /**
@@ -167,8 +155,7 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
                 );
 
                 lastHeartbeat = Instant.now();
-                startReceivingEvents();
-                startHeartbeat();
+                scheduleHeartbeatCheck(HEARTBEAT_TIMEOUT);
             } else {
                 throw new ViewDisconnectedException("Initialization event message is malformed");
             }
@@ -178,52 +165,63 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
     }
 
     /**
-     * This method makes the view start receiving events
-     */
-    private void startReceivingEvents() {
-        eventThreadPool.execute(() -> {
-            while (!eventThreadPool.isShutdown() && isConnected()) {
-                try {
-                    Message message = inputMessageQueue.dequeueEvent(DEQUEUE_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
-                    ServerApi eventType = message.getNameAsEnum(ServerApi.class);
-                    switch (eventType) {
-                        case HEARTBEAT: {
-                            lastHeartbeat = Instant.now();
-                            break;
-                        }
-                        default: {
-                            throw new UnsupportedOperationException("Event \"" + eventType + "\" not supported");
-                        }
-                    }
-                } catch (TimeoutException ignored) {
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
-                    logger.warning("Thread interrupted " + ex);
-                }
+     * Decodes a frame received from the client. Binary frames are only accepted from a client that negotiated them
+     *
+     * @param frame the content of the frame
+     * @return the message
+     * @throws JsonParseException if the frame is malformed or it is binary and the client did not negotiate it
+     */
+    protected Message decodeFrame(byte[] frame) {
+        if (BinaryMessageCodec.isBinary(frame) && getFrameFormat() != FrameFormat.BINARY) {
+            throw new JsonParseException("Binary frame received from a client that did not negotiate it");
+        }
+        return Message.fromFrame(frame);
+    }
 
+    /**
+     * Handles a message received from the client. Any message counts as a heartbeat, the heartbeat events are consumed
+     * here and the other events are only expected before the initialization
+     *
+     * @param message the received message
+     */
+    protected void receiveMessage(Message message) {
+        lastHeartbeat = Instant.now();
+        if (message.getType() == Message.Type.EVENT) {
+            if (ServerApi.HEARTBEAT.toString().equals(message.getName())) {
+                return;
             }
-        });
+            if (setup != null) {
+                logger.warning("Event \"" + message.getName() + "\" not supported");
+                return;
+            }
+        }
+        inputMessageQueue.enqueue(message);
     }
 
     /**
-     * This method makes the view start listening for heartbeats
+     * Schedules the next check of the heartbeat on the shared timer
+     *
+     * @param delay the delay in milliseconds after which the heartbeat will be checked
      */
-    private void startHeartbeat() {
-        heartbeatThreadPool.execute(() -> {
-            while (!heartbeatThreadPool.isShutdown() && isConnected()) {
-                if (lastHeartbeat.isBefore(Instant.now().minusMillis(HEARTBEAT_TIMEOUT))) {
-                    logger.info("No heartbeat received within the timeout, disconnecting " + getNickname() + "...");
-                    disconnect();
-                } else {
-                    try {
-                        Thread.sleep(HEARTBEAT_TIMEOUT);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        logger.warning("Thread stopped " + e);
-                    }
-                }
-            }
-        });
+    private void scheduleHeartbeatCheck(long delay) {
+        heartbeatCheck = ExecutorFactory.getTimer().newTimeout(this::checkHeartbeat, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Disconnects the view if no message has been received within the heartbeat timeout, otherwise schedules the next
+     * check for when the timeout would expire
+     */
+    private void checkHeartbeat() {
+        if (!connected) {
+            return;
+        }
+        long silence = Duration.between(lastHeartbeat, Instant.now()).toMillis();
+        if (silence >= HEARTBEAT_TIMEOUT) {
+            logger.info("No heartbeat received within the timeout, disconnecting " + getNickname() + "...");
+            disconnect();
+        } else {
+            scheduleHeartbeatCheck(HEARTBEAT_TIMEOUT - silence);
+        }
     }
 
     /**
@@ -251,6 +249,14 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
         return connected;
     }
 
+    /**
+     * @return the last match state version the client applied before reconnecting, {@link Message#NO_STATE_VERSION} if
+     * it has no state to resume from
+     */
+    public long getLastStateVersion() {
+        return setup == null ? Message.NO_STATE_VERSION : setup.getLastStateVersion();
+    }
+
     /**
      * @return the nickname chosen by the player
      */
@@ -280,644 +286,268 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
     }
 
     /**
-     * Called after sending a question, this method waits on the input message queue until a message associated with
-     * the question and answer flow is available
-     *
-     * @param flowId the identifier of the question-and-answer flow
-     * @param options the options the client can choose from
-     * @param <T> the type of the item in the option collection
-     * @return the chosen option or null if no choice was made
-     * @throws ViewDisconnectedException if the client didn't give an answer within the available answering timeout
+     * @return the message protocol version to use with the client, the legacy one until the client has been initialized
      */
-    @Nullable
-    private  <T> T awaitResponse(String flowId, Collection<T> options) {
-
-        if (!connected) {
-            throw new ViewDisconnectedException("Unable to retrieve input message, view is not connected");
-        }
-
-        try {
-            Message response = inputMessageQueue.dequeueAnswer(flowId, answerTimeout, answerTimeoutUnit);
-            Answer<T> answer = gson.fromJson(response.getPayload(), new AnswerOf<>(options.iterator().next().getClass()));
-
-            return options.stream().filter(option -> option.equals(answer.getChoice())).findAny().orElse(null);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            disconnect();
-            throw new ViewDisconnectedException("Unable to retrieve input message", e);
-        } catch (TimeoutException e) {
-            disconnect();
-            throw new ViewDisconnectedException("Unable to retrieve input message", e);
-        }
+    public int getProtocolVersion() {
+        return setup == null ? Message.LEGACY_PROTOCOL_VERSION : Math.min(Message.PROTOCOL_VERSION, setup.getProtocolVersion());
     }
 
     /**
-     * Set the connection status to false and notify all the listeners
+     * @return the number of messages waiting to be sent
      */
-    private void disconnect() {
-        if (connected) {
-            logger.warning("Player " + getNickname() + " disconnected");
-            this.connected = false;
-            notifyViewDisconnected();
-        }
+    public int getOutputQueueDepth() {
+        return outputMessageQueue.size();
     }
 
     /**
-     * Sends a question message to the client view and wait for the response
-     *
-     * @param questionText the question to show to the user
-     * @param options a collection of options to choose from
-     * @param messageName the name which identifies the type of message that is been sent
-     * @param <T> the type of the item in the option collection
-     * @return the chosen answer
-     * @throws IllegalArgumentException if the an empty collection was provided for the "options" parameter
+     * @return the number of match events removed from the output queue because a newer one superseded them
      */
-    @Override
-    public <T> T select(String questionText, Collection<T> options, ClientApi messageName) {
-        if (!options.isEmpty()) {
-
-            Message message = Message.createQuestion(messageName, new Question<>(questionText, options));
-
-            outputMessageQueue.add(message);
-
-            try {
-                return awaitResponse(message.getFlowId(), options);
-            } catch (ViewDisconnectedException e) {
-                return options.iterator().next(); // Fake response
-            }
-        } else {
-            throw new IllegalArgumentException("No option provided");
-        }
+    public long getCoalescedEventCount() {
+        return outputMessageQueue.getCoalescedEventCount();
     }
 
     /**
-     * Sends a question message to the client view and wait for the response that can be empty
-     *
-     * @param questionText the question to show to the user
-     * @param options a collection of options to choose from
-     * @param messageName the name which identifies the type of message that is been sent
-     * @param <T> the type of the item in the option collection
-     * @return the chosen answer or an empty optional
-     * @throws IllegalArgumentException if the an empty collection was provided for the "options" parameter
+     * @return the number of match events dropped because the output queue was full
      */
-    @Override
-    public <T> Optional<T> selectOptional(String questionText, Collection<T> options, ClientApi messageName) {
-        if (!options.isEmpty()) {
-            Message message = Message.createQuestion(messageName, new Question<>(questionText, options, true));
-            outputMessageQueue.add(message);
-
-            try {
-                return Optional.ofNullable(awaitResponse(message.getFlowId(), options));
-            } catch (ViewDisconnectedException e) {
-                return Optional.empty(); // Fake response
-            }
-        } else {
-            throw new IllegalArgumentException("No option provided");
-        }
+    public long getDroppedEventCount() {
+        return outputMessageQueue.getDroppedEventCount();
     }
 
     /**
-     * Maps the wallet of a Player of the Model to the appropriate data transfer object
-     *
-     * @param player the Player Model object
-     * @return the Wallet data transfer object
+     * @return the number of snapshots sent because the output queue was full
      */
-    private Wallet mapWallets(Player player) {
-        List<CurrencyColor> ammoCubes = player.getAmmoCubes().stream().map(AmmoCube::getColor).collect(Collectors.toList());
-
-        List<Powerup> powerups = player.getPowerups().stream().map(p -> new Powerup(p.getName(), p.getColor())).collect(Collectors.toList());
-
-        List<String> unloadedWeapons = player.getWeapons()
-                .stream()
-                .map(WeaponTile::getName)
-                .collect(Collectors.toList());
-        List<String> loadedWeapons = player.getWeapons()
-                .stream()
-                .filter(WeaponTile::isLoaded)
-                .map(WeaponTile::getName)
-                .collect(Collectors.toList());
-        unloadedWeapons.removeAll(loadedWeapons);
-
-        return new Wallet(loadedWeapons, unloadedWeapons, ammoCubes, powerups);
+    public long getResyncCount() {
+        return outputMessageQueue.getResyncCount();
     }
 
     /**
-     * Maps a Player into the relative data transfer object
-     *
-     * @param player the Player Model object
-     * @return the Player data transfer object
-     */
-    private it.polimi.ingsw.shared.datatransferobjects.Player mapPlayer(Player player) {
-        return new it.polimi.ingsw.shared.datatransferobjects.Player(
-                player.getPlayerInfo().getNickname(),
-                player.getPlayerInfo().getColor(),
-                mapWallets(player),
-                mapPlayerHealth(player),
-                player.isTileFlipped(),
-                player.isBoardFlipped()
-        );
-    }
-
-    /**
-     * Maps the health of a Player of the Model to the appropriate data transfer object
-     *
-     * @param player the Player Model object
-     * @return the PlayerHealth data transfer object
+     * @return true if some match events were dropped and the client has read enough to receive a snapshot
      */
-    private PlayerHealth mapPlayerHealth(Player player) {
-
-        return new PlayerHealth(
-                player.getSkulls(),
-                player.getDamageTokens().stream().map(t -> t.getAttacker().getPlayerInfo().getColor()).collect(Collectors.toList()),
-                player.getMarks().stream().map(m -> m.getAttacker().getPlayerInfo().getColor()).collect(Collectors.toList())
-        );
+    boolean isResyncDue() {
+        return outputMessageQueue.isResyncDue();
     }
 
     /**
-     * Closes this object and stops the background threads execution
+     * Sends a snapshot of the match to a client whose match events were dropped
      *
-     * @throws Exception if the closing process is forced to stop or the remote resources are unable to correctly close or the socket cannot be closed
+     * @param match the match
+     * @param stateVersion the version of the match state the snapshot represents
      */
-    @Override
-    public void close() throws Exception {
-
-        disconnect();
-
-        java.time.Instant deadline = Instant.now().plus(Duration.ofMillis(CLOSE_TIMEOUT_MILLISECONDS));
-
-        while (
-                deadline.isAfter(Instant.now())
-                && !outputMessageQueue.isEmpty()
-        ) {
-            Thread.sleep(CLOSE_CHECK_DELAY);
-        }
-
-        synchronized (heartbeatThreadPool) {
-            heartbeatThreadPool.shutdown();
-        }
-        while (!heartbeatThreadPool.awaitTermination(5, TimeUnit.SECONDS)) {
-            logger.warning(getNickname() + ": heartbeatThreadPool hasn't shut down yet, waiting...");
-        }
-        synchronized (eventThreadPool) {
-            eventThreadPool.shutdown();
-        }
-        while (!eventThreadPool.awaitTermination(5, TimeUnit.SECONDS)) {
-            logger.warning(getNickname() + ": eventThreadPool hasn't shut down yet, waiting...");
-        }
+    void resync(Match match, long stateVersion) {
+        outputMessageQueue.resynced();
+        enqueueMatchInitializationEvent(match, true, stateVersion);
     }
 
     /**
-     * Enqueues a last message, then closes this object and stops the background threads execution
+     * Called after sending a question, this method returns a future completed when a message associated with the
+     * question and answer flow is received. The flow must have been registered before sending the question, its
+     * deadline is scheduled on the shared timer
      *
-     * @param lastMessage the last message to send
-     * @throws Exception if the closing process is forced to stop or the remote resources are unable to correctly close or the socket cannot be closed
-     */
-    public void close(Message lastMessage) throws Exception {
-        outputMessageQueue.add(lastMessage);
-        this.close();
-    }
-
-    /**
-     * Notifies the client that the match has started
-     * @param event the event corresponding to the beginning of the match
+     * @param flowId the identifier of the question-and-answer flow
+     * @param options the options the client can choose from
+     * @param <T> the type of the item in the option collection
+     * @return a future completed with the chosen option or null if no choice was made, completed exceptionally with a
+     * ViewDisconnectedException if the client didn't give an answer within the available answering timeout
      */
-    @Override
-    public void onMatchStarted(MatchEvent event) {
-        enqueueMatchInitializationEvent(event.getMatch(), false);
-    }
+    private <T> CompletableFuture<T> awaitResponse(long flowId, Collection<T> options) {
 
-    /**
-     * Enqueues a generic match initialization event
-     *
-     * @param match the match that was initialized
-     * @param resumed whether the match was resumed
-     */
-    private void enqueueMatchInitializationEvent(Match match, boolean resumed) {
-        List<Player> allPlayers = new LinkedList<>(match.getPlayers());
-        List<it.polimi.ingsw.shared.datatransferobjects.Player> opponentsVM = allPlayers
-                .stream()
-                .filter(o -> !o.getPlayerInfo().getNickname().equals(setup.getNickname()))
-                .map(this::mapPlayer)
-                .collect(Collectors.toList());
-        List<String> weaponTop = new LinkedList<>();
-        List<String> weaponLeft = new LinkedList<>();
-        List<String> weaponRight = new LinkedList<>();
-        for (CurrencyColor color : CurrencyColor.values()) {
-            SpawnpointBlock block = match.getBoard().getSpawnpoint(color);
-            List<String> weapons = block.getWeapons().stream().map(WeaponTile::getName).collect(Collectors.toList());
-            if (block.getRow() == 0) {
-                weaponTop = weapons;
-            } else if (block.getColumn() == 0) {
-                weaponLeft = weapons;
-            } else {
-                weaponRight = weapons;
-            }
-        }
-        if (resumed) {
-            int totalSkulls = match.getRemainingSkulls();
-            List<Integer> givenSkulls = match.getPlayers()
-                    .stream()
-                    .map(Player::getSkulls)
-                    .collect(Collectors.toList());
-            for (Integer s : givenSkulls) {
-                totalSkulls += s;
-            }
-            Map<PlayerColor, Point> playerLocations = match
-                    .getPlayers()
-                    .stream()
-                    .filter(p -> {
-                        try {
-                            p.getBlock();
-                            return true;
-                        }
-                        catch (IllegalStateException e) {
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toMap((
-                            p -> p.getPlayerInfo().getColor()),
-                            p -> new Point(p.getBlock().getColumn(), p.getBlock().getRow())
-                    ));
-            outputMessageQueue.add(Message.createEvent(
-                    ClientApi.MATCH_RESUMED_EVENT,
-                    new it.polimi.ingsw.shared.events.networkevents.MatchResumed(
-                            totalSkulls,
-                            match.getBoardPreset(),
-                            mapPlayer(player),
-                            opponentsVM,
-                            weaponTop,
-                            weaponRight,
-                            weaponLeft,
-                            mapPlayer(match.getActivePlayer()),
-                            mapTurretBonusTiles(match.getBoard()),
-                            match.getMode(),
-                            match.getKillshots().stream().map(k -> new Tuple<>(k.getDamageToken().getAttacker().getPlayerInfo().getColor(), k.isOverkill())).collect(Collectors.toList()),
-                            playerLocations
-                    )
-            ));
-        } else {
-            outputMessageQueue.add(Message.createEvent(
-                    ClientApi.MATCH_STARTED_EVENT,
-                    new it.polimi.ingsw.shared.events.networkevents.MatchStarted(
-                            match.getRemainingSkulls(),
-                            match.getBoardPreset(),
-                            mapPlayer(player),
-                            opponentsVM,
-                            weaponTop,
-                            weaponRight,
-                            weaponLeft,
-                            mapPlayer(match.getActivePlayer()),
-                            mapTurretBonusTiles(match.getBoard())
-                    )
-            ));
+        if (!connected) {
+            inputMessageQueue.cancelAnswer(flowId);
+            return CompletableFuture.failedFuture(new ViewDisconnectedException("Unable to retrieve input message, view is not connected"));
         }
-    }
-
-    /**
-     * Maps the content of the turrets of the model into the appropriate data transfer objects
-     *
-     * @param board the board containing the turrets
-     * @return a set with the data transfer object bonus tiles
-     */
-    private Set<BonusTile> mapTurretBonusTiles(Board board) {
-        return board.getTurretBlocks()
-                .stream()
-                .filter(block -> block.getBonusTile().isPresent())
-                .map(block ->
-                        new BonusTile(
-                                block.getBonusTile()
-                                        .orElseThrow(() -> new IllegalStateException("No bonus tile present on turret"))
-                                        .getRewards()
-                                        .stream()
-                                        .map(AmmoCube::getColor)
-                                        .collect(Collectors.toList()),
-                                new Point(block.getColumn(), block.getRow())
-                        )
-                )
-                .collect(Collectors.toSet());
-    }
-
-    /**
-     * Notifies the client that the match has ended
-     * @param event the event corresponding to the end of the match
-     */
-    @Override
-    public void onMatchEnded(MatchEnded event) {
-        it.polimi.ingsw.shared.events.networkevents.MatchEnded convertedEvent;
-        Map<Integer, List<it.polimi.ingsw.shared.datatransferobjects.Player>> mappedRankings = new HashMap<>();
-        event.getRankings().forEach((key, value) -> mappedRankings.put(key, value.stream().map(this::mapPlayer).collect(Collectors.toList())));
-        Map<String, Integer> scores = new HashMap<>();
-        event.getRankings()
-                .forEach((key, value) -> value.forEach(p -> scores.put(p.getPlayerInfo().getNickname(), p.getPoints())));
-        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.MatchEnded(mappedRankings, scores);
-        outputMessageQueue.add(Message.createEvent(ClientApi.MATCH_ENDED_EVENT, convertedEvent));
-    }
-
-    /**
-     * Notifies the client that the match mode has changed
-     *
-     * @param event the event corresponding to the match mode change
-     */
-    @Override
-    public void onMatchModeChanged(MatchModeChanged event) {
-        it.polimi.ingsw.shared.events.networkevents.MatchModeChanged convertedEvent = new it.polimi.ingsw.shared.events.networkevents.MatchModeChanged(event.getMode());
-        outputMessageQueue.add(Message.createEvent(ClientApi.MATCH_MODE_CHANGED_EVENT, convertedEvent));
-    }
-
-    /**
-     * Notifies the client that the killshot track changed
-     *
-     * @param e the event corresponding to the killshot track change
-     */
-    @Override
-    public void onKillshotTrackChanged(KillshotTrackChanged e) {
-        List<Tuple<PlayerColor, Boolean>> killshots = e.getKillshots().stream().map(k -> new Tuple<>(k.getDamageToken().getAttacker().getPlayerInfo().getColor(), k.isOverkill())).collect(Collectors.toList());
-        it.polimi.ingsw.shared.events.networkevents.KillshotTrackChanged convertedEvent = new it.polimi.ingsw.shared.events.networkevents.KillshotTrackChanged(killshots);
-        outputMessageQueue.add(Message.createEvent(ClientApi.MATCH_KILLSHOT_TRACK_CHANGED_EVENT, convertedEvent));
-    }
-
-    /**
-     * Notifies the client that a player died
-     *
-     * @param e the event corresponding to the player's death
-     */
-    @Override
-    public void onPlayerDied(PlayerDied e) {
-        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = mapPlayer(e.getVictim());
-        it.polimi.ingsw.shared.events.networkevents.PlayerEvent convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerEvent(playerVM);
-        outputMessageQueue.add(Message.createEvent(ClientApi.PLAYER_DIED_EVENT, convertedEvent));
-    }
 
-    /**
-     * Notifies the client that a player was damaged
-     *
-     * @param e this parameter contains info about the attacker and the damaged player
-     */
-    @Override
-    public void onPlayerDamaged(PlayerDamaged e) {
-        //View only cares about onPlayerHealthChanged
-    }
-
-    /**
-     * Notifies the client that a player was overkilled
-     *
-     * @param e the event corresponding to the player's death
-     */
-    @Override
-    public void onPlayerOverkilled(PlayerOverkilled e) {
-        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = mapPlayer(e.getVictim());
-        it.polimi.ingsw.shared.events.networkevents.PlayerEvent convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerEvent(playerVM);
-        outputMessageQueue.add(Message.createEvent(ClientApi.PLAYER_OVERKILLED_EVENT, convertedEvent));
-    }
-
-    /**
-     * Notifies the client that a player was brought back to life
-     *
-     * @param e the event corresponding to the player's rebirth
-     */
-    @Override
-    public void onPlayerReborn(PlayerEvent e) {
-        onBasicPlayerEvent(e, ClientApi.PLAYER_REBORN_EVENT);
-    }
+        CompletableFuture<Message> pendingAnswer = inputMessageQueue.expectAnswer(flowId);
+        HashedWheelTimer.Timeout deadline = ExecutorFactory.getTimer().newTimeout(
+                () -> inputMessageQueue.expireAnswer(flowId),
+                answerTimeout,
+                answerTimeoutUnit
+        );
+        return pendingAnswer.handle((response, error) -> {
+            deadline.cancel();
+            inputMessageQueue.cancelAnswer(flowId);
+            if (error != null) {
+                disconnect();
+                throw new ViewDisconnectedException("Unable to retrieve input message", error);
+            }
+            Answer<T> answer = gson.fromJson(response.getPayload(), new AnswerOf<>(options.iterator().next().getClass()));
 
-    /**
-     * Notifies the client that a player's board flipped
-     *
-     * @param e the event corresponding to the player's board flipping
-     */
-    @Override
-    public void onPlayerBoardFlipped(PlayerEvent e) {
-        onBasicPlayerEvent(e, ClientApi.PLAYER_BOARD_FLIPPED_EVENT);
+            return options.stream().filter(option -> option.equals(answer.getChoice())).findAny().orElse(null);
+        });
     }
 
-
     /**
-     * Notifies the client that a player's tile flipped
+     * Replaces the failure of a question caused by the disconnection of the view with a fake response
      *
-     * @param e the event corresponding to the player's tile flipping
+     * @param response the future of the response
+     * @param fakeResponse the response to use if the view has been disconnected
+     * @param <T> the type of the response
+     * @return a future completed with the response or with the fake one
      */
-    @Override
-    public void onPlayerTileFlipped(PlayerEvent e) {
-        onBasicPlayerEvent(e, ClientApi.PLAYER_TILE_FLIPPED_EVENT);
+    private static <T> CompletableFuture<T> orIfDisconnected(CompletableFuture<T> response, T fakeResponse) {
+        return response.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof ViewDisconnectedException) {
+                return fakeResponse;
+            }
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        });
     }
 
     /**
-     * Notifies the client that a weapon was reloaded
-     *
-     * @param e the event corresponding to the player reloading a weapon
+     * @return the frame format supported by the client: binary if the client asked for it and uses the same dictionary,
+     * JSON of the client protocol version otherwise
      */
-    @Override
-    public void onWeaponReloaded(PlayerWeaponEvent e) {
-        it.polimi.ingsw.shared.events.networkevents.PlayerWeaponEvent convertedEvent;
-        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = mapPlayer(e.getPlayer());
-        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerWeaponEvent(playerVM, playerVM.getNickname() + " reloaded their " + e.getWeaponTile().getName());
-        outputMessageQueue.add(Message.createEvent(ClientApi.WEAPON_RELOADED_EVENT, convertedEvent));
+    protected FrameFormat getFrameFormat() {
+        if (setup != null && setup.getBinaryCodecFingerprint() == BinaryMessageCodec.FINGERPRINT) {
+            return FrameFormat.BINARY;
+        }
+        return getProtocolVersion() >= Message.PROTOCOL_VERSION ? FrameFormat.JSON : FrameFormat.LEGACY_JSON;
     }
 
     /**
-     * Notifies the client that a weapon was unloaded
-     *
-     * @param e the event corresponding to the player unloading a weapon
+     * @return true if the client asked for compressed frames and uses the same compression dictionary
      */
-    @Override
-    public void onWeaponUnloaded(PlayerWeaponEvent e) {
-        it.polimi.ingsw.shared.events.networkevents.PlayerWeaponEvent convertedEvent;
-        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = mapPlayer(e.getPlayer());
-        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerWeaponEvent(playerVM, playerVM.getNickname() + " unloaded their " + e.getWeaponTile().getName());
-        outputMessageQueue.add(Message.createEvent(ClientApi.WEAPON_UNLOADED_EVENT, convertedEvent));
-
+    protected boolean isCompressionNegotiated() {
+        return setup != null && setup.getCompressionFingerprint() == CompressionDictionary.FINGERPRINT;
     }
 
     /**
-     * Notifies the client that a weapon was picked
+     * Sends a message to the client enqueueing it into the output message queue
      *
-     * @param e the event corresponding to the player picking up a weapon
+     * @param message the message to send
      */
-    @Override
-    public void onWeaponPicked(WeaponExchanged e) {
-        PlayerWeaponExchanged convertedEvent;
-        convertedEvent = new PlayerWeaponExchanged(mapPlayer(e.getPlayer()), e.getWeaponTile().getName(), e.getBlock().getRow(), e.getBlock().getColumn());
-        outputMessageQueue.add(Message.createEvent(ClientApi.WEAPON_PICKED_EVENT, convertedEvent));
-
+    protected void sendMessage(Message message) {
+        outputMessageQueue.add(message);
     }
 
     /**
-     * Notifies the client that a weapon was dropped
-     *
-     * @param e the event corresponding to the player dropping a weapon
+     * Set the connection status to false, stop waiting for the pending answers and notify all the listeners
      */
-    @Override
-    public void onWeaponDropped(WeaponExchanged e) {
-        PlayerWeaponExchanged convertedEvent;
-        convertedEvent = new PlayerWeaponExchanged(mapPlayer(e.getPlayer()), e.getWeaponTile().getName(), e.getBlock().getRow(), e.getBlock().getColumn());
-        outputMessageQueue.add(Message.createEvent(ClientApi.WEAPON_DROPPED_EVENT, convertedEvent));
+    protected synchronized void disconnect() {
+        if (connected) {
+            logger.warning("Player " + getNickname() + " disconnected");
+            this.connected = false;
+            if (heartbeatCheck != null) {
+                heartbeatCheck.cancel();
+            }
+            inputMessageQueue.cancelAllAnswers();
+            notifyViewDisconnected();
+        }
     }
 
     /**
-     * Notifies the client that a player's wallet has changed
+     * Sends a question message to the client view, the response is delivered asynchronously
      *
-     * @param e the event corresponding to the player's wallet changing
+     * @param questionText the question to show to the user
+     * @param options a collection of options to choose from
+     * @param messageName the name which identifies the type of message that is been sent
+     * @param <T> the type of the item in the option collection
+     * @return a future completed with the chosen answer
+     * @throws IllegalArgumentException if the an empty collection was provided for the "options" parameter
      */
     @Override
-    public void onWalletChanged(PlayerWalletChanged e) {
-        it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged convertedEvent;
-        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = mapPlayer(e.getPlayer());
-        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged(playerVM, playerVM.getNickname() + "'s wallet changed");
-        outputMessageQueue.add(Message.createEvent(ClientApi.PLAYER_WALLET_CHANGED_EVENT, convertedEvent));
-
-    }
+    public <T> CompletableFuture<T> selectAsync(String questionText, Collection<T> options, ClientApi messageName) {
+        if (!options.isEmpty()) {
 
-    /**
-     * Notifies the client that a player's health has changed
-     *
-     * @param e the event corresponding to the player's health changing
-     */
-    @Override
-    public void onHealthChanged(PlayerEvent e) {
-        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = mapPlayer(e.getPlayer());
-        PlayerHealthChanged convertedEvent = new PlayerHealthChanged(playerVM);
-        outputMessageQueue.add(Message.createEvent(ClientApi.PLAYER_HEALTH_CHANGED_EVENT, convertedEvent));
-    }
+            Message message = Message.createQuestion(messageName, new Question<>(questionText, options));
 
-    /**
-     * Notifies the client that a player teleported
-     *
-     * @param e the event corresponding to the player teleporting
-     */
-    @Override
-    public void onPlayerTeleported(PlayerMoved e) {
-        it.polimi.ingsw.shared.events.networkevents.PlayerMoved convertedEvent;
-        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerMoved(mapPlayer(e.getPlayer()), e.getDestination().getRow(), e.getDestination().getColumn());
-        outputMessageQueue.add(Message.createEvent(ClientApi.PLAYER_TELEPORTED_EVENT, convertedEvent));
-    }
+            inputMessageQueue.expectAnswer(message.getFlowId());
+            sendMessage(message);
 
-    /**
-     * Notifies the client that a player moved
-     *
-     * @param e the event corresponding to the player moving
-     */
-    @Override
-    public void onPlayerMoved(PlayerMoved e) {
-        it.polimi.ingsw.shared.events.networkevents.PlayerMoved convertedEvent;
-        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerMoved(mapPlayer(e.getPlayer()), e.getDestination().getRow(), e.getDestination().getColumn());
-        outputMessageQueue.add(Message.createEvent(ClientApi.PLAYER_MOVED_EVENT, convertedEvent));
+            return orIfDisconnected(awaitResponse(message.getFlowId(), options), options.iterator().next()); // Fake response
+        } else {
+            throw new IllegalArgumentException("No option provided");
+        }
     }
 
     /**
-     * Notifies the client that a new weapon is available
+     * Sends a question message to the client view, the response that can be empty is delivered asynchronously
      *
-     * @param e the event corresponding to a new weapon being available
+     * @param questionText the question to show to the user
+     * @param options a collection of options to choose from
+     * @param messageName the name which identifies the type of message that is been sent
+     * @param <T> the type of the item in the option collection
+     * @return a future completed with the chosen answer or an empty optional
+     * @throws IllegalArgumentException if the an empty collection was provided for the "options" parameter
      */
     @Override
-    public void onNewWeaponAvailable(NewWeaponAvailable e) {
-        WeaponEvent convertedEvent = new WeaponEvent(
-                e.getWeapon().getName(),
-                e.getBlock().getRow(),
-                e.getBlock().getColumn()
-        );
-        outputMessageQueue.add(Message.createEvent(ClientApi.NEW_WEAPON_AVAILABLE_EVENT, convertedEvent));
-    }
+    public <T> CompletableFuture<Optional<T>> selectOptionalAsync(String questionText, Collection<T> options, ClientApi messageName) {
+        if (!options.isEmpty()) {
+            Message message = Message.createQuestion(messageName, new Question<>(questionText, options, true));
+            inputMessageQueue.expectAnswer(message.getFlowId());
+            sendMessage(message);
 
-    /**
-     * Maps a BonusTile Model event to the appropriate network event
-     * @param e the model bonus tile event
-     * @return the converted event
-     */
-    private it.polimi.ingsw.shared.events.networkevents.BonusTileEvent mapBonusTileEvent(BonusTileBoardEvent e) {
-        return new it.polimi.ingsw.shared.events.networkevents.BonusTileEvent(
-                new BonusTile(
-                        ((TurretBlock)e.getLocation())
-                                .getBonusTile()
-                                .orElseThrow(() -> new IllegalStateException("No bonus tile present on turret"))
-                                .getRewards()
-                                .stream()
-                                .map(AmmoCube::getColor)
-                                .collect(Collectors.toList()),
-                        new Point(e.getLocation().getColumn(), e.getLocation().getRow())
-                )
-        );
+            return orIfDisconnected(awaitResponse(message.getFlowId(), options).thenApply(Optional::ofNullable), Optional.empty()); // Fake response
+        } else {
+            throw new IllegalArgumentException("No option provided");
+        }
     }
 
     /**
-     * Notifies the client that a bonus tile was grabbed
+     * Closes this object, waiting for the output queue to get empty within the close timeout
      *
-     * @param e the event corresponding to a bonus tile being grabbed
+     * @throws Exception if the closing process is forced to stop or the remote resources are unable to correctly close or the socket cannot be closed
      */
     @Override
-    public void onBonusTileGrabbed(BonusTileBoardEvent e) {
-        it.polimi.ingsw.shared.events.networkevents.BonusTileEvent convertedEvent = mapBonusTileEvent(e);
-        outputMessageQueue.add(Message.createEvent(ClientApi.BONUS_TILE_GRABBED_EVENT, convertedEvent));
-    }
+    public void close() throws Exception {
 
-    /**
-     * Notifies the client that a bonus tile was dropped
-     *
-     * @param e the event corresponding to a bonus tile being dropped
-     */
-    @Override
-    public void onBonusTileDropped(BonusTileBoardEvent e) {
-        it.polimi.ingsw.shared.events.networkevents.BonusTileEvent convertedEvent = mapBonusTileEvent(e);
-        outputMessageQueue.add(Message.createEvent(ClientApi.BONUS_TILE_DROPPED_EVENT, convertedEvent));
-    }
+        disconnect();
 
-    /**
-     * Notifies the client that a powerup was discarded
-     *
-     * @param e the event corresponding to the player discarding a powerup
-     */
-    @Override
-    public void onPowerupDiscarded(PowerupExchange e){
-        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = mapPlayer(e.getPlayer());
-        it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged convertedEvent;
-        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged(playerVM, "Powerup " + e.getPowerupTile().getColor().toString().toLowerCase() + " " + e.getPowerupTile().getName() + " was discarded");
-        outputMessageQueue.add(Message.createEvent(ClientApi.PLAYER_WALLET_CHANGED_EVENT, convertedEvent));
-    }
+        CompletableFuture<Void> drained = new CompletableFuture<>();
+        checkOutputDrained(drained, Instant.now().plusMillis(CLOSE_TIMEOUT_MILLISECONDS));
+        drained.get();
 
-    /**
-     * Notifies the client that a powerup was grabbed
-     *
-     * @param e the event corresponding to the player grabbing a powerup
-     */
-    @Override
-    public void onPowerupGrabbed(PowerupExchange e){
-        it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged convertedEvent;
-        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = mapPlayer(e.getPlayer());
-        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerWalletChanged(playerVM, playerVM.getNickname() + " grabbed a " + e.getPowerupTile().getColor().toString().toLowerCase() + " " + e.getPowerupTile().getName());
-        outputMessageQueue.add(Message.createEvent(ClientApi.PLAYER_WALLET_CHANGED_EVENT, convertedEvent));
+        if (inputMessageQueue.getDroppedAnswerCount() > 0) {
+            logger.info(getNickname() + ": " + inputMessageQueue.getDroppedAnswerCount() + " late or unknown answers dropped");
+        }
+        if (getCoalescedEventCount() > 0 || getDroppedEventCount() > 0) {
+            logger.info(getNickname() + ": " + getCoalescedEventCount() + " events coalesced, " + getDroppedEventCount() + " events dropped, " + getResyncCount() + " snapshots sent");
+        }
     }
 
     /**
-     * Notifies the client that a spawnpoint was chosen by a player
+     * Completes the given future once the output queue is empty or the deadline has passed, checking it periodically
+     * on the shared timer
      *
-     * @param e the event corresponding to the player choosing a spawnpoint
+     * @param drained the future to complete
+     * @param deadline the instant after which the view stops waiting for the queue to get empty
      */
-    @Override
-    public void onSpawnpointChosen(SpawnpointChoiceEvent e){
-        it.polimi.ingsw.shared.events.networkevents.PlayerSpawned convertedEvent;
-        convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerSpawned(mapPlayer(e.getPlayer()), e.getDestination().getRow(), e.getDestination().getColumn());
-        outputMessageQueue.add(Message.createEvent(ClientApi.PLAYER_SPAWNED_EVENT, convertedEvent));
+    private void checkOutputDrained(CompletableFuture<Void> drained, Instant deadline) {
+        if (outputMessageQueue.isEmpty() || !deadline.isAfter(Instant.now())) {
+            drained.complete(null);
+        } else {
+            ExecutorFactory.getTimer().newTimeout(
+                    () -> checkOutputDrained(drained, deadline),
+                    CLOSE_CHECK_DELAY,
+                    TimeUnit.MILLISECONDS
+            );
+        }
     }
 
     /**
-     * Notifies the client that the active player changed
+     * Enqueues a last message, then closes this object and stops the background threads execution
      *
-     * @param e the event corresponding to the changing of the turn
+     * @param lastMessage the last message to send
+     * @throws Exception if the closing process is forced to stop or the remote resources are unable to correctly close or the socket cannot be closed
      */
-    @Override
-    public void onActivePlayerChanged(PlayerEvent e) {
-        onBasicPlayerEvent(e, ClientApi.ACTIVE_PLAYER_CHANGED_EVENT);
+    public void close(Message lastMessage) throws Exception {
+        sendMessage(lastMessage);
+        this.close();
     }
 
     /**
-     * Generic method to convert PlayerEvents from the model into the appropriate network events
+     * Enqueues a generic match initialization event. The event is specific to each client, so it is not broadcast
      *
-     * @param e the model event
-     * @param type the type of event
+     * @param match the match that was initialized
+     * @param resumed whether the match was resumed
+     * @param stateVersion the version of the match state the event represents
      */
-    private void onBasicPlayerEvent(PlayerEvent e, ClientApi type) {
-        it.polimi.ingsw.shared.datatransferobjects.Player playerVM = mapPlayer(e.getPlayer());
-        it.polimi.ingsw.shared.events.networkevents.PlayerEvent convertedEvent = new it.polimi.ingsw.shared.events.networkevents.PlayerEvent(playerVM);
-        outputMessageQueue.add(Message.createEvent(type, convertedEvent));
+    void enqueueMatchInitializationEvent(Match match, boolean resumed, long stateVersion) {
+        if (resumed) {
+            sendMessage(Message.createEvent(ClientApi.MATCH_RESUMED_EVENT, ModelMapper.mapMatchResumed(match, player), stateVersion));
+        } else {
+            sendMessage(Message.createEvent(ClientApi.MATCH_STARTED_EVENT, ModelMapper.mapMatchStarted(match, player), stateVersion));
+        }
     }
 
     /**
@@ -963,23 +593,11 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
     }
 
     /**
-     * Sets ready status to null
+     * Sets the view as ready, notifying the listeners and the client
      */
     public void setReady() {
-        setReady(null);
-    }
-
-    /**
-     * Sets the ready status to the given value
-     *
-     * @param resumedMatch the new ready status value
-     */
-    public void setReady(@Nullable Match resumedMatch) {
         notifyViewReady();
         onViewReady(new ViewEvent(this));
-        if (resumedMatch != null) {
-            enqueueMatchInitializationEvent(resumedMatch, true);
-        }
     }
 
     /**
@@ -991,7 +609,7 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
         synchronized (listeners) {
             listeners.remove(e.getView()); // Cleaning up, there's no interest for further communications from disconnected views
         }
-        outputMessageQueue.add(
+        sendMessage(
                 Message.createEvent(
                         ClientApi.CLIENT_DISCONNECTED_EVENT,
                         new it.polimi.ingsw.shared.events.networkevents.ClientEvent(e.getView().getNickname())
@@ -1005,6 +623,6 @@ public abstract class View implements Interviewer, AutoCloseable, MatchListener,
      */
     @Override
     public void onViewReady(ViewEvent e) {
-        outputMessageQueue.add(Message.createEvent(ClientApi.LOGIN_SUCCESS_EVENT, new ClientEvent(e.getView().getNickname())));
+        sendMessage(Message.createEvent(ClientApi.LOGIN_SUCCESS_EVENT, new ClientEvent(e.getView().getNickname())));
     }
 }
@@ -0,0 +1,43 @@
+package it.polimi.ingsw.server.view.local;
+
+import it.polimi.ingsw.server.view.OutputMessageQueue;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.shared.messages.Message;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process implementation of the server-side View. The client runs in the same JVM of the server and exchanges the
+ * Message objects with this view directly through its queues, so no serialization is involved
+ */
+public class LocalView extends View {
+
+    /**
+     * Constructs a local view
+     *
+     * @param answerTimeout maximum timeout before considering the view disconnected
+     * @param answerTimeoutUnit measurement unit of the timeout
+     * @param outputMessageQueue the queue which will store the output messages
+     */
+    public LocalView(int answerTimeout, TimeUnit answerTimeoutUnit, OutputMessageQueue outputMessageQueue) {
+        super(answerTimeout, answerTimeoutUnit, outputMessageQueue);
+    }
+
+    /**
+     * @return the queue of the messages waiting to be read by the client
+     */
+    public BlockingQueue<Message> getOutputMessageQueue() {
+        return outputMessageQueue;
+    }
+
+    /**
+     * Hands a message sent by the client to this view
+     *
+     * @param message the received message
+     */
+    @Override
+    public void receiveMessage(Message message) {
+        super.receiveMessage(message);
+    }
+}
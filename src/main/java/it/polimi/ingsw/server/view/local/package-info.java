@@ -0,0 +1,7 @@
+/**
+ * Package grouping the entities that connect the clients running in the same JVM of the server
+ */
+@ParametersAreNonnullByDefault
+package it.polimi.ingsw.server.view.local;
+
+import javax.annotation.ParametersAreNonnullByDefault;
@@ -0,0 +1,352 @@
+package it.polimi.ingsw.server.view.remote;
+
+import it.polimi.ingsw.server.view.OutputMessageQueue;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.shared.messages.Message;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * A socket connection carrying many player sessions. Every frame is prefixed by its length and by the identifier of
+ * the session it belongs to, the first frame of a new session identifier opens the session and creates its view, while
+ * an empty frame closes it. The output of the sessions is written in turns, each session writing a limited number of
+ * messages per turn, so that a busy session cannot starve the other ones on the same connection
+ */
+public class MultiplexedConnection implements SelectorLoop.ChannelHandler {
+
+    /**
+     * Size of the length and session prefix of each frame
+     */
+    private static final int FRAME_HEADER_SIZE = 2 * Integer.BYTES;
+
+    /**
+     * Initial size of the read buffer, it grows if a bigger frame is received
+     */
+    private static final int INITIAL_READ_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Frames bigger than this limit are considered malformed and cause the connection to be closed
+     */
+    private static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Maximum number of encoded frames waiting for the channel, the other messages stay in the output message queues
+     * of the sessions
+     */
+    private static final int MAX_PENDING_FRAMES = 64;
+
+    /**
+     * Maximum number of messages a session writes in its turn
+     */
+    private static final int SESSION_QUANTUM = 4;
+
+    /**
+     * Maximum number of sessions a single connection can open
+     */
+    private static final int MAX_SESSIONS = 256;
+
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The client channel
+     */
+    private final SocketChannel channel;
+
+    /**
+     * The IO loop serving the channel
+     */
+    private final SelectorLoop loop;
+
+    /**
+     * The answer timeout of the session views
+     */
+    private final int answerTimeout;
+
+    /**
+     * The measurement unit of the answer timeout
+     */
+    private final TimeUnit answerTimeoutUnit;
+
+    /**
+     * Creates the output message queue of each new session
+     */
+    private final Supplier<OutputMessageQueue> outputQueueSupplier;
+
+    /**
+     * Receives the view of each new session
+     */
+    private final Consumer<View> sessionListener;
+
+    /**
+     * The open sessions, identified by the id chosen by the client
+     */
+    private final Map<Integer, MultiplexedSessionView> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * The selection key of the channel, available once the loop registered it
+     */
+    private SelectionKey key;
+
+    /**
+     * Buffer accumulating the bytes read from the channel until a complete frame is available
+     */
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+
+    /**
+     * Encoded frames waiting for the channel to be writable
+     */
+    private final Deque<ByteBuffer> pendingFrames = new ConcurrentLinkedDeque<>();
+
+    /**
+     * True if a flush of the session queues has already been requested to the loop
+     */
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+    /**
+     * Index of the session that starts the next round of turns
+     */
+    private int nextTurn = 0;
+
+    /**
+     * Constructs a multiplexed connection and registers its channel with the given loop
+     *
+     * @param channel the accepted client channel
+     * @param loop the IO loop that will serve the channel
+     * @param answerTimeout maximum timeout before considering a session view disconnected
+     * @param answerTimeoutUnit measurement unit of the timeout
+     * @param outputQueueSupplier creates the output message queue of each new session
+     * @param sessionListener receives the view of each new session
+     * @throws IOException if the channel cannot be configured as non-blocking
+     */
+    public MultiplexedConnection(SocketChannel channel, SelectorLoop loop, int answerTimeout, TimeUnit answerTimeoutUnit, Supplier<OutputMessageQueue> outputQueueSupplier, Consumer<View> sessionListener) throws IOException {
+        this.channel = channel;
+        this.loop = loop;
+        this.answerTimeout = answerTimeout;
+        this.answerTimeoutUnit = answerTimeoutUnit;
+        this.outputQueueSupplier = outputQueueSupplier;
+        this.sessionListener = sessionListener;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        loop.register(channel, SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * Stores the selection key assigned by the loop and flushes the messages enqueued in the meantime
+     *
+     * @param key the selection key of the channel
+     */
+    @Override
+    public void onRegistered(SelectionKey key) {
+        this.key = key;
+        flush();
+    }
+
+    /**
+     * Reads or writes the channel depending on its readiness
+     *
+     * @param key the selection key of the channel
+     * @throws IOException if the channel cannot be read or written
+     */
+    @Override
+    public void onReady(SelectionKey key) throws IOException {
+        if (key.isReadable()) {
+            read();
+        }
+        if (key.isValid() && key.isWritable()) {
+            write();
+        }
+    }
+
+    /**
+     * Forgets the sessions, their views will be disconnected once their heartbeat expires
+     */
+    @Override
+    public void onClosed() {
+        logger.info("Multiplexed connection closed with " + sessions.size() + " open sessions");
+        sessions.clear();
+    }
+
+    /**
+     * @return the number of open sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Asks the loop to write the output messages of the sessions
+     */
+    void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            loop.execute(this::flush);
+        }
+    }
+
+    /**
+     * Closes a session, telling the client with an empty frame
+     *
+     * @param sessionId the identifier of the session
+     */
+    void closeSession(int sessionId) {
+        loop.execute(() -> {
+            if (sessions.remove(sessionId) != null) {
+                pendingFrames.add(frame(sessionId, new byte[0]));
+                flush();
+            }
+        });
+    }
+
+    /**
+     * Reads the available bytes and hands every complete frame to the view of its session
+     *
+     * @throws IOException if the channel reached the end of the stream or a malformed frame was received
+     */
+    private void read() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new IOException("End of stream reached");
+        }
+        readBuffer.flip();
+        while (readBuffer.remaining() >= FRAME_HEADER_SIZE) {
+            int frameSize = readBuffer.getInt(readBuffer.position());
+            if (frameSize < 0 || frameSize > MAX_FRAME_SIZE) {
+                throw new IOException("Malformed frame of " + frameSize + " bytes");
+            }
+            if (readBuffer.remaining() < FRAME_HEADER_SIZE + frameSize) {
+                break;
+            }
+            readBuffer.position(readBuffer.position() + Integer.BYTES);
+            int sessionId = readBuffer.getInt();
+            byte[] content = new byte[frameSize];
+            readBuffer.get(content);
+            if (frameSize == 0) {
+                MultiplexedSessionView closed = sessions.remove(sessionId);
+                if (closed != null) {
+                    closed.onSessionClosed();
+                }
+            } else {
+                openSession(sessionId).receiveFrame(content);
+            }
+        }
+        readBuffer.compact();
+        if (!readBuffer.hasRemaining()) {
+            ByteBuffer biggerBuffer = ByteBuffer.allocate(readBuffer.capacity() * 2);
+            readBuffer.flip();
+            biggerBuffer.put(readBuffer);
+            readBuffer = biggerBuffer;
+        }
+    }
+
+    /**
+     * Returns the view of a session, opening the session if it is new
+     *
+     * @param sessionId the identifier of the session
+     * @return the view of the session
+     * @throws IOException if the connection cannot open other sessions
+     */
+    private MultiplexedSessionView openSession(int sessionId) throws IOException {
+        MultiplexedSessionView session = sessions.get(sessionId);
+        if (session == null) {
+            if (sessions.size() >= MAX_SESSIONS) {
+                throw new IOException("Too many sessions on a single connection");
+            }
+            session = new MultiplexedSessionView(this, sessionId, answerTimeout, answerTimeoutUnit, outputQueueSupplier.get());
+            sessions.put(sessionId, session);
+            sessionListener.accept(session);
+        }
+        return session;
+    }
+
+    /**
+     * Writes the output messages of the sessions. Executed by the loop thread
+     */
+    private void flush() {
+        flushRequested.set(false);
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException e) {
+            logger.info("Unable to send data " + e);
+            loop.close(key);
+        }
+    }
+
+    /**
+     * Encodes the output messages of the sessions into frames, as long as few frames are waiting for the channel. The
+     * sessions take turns writing at most SESSION_QUANTUM messages each, and the session starting the rounds changes
+     * every time so that no session is always the first one
+     *
+     * @return true if some messages are left in the session queues
+     */
+    private boolean encode() {
+        List<MultiplexedSessionView> active = new ArrayList<>(sessions.values());
+        if (active.isEmpty()) {
+            return false;
+        }
+        int first = Math.floorMod(nextTurn++, active.size());
+        boolean written;
+        do {
+            written = false;
+            for (int i = 0; i < active.size() && pendingFrames.size() < MAX_PENDING_FRAMES; i++) {
+                MultiplexedSessionView session = active.get((first + i) % active.size());
+                Message message;
+                for (int sent = 0; sent < SESSION_QUANTUM && (message = session.pollOutput()) != null; sent++) {
+                    pendingFrames.add(frame(session.getSessionId(), session.encode(message)));
+                    written = true;
+                }
+            }
+        } while (written && pendingFrames.size() < MAX_PENDING_FRAMES);
+        return active.stream().anyMatch(MultiplexedSessionView::hasOutput);
+    }
+
+    /**
+     * Builds a frame of a session
+     *
+     * @param sessionId the identifier of the session
+     * @param content the content of the frame
+     * @return the frame, ready to be written
+     */
+    private static ByteBuffer frame(int sessionId, byte[] content) {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + content.length);
+        frame.putInt(content.length).putInt(sessionId).put(content).flip();
+        return frame;
+    }
+
+    /**
+     * Writes as many pending frames as the channel accepts with gathering writes, encoding more messages each time
+     * all the frames have been written, and subscribes to the writability notification if some are left
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    private void write() throws IOException {
+        boolean outputLeft;
+        do {
+            outputLeft = encode();
+            if (!pendingFrames.isEmpty()) {
+                channel.write(pendingFrames.toArray(new ByteBuffer[0]));
+            }
+            while (!pendingFrames.isEmpty() && !pendingFrames.peek().hasRemaining()) {
+                pendingFrames.remove();
+            }
+        } while (pendingFrames.isEmpty() && outputLeft);
+        key.interestOps(pendingFrames.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+}
@@ -0,0 +1,122 @@
+package it.polimi.ingsw.server.view.remote;
+
+import it.polimi.ingsw.server.view.OutputMessageQueue;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.shared.messages.Message;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side View of a player session carried by a multiplexed socket connection. The connection demultiplexes the
+ * frames of the session into this view and writes its output messages interleaved with the ones of the other sessions
+ */
+public class MultiplexedSessionView extends View {
+
+    /**
+     * The connection carrying the session
+     */
+    private final MultiplexedConnection connection;
+
+    /**
+     * The identifier of the session within its connection
+     */
+    private final int sessionId;
+
+    /**
+     * Constructs the view of a session
+     *
+     * @param connection the connection carrying the session
+     * @param sessionId the identifier of the session within its connection
+     * @param answerTimeout maximum timeout before considering the view disconnected
+     * @param answerTimeoutUnit measurement unit of the timeout
+     * @param outputMessageQueue the queue which will store the output messages
+     */
+    MultiplexedSessionView(MultiplexedConnection connection, int sessionId, int answerTimeout, TimeUnit answerTimeoutUnit, OutputMessageQueue outputMessageQueue) {
+        super(answerTimeout, answerTimeoutUnit, outputMessageQueue);
+        this.connection = connection;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * @return the identifier of the session within its connection
+     */
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Enqueues the message and asks the connection to write it
+     *
+     * @param message the message to send
+     */
+    @Override
+    protected void sendMessage(Message message) {
+        super.sendMessage(message);
+        connection.requestFlush();
+    }
+
+    /**
+     * Decodes a frame of the session and hands its message to this view
+     *
+     * @param frame the content of the frame
+     * @throws com.google.gson.JsonParseException if the frame is malformed or not in a format the client negotiated
+     */
+    void receiveFrame(byte[] frame) {
+        receiveMessage(decodeFrame(frame));
+    }
+
+    /**
+     * Hands a message of the session to this view
+     *
+     * @param message the received message
+     */
+    @Override
+    protected void receiveMessage(Message message) {
+        super.receiveMessage(message);
+    }
+
+    /**
+     * Takes the next message waiting to be written
+     *
+     * @return the next output message, null if there is none
+     */
+    Message pollOutput() {
+        return outputMessageQueue.poll();
+    }
+
+    /**
+     * @return true if some messages are waiting to be written
+     */
+    boolean hasOutput() {
+        return !outputMessageQueue.isEmpty();
+    }
+
+    /**
+     * Encodes a message in the frame format negotiated by the client of the session
+     *
+     * @param message the message to encode
+     * @return the content of the frame
+     */
+    byte[] encode(Message message) {
+        return message.toFrame(getFrameFormat());
+    }
+
+    /**
+     * Disconnects the view when its client closes the session
+     */
+    void onSessionClosed() {
+        disconnect();
+    }
+
+    /**
+     * Closes the view once its pending messages have been written, then closes the session leaving the connection
+     * open for the other sessions
+     *
+     * @throws Exception if the closing process is forced to stop
+     */
+    @Override
+    public void close() throws Exception {
+        super.close();
+        connection.closeSession(sessionId);
+    }
+}
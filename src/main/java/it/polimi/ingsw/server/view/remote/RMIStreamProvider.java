@@ -1,17 +1,24 @@
 package it.polimi.ingsw.server.view.remote;
 
+import it.polimi.ingsw.shared.messages.Message;
+
 import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
- * This class is used to instantiate the IDs of message proxies shared between
- * the client and the server
+ * This class is the single remote end point of the RMI clients. Each client obtains a session token when connecting
+ * and passes it to every call, which is routed to the RMIView of its session, so no remote object is exported or bound
+ * for each client
  *
  * @author Carlo Dell'Acqua
  */
@@ -21,10 +28,15 @@ public class RMIStreamProvider extends UnicastRemoteObject implements it.polimi.
      */
     private LinkedBlockingQueue<RMIView> rmiViews = new LinkedBlockingQueue<>();
 
+    /**
+     * The views of the open sessions, identified by their token
+     */
+    private final Map<String, RMIView> sessions = new ConcurrentHashMap<>();
+
     /**
      * A factory function which will generate RMIViews
      */
-    private Function<String, RMIView> rmiViewSupplier;
+    private Supplier<RMIView> rmiViewSupplier;
 
     /**
      * Constructs an RMIStreamProvider which will translate clients' connection requests into the instantiation of
@@ -33,7 +45,7 @@ public class RMIStreamProvider extends UnicastRemoteObject implements it.polimi.
      * @param rmiViewSupplier a factory function needed to generate RMIViews
      * @throws RemoteException if an exception regarding the RMI API occurs
      */
-    public RMIStreamProvider(Function<String, RMIView> rmiViewSupplier) throws RemoteException {
+    public RMIStreamProvider(Supplier<RMIView> rmiViewSupplier) throws RemoteException {
         super();
         this.rmiViewSupplier = rmiViewSupplier;
     }
@@ -57,12 +69,85 @@ public class RMIStreamProvider extends UnicastRemoteObject implements it.polimi.
     /**
      * Method called by the client who wants to connect to the server
      *
-     * @return a unique identifier of the message proxy that will enable the IO stream of messages
+     * @return the session token of the client
+     */
+    @Override
+    public String connect() {
+        String token = UUID.randomUUID().toString();
+        RMIView view = rmiViewSupplier.get();
+        view.setCloseCallback(() -> sessions.remove(token));
+        sessions.put(token, view);
+        rmiViews.add(view);
+        return token;
+    }
+
+    /**
+     * Method called by the client to receive all the messages waiting in the output queue of its view with a single
+     * remote call
+     *
+     * @param token the session token of the client
+     * @param max the maximum number of messages to return
+     * @param timeout a maximum timeout for the first message
+     * @param unit the time unit of the specified timeout
+     * @return the received messages
+     * @throws NoSuchObjectException if the session does not exist anymore
+     * @throws InterruptedException if the thread is forced to stop
+     * @throws TimeoutException if the maximum timeout has been reached without obtaining any message
+     */
+    @Override
+    public List<Message> receiveMessages(String token, int max, int timeout, TimeUnit unit) throws NoSuchObjectException, InterruptedException, TimeoutException {
+        RMIView view = getSession(token);
+        Message message = view.getOutputMessageQueue().poll(timeout, unit);
+        if (message == null) {
+            throw new TimeoutException("Poll timeout");
+        }
+        List<Message> messages = new ArrayList<>();
+        messages.add(message);
+        view.getOutputMessageQueue().drainTo(messages, max - 1);
+        return messages;
+    }
+
+    /**
+     * Method called by the client to send multiple messages handing them to its view
+     *
+     * @param token the session token of the client
+     * @param messages the messages the client want to send
+     * @throws NoSuchObjectException if the session does not exist anymore
+     */
+    @Override
+    public void sendMessages(String token, List<Message> messages) throws NoSuchObjectException {
+        RMIView view = getSession(token);
+        messages.forEach(view::receiveMessage);
+    }
+
+    /**
+     * Method called by the client to close its session, the view will be disconnected once its heartbeat expires
+     *
+     * @param token the session token of the client
+     */
+    @Override
+    public void disconnect(String token) {
+        sessions.remove(token);
+    }
+
+    /**
+     * @return the number of open sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @param token the session token of a client
+     * @return the view of the session
+     * @throws NoSuchObjectException if the session does not exist anymore
      */
-    public synchronized String connect() {
-        String id = UUID.randomUUID().toString();
-        rmiViews.add(rmiViewSupplier.apply(id));
-        return id;
+    private RMIView getSession(String token) throws NoSuchObjectException {
+        RMIView view = sessions.get(token);
+        if (view == null) {
+            throw new NoSuchObjectException("No session for the given token");
+        }
+        return view;
     }
 
     /**
@@ -72,6 +157,7 @@ public class RMIStreamProvider extends UnicastRemoteObject implements it.polimi.
      */
     @Override
     public void close() throws NoSuchObjectException {
+        sessions.clear();
         UnicastRemoteObject.unexportObject(this, true);
     }
 }
@@ -1,5 +1,6 @@
 package it.polimi.ingsw.server.view.remote;
 
+import it.polimi.ingsw.server.view.OutputMessageQueue;
 import it.polimi.ingsw.server.view.View;
 import it.polimi.ingsw.shared.InputMessageQueue;
 import it.polimi.ingsw.shared.messages.Message;
@@ -14,12 +15,16 @@ import java.util.concurrent.TimeUnit;
  */
 public class RMIView extends View {
 
-    private RMIMessageProxy messageProxy = null;
+    private Runnable closeCallback = null;
 
     public RMIView(int answerTimeout, TimeUnit answerTimeoutUnit) {
         super(answerTimeout, answerTimeoutUnit);
     }
 
+    public RMIView(int answerTimeout, TimeUnit answerTimeoutUnit, OutputMessageQueue outputMessageQueue) {
+        super(answerTimeout, answerTimeoutUnit, outputMessageQueue);
+    }
+
     public BlockingQueue<Message> getOutputMessageQueue() {
         return outputMessageQueue;
     }
@@ -28,15 +33,20 @@ public class RMIView extends View {
         return inputMessageQueue;
     }
 
-    public void setMessageProxy(RMIMessageProxy messageProxy) {
-        this.messageProxy = messageProxy;
+    public void setCloseCallback(Runnable closeCallback) {
+        this.closeCallback = closeCallback;
+    }
+
+    @Override
+    public void receiveMessage(Message message) {
+        super.receiveMessage(message);
     }
 
     @Override
     public void close() throws Exception {
         super.close();
-        if (messageProxy != null) {
-            messageProxy.close();
+        if (closeCallback != null) {
+            closeCallback.run();
         }
     }
 }
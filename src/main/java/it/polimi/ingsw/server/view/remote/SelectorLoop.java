@@ -0,0 +1,223 @@
+package it.polimi.ingsw.server.view.remote;
+
+import java.io.IOException;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+/**
+ * A single non-blocking IO thread built on a Selector. Every channel registered with this loop is served by the same
+ * thread, which dispatches the readiness notifications to the handler attached to the channel
+ */
+public class SelectorLoop implements Runnable, AutoCloseable {
+
+    /**
+     * Handler of the readiness notifications of a channel registered with the loop
+     */
+    public interface ChannelHandler {
+        /**
+         * Called by the loop thread once the channel has been registered
+         *
+         * @param key the selection key of the channel
+         */
+        default void onRegistered(SelectionKey key) {
+            // Most handlers receive their key along with each notification
+        }
+
+        /**
+         * Called by the loop thread when the channel is ready for at least one of the operations it is interested in
+         *
+         * @param key the selection key of the channel
+         * @throws IOException if the channel cannot be read or written
+         */
+        void onReady(SelectionKey key) throws IOException;
+
+        /**
+         * Called by the loop thread once the channel has been closed because of an error or because the loop stopped
+         */
+        void onClosed();
+    }
+
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The selector multiplexing all the channels of this loop
+     */
+    private final Selector selector;
+
+    /**
+     * Tasks submitted by other threads that need to be executed by the loop thread
+     */
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The thread running this loop
+     */
+    private final Thread thread;
+
+    /**
+     * Boolean indicating whether or not the close method has been invoked
+     */
+    private volatile boolean closing = false;
+
+    /**
+     * Constructs and starts a selector loop
+     *
+     * @param name the name of the IO thread
+     * @throws IOException if the selector cannot be opened
+     */
+    public SelectorLoop(String name) throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Registers a channel with this loop. The registration is performed asynchronously by the loop thread
+     *
+     * @param channel the channel to register, already configured as non-blocking
+     * @param interestOps the initial interest set
+     * @param handler the handler that will be notified of the channel readiness
+     */
+    public void register(SelectableChannel channel, int interestOps, ChannelHandler handler) {
+        execute(() -> {
+            try {
+                handler.onRegistered(channel.register(selector, interestOps, handler));
+            } catch (ClosedChannelException e) {
+                logger.warning("Unable to register a closed channel " + e);
+                handler.onClosed();
+            }
+        });
+    }
+
+    /**
+     * Submits a task that will be executed by the loop thread, waking it up if it is waiting for channels to be ready.
+     * The wakeup is needed even when called by the loop thread itself, otherwise the next select would block while the
+     * task is pending
+     *
+     * @param task the task to execute
+     */
+    public void execute(Runnable task) {
+        pendingTasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * @return true if the calling thread is the one running this loop
+     */
+    public boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Waits for channels to be ready and dispatches the notifications to their handlers
+     */
+    @Override
+    public void run() {
+        while (!closing) {
+            try {
+                selector.select();
+                runPendingTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    dispatch(key);
+                }
+            } catch (IOException e) {
+                logger.warning("Selector failure " + e);
+            } catch (ClosedSelectorException e) {
+                break;
+            }
+        }
+        closeAll();
+    }
+
+    /**
+     * Runs all the tasks submitted by the other threads, a failing task does not stop the loop
+     */
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                logger.severe("Loop task failed " + e);
+            }
+        }
+    }
+
+    /**
+     * Notifies the handler of a ready channel, closing the channel if the handler fails. Even an error thrown by the
+     * handler only closes its own channel, so the loop keeps serving the other ones
+     *
+     * @param key the selection key of the ready channel
+     */
+    private void dispatch(SelectionKey key) {
+        ChannelHandler handler = (ChannelHandler) key.attachment();
+        try {
+            if (key.isValid()) {
+                handler.onReady(key);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.info("Closing channel " + e);
+            close(key);
+        } catch (Error e) {
+            logger.severe("Closing channel after an error of its handler " + e);
+            close(key);
+        }
+    }
+
+    /**
+     * Cancels the key, closes its channel and notifies the handler
+     *
+     * @param key the selection key of the channel to close
+     */
+    public void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            logger.warning("Unable to close channel " + e);
+        }
+        try {
+            ((ChannelHandler) key.attachment()).onClosed();
+        } catch (RuntimeException | Error e) {
+            logger.severe("Channel handler failed while closing " + e);
+        }
+    }
+
+    /**
+     * Closes all the channels still registered with this loop
+     */
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            selector.close();
+        } catch (IOException | ClosedSelectorException e) {
+            logger.warning("Unable to close the selector " + e);
+        }
+    }
+
+    /**
+     * Stops the loop and closes all the registered channels
+     *
+     * @throws InterruptedException if the thread is forced to stop while waiting for the loop to terminate
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closing = true;
+        selector.wakeup();
+        if (!inLoop()) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package it.polimi.ingsw.server.view.remote;
+
+import it.polimi.ingsw.server.view.OutputMessageQueue;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.shared.messages.FrameDeflater;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Socket based implementation of the server-side View. The channel is non-blocking and it is served by a SelectorLoop
+ * shared with other views, which decodes the length-prefixed frames into the input message queue and drains the output
+ * message queue when the channel is writable
+ */
+public class SocketChannelView extends View implements SelectorLoop.ChannelHandler {
+
+    /**
+     * Maximum time to wait for the pending frames to be written before closing the channel
+     */
+    private static final long LAST_MESSAGE_TIMEOUT = 5000;
+
+    /**
+     * Delay between checks of the pending frames while closing
+     */
+    private static final long LAST_MESSAGE_CHECK_DELAY = LAST_MESSAGE_TIMEOUT / 50;
+
+    /**
+     * Size of the length prefix of each frame
+     */
+    private static final int FRAME_HEADER_SIZE = Integer.BYTES;
+
+    /**
+     * Initial size of the read buffer, it grows if a bigger frame is received
+     */
+    private static final int INITIAL_READ_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Frames bigger than this limit are considered malformed and cause the channel to be closed
+     */
+    private static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Maximum number of encoded frames waiting for the channel, the other messages stay in the output message queue
+     * where the slow clients are handled
+     */
+    private static final int MAX_PENDING_FRAMES = 64;
+
+    /**
+     * The client channel
+     */
+    private final SocketChannel channel;
+
+    /**
+     * The IO loop serving the channel
+     */
+    private final SelectorLoop loop;
+
+    /**
+     * The selection key of the channel, available once the loop registered it
+     */
+    private SelectionKey key;
+
+    /**
+     * Buffer accumulating the bytes read from the channel until a complete frame is available
+     */
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+
+    /**
+     * Encoded frames waiting for the channel to be writable
+     */
+    private final Deque<ByteBuffer> pendingFrames = new ConcurrentLinkedDeque<>();
+
+    /**
+     * True if a flush of the output message queue has already been requested to the loop
+     */
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+    /**
+     * True once the channel has been closed
+     */
+    private volatile boolean channelClosed = false;
+
+    /**
+     * The minimum size in bytes of a frame to be compressed
+     */
+    private final int compressionThreshold;
+
+    /**
+     * The compression stream of the connection, created once the client negotiated the compression
+     */
+    private FrameDeflater deflater;
+
+    /**
+     * Constructs a socket view and registers its channel with the given loop
+     *
+     * @param channel the accepted client channel
+     * @param loop the IO loop that will serve the channel
+     * @param answerTimeout maximum timeout before considering the view disconnected
+     * @param answerTimeoutUnit measurement unit of the timeout
+     * @param compressionThreshold the minimum size in bytes of a frame to be compressed if the client asked for it
+     * @param outputMessageQueue the queue which will store the output messages
+     * @throws IOException if the channel cannot be configured as non-blocking
+     */
+    public SocketChannelView(SocketChannel channel, SelectorLoop loop, int answerTimeout, TimeUnit answerTimeoutUnit, int compressionThreshold, OutputMessageQueue outputMessageQueue) throws IOException {
+        super(answerTimeout, answerTimeoutUnit, outputMessageQueue);
+        this.channel = channel;
+        this.loop = loop;
+        this.compressionThreshold = compressionThreshold;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        loop.register(channel, SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * Enqueues the message and asks the loop to drain the output message queue
+     *
+     * @param message the message to send
+     */
+    @Override
+    protected void sendMessage(Message message) {
+        super.sendMessage(message);
+        if (flushRequested.compareAndSet(false, true)) {
+            loop.execute(this::flush);
+        }
+    }
+
+    /**
+     * Stores the selection key assigned by the loop and flushes the messages enqueued in the meantime
+     *
+     * @param key the selection key of the channel
+     */
+    @Override
+    public void onRegistered(SelectionKey key) {
+        this.key = key;
+        flush();
+    }
+
+    /**
+     * Reads or writes the channel depending on its readiness
+     *
+     * @param key the selection key of the channel
+     * @throws IOException if the channel cannot be read or written
+     */
+    @Override
+    public void onReady(SelectionKey key) throws IOException {
+        if (key.isReadable()) {
+            read();
+        }
+        if (key.isValid() && key.isWritable()) {
+            write();
+        }
+    }
+
+    /**
+     * Marks the channel as closed
+     */
+    @Override
+    public void onClosed() {
+        channelClosed = true;
+        if (deflater != null) {
+            deflater.close();
+        }
+    }
+
+    /**
+     * Reads the available bytes and hands every complete frame to the view
+     *
+     * @throws IOException if the channel reached the end of the stream or a malformed frame was received
+     */
+    private void read() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new IOException("End of stream reached");
+        }
+        readBuffer.flip();
+        while (readBuffer.remaining() >= FRAME_HEADER_SIZE) {
+            int frameSize = readBuffer.getInt(readBuffer.position());
+            if (frameSize < 0 || frameSize > MAX_FRAME_SIZE) {
+                throw new IOException("Malformed frame of " + frameSize + " bytes");
+            }
+            if (readBuffer.remaining() < FRAME_HEADER_SIZE + frameSize) {
+                break;
+            }
+            readBuffer.position(readBuffer.position() + FRAME_HEADER_SIZE);
+            byte[] frame = new byte[frameSize];
+            readBuffer.get(frame);
+            receiveMessage(decodeFrame(frame));
+        }
+        readBuffer.compact();
+        if (!readBuffer.hasRemaining()) {
+            ByteBuffer biggerBuffer = ByteBuffer.allocate(readBuffer.capacity() * 2);
+            readBuffer.flip();
+            biggerBuffer.put(readBuffer);
+            readBuffer = biggerBuffer;
+        }
+    }
+
+    /**
+     * Drains the output message queue into encoded frames and writes them. Executed by the loop thread
+     */
+    private void flush() {
+        flushRequested.set(false);
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException e) {
+            logger.info("Unable to send data " + e);
+            loop.close(key);
+        }
+    }
+
+    /**
+     * Encodes the messages of the output message queue into frames, as long as few frames are waiting for the channel
+     */
+    private void encode() {
+        Message message;
+        int pending = pendingFrames.size();
+        while (pending < MAX_PENDING_FRAMES && (message = outputMessageQueue.poll()) != null) {
+            byte[] content = compress(message.toFrame(getFrameFormat()));
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + content.length);
+            frame.putInt(content.length).put(content).flip();
+            pendingFrames.add(frame);
+            pending++;
+        }
+    }
+
+    /**
+     * Compresses a frame if the client negotiated the compression. Must be called by the loop thread, since the frames
+     * have to be compressed in the same order they are written
+     *
+     * @param content the content of the frame
+     * @return the content to write
+     */
+    private byte[] compress(byte[] content) {
+        if (deflater == null) {
+            if (!isCompressionNegotiated()) {
+                return content;
+            }
+            deflater = new FrameDeflater(compressionThreshold);
+        }
+        return deflater.deflate(content);
+    }
+
+    /**
+     * Writes as many pending frames as the channel accepts with gathering writes, encoding more messages each time
+     * all the frames have been written, and subscribes to the writability notification if some are left. The messages
+     * of a client that does not read stay in the output message queue
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    private void write() throws IOException {
+        do {
+            encode();
+            if (!pendingFrames.isEmpty()) {
+                channel.write(pendingFrames.toArray(new ByteBuffer[0]));
+            }
+            while (!pendingFrames.isEmpty() && !pendingFrames.peek().hasRemaining()) {
+                pendingFrames.remove();
+            }
+        } while (pendingFrames.isEmpty() && !outputMessageQueue.isEmpty());
+        key.interestOps(pendingFrames.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Closes the view, blocking the caller until the pending frames are written or LAST_MESSAGE_TIMEOUT has passed, then
+     * closes the channel. The frames are checked on the shared timer, so only the caller waits for them
+     *
+     * @throws Exception if the closing process is forced to stop
+     */
+    @Override
+    public void close() throws Exception {
+        super.close();
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        written.thenRun(() -> loop.execute(() -> {
+            if (key != null && key.isValid()) {
+                loop.close(key);
+            } else {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.warning("Unable to close channel " + e);
+                }
+            }
+        }));
+        checkFramesWritten(written, Instant.now().plus(Duration.ofMillis(LAST_MESSAGE_TIMEOUT)));
+        written.get();
+    }
+
+    /**
+     * Completes the given future once the pending frames are written, the channel is closed or the deadline has passed,
+     * checking them periodically on the shared timer
+     *
+     * @param written the future to complete
+     * @param deadline the instant after which the view stops waiting for the frames to be written
+     */
+    private void checkFramesWritten(CompletableFuture<Void> written, Instant deadline) {
+        if (channelClosed || !deadline.isAfter(Instant.now()) || outputMessageQueue.isEmpty() && !hasPendingFrames()) {
+            written.complete(null);
+        } else {
+            ExecutorFactory.getTimer().newTimeout(
+                    () -> checkFramesWritten(written, deadline),
+                    LAST_MESSAGE_CHECK_DELAY,
+                    TimeUnit.MILLISECONDS
+            );
+        }
+    }
+
+    /**
+     * @return true if some frames are still waiting to be written
+     */
+    private boolean hasPendingFrames() {
+        return !pendingFrames.isEmpty();
+    }
+}
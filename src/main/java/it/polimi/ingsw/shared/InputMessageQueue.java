@@ -2,12 +2,10 @@ package it.polimi.ingsw.shared;
 
 import it.polimi.ingsw.shared.messages.Message;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
 
 /**
  * The input message queue used to listen for incoming messages
@@ -16,6 +14,11 @@ import java.util.concurrent.TimeoutException;
  */
 public class InputMessageQueue {
 
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
     /**
      * This queue contains question messages
      */
@@ -27,13 +30,20 @@ public class InputMessageQueue {
     private BlockingQueue<Message> eventMessageQueues = new LinkedBlockingQueue<>();
 
     /**
-     * This map contains the Question-Answer flows identified by a unique id, represented by a string. Each flow
-     * has an associated queue where answer are stored waiting to be consumed
+     * This map contains the Question-Answer flows waiting for an answer, identified by their flow id. Each flow is
+     * registered before its question is sent, it is completed directly by the answer and it stays registered until its
+     * answer is dequeued or the flow is cancelled
+     */
+    private final Map<Long, CompletableFuture<Message>> pendingAnswers = new ConcurrentHashMap<>();
+
+    /**
+     * The number of answers dropped because their flow was unknown or it was no longer waiting for them
      */
-    private Map<String, BlockingQueue<Message>> answerMessageQueues = new HashMap<>();
+    private final LongAdder droppedAnswers = new LongAdder();
 
     /**
-     * Adds a message to appropriate queue
+     * Adds a message to appropriate queue. An answer completes the flow it belongs to, it is dropped if the flow is
+     * unknown or it has already been answered or cancelled
      *
      * @param message the message to enqueue
      */
@@ -47,8 +57,11 @@ public class InputMessageQueue {
                 eventMessageQueues.add(message);
                 break;
             case ANSWER:
-                answerMessageQueues.putIfAbsent(message.getFlowId(), new LinkedBlockingQueue<>());
-                answerMessageQueues.get(message.getFlowId()).add(message);
+                CompletableFuture<Message> pendingAnswer = pendingAnswers.get(message.getFlowId());
+                if (pendingAnswer == null || !pendingAnswer.complete(message)) {
+                    droppedAnswers.increment();
+                    logger.fine("Dropped late or unknown answer " + message.getName() + " of flow " + message.getFlowId());
+                }
                 break;
         }
     }
@@ -97,24 +110,73 @@ public class InputMessageQueue {
     }
 
     /**
-     * Dequeue an answer message
+     * Registers a Question-Answer flow that is waiting for an answer. This must be done before sending the question,
+     * otherwise a prompt answer could be dropped. The flow stays registered until it is dequeued or cancelled
+     *
+     * @param flowId the identifier of the Question-Answer flow
+     * @return a future that will be completed with the answer
+     */
+    public CompletableFuture<Message> expectAnswer(long flowId) {
+        return pendingAnswers.computeIfAbsent(flowId, id -> new CompletableFuture<>());
+    }
+
+    /**
+     * Unregisters a Question-Answer flow, its answer will be dropped if it is received later
+     *
+     * @param flowId the identifier of the Question-Answer flow
+     */
+    public void cancelAnswer(long flowId) {
+        CompletableFuture<Message> pendingAnswer = pendingAnswers.remove(flowId);
+        if (pendingAnswer != null) {
+            pendingAnswer.cancel(false);
+        }
+    }
+
+    /**
+     * Completes a Question-Answer flow with a TimeoutException, used when its deadline expires before the answer is
+     * received
+     *
+     * @param flowId the identifier of the Question-Answer flow
+     */
+    public void expireAnswer(long flowId) {
+        CompletableFuture<Message> pendingAnswer = pendingAnswers.get(flowId);
+        if (pendingAnswer != null) {
+            pendingAnswer.completeExceptionally(new TimeoutException("No answer received within the deadline"));
+        }
+    }
+
+    /**
+     * Unregisters all the Question-Answer flows, their answers will be dropped if they are received later
+     */
+    public void cancelAllAnswers() {
+        pendingAnswers.keySet().forEach(this::cancelAnswer);
+    }
+
+    /**
+     * Dequeue an answer message, registering the flow if it has not been registered yet. The flow is no longer waiting
+     * once this method returns, so an answer received after the timeout is dropped
      *
-     * @param sessionId the identifier of the Question-Answer flow
+     * @param flowId the identifier of the Question-Answer flow
      * @param timeout the maximum timeout
      * @param unit the measurement unit of the timeout
-     * @return the first message removed from the appropriate answer queue
+     * @return the answer of the flow
      * @throws InterruptedException if the thread is forced to stop
      * @throws TimeoutException if the timeout has been reached without receiving any message
      */
-    public Message dequeueAnswer(String sessionId, int timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+    public Message dequeueAnswer(long flowId, int timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
         try {
-            answerMessageQueues.putIfAbsent(sessionId, new LinkedBlockingQueue<>());
-
-            return dequeue(answerMessageQueues.get(sessionId), timeout, unit);
+            return expectAnswer(flowId).get(timeout, unit);
+        } catch (ExecutionException | CancellationException e) {
+            throw new TimeoutException("No answer received " + e);
         } finally {
-            if (answerMessageQueues.get(sessionId).isEmpty()) {
-                answerMessageQueues.remove(sessionId);
-            }
+            cancelAnswer(flowId);
         }
     }
+
+    /**
+     * @return the number of answers dropped because their flow was unknown or it was no longer waiting for them
+     */
+    public long getDroppedAnswerCount() {
+        return droppedAnswers.sum();
+    }
 }
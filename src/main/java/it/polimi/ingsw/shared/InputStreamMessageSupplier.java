@@ -1,11 +1,12 @@
 package it.polimi.ingsw.shared;
 
+import it.polimi.ingsw.shared.messages.FrameInflater;
 import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
 import it.polimi.ingsw.utils.function.IOSupplier;
 
 import java.io.DataInputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.concurrent.*;
 import java.util.logging.Logger;
 
@@ -28,7 +29,12 @@ public class InputStreamMessageSupplier implements IOSupplier<Message>, AutoClos
     /**
      * Thread pool that runs the background tasks
      */
-    private final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+    private final ExecutorService threadPool = ExecutorFactory.newSingleThreadExecutor();
+
+    /**
+     * The decompression stream of the connection, used for the frames the server compressed
+     */
+    private final FrameInflater inflater = new FrameInflater();
 
     /**
      * A future that will hold the result of the input stream reading and parsing
@@ -53,12 +59,7 @@ public class InputStreamMessageSupplier implements IOSupplier<Message>, AutoClos
         return threadPool.submit(() -> {
             byte[] buffer = new byte[inputStream.readInt()];
             inputStream.readFully(buffer);
-            return Message.fromJson(
-                    new String(
-                            buffer,
-                            StandardCharsets.UTF_8
-                    )
-            );
+            return Message.fromFrame(inflater.inflate(buffer));
         });
     }
 
@@ -118,5 +119,6 @@ public class InputStreamMessageSupplier implements IOSupplier<Message>, AutoClos
         while (!threadPool.awaitTermination(5, TimeUnit.SECONDS)) {
             logger.warning("Thread pool hasn't shut down yet, waiting...");
         }
+        inflater.close();
     }
 }
\ No newline at end of file
@@ -3,12 +3,12 @@ package it.polimi.ingsw.shared;
 import it.polimi.ingsw.client.io.listeners.MessageDispatcherStoppedListener;
 import it.polimi.ingsw.shared.events.MessageDispatcherStopped;
 import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
 import it.polimi.ingsw.utils.function.IOConsumer;
 import it.polimi.ingsw.utils.function.IOSupplier;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.logging.Logger;
 
@@ -30,13 +30,21 @@ public class MessageDispatcher implements AutoCloseable {
     protected final Logger logger = Logger.getLogger(this.getClass().getName());
 
     /**
-     * The supplier of input messages
+     * The supplier of batches of input messages
      */
-    private final IOSupplier<Message> inputMessageSupplier;
+    private final IOSupplier<List<Message>> inputMessageSupplier;
     /**
-     * The consumer of output messages
+     * The consumer of batches of output messages
      */
-    private final IOConsumer<Message> outputMessageConsumer;
+    private final IOConsumer<List<Message>> outputMessageConsumer;
+    /**
+     * The maximum number of output messages passed to the consumer at once
+     */
+    private final int maxBatchSize;
+    /**
+     * The maximum time in milliseconds a batch of output messages waits for other messages before being consumed
+     */
+    private final int maxBatchDelayMilliseconds;
 
     /**
      * The input queue
@@ -49,8 +57,8 @@ public class MessageDispatcher implements AutoCloseable {
     /**
      * The thread pools that executes the IO tasks in background
      */
-    private final ExecutorService receiveThreadPool = Executors.newSingleThreadExecutor();
-    private final ExecutorService sendThreadPool = Executors.newSingleThreadExecutor();
+    private final ExecutorService receiveThreadPool = ExecutorFactory.newSingleThreadExecutor();
+    private final ExecutorService sendThreadPool = ExecutorFactory.newSingleThreadExecutor();
 
     /**
      * A list of listeners for the event MessageDispatcherStopped
@@ -66,8 +74,49 @@ public class MessageDispatcher implements AutoCloseable {
      * @param outputMessageConsumer the object that will consume messages
      */
     public MessageDispatcher(InputMessageQueue inputMessageQueue, BlockingQueue<Message> outputMessageQueue, IOSupplier<Message> inputMessageSupplier, IOConsumer<Message> outputMessageConsumer) {
+        this(
+                inputMessageQueue,
+                outputMessageQueue,
+                1,
+                (timeout, unit) -> Collections.singletonList(inputMessageSupplier.get(timeout, unit)),
+                messages -> {
+                    for (Message message : messages) {
+                        outputMessageConsumer.accept(message);
+                    }
+                }
+        );
+    }
+
+    /**
+     * Constructs a MessageDispatcher class that manages the passed queues moving the messages in batches, so that
+     * every message already pending is received or sent with a single call to the supplier or the consumer
+     *
+     * @param inputMessageQueue the input message queue that will be filled by messages received by the supplier
+     * @param outputMessageQueue the output message queue that will be emptied by the output message consumer
+     * @param maxBatchSize the maximum number of output messages passed to the consumer at once
+     * @param inputMessageSupplier the object that will provide batches of messages
+     * @param outputMessageConsumer the object that will consume batches of messages
+     */
+    public MessageDispatcher(InputMessageQueue inputMessageQueue, BlockingQueue<Message> outputMessageQueue, int maxBatchSize, IOSupplier<List<Message>> inputMessageSupplier, IOConsumer<List<Message>> outputMessageConsumer) {
+        this(inputMessageQueue, outputMessageQueue, maxBatchSize, 0, inputMessageSupplier, outputMessageConsumer);
+    }
+
+    /**
+     * Constructs a MessageDispatcher class that manages the passed queues moving the messages in batches. A batch that
+     * is not full waits up to the given delay for other messages, trading latency for fewer calls to the consumer
+     *
+     * @param inputMessageQueue the input message queue that will be filled by messages received by the supplier
+     * @param outputMessageQueue the output message queue that will be emptied by the output message consumer
+     * @param maxBatchSize the maximum number of output messages passed to the consumer at once
+     * @param maxBatchDelayMilliseconds the maximum time a batch waits for other messages, 0 to consume it immediately
+     * @param inputMessageSupplier the object that will provide batches of messages
+     * @param outputMessageConsumer the object that will consume batches of messages
+     */
+    public MessageDispatcher(InputMessageQueue inputMessageQueue, BlockingQueue<Message> outputMessageQueue, int maxBatchSize, int maxBatchDelayMilliseconds, IOSupplier<List<Message>> inputMessageSupplier, IOConsumer<List<Message>> outputMessageConsumer) {
         this.inputMessageQueue = inputMessageQueue;
         this.outputMessageQueue = outputMessageQueue;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxBatchDelayMilliseconds = Math.max(0, maxBatchDelayMilliseconds);
         this.inputMessageSupplier = inputMessageSupplier;
         this.outputMessageConsumer = outputMessageConsumer;
         receiveThreadPool.execute(this::receiveMessageAsync);
@@ -79,9 +128,9 @@ public class MessageDispatcher implements AutoCloseable {
      */
     private void receiveMessageAsync() {
         try {
-            inputMessageQueue.enqueue(
-                    inputMessageSupplier.get(TAKE_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS)
-            );
+            inputMessageSupplier
+                    .get(TAKE_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS)
+                    .forEach(inputMessageQueue::enqueue);
         } catch (IOException e) {
             logger.warning("Unable to receive data " + e);
             stop();
@@ -97,13 +146,18 @@ public class MessageDispatcher implements AutoCloseable {
     }
 
     /**
-     * Takes messages from the outputMessageQueue and uses the outputMessageConsumer to consume them
+     * Takes messages from the outputMessageQueue and uses the outputMessageConsumer to consume them, together with
+     * all the other messages that are already pending
      */
     private void sendMessageAsync() {
         try {
             Message message = outputMessageQueue.poll(TAKE_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
             if (message != null) {
-                outputMessageConsumer.accept(message);
+                List<Message> messages = new ArrayList<>();
+                messages.add(message);
+                outputMessageQueue.drainTo(messages, maxBatchSize - 1);
+                lingerForMessages(messages);
+                outputMessageConsumer.accept(messages);
             }
             synchronized (sendThreadPool) {
                 if (!sendThreadPool.isShutdown()) {
@@ -120,6 +174,24 @@ public class MessageDispatcher implements AutoCloseable {
         }
     }
 
+    /**
+     * Waits up to the maximum batch delay for other output messages, until the batch is full
+     *
+     * @param messages the batch to fill
+     * @throws InterruptedException if the thread is forced to stop
+     */
+    private void lingerForMessages(List<Message> messages) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMilliseconds);
+        long remaining;
+        while (messages.size() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+            Message message = outputMessageQueue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (message != null) {
+                messages.add(message);
+                outputMessageQueue.drainTo(messages, maxBatchSize - messages.size());
+            }
+        }
+    }
+
     /**
      * Adds a listener for the stop event
      *
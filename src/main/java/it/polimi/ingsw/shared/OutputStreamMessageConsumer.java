@@ -1,23 +1,43 @@
 package it.polimi.ingsw.shared;
 
+import it.polimi.ingsw.shared.messages.FrameFormat;
 import it.polimi.ingsw.shared.messages.Message;
 import it.polimi.ingsw.utils.function.IOConsumer;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * Message consumer based on output streams. Messages will be written in a portable format into the given output stream
+ * Message consumer based on output streams. Messages will be written in a portable format into the given output stream.
+ * Each batch of messages is framed into a single reusable buffer and flushed at once, so that it reaches the network
+ * in as few segments as possible
  *
  * @author Carlo Dell'Acqua
  */
-public class OutputStreamMessageConsumer implements IOConsumer<Message> {
+public class OutputStreamMessageConsumer implements IOConsumer<List<Message>> {
+    /**
+     * The initial capacity of the framing buffer
+     */
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
     /**
      * The output stream to write messages to
      */
     private final DataOutputStream outputStream;
 
+    /**
+     * The buffer the frames of a batch are written into before being sent, reused across batches
+     */
+    private final ByteArrayOutputStream frameBuffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+
+    /**
+     * The stream used to write the frame headers into the buffer
+     */
+    private final DataOutputStream frameWriter = new DataOutputStream(frameBuffer);
+
     /**
      * Constructs a message consumer which uses a data output stream to write messages in a portable format
      *
@@ -33,13 +53,26 @@ public class OutputStreamMessageConsumer implements IOConsumer<Message> {
      * @param message the message to consume
      * @throws IOException if an error occurs while sending data to the stream
      */
-    @Override
     public void accept(Message message) throws IOException {
-        // Fixed charset shared with the client configuration to prevent incompatibility that
-        // can be caused by different defaults
-        byte[] content = message.toJson().getBytes(StandardCharsets.UTF_8);
-        outputStream.writeInt(content.length);
-        outputStream.write(content);
+        accept(Collections.singletonList(message));
+    }
+
+    /**
+     * Accepts a batch of messages and write them out to the output stream with a single flush
+     *
+     * @param messages the messages to consume, in order
+     * @throws IOException if an error occurs while sending data to the stream
+     */
+    @Override
+    public synchronized void accept(List<Message> messages) throws IOException {
+        frameBuffer.reset();
+        for (Message message : messages) {
+            // JSON frames use a fixed charset to prevent incompatibility that can be caused by different defaults
+            byte[] content = message.toFrame(FrameFormat.JSON);
+            frameWriter.writeInt(content.length);
+            frameWriter.write(content);
+        }
+        frameBuffer.writeTo(outputStream);
         outputStream.flush();
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package it.polimi.ingsw.shared.bootstrap;
 
 import it.polimi.ingsw.server.model.battlefield.BoardFactory;
 import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.shared.messages.Message;
 
 /**
  * Shared object that all clients should instantiate and send to the server as the first event message.
@@ -26,6 +27,22 @@ public class ClientInitializationInfo {
      * Nickname
      */
     private String nickname;
+    /**
+     * Version of the message protocol supported by the client, missing (and so equal to 0) for legacy clients
+     */
+    private int protocolVersion;
+    /**
+     * Fingerprint of the binary codec dictionary if the client wants to receive binary frames, 0 otherwise
+     */
+    private int binaryCodecFingerprint;
+    /**
+     * Fingerprint of the compression dictionary if the client wants to receive compressed frames, 0 otherwise
+     */
+    private int compressionFingerprint;
+    /**
+     * The last match state version the client applied before reconnecting, 0 if it has no state to resume from
+     */
+    private long lastStateVersion;
 
     /**
      * Constructs an informational object containing the player's preferences
@@ -40,6 +57,7 @@ public class ClientInitializationInfo {
         this.preset = preset;
         this.skulls = skulls;
         this.mode = mode;
+        this.protocolVersion = Message.PROTOCOL_VERSION;
     }
 
     /**
@@ -69,4 +87,62 @@ public class ClientInitializationInfo {
     public String getNickname() {
         return nickname;
     }
+
+    /**
+     * @return the version of the message protocol supported by the client
+     */
+    public int getProtocolVersion() {
+        return Math.max(Message.LEGACY_PROTOCOL_VERSION, protocolVersion);
+    }
+
+    /**
+     * @return the fingerprint of the binary codec dictionary of the client, 0 if it wants to receive JSON frames
+     */
+    public int getBinaryCodecFingerprint() {
+        return binaryCodecFingerprint;
+    }
+
+    /**
+     * Sets the fingerprint of the binary codec dictionary of the client, the server will send binary frames only if it
+     * matches its own
+     *
+     * @param binaryCodecFingerprint the fingerprint, 0 to receive JSON frames
+     */
+    public void setBinaryCodecFingerprint(int binaryCodecFingerprint) {
+        this.binaryCodecFingerprint = binaryCodecFingerprint;
+    }
+
+    /**
+     * @return the fingerprint of the compression dictionary of the client, 0 if it wants to receive uncompressed frames
+     */
+    public int getCompressionFingerprint() {
+        return compressionFingerprint;
+    }
+
+    /**
+     * Sets the fingerprint of the compression dictionary of the client, the server will compress the frames only if it
+     * matches its own
+     *
+     * @param compressionFingerprint the fingerprint, 0 to receive uncompressed frames
+     */
+    public void setCompressionFingerprint(int compressionFingerprint) {
+        this.compressionFingerprint = compressionFingerprint;
+    }
+
+    /**
+     * @return the last match state version the client applied before reconnecting, 0 if it has no state to resume from
+     */
+    public long getLastStateVersion() {
+        return lastStateVersion;
+    }
+
+    /**
+     * Sets the last match state version the client applied, the server will send only the events the client missed if
+     * it still has them, a snapshot of the match otherwise
+     *
+     * @param lastStateVersion the version, 0 to receive a snapshot
+     */
+    public void setLastStateVersion(long lastStateVersion) {
+        this.lastStateVersion = lastStateVersion;
+    }
 }
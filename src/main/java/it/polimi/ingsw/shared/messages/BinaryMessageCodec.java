@@ -0,0 +1,505 @@
+package it.polimi.ingsw.shared.messages;
+
+import com.google.gson.*;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.datatransferobjects.BonusTile;
+import it.polimi.ingsw.shared.datatransferobjects.Player;
+import it.polimi.ingsw.shared.datatransferobjects.PlayerHealth;
+import it.polimi.ingsw.shared.datatransferobjects.Powerup;
+import it.polimi.ingsw.shared.datatransferobjects.Wallet;
+import it.polimi.ingsw.shared.events.networkevents.*;
+import it.polimi.ingsw.shared.messages.templates.Answer;
+import it.polimi.ingsw.shared.messages.templates.Question;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact binary representation of a message. Message names are written as the index of the corresponding ClientApi or
+ * ServerApi value, flow identifiers, state versions and integers as variable-length numbers and every string (object
+ * keys included) as the index of a symbol. The symbols are taken from a dictionary derived from the fields and the enum
+ * values of the data transfer objects and the network events, or they are written once per message and referenced
+ * afterwards
+ */
+public final class BinaryMessageCodec {
+
+    /**
+     * First byte of every binary frame, it is never the first byte of a UTF-8 encoded JSON frame
+     */
+    private static final byte MAGIC = (byte) 0xB1;
+
+    /**
+     * Tag of a null value
+     */
+    private static final int NULL = 0;
+    /**
+     * Tag of a true boolean
+     */
+    private static final int TRUE = 1;
+    /**
+     * Tag of a false boolean
+     */
+    private static final int FALSE = 2;
+    /**
+     * Tag of a number without fractional part, followed by its variable-length representation
+     */
+    private static final int INTEGER = 3;
+    /**
+     * Tag of a number with fractional part, followed by its 8 bytes representation
+     */
+    private static final int DECIMAL = 4;
+    /**
+     * Tag of a string, followed by its symbol index
+     */
+    private static final int STRING = 5;
+    /**
+     * Tag of an array, followed by its size and its elements
+     */
+    private static final int ARRAY = 6;
+    /**
+     * Tag of an object, followed by its size and its key-value pairs
+     */
+    private static final int OBJECT = 7;
+
+    /**
+     * Version of the layout of the frame header, part of the fingerprint
+     */
+    private static final int LAYOUT_VERSION = 2;
+
+    /**
+     * The maximum nesting of the arrays and objects of a decoded payload
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * Classes whose fields and enum values make up the symbol dictionary
+     */
+    private static final Class<?>[] SCHEMA_ROOTS = {
+            BonusTile.class, Player.class, PlayerHealth.class, Powerup.class, Wallet.class,
+            BonusTileEvent.class, ClientEvent.class, KillshotTrackChanged.class, MatchEnded.class,
+            MatchModeChanged.class, MatchResumed.class, MatchStarted.class, PlayerEvent.class,
+            PlayerHealthChanged.class, PlayerMoved.class, PlayerSpawned.class, PlayerWalletChanged.class,
+            PlayerWeaponEvent.class, PlayerWeaponExchanged.class, WeaponEvent.class,
+            Question.class, Answer.class, ClientInitializationInfo.class
+    };
+
+    /**
+     * The names of all the messages, in the order of their indexes
+     */
+    private static final List<String> NAMES = new ArrayList<>();
+
+    /**
+     * The index of each message name
+     */
+    private static final Map<String, Integer> NAME_INDEXES = new HashMap<>();
+
+    /**
+     * The symbols known by both ends of the connection, in the order of their indexes
+     */
+    private static final List<String> DICTIONARY;
+
+    /**
+     * The index of each symbol of the dictionary
+     */
+    private static final Map<String, Integer> DICTIONARY_INDEXES = new HashMap<>();
+
+    /**
+     * Identifier of the dictionary, two ends can exchange binary frames only if their fingerprints are equal
+     */
+    public static final int FINGERPRINT;
+
+    static {
+        for (ClientApi name : ClientApi.values()) {
+            NAMES.add(name.toString());
+        }
+        for (ServerApi name : ServerApi.values()) {
+            NAMES.add(name.toString());
+        }
+        for (int i = 0; i < NAMES.size(); i++) {
+            NAME_INDEXES.put(NAMES.get(i), i);
+        }
+
+        Set<String> symbols = new TreeSet<>();
+        Set<Class<?>> visited = new HashSet<>();
+        for (Class<?> root : SCHEMA_ROOTS) {
+            collectSymbols(root, symbols, visited);
+        }
+        DICTIONARY = new ArrayList<>(symbols);
+        for (int i = 0; i < DICTIONARY.size(); i++) {
+            DICTIONARY_INDEXES.put(DICTIONARY.get(i), i);
+        }
+        FINGERPRINT = 31 * (31 * LAYOUT_VERSION + DICTIONARY.hashCode()) + NAMES.hashCode();
+    }
+
+    private BinaryMessageCodec() { }
+
+    /**
+     * @return the symbols known by both ends of the connection, in the order of their indexes
+     */
+    static List<String> getSymbols() {
+        return Collections.unmodifiableList(DICTIONARY);
+    }
+
+    /**
+     * @return the names of all the messages, in the order of their indexes
+     */
+    static List<String> getMessageNames() {
+        return Collections.unmodifiableList(NAMES);
+    }
+
+    /**
+     * Adds to the symbols the names of the serialized fields of the given type and the names of its enum values,
+     * visiting the types of the fields recursively
+     *
+     * @param type the type to inspect
+     * @param symbols the collected symbols
+     * @param visited the classes already inspected
+     */
+    private static void collectSymbols(Type type, Set<String> symbols, Set<Class<?>> visited) {
+        if (type instanceof ParameterizedType) {
+            collectSymbols(((ParameterizedType) type).getRawType(), symbols, visited);
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                collectSymbols(argument, symbols, visited);
+            }
+        } else if (type instanceof GenericArrayType) {
+            collectSymbols(((GenericArrayType) type).getGenericComponentType(), symbols, visited);
+        } else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType) type).getUpperBounds()) {
+                collectSymbols(bound, symbols, visited);
+            }
+        } else if (type instanceof Class) {
+            Class<?> clazz = (Class<?>) type;
+            if (clazz.isArray()) {
+                collectSymbols(clazz.getComponentType(), symbols, visited);
+            } else if (clazz.getName().startsWith("it.polimi.ingsw.") && visited.add(clazz)) {
+                if (clazz.isEnum()) {
+                    for (Object constant : clazz.getEnumConstants()) {
+                        symbols.add(((Enum<?>) constant).name());
+                    }
+                }
+                for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+                    for (Field field : current.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                            symbols.add(field.getName());
+                            collectSymbols(field.getGenericType(), symbols, visited);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param frame the content of a frame
+     * @return true if the frame has been encoded by this codec
+     */
+    public static boolean isBinary(byte[] frame) {
+        return frame.length > 0 && frame[0] == MAGIC;
+    }
+
+    /**
+     * Encodes a message
+     *
+     * @param message the message to encode
+     * @return the binary representation of the message
+     */
+    public static byte[] encode(Message message) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC);
+            out.writeInt(FINGERPRINT);
+            Integer nameIndex = NAME_INDEXES.get(message.getName());
+            if (nameIndex != null) {
+                writeVarLong(out, nameIndex + 1L);
+            } else {
+                writeVarLong(out, 0);
+                writeLiteral(out, message.getName());
+            }
+            out.writeByte(message.getType().ordinal());
+            writeVarLong(out, message.getFlowId());
+            writeVarLong(out, message.getStateVersion());
+            writeValue(out, message.getPayload(), new HashMap<>());
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a message
+     *
+     * @param frame the binary representation of the message
+     * @return the message
+     * @throws JsonParseException if the frame is malformed or it has been encoded with a different dictionary
+     */
+    public static Message decode(byte[] frame) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame))) {
+            if (in.readByte() != MAGIC) {
+                throw new JsonParseException("Not a binary message");
+            }
+            if (in.readInt() != FINGERPRINT) {
+                throw new JsonParseException("Binary message encoded with an incompatible dictionary");
+            }
+            int nameIndex = (int) readVarLong(in);
+            String name = nameIndex == 0 ? readLiteral(in) : NAMES.get(nameIndex - 1);
+            Message.Type type = Message.Type.values()[in.readUnsignedByte()];
+            long flowId = readVarLong(in);
+            long stateVersion = readVarLong(in);
+            return new Message(name, readValue(in, new ArrayList<>(), 0), flowId, type, stateVersion);
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new JsonParseException("Malformed binary message", e);
+        }
+    }
+
+    /**
+     * Writes a JSON value
+     *
+     * @param out the output stream
+     * @param value the value to write
+     * @param symbols the symbols written so far in this message, with their indexes
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeValue(DataOutputStream out, JsonElement value, Map<String, Integer> symbols) throws IOException {
+        if (value == null || value.isJsonNull()) {
+            out.writeByte(NULL);
+        } else if (value.isJsonObject()) {
+            Set<Map.Entry<String, JsonElement>> entries = value.getAsJsonObject().entrySet();
+            out.writeByte(OBJECT);
+            writeVarLong(out, entries.size());
+            for (Map.Entry<String, JsonElement> entry : entries) {
+                writeSymbol(out, entry.getKey(), symbols);
+                writeValue(out, entry.getValue(), symbols);
+            }
+        } else if (value.isJsonArray()) {
+            JsonArray array = value.getAsJsonArray();
+            out.writeByte(ARRAY);
+            writeVarLong(out, array.size());
+            for (JsonElement element : array) {
+                writeValue(out, element, symbols);
+            }
+        } else {
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.writeByte(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else if (primitive.isString()) {
+                out.writeByte(STRING);
+                writeSymbol(out, primitive.getAsString(), symbols);
+            } else {
+                writeNumber(out, primitive.getAsNumber());
+            }
+        }
+    }
+
+    /**
+     * Writes a number, as a variable-length integer if it has no fractional part
+     *
+     * @param out the output stream
+     * @param number the number to write
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeNumber(DataOutputStream out, Number number) throws IOException {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            out.writeByte(INTEGER);
+            writeVarLong(out, zigZag(number.longValue()));
+            return;
+        }
+        try {
+            long integer = new BigDecimal(number.toString()).longValueExact();
+            out.writeByte(INTEGER);
+            writeVarLong(out, zigZag(integer));
+        } catch (ArithmeticException | NumberFormatException e) {
+            out.writeByte(DECIMAL);
+            out.writeDouble(number.doubleValue());
+        }
+    }
+
+    /**
+     * Reads a JSON value
+     *
+     * @param in the input stream
+     * @param symbols the symbols read so far in this message, in the order of their indexes
+     * @param depth the number of arrays and objects containing the value
+     * @return the value
+     * @throws IOException if the stream cannot be read or it is malformed
+     */
+    private static JsonElement readValue(DataInputStream in, List<String> symbols, int depth) throws IOException {
+        int tag = in.readUnsignedByte();
+        if ((tag == ARRAY || tag == OBJECT) && depth >= MAX_DEPTH) {
+            throw new IOException("Payload nested deeper than " + MAX_DEPTH + " levels");
+        }
+        switch (tag) {
+            case NULL:
+                return JsonNull.INSTANCE;
+            case TRUE:
+                return new JsonPrimitive(true);
+            case FALSE:
+                return new JsonPrimitive(false);
+            case INTEGER:
+                return new JsonPrimitive(unZigZag(readVarLong(in)));
+            case DECIMAL:
+                return new JsonPrimitive(in.readDouble());
+            case STRING:
+                return new JsonPrimitive(readSymbol(in, symbols));
+            case ARRAY: {
+                long size = readLength(in);
+                JsonArray array = new JsonArray();
+                for (long i = 0; i < size; i++) {
+                    array.add(readValue(in, symbols, depth + 1));
+                }
+                return array;
+            }
+            case OBJECT: {
+                long size = readLength(in);
+                JsonObject object = new JsonObject();
+                for (long i = 0; i < size; i++) {
+                    String key = readSymbol(in, symbols);
+                    object.add(key, readValue(in, symbols, depth + 1));
+                }
+                return object;
+            }
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * Writes a string as a symbol index, adding it to the symbols of the message if it is not known yet
+     *
+     * @param out the output stream
+     * @param symbol the string to write
+     * @param symbols the symbols written so far in this message, with their indexes
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeSymbol(DataOutputStream out, String symbol, Map<String, Integer> symbols) throws IOException {
+        Integer index = DICTIONARY_INDEXES.get(symbol);
+        if (index == null) {
+            index = symbols.get(symbol);
+        }
+        if (index != null) {
+            writeVarLong(out, index + 1L);
+        } else {
+            writeVarLong(out, 0);
+            writeLiteral(out, symbol);
+            symbols.put(symbol, DICTIONARY.size() + symbols.size());
+        }
+    }
+
+    /**
+     * Reads a string written as a symbol index
+     *
+     * @param in the input stream
+     * @param symbols the symbols read so far in this message, in the order of their indexes
+     * @return the string
+     * @throws IOException if the stream cannot be read
+     */
+    private static String readSymbol(DataInputStream in, List<String> symbols) throws IOException {
+        int index = (int) readVarLong(in);
+        if (index == 0) {
+            String symbol = readLiteral(in);
+            symbols.add(symbol);
+            return symbol;
+        }
+        index--;
+        return index < DICTIONARY.size() ? DICTIONARY.get(index) : symbols.get(index - DICTIONARY.size());
+    }
+
+    /**
+     * Writes a string as its length followed by its UTF-8 bytes
+     *
+     * @param out the output stream
+     * @param literal the string to write
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeLiteral(DataOutputStream out, String literal) throws IOException {
+        byte[] bytes = literal.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written as its length followed by its UTF-8 bytes
+     *
+     * @param in the input stream
+     * @return the string
+     * @throws IOException if the stream cannot be read
+     */
+    private static String readLiteral(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readLength(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the length of a string or the size of an array or an object. Each byte or element takes at least a byte of
+     * the frame, so a length exceeding the bytes left can only come from a malformed frame
+     *
+     * @param in the input stream, reading from an array
+     * @return the length
+     * @throws IOException if the stream cannot be read or the length exceeds the bytes left
+     */
+    private static long readLength(DataInputStream in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Length " + length + " exceeds the " + in.available() + " bytes left");
+        }
+        return length;
+    }
+
+    /**
+     * Writes an unsigned number using 7 bits per byte, the highest bit tells whether more bytes follow
+     *
+     * @param out the output stream
+     * @param value the value to write
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads an unsigned number written using 7 bits per byte
+     *
+     * @param in the input stream
+     * @return the value
+     * @throws IOException if the stream cannot be read or the number is too long
+     */
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int current = in.readUnsignedByte();
+            value |= (long) (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length number");
+    }
+
+    /**
+     * Maps signed numbers to unsigned ones so that small negative numbers are written with few bytes
+     *
+     * @param value the signed value
+     * @return the unsigned value
+     */
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Inverse of {@link #zigZag(long)}
+     *
+     * @param value the unsigned value
+     * @return the signed value
+     */
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,113 @@
+package it.polimi.ingsw.shared.messages;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.Adler32;
+
+/**
+ * The preset dictionary shared by the compressing and decompressing ends of a connection. It is made of the strings
+ * that most frequently appear in the frames: the card names read from the bundled configuration, the field and enum
+ * names of the data transfer objects, the message names and the message envelope
+ */
+public final class CompressionDictionary {
+
+    /**
+     * Logging utility
+     */
+    private static final Logger logger = Logger.getLogger(CompressionDictionary.class.getName());
+
+    /**
+     * The maximum size of a deflate dictionary, equal to the size of the compression window
+     */
+    private static final int MAX_SIZE = 32 * 1024;
+
+    /**
+     * Bundled configuration files whose "name" entries are part of the dictionary. Only the bundled resources are read,
+     * so that the dictionary does not depend on local overrides and both ends build the same one
+     */
+    private static final String[] CARD_RESOURCES = {"/config/weapons.json", "/config/powerupDeck.json"};
+
+    /**
+     * The dictionary, with the most frequent strings at the end where the compressor reaches them with shorter distances
+     */
+    private static final byte[] DICTIONARY;
+
+    /**
+     * Identifier of the dictionary, two ends can exchange compressed frames only if their fingerprints are equal
+     */
+    public static final int FINGERPRINT;
+
+    static {
+        Set<String> entries = new LinkedHashSet<>();
+        for (String resource : CARD_RESOURCES) {
+            collectCardNames(resource, entries);
+        }
+        for (String symbol : BinaryMessageCodec.getSymbols()) {
+            entries.add("\"" + symbol + "\"");
+        }
+        for (String name : BinaryMessageCodec.getMessageNames()) {
+            entries.add("\"name\":\"" + name + "\",\"payload\":");
+        }
+        for (Message.Type type : Message.Type.values()) {
+            entries.add(",\"type\":\"" + type.name() + "\"");
+        }
+        entries.add(",\"stateVersion\":");
+        entries.add(",\"flowId\":\"event\"");
+        entries.add("{\"version\":" + Message.PROTOCOL_VERSION + ",");
+
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        for (String entry : entries) {
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            dictionary.write(bytes, 0, bytes.length);
+        }
+        byte[] bytes = dictionary.toByteArray();
+        DICTIONARY = bytes.length > MAX_SIZE ? Arrays.copyOfRange(bytes, bytes.length - MAX_SIZE, bytes.length) : bytes;
+
+        Adler32 checksum = new Adler32();
+        checksum.update(DICTIONARY);
+        FINGERPRINT = (int) checksum.getValue();
+    }
+
+    private CompressionDictionary() { }
+
+    /**
+     * Adds to the entries the "name" values of the objects listed in a bundled configuration file
+     *
+     * @param resource the path of the resource
+     * @param entries the collected entries
+     */
+    private static void collectCardNames(String resource, Set<String> entries) {
+        try (InputStream stream = CompressionDictionary.class.getResourceAsStream(resource)) {
+            if (stream == null) {
+                logger.warning("Missing resource " + resource + ", the compression dictionary will not include it");
+                return;
+            }
+            JsonArray cards = new JsonParser().parse(new InputStreamReader(stream, StandardCharsets.UTF_8)).getAsJsonArray();
+            for (JsonElement card : cards) {
+                if (card.isJsonObject() && card.getAsJsonObject().has("name")) {
+                    entries.add("\"" + card.getAsJsonObject().get("name").getAsString() + "\"");
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Unable to read " + resource + " for the compression dictionary " + e);
+        }
+    }
+
+    /**
+     * @return a copy of the dictionary
+     */
+    static byte[] get() {
+        return DICTIONARY.clone();
+    }
+}
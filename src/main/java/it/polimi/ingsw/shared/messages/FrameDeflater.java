@@ -0,0 +1,76 @@
+package it.polimi.ingsw.shared.messages;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses the frames sent over a single connection. The frames are compressed as a single stream primed with the
+ * {@link CompressionDictionary}, so that each frame can refer to the content of the previous ones. Frames smaller than
+ * the threshold are left untouched since compressing them would not be worth the cost
+ */
+public class FrameDeflater implements AutoCloseable {
+
+    /**
+     * First byte of a compressed frame, it cannot be the first byte of a JSON or binary frame
+     */
+    static final byte MAGIC = (byte) 0xDF;
+
+    /**
+     * Size of the chunks the compressed data is written into
+     */
+    private static final int CHUNK_SIZE = 4096;
+
+    /**
+     * The compression stream of the connection
+     */
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    /**
+     * The minimum size of a frame to be compressed
+     */
+    private final int threshold;
+
+    /**
+     * Reusable chunk the compressed data is written into
+     */
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    /**
+     * Constructs a frame deflater
+     *
+     * @param threshold the minimum size in bytes of a frame to be compressed
+     */
+    public FrameDeflater(int threshold) {
+        this.threshold = threshold;
+        deflater.setDictionary(CompressionDictionary.get());
+    }
+
+    /**
+     * Compresses a frame if it is big enough. Frames must be decompressed in the same order they were compressed
+     *
+     * @param frame the content of the frame
+     * @return the compressed frame or the given one if it is smaller than the threshold
+     */
+    public synchronized byte[] deflate(byte[] frame) {
+        if (frame.length < threshold) {
+            return frame;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(frame.length / 4 + 16);
+        compressed.write(MAGIC);
+        deflater.setInput(frame);
+        int length;
+        do {
+            length = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+            compressed.write(chunk, 0, length);
+        } while (length == chunk.length);
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Releases the native resources of the compression stream
+     */
+    @Override
+    public synchronized void close() {
+        deflater.end();
+    }
+}
@@ -0,0 +1,44 @@
+package it.polimi.ingsw.shared.messages;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The formats in which a message can be encoded into the content of a frame
+ */
+public enum FrameFormat {
+    /**
+     * JSON with the payload carried as a string, supported by every client
+     */
+    LEGACY_JSON {
+        @Override
+        byte[] encode(Message message) {
+            return message.toJson(Message.LEGACY_PROTOCOL_VERSION).getBytes(StandardCharsets.UTF_8);
+        }
+    },
+    /**
+     * JSON with the payload carried as a nested tree
+     */
+    JSON {
+        @Override
+        byte[] encode(Message message) {
+            return message.toJson(Message.PROTOCOL_VERSION).getBytes(StandardCharsets.UTF_8);
+        }
+    },
+    /**
+     * Binary representation produced by the {@link BinaryMessageCodec}
+     */
+    BINARY {
+        @Override
+        byte[] encode(Message message) {
+            return BinaryMessageCodec.encode(message);
+        }
+    };
+
+    /**
+     * Encodes a message in this format
+     *
+     * @param message the message to encode
+     * @return the content of the frame
+     */
+    abstract byte[] encode(Message message);
+}
@@ -0,0 +1,76 @@
+package it.polimi.ingsw.shared.messages;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses the frames received over a single connection that were compressed by a {@link FrameDeflater}. Frames
+ * that were not compressed are returned untouched
+ */
+public class FrameInflater implements AutoCloseable {
+
+    /**
+     * Size of the chunks the decompressed data is written into
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * The decompression stream of the connection
+     */
+    private final Inflater inflater = new Inflater(true);
+
+    /**
+     * Reusable chunk the decompressed data is written into
+     */
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    /**
+     * Constructs a frame inflater
+     */
+    public FrameInflater() {
+        inflater.setDictionary(CompressionDictionary.get());
+    }
+
+    /**
+     * @param frame the content of a frame
+     * @return true if the frame has been compressed
+     */
+    public static boolean isCompressed(byte[] frame) {
+        return frame.length > 0 && frame[0] == FrameDeflater.MAGIC;
+    }
+
+    /**
+     * Decompresses a frame if it has been compressed. Frames must be decompressed in the same order they were compressed
+     *
+     * @param frame the received frame
+     * @return the decompressed frame or the given one if it was not compressed
+     * @throws IOException if the compressed data is corrupted
+     */
+    public synchronized byte[] inflate(byte[] frame) throws IOException {
+        if (!isCompressed(frame)) {
+            return frame;
+        }
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream(frame.length * 4);
+        inflater.setInput(frame, 1, frame.length - 1);
+        try {
+            int length;
+            do {
+                length = inflater.inflate(chunk);
+                decompressed.write(chunk, 0, length);
+            } while (length > 0 || !(inflater.needsInput() || inflater.finished()));
+        } catch (DataFormatException e) {
+            throw new IOException("Malformed compressed frame " + e, e);
+        }
+        return decompressed.toByteArray();
+    }
+
+    /**
+     * Releases the native resources of the decompression stream
+     */
+    @Override
+    public synchronized void close() {
+        inflater.end();
+    }
+}
@@ -1,17 +1,19 @@
 package it.polimi.ingsw.shared.messages;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
 import it.polimi.ingsw.shared.messages.templates.Question;
 import it.polimi.ingsw.utils.EnumValueByString;
 
-import java.io.Serializable;
-import java.util.UUID;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * The smallest unit of information that is sent from and to clients in the IO process.
- * It's made by a type and a payload stored in JSON format
+ * It's made by a type and a payload stored in JSON format. The payload is converted into a JSON tree once, when the
+ * message is created or received, and it is written as a nested object of the envelope
  *
  * @author Carlo Dell'Acqua
  */
@@ -26,27 +28,105 @@ public class Message implements Serializable {
         EVENT
     }
 
+    /**
+     * Version of the protocol in which the payload is carried as a JSON string inside the envelope
+     */
+    public static final int LEGACY_PROTOCOL_VERSION = 1;
+
+    /**
+     * Version of the protocol in which the payload is carried as a nested JSON tree
+     */
+    public static final int PROTOCOL_VERSION = 2;
+
+    /**
+     * Serialization identifier, equal to the one of the legacy format so that RMI clients of both versions can exchange
+     * messages
+     */
+    private static final long serialVersionUID = -3884115085120105105L;
+
+    /**
+     * Fields written by the Java serialization, the payload is a JSON string as in the legacy format
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("payload", String.class),
+            new ObjectStreamField("flowId", String.class),
+            new ObjectStreamField("type", Type.class),
+            new ObjectStreamField("stateVersion", long.class)
+    };
+
+    /**
+     * Flow identifier shared by all the event messages
+     */
+    public static final long EVENT_FLOW_ID = 0;
+
+    /**
+     * Representation of the event flow identifier in the JSON format
+     */
+    private static final String EVENT_FLOW_ID_JSON = "event";
+
+    /**
+     * State version of the messages that are not part of the versioned match state
+     */
+    public static final long NO_STATE_VERSION = 0;
+
+    /**
+     * Generator of the flow identifiers of the questions
+     */
+    private static final AtomicLong nextFlowId = new AtomicLong(EVENT_FLOW_ID + 1);
+
     /**
      * JSON conversion utility
      */
-    private static final transient Gson gson = new Gson();
+    private static final Gson gson = new Gson();
+
+    /**
+     * JSON parsing utility
+     */
+    private static final JsonParser parser = new JsonParser();
 
     /**
      * Name of the message
      */
-    private final String name;
+    private String name;
     /**
      * Payload of the message
      */
-    private final String payload;
+    private JsonElement payload;
     /**
      * A stream id associated with the message, useful for parallel question/answer flows
      */
-    private final String flowId;
+    private long flowId;
     /**
      * Type of the message
      */
-    private final Type type;
+    private Type type;
+    /**
+     * The version of the match state reached once this message is applied, {@link #NO_STATE_VERSION} if the message
+     * is not part of the versioned state
+     */
+    private long stateVersion;
+    /**
+     * The frames already encoded for this message, indexed by format, so that a message sent to many clients is encoded
+     * once per format
+     */
+    private transient AtomicReferenceArray<byte[]> frames = new AtomicReferenceArray<>(FrameFormat.values().length);
+    /**
+     * The payload as a JSON string, computed once when the legacy representation is first needed
+     */
+    private transient volatile String serializedPayload;
+
+    /**
+     * Constructs a message
+     *
+     * @param name name of the message
+     * @param payload payload of the message
+     * @param flowId stream id associated with the message
+     * @param type type of the message
+     */
+    protected Message(String name, Object payload, long flowId, Type type) {
+        this(name, payload, flowId, type, NO_STATE_VERSION);
+    }
 
     /**
      * Constructs a message
@@ -55,12 +135,14 @@ public class Message implements Serializable {
      * @param payload payload of the message
      * @param flowId stream id associated with the message
      * @param type type of the message
+     * @param stateVersion the version of the match state reached once this message is applied
      */
-    protected Message(String name, Object payload, String flowId, Type type) {
+    protected Message(String name, Object payload, long flowId, Type type, long stateVersion) {
         this.name = name;
-        this.payload = new Gson().toJsonTree(payload).toString();
+        this.payload = payload instanceof JsonElement ? (JsonElement) payload : gson.toJsonTree(payload);
         this.flowId = flowId;
         this.type = type;
+        this.stateVersion = stateVersion;
     }
 
     /**
@@ -71,7 +153,7 @@ public class Message implements Serializable {
      * @return a question message
      */
     public static Message createQuestion(String name, Question payload) {
-        return new Message(name, payload, UUID.randomUUID().toString(), Type.QUESTION);
+        return new Message(name, payload, nextFlowId.getAndIncrement(), Type.QUESTION);
     }
 
     /**
@@ -82,7 +164,7 @@ public class Message implements Serializable {
      * @return a question message
      */
     public static Message createQuestion(Enum<?> enumValue, Question payload) {
-        return new Message(enumValue.toString(), payload, UUID.randomUUID().toString(), Type.QUESTION);
+        return new Message(enumValue.toString(), payload, nextFlowId.getAndIncrement(), Type.QUESTION);
     }
 
     /**
@@ -93,7 +175,7 @@ public class Message implements Serializable {
      * @param flowId stream identifier of the question/answer flow
      * @return an answer message
      */
-    public static Message createAnswer(String name, Object payload, String flowId) {
+    public static Message createAnswer(String name, Object payload, long flowId) {
         return new Message(name, payload, flowId, Type.ANSWER);
     }
 
@@ -105,7 +187,7 @@ public class Message implements Serializable {
      * @param flowId stream identifier of the question/answer flow
      * @return an answer message
      */
-    public static Message createAnswer(Enum<?> enumValue, Object payload, String flowId) {
+    public static Message createAnswer(Enum<?> enumValue, Object payload, long flowId) {
         return new Message(enumValue.toString(), payload, flowId, Type.ANSWER);
     }
 
@@ -117,7 +199,7 @@ public class Message implements Serializable {
      * @return an event message
      */
     public static Message createEvent(String name, Object payload) {
-        return new Message(name, payload, "event", Type.EVENT);
+        return new Message(name, payload, EVENT_FLOW_ID, Type.EVENT);
     }
 
     /**
@@ -131,6 +213,18 @@ public class Message implements Serializable {
         return createEvent(enumValue.toString(), payload);
     }
 
+    /**
+     * Factory method that creates an event which is part of the versioned match state
+     *
+     * @param enumValue the enum value that will be used as the name of the message
+     * @param payload payload of the message
+     * @param stateVersion the version of the match state reached once this event is applied
+     * @return an event message
+     */
+    public static Message createEvent(Enum<?> enumValue, Object payload, long stateVersion) {
+        return new Message(enumValue.toString(), payload, EVENT_FLOW_ID, Type.EVENT, stateVersion);
+    }
+
     /**
      * @return the name of the message
      */
@@ -155,33 +249,197 @@ public class Message implements Serializable {
      * @return the payload of the message
      */
     public JsonElement getPayload() {
-        return gson.fromJson(payload, new TypeToken<JsonElement>(){}.getType());
+        return payload;
     }
 
     /**
-     * Constructs a message from a JSON string
+     * Constructs a message from a JSON string, accepting both the current and the legacy protocol versions
      *
      * @param json the JSON string representing the message
      * @return a Message
+     * @throws JsonParseException if the string does not represent a message
      */
     public static Message fromJson(String json) {
-        return gson.fromJson(json, new TypeToken<Message>(){}.getType());
+        JsonElement envelope = parser.parse(json);
+        if (!envelope.isJsonObject()) {
+            throw new JsonParseException("Message envelope must be a JSON object");
+        }
+        JsonObject fields = envelope.getAsJsonObject();
+        int version = fields.has("version") ? fields.get("version").getAsInt() : LEGACY_PROTOCOL_VERSION;
+        JsonElement payload = fields.has("payload") ? fields.get("payload") : JsonNull.INSTANCE;
+        if (version < PROTOCOL_VERSION && !payload.isJsonNull()) {
+            payload = parser.parse(payload.getAsString());
+        }
+        return new Message(
+                fields.get("name").getAsString(),
+                payload,
+                parseFlowId(fields.get("flowId").getAsString()),
+                Type.valueOf(fields.get("type").getAsString()),
+                fields.has("stateVersion") ? fields.get("stateVersion").getAsLong() : NO_STATE_VERSION
+        );
+    }
+
+    /**
+     * Constructs a message from the content of a frame, which can be either binary or UTF-8 encoded JSON
+     *
+     * @param frame the content of the frame
+     * @return a Message
+     * @throws JsonParseException if the frame does not represent a message
+     */
+    public static Message fromFrame(byte[] frame) {
+        if (BinaryMessageCodec.isBinary(frame)) {
+            return BinaryMessageCodec.decode(frame);
+        }
+        return fromJson(new String(frame, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the content of a frame representing this message in the given format. The frame is encoded the first time
+     * it is requested and then shared, so it must not be modified
+     *
+     * @param format the frame format
+     * @return the content of the frame
+     */
+    public byte[] toFrame(FrameFormat format) {
+        byte[] frame = frames.get(format.ordinal());
+        if (frame == null) {
+            frame = format.encode(this);
+            if (!frames.compareAndSet(format.ordinal(), null, frame)) {
+                frame = frames.get(format.ordinal());
+            }
+        }
+        return frame;
     }
 
     /**
-     * Converts this message into a JSON string
+     * Converts this message into a JSON string using the current protocol version
      *
      * @return the JSON representation of this message
      */
     public String toJson() {
-        return gson.toJson(this);
+        return toJson(PROTOCOL_VERSION);
+    }
+
+    /**
+     * Converts this message into a JSON string that can be read by a peer supporting the given protocol version
+     *
+     * @param protocolVersion the protocol version supported by the receiver
+     * @return the JSON representation of this message
+     */
+    public String toJson(int protocolVersion) {
+        StringWriter json = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(json)) {
+            writer.beginObject();
+            if (protocolVersion >= PROTOCOL_VERSION) {
+                writer.name("version").value(PROTOCOL_VERSION);
+            }
+            writer.name("name").value(name);
+            writer.name("payload");
+            if (protocolVersion >= PROTOCOL_VERSION) {
+                gson.toJson(payload, writer);
+            } else {
+                writer.value(getSerializedPayload());
+            }
+            writer.name("flowId").value(formatFlowId(flowId));
+            writer.name("type").value(type.name());
+            if (protocolVersion >= PROTOCOL_VERSION && stateVersion != NO_STATE_VERSION) {
+                writer.name("stateVersion").value(stateVersion);
+            }
+            writer.endObject();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * @return the payload as a JSON string, as carried by the legacy representations
+     */
+    private String getSerializedPayload() {
+        String result = serializedPayload;
+        if (result == null) {
+            result = payload.toString();
+            serializedPayload = result;
+        }
+        return result;
     }
 
-    public String getFlowId() {
+    /**
+     * Writes this message in the legacy serialized form, with the payload as a JSON string
+     *
+     * @param out the output stream
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("name", name);
+        fields.put("payload", getSerializedPayload());
+        fields.put("flowId", formatFlowId(flowId));
+        fields.put("type", type);
+        fields.put("stateVersion", stateVersion);
+        out.writeFields();
+    }
+
+    /**
+     * Reads a message in the legacy serialized form, parsing the payload once
+     *
+     * @param in the input stream
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if the class of a serialized field cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        name = (String) fields.get("name", null);
+        String payloadJson = (String) fields.get("payload", null);
+        payload = payloadJson == null ? JsonNull.INSTANCE : parser.parse(payloadJson);
+        serializedPayload = payloadJson;
+        flowId = parseFlowId((String) fields.get("flowId", null));
+        type = (Type) fields.get("type", null);
+        stateVersion = fields.get("stateVersion", NO_STATE_VERSION);
+        frames = new AtomicReferenceArray<>(FrameFormat.values().length);
+    }
+
+    /**
+     * Converts a flow identifier into its textual representation
+     *
+     * @param flowId the flow identifier
+     * @return the textual representation of the flow identifier
+     */
+    private static String formatFlowId(long flowId) {
+        return flowId == EVENT_FLOW_ID ? EVENT_FLOW_ID_JSON : Long.toString(flowId);
+    }
+
+    /**
+     * Parses the textual representation of a flow identifier
+     *
+     * @param flowId the textual representation of the flow identifier
+     * @return the flow identifier
+     * @throws JsonParseException if the flow identifier is not valid
+     */
+    private static long parseFlowId(String flowId) {
+        if (flowId == null || flowId.equals(EVENT_FLOW_ID_JSON)) {
+            return EVENT_FLOW_ID;
+        }
+        try {
+            return Long.parseLong(flowId);
+        } catch (NumberFormatException e) {
+            throw new JsonParseException("Invalid flow identifier " + flowId, e);
+        }
+    }
+
+    public long getFlowId() {
         return flowId;
     }
 
     public Type getType() {
         return type;
     }
+
+    /**
+     * @return the version of the match state reached once this message is applied, {@link #NO_STATE_VERSION} if the
+     * message is not part of the versioned state
+     */
+    public long getStateVersion() {
+        return stateVersion;
+    }
 }
@@ -1,10 +1,16 @@
 package it.polimi.ingsw.shared.rmi;
 
+import it.polimi.ingsw.shared.messages.Message;
+
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
- * Interface that represents the end point provided by the server to the clients that want to join the game
+ * Interface that represents the end point provided by the server to the clients that want to join the game. A single
+ * end point serves all the clients, which identify their virtual connection with the token obtained when connecting
  *
  * @author Carlo Dell'Acqua
  */
@@ -13,9 +19,42 @@ public interface RMIStreamProvider extends Remote {
     /**
      * Called by the client this method provide establish a virtual connection between the client and the server
      *
-     * @return a unique identifier that corresponds to the name of the object in the RMI registry that implements the message proxy for a newly created connection
+     * @return the session token the client passes to every other call
      * @throws RemoteException if a network error occurs
      * @throws InterruptedException if the thread is forced to stop
      */
     String connect() throws RemoteException, InterruptedException;
+
+    /**
+     * Called by the client this method waits for at least one message to be available and returns it along with all
+     * the other messages already pending, so that a burst of messages costs a single remote call. A timeout is needed
+     * to prevent a deadlock
+     *
+     * @param token the session token of the client
+     * @param max the maximum number of messages to return
+     * @param timeout the time limit for the first message to become available
+     * @param unit the measurement unit of the timeout
+     * @return the received messages, in the order they were sent, never empty
+     * @throws RemoteException if a network error occurs or the session does not exist anymore
+     * @throws InterruptedException if the thread is forced to stop
+     * @throws TimeoutException if the specified timeout has been reached without receiving any message
+     */
+    List<Message> receiveMessages(String token, int max, int timeout, TimeUnit unit) throws RemoteException, InterruptedException, TimeoutException;
+
+    /**
+     * Called by the client this method is used to send multiple messages to the server with a single remote call
+     *
+     * @param token the session token of the client
+     * @param messages the messages to send, in order
+     * @throws RemoteException if a network error occurs or the session does not exist anymore
+     */
+    void sendMessages(String token, List<Message> messages) throws RemoteException;
+
+    /**
+     * Called by the client this method closes its virtual connection
+     *
+     * @param token the session token of the client
+     * @throws RemoteException if a network error occurs
+     */
+    void disconnect(String token) throws RemoteException;
 }
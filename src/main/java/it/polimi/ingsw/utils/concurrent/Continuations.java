@@ -0,0 +1,95 @@
+package it.polimi.ingsw.utils.concurrent;
+
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Utility methods to write sequential flows of asynchronous steps, such as the turns of a match waiting for the answers
+ * of the players, without holding a thread between one step and the next
+ */
+public final class Continuations {
+
+    private Continuations() { }
+
+    /**
+     * Runs an asynchronous body as long as the condition holds, starting each iteration once the previous one has
+     * completed. Iterations that complete immediately are run in place, so that long loops do not grow the stack
+     *
+     * @param condition the condition checked before each iteration
+     * @param body the body of the loop, returning the future of the iteration
+     * @return a future completed when the condition no longer holds or completed exceptionally if an iteration fails
+     */
+    public static CompletableFuture<Void> loop(BooleanSupplier condition, Supplier<? extends CompletableFuture<?>> body) {
+        while (condition.getAsBoolean()) {
+            CompletableFuture<?> iteration = body.get();
+            if (!iteration.isDone()) {
+                return iteration.thenCompose(ignored -> loop(condition, body));
+            }
+            if (iteration.isCompletedExceptionally()) {
+                return iteration.thenApply(ignored -> null);
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Runs an asynchronous body for each item, one item at a time
+     *
+     * @param items the items to iterate on
+     * @param body the body of the loop, returning the future of the iteration
+     * @param <T> the type of the items
+     * @return a future completed when all the items have been processed or completed exceptionally if an iteration fails
+     */
+    public static <T> CompletableFuture<Void> forEach(Iterable<T> items, Function<? super T, ? extends CompletableFuture<?>> body) {
+        Iterator<T> iterator = items.iterator();
+        return loop(iterator::hasNext, () -> body.apply(iterator.next()));
+    }
+
+    /**
+     * Waits for a future to complete, rethrowing the unchecked exception it failed with instead of its wrapper. This
+     * is the blocking adapter used by the code that has not been migrated to the asynchronous flows yet
+     *
+     * @param future the future to wait for
+     * @param <T> the type of the result
+     * @return the result of the future
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for a future to complete, running on the waiting thread the tasks queued meanwhile. A flow awaited by a
+     * thread of a bounded pool hands its blocking steps to that thread, instead of waiting for another thread of the
+     * same pool that may never be free
+     *
+     * @param future the future to wait for
+     * @param tasks the queue of the tasks run by the waiting thread
+     * @param <T> the type of the result
+     * @return the result of the future
+     */
+    public static <T> T join(CompletableFuture<T> future, BlockingQueue<Runnable> tasks) {
+        // Wakes the waiting thread up once the future is completed
+        future.whenComplete((result, e) -> tasks.add(() -> { }));
+        try {
+            while (!future.isDone()) {
+                tasks.take().run();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        return join(future);
+    }
+}
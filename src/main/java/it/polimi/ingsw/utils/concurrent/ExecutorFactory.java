@@ -0,0 +1,250 @@
+package it.polimi.ingsw.utils.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Creates the executors and threads used by the blocking loops of the application, so that all of them follow the same
+ * execution mode
+ */
+public final class ExecutorFactory {
+
+    /**
+     * The kind of threads that will run the blocking loops
+     */
+    public enum ExecutionMode {
+        /**
+         * Every loop is run by an OS thread
+         */
+        PLATFORM,
+        /**
+         * Every loop is run by a virtual thread, falling back to OS threads if the runtime does not support them
+         */
+        VIRTUAL
+    }
+
+    /**
+     * Logging utility
+     */
+    private static final Logger logger = Logger.getLogger(ExecutorFactory.class.getName());
+
+    /**
+     * The current execution mode
+     */
+    private static ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    /**
+     * The factory of the threads backing the executors
+     */
+    private static ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+    /**
+     * The duration of a tick of the shared timer in milliseconds
+     */
+    private static final int TIMER_TICK_MILLISECONDS = 100;
+
+    /**
+     * The number of buckets of the shared timer, enough to cover about a minute in a single turn of the wheel
+     */
+    private static final int TIMER_WHEEL_SIZE = 512;
+
+    /**
+     * The timer shared by the whole process, created when it is first needed
+     */
+    private static HashedWheelTimer timer;
+
+    /**
+     * The executor of the disk synchronizations shared by the whole process, created when it is first needed
+     */
+    private static ExecutorService diskExecutor;
+
+    /**
+     * The number of seconds an idle thread of the blocking executor is kept alive
+     */
+    private static final int BLOCKING_KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * The maximum number of threads of the blocking executor
+     */
+    private static int blockingThreads = 16;
+
+    /**
+     * The executor of the tasks waiting for the players shared by the whole process, created when it is first needed
+     */
+    private static ExecutorService blockingExecutor;
+
+    private ExecutorFactory() { }
+
+    /**
+     * Initializes this factory
+     *
+     * @param executionMode the kind of threads that will run the blocking loops
+     */
+    public static synchronized void initialize(ExecutionMode executionMode) {
+        initialize(executionMode, blockingThreads);
+    }
+
+    /**
+     * Initializes this factory
+     *
+     * @param executionMode the kind of threads that will run the blocking loops
+     * @param blockingThreads the maximum number of threads of the blocking executor created from now on
+     */
+    public static synchronized void initialize(ExecutionMode executionMode, int blockingThreads) {
+        if (blockingThreads < 1) {
+            throw new IllegalArgumentException("The blocking executor needs at least one thread");
+        }
+        ExecutorFactory.blockingThreads = blockingThreads;
+        if (executionMode == ExecutionMode.VIRTUAL) {
+            ThreadFactory virtualThreadFactory = createVirtualThreadFactory();
+            if (virtualThreadFactory != null) {
+                ExecutorFactory.executionMode = ExecutionMode.VIRTUAL;
+                ExecutorFactory.threadFactory = virtualThreadFactory;
+                return;
+            }
+            logger.warning("Virtual threads are not supported by this runtime, falling back to platform threads");
+        }
+        ExecutorFactory.executionMode = ExecutionMode.PLATFORM;
+        ExecutorFactory.threadFactory = Executors.defaultThreadFactory();
+    }
+
+    /**
+     * @return the execution mode currently in use, which is PLATFORM if VIRTUAL was requested but is not supported
+     */
+    public static synchronized ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * @return the maximum number of threads of the blocking executor
+     */
+    public static synchronized int getBlockingThreads() {
+        return blockingThreads;
+    }
+
+    /**
+     * Creates an executor that runs its tasks sequentially on a single thread
+     *
+     * @return the executor
+     */
+    public static synchronized ExecutorService newSingleThreadExecutor() {
+        return Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    /**
+     * Creates an executor that runs its tasks on a fixed amount of threads
+     *
+     * @param threads the number of threads
+     * @return the executor
+     */
+    public static synchronized ExecutorService newFixedThreadPool(int threads) {
+        return Executors.newFixedThreadPool(threads, threadFactory);
+    }
+
+    /**
+     * Creates a thread that is not started yet
+     *
+     * @param task the task the thread will run
+     * @return the thread
+     */
+    public static synchronized Thread newThread(Runnable task) {
+        return threadFactory.newThread(task);
+    }
+
+    /**
+     * Returns the timer shared by the whole process, used to schedule deadlines and periodic checks without dedicating a
+     * sleeping thread to each of them
+     *
+     * @return the shared timer
+     */
+    public static synchronized HashedWheelTimer getTimer() {
+        if (timer == null) {
+            timer = new HashedWheelTimer("shared-timer", TIMER_TICK_MILLISECONDS, TimeUnit.MILLISECONDS, TIMER_WHEEL_SIZE);
+        }
+        return timer;
+    }
+
+    /**
+     * Returns the executor shared by the whole process for the operations waiting for the disk, such as forcing written
+     * pages to it, so that the timer and the loops never wait for the disk themselves. Its only thread is a daemon, the
+     * writers that need their data on the disk when they are closed force it themselves
+     *
+     * @return the shared disk executor
+     */
+    public static synchronized ExecutorService getDiskExecutor() {
+        if (diskExecutor == null) {
+            diskExecutor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "disk-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return diskExecutor;
+    }
+
+    /**
+     * Returns the executor shared by the whole process for the tasks that wait for the players through a blocking API,
+     * such as the weapons and the powerups. It has a bounded number of named threads, the idle ones are stopped after a
+     * while and the tasks exceeding the bound wait in a queue
+     *
+     * @return the shared blocking executor
+     */
+    public static synchronized ExecutorService getBlockingExecutor() {
+        if (blockingExecutor == null) {
+            ThreadFactory factory = threadFactory;
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    blockingThreads,
+                    blockingThreads,
+                    BLOCKING_KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    task -> {
+                        Thread thread = factory.newThread(task);
+                        thread.setName("blocking-" + counter.incrementAndGet());
+                        return thread;
+                    }
+            );
+            pool.allowCoreThreadTimeOut(true);
+            blockingExecutor = pool;
+        }
+        return blockingExecutor;
+    }
+
+    /**
+     * Shuts down the shared blocking executor, the tasks already submitted are still run and the executor is created
+     * again when it is next needed
+     *
+     * @return the executor being shut down, or null if it was never created
+     */
+    public static synchronized ExecutorService shutdownBlockingExecutor() {
+        ExecutorService executor = blockingExecutor;
+        if (executor != null) {
+            executor.shutdown();
+            blockingExecutor = null;
+        }
+        return executor;
+    }
+
+    /**
+     * Looks up the virtual thread factory, which is only available starting from Java 21. Reflection is used so that
+     * the code still compiles and runs on older runtimes
+     *
+     * @return the virtual thread factory or null if the runtime does not support virtual threads
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (NoSuchMethodException | ClassNotFoundException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+}
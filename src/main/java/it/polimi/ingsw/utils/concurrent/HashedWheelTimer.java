@@ -0,0 +1,276 @@
+package it.polimi.ingsw.utils.concurrent;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * A timer that runs many short tasks with a single thread. Entries are hashed into the buckets of a wheel according to
+ * their deadline and the thread visits one bucket per tick, so scheduling and cancelling an entry costs a constant time
+ * and deadlines are honoured with the precision of a tick. The tasks are run by the timer thread, so they must not block
+ */
+public class HashedWheelTimer implements AutoCloseable {
+
+    /**
+     * A task scheduled on the timer
+     */
+    public interface Timeout {
+        /**
+         * Cancels the task if it has not been run yet
+         *
+         * @return true if the task has been cancelled by this call
+         */
+        boolean cancel();
+
+        /**
+         * @return true if the task has been cancelled
+         */
+        boolean isCancelled();
+
+        /**
+         * @return true if the task has been run
+         */
+        boolean isExpired();
+    }
+
+    /**
+     * The state of an entry waiting for its deadline
+     */
+    private static final int PENDING = 0;
+    /**
+     * The state of an entry that has been cancelled
+     */
+    private static final int CANCELLED = 1;
+    /**
+     * The state of an entry whose task has been run
+     */
+    private static final int EXPIRED = 2;
+
+    /**
+     * Logging utility
+     */
+    protected final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * The duration of a tick in nanoseconds
+     */
+    private final long tickDuration;
+
+    /**
+     * The buckets of the wheel, only accessed by the timer thread
+     */
+    private final List<Entry>[] buckets;
+
+    /**
+     * Mask used to compute the bucket of a tick, the number of buckets being a power of two
+     */
+    private final int mask;
+
+    /**
+     * Entries scheduled by other threads, waiting to be moved into their bucket by the timer thread
+     */
+    private final Queue<Entry> pendingEntries = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The instant the timer started, in nanoseconds, all the deadlines are relative to it
+     */
+    private final long startTime;
+
+    /**
+     * The thread running the timer
+     */
+    private final Thread thread;
+
+    /**
+     * Boolean indicating whether or not the close method has been invoked
+     */
+    private volatile boolean closing = false;
+
+    /**
+     * Constructs and starts a timer
+     *
+     * @param name the name of the timer thread
+     * @param tickDuration the duration of a tick, which is the precision of the timer
+     * @param unit the measurement unit of the tick duration
+     * @param wheelSize the number of buckets, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        this.tickDuration = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new LinkedList<>();
+        }
+        mask = size - 1;
+        startTime = System.nanoTime();
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Schedules a task to be run once after the given delay
+     *
+     * @param task the task to run, it must not block
+     * @param delay the delay after which the task will be run
+     * @param unit the measurement unit of the delay
+     * @return the scheduled entry, which can be cancelled
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (closing) {
+            throw new IllegalStateException("Timer stopped");
+        }
+        Entry entry = new Entry(task, System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay)));
+        pendingEntries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Advances the wheel one tick at a time, running the tasks whose deadline has been reached
+     */
+    private void run() {
+        long tick = 0;
+        while (!closing) {
+            long sleepNanos = (tick + 1) * tickDuration - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                continue;
+            }
+            transferPendingEntries(tick);
+            expireEntries(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    /**
+     * Moves the entries scheduled by other threads into the bucket of their deadline
+     *
+     * @param tick the current tick
+     */
+    private void transferPendingEntries(long tick) {
+        Entry entry;
+        while ((entry = pendingEntries.poll()) != null) {
+            if (entry.state.get() != PENDING) {
+                continue;
+            }
+            long deadlineTick = Math.max(tick, entry.deadline / tickDuration);
+            entry.remainingRounds = (deadlineTick - tick) / buckets.length;
+            buckets[(int) (deadlineTick & mask)].add(entry);
+        }
+    }
+
+    /**
+     * Runs the tasks of the bucket whose deadline has been reached, removing the cancelled entries
+     *
+     * @param bucket the bucket of the current tick
+     */
+    private void expireEntries(List<Entry> bucket) {
+        Iterator<Entry> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.state.get() != PENDING) {
+                iterator.remove();
+            } else if (entry.remainingRounds <= 0) {
+                iterator.remove();
+                entry.expire();
+            } else {
+                entry.remainingRounds--;
+            }
+        }
+    }
+
+    /**
+     * Stops the timer, the tasks that have not been run yet are discarded
+     *
+     * @throws InterruptedException if the thread is forced to stop while waiting for the timer to terminate
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closing = true;
+        thread.interrupt();
+        if (Thread.currentThread() != thread) {
+            thread.join();
+        }
+    }
+
+    /**
+     * An entry of the wheel
+     */
+    private class Entry implements Timeout {
+        /**
+         * The task to run
+         */
+        private final Runnable task;
+
+        /**
+         * The deadline, in nanoseconds since the timer started
+         */
+        private final long deadline;
+
+        /**
+         * The state of the entry
+         */
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        /**
+         * The number of complete turns of the wheel left before the deadline, only accessed by the timer thread
+         */
+        private long remainingRounds;
+
+        /**
+         * Constructs an entry
+         *
+         * @param task the task to run
+         * @param deadline the deadline, in nanoseconds since the timer started
+         */
+        private Entry(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Runs the task if the entry has not been cancelled
+         */
+        private void expire() {
+            if (state.compareAndSet(PENDING, EXPIRED)) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.warning("Timer task failed " + e);
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package it.polimi.ingsw.server.bootstrap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LobbyAllocatorTest {
+
+    private static GameInitializer lobby(LobbyAllocator allocator) {
+        return new GameInitializer(null, 1000, 3, 5, 16, Runnable::run, allocator);
+    }
+
+    @Test
+    void oldestLobbyFirst() throws Exception {
+        LobbyAllocator allocator = new LobbyAllocator();
+        GameInitializer first = lobby(allocator);
+        GameInitializer second = lobby(allocator);
+        allocator.join(first);
+        allocator.join(second);
+        assertEquals(2, allocator.getLobbyCount());
+
+        assertTrue(allocator.awaitTurn(first, 10, TimeUnit.MILLISECONDS));
+        assertFalse(allocator.awaitTurn(second, 10, TimeUnit.MILLISECONDS));
+
+        // The second lobby is woken up as soon as the first one leaves
+        CompletableFuture<Boolean> turn = CompletableFuture.supplyAsync(() -> {
+            try {
+                return allocator.awaitTurn(second, 5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        allocator.leave(first);
+        assertTrue(turn.get(5, TimeUnit.SECONDS));
+        assertEquals(1, allocator.getLobbyCount());
+    }
+}
@@ -0,0 +1,95 @@
+package it.polimi.ingsw.server.bootstrap;
+
+import it.polimi.ingsw.server.bootstrap.acceptors.LocalAcceptor;
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.server.view.local.LocalView;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.shared.messages.ServerApi;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchmakingQueueTest {
+
+    private static final MatchPreferences FIVE_SKULLS = new MatchPreferences(BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD);
+    private static final MatchPreferences EIGHT_SKULLS = new MatchPreferences(BoardFactory.Preset.BOARD_1, 8, Match.Mode.STANDARD);
+
+    private LocalAcceptor acceptor;
+
+    @BeforeEach
+    void setUp() {
+        acceptor = new LocalAcceptor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        acceptor.close();
+    }
+
+    private View view(String nickname, MatchPreferences preferences) throws Exception {
+        LocalView view = acceptor.connect();
+        view.receiveMessage(Message.createEvent(
+                ServerApi.VIEW_INIT_EVENT,
+                new ClientInitializationInfo(nickname, preferences.getPreset(), preferences.getSkulls(), preferences.getMode())
+        ));
+        view.initialize();
+        return view;
+    }
+
+    @Test
+    void compatiblePlayersFirst() throws Exception {
+        MatchmakingQueue queue = new MatchmakingQueue(Duration.ofHours(1));
+        View first = view("Player0", EIGHT_SKULLS);
+        View second = view("Player1", FIVE_SKULLS);
+        View third = view("Player2", FIVE_SKULLS);
+        queue.add(first);
+        queue.add(second);
+        queue.add(third);
+        assertEquals(3, queue.size());
+
+        // A lobby with preferences only takes the compatible players
+        assertSame(second, queue.poll(FIVE_SKULLS, p -> false));
+        // An empty lobby skips the preferences claimed by another lobby
+        assertSame(third, queue.poll(null, EIGHT_SKULLS::equals));
+        assertNull(queue.poll(FIVE_SKULLS, p -> false));
+        assertSame(first, queue.poll(null, p -> false));
+        assertTrue(queue.isEmpty());
+
+        assertTrue(queue.getMedianTimeToMatch(FIVE_SKULLS).isPresent());
+        assertTrue(queue.getMedianTimeToMatch(EIGHT_SKULLS).isPresent());
+        assertFalse(queue.getMedianTimeToMatch(new MatchPreferences(BoardFactory.Preset.BOARD_2, 5, Match.Mode.STANDARD)).isPresent());
+    }
+
+    @Test
+    void relaxation() throws Exception {
+        MatchmakingQueue queue = new MatchmakingQueue(Duration.ZERO);
+        View view = view("Player", EIGHT_SKULLS);
+        queue.add(view);
+
+        // Once the relaxation timeout expired any lobby can take the player
+        assertSame(view, queue.poll(FIVE_SKULLS, p -> false));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void remove() throws Exception {
+        MatchmakingQueue queue = new MatchmakingQueue(Duration.ofHours(1));
+        View view = view("Player", FIVE_SKULLS);
+        queue.add(view);
+        queue.add(view("Other", EIGHT_SKULLS));
+
+        assertTrue(queue.remove(view));
+        assertFalse(queue.remove(view));
+        assertEquals(1, queue.size());
+        assertNull(queue.poll(FIVE_SKULLS, p -> false));
+        // The removed views do not count as matched
+        assertFalse(queue.getMedianTimeToMatch(FIVE_SKULLS).isPresent());
+    }
+}
@@ -0,0 +1,90 @@
+package it.polimi.ingsw.server.bootstrap;
+
+import it.polimi.ingsw.server.bootstrap.acceptors.LocalAcceptor;
+import it.polimi.ingsw.server.bootstrap.events.listeners.ViewReconnectedListener;
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.server.view.local.LocalView;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.shared.messages.ServerApi;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+
+    private LocalAcceptor acceptor;
+    private List<View> forgotten;
+    private SessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        acceptor = new LocalAcceptor();
+        forgotten = new LinkedList<>();
+        registry = new SessionRegistry(forgotten::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        acceptor.close();
+    }
+
+    private View view(String nickname) throws Exception {
+        LocalView view = acceptor.connect();
+        view.receiveMessage(Message.createEvent(
+                ServerApi.VIEW_INIT_EVENT,
+                new ClientInitializationInfo(nickname, BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD)
+        ));
+        view.initialize();
+        return view;
+    }
+
+    @Test
+    void waitingDisconnection() throws Exception {
+        View view = view("Player");
+        SessionRegistry.Session session = registry.register(view);
+        assertSame(view, session.getView());
+        assertEquals(SessionRegistry.State.WAITING, session.getState());
+
+        // The nickname is taken, the existing session is returned
+        View duplicate = view("Player");
+        assertSame(session, registry.register(duplicate));
+        assertSame(view, session.getView());
+
+        // The session of a waiting player is removed as soon as it disconnects
+        view.close();
+        assertFalse(registry.get("Player").isPresent());
+        assertEquals(Collections.singletonList(view), forgotten);
+        assertSame(duplicate, registry.register(duplicate).getView());
+    }
+
+    @Test
+    void matchReconnection() throws Exception {
+        View view = view("Player");
+        SessionRegistry.Session session = registry.register(view);
+        ViewReconnectedListener controller = e -> e.consume();
+        registry.startMatch(Collections.singletonList(view), controller);
+        assertEquals(SessionRegistry.State.IN_MATCH, session.getState());
+
+        view.close();
+        assertEquals(SessionRegistry.State.DISCONNECTED, session.getState());
+        assertTrue(forgotten.isEmpty());
+
+        View reconnected = view("Player");
+        assertTrue(registry.reconnect(registry.register(reconnected), reconnected, owner -> owner == controller));
+        assertSame(reconnected, session.getView());
+        assertEquals(SessionRegistry.State.IN_MATCH, session.getState());
+
+        // Once the match ends the nickname is free again
+        registry.endMatch(Collections.singletonList("Player"), controller);
+        assertEquals(0, registry.getSessionCount());
+    }
+}
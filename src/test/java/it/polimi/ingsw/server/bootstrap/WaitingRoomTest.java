@@ -0,0 +1,67 @@
+package it.polimi.ingsw.server.bootstrap;
+
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.server.view.local.LocalView;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.shared.messages.ServerApi;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitingRoomTest {
+
+    // The RMI registry can only be created once in the JVM, so the waiting room is shared by the tests
+    private static WaitingRoom waitingRoom;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        waitingRoom = new WaitingRoom(29011, -1, 29012, 1);
+        waitingRoom.collectAsync();
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        waitingRoom.close();
+    }
+
+    private LocalView connect(String nickname) {
+        LocalView view = waitingRoom.getLocalAcceptor().connect();
+        view.receiveMessage(Message.createEvent(
+                ServerApi.VIEW_INIT_EVENT,
+                new ClientInitializationInfo(nickname, BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD)
+        ));
+        return view;
+    }
+
+    @Test
+    void pollWakesUpOnNewView() throws Exception {
+        assertFalse(waitingRoom.poll(10, TimeUnit.MILLISECONDS).isPresent());
+
+        LocalView connected = connect("Player");
+        Optional<View> view = waitingRoom.poll(5, TimeUnit.SECONDS);
+        assertTrue(view.isPresent());
+        assertSame(connected, view.get());
+        assertEquals("Player", view.get().getNickname());
+        assertFalse(waitingRoom.pop().isPresent());
+    }
+
+    @Test
+    void fullRoomStartsWithoutTimeout() throws Exception {
+        connect("Player0");
+        connect("Player1");
+        GameInitializer initializer = new GameInitializer(waitingRoom, 60000, 1, 2, 16, Runnable::run);
+
+        long start = System.nanoTime();
+        assertNotNull(initializer.initialize());
+        // The room is full, so it must not wait for the start timeout
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 30);
+    }
+}
@@ -0,0 +1,67 @@
+package it.polimi.ingsw.server.bootstrap.acceptors;
+
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.server.view.local.LocalView;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.shared.messages.ServerApi;
+import it.polimi.ingsw.shared.messages.templates.Answer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalAcceptorTest {
+
+    private LocalAcceptor acceptor;
+
+    @BeforeEach
+    void setUp() {
+        acceptor = new LocalAcceptor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        acceptor.close();
+    }
+
+    @Test
+    void questionAndAnswer() throws Exception {
+        LocalView clientSide = acceptor.connect();
+        clientSide.receiveMessage(Message.createEvent(
+                ServerApi.VIEW_INIT_EVENT,
+                new ClientInitializationInfo("Player", BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD)
+        ));
+
+        View view = acceptor.call();
+        assertSame(clientSide, view);
+        view.initialize();
+        assertEquals("Player", view.getNickname());
+
+        CompletableFuture<String> choice = view.selectAsync("Choose", Arrays.asList("first", "second"), ClientApi.TARGET_QUESTION);
+
+        // The client reads the same message object the view enqueued
+        Message question = clientSide.getOutputMessageQueue().poll(5, TimeUnit.SECONDS);
+        assertNotNull(question);
+        assertEquals(Message.Type.QUESTION, question.getType());
+        clientSide.receiveMessage(Message.createAnswer(ClientApi.TARGET_QUESTION, new Answer<>("second"), question.getFlowId()));
+
+        assertEquals("second", choice.get(5, TimeUnit.SECONDS));
+        view.close();
+    }
+
+    @Test
+    void connectAfterClose() {
+        acceptor.close();
+        assertThrows(IllegalStateException.class, acceptor::connect);
+        assertThrows(InterruptedException.class, acceptor::call);
+    }
+}
@@ -0,0 +1,142 @@
+package it.polimi.ingsw.server.bootstrap.acceptors;
+
+import it.polimi.ingsw.client.io.MultiplexedSocket;
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.view.View;
+import it.polimi.ingsw.server.view.remote.MultiplexedSessionView;
+import it.polimi.ingsw.shared.InputStreamMessageSupplier;
+import it.polimi.ingsw.shared.OutputStreamMessageConsumer;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.shared.messages.ServerApi;
+import it.polimi.ingsw.shared.messages.templates.Answer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocketAcceptorTest {
+
+    private SocketAcceptor acceptor;
+    private Socket socket;
+    private InputStreamMessageSupplier supplier;
+    private OutputStreamMessageConsumer consumer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        acceptor = new SocketAcceptor(0, 0, 2);
+        socket = new Socket();
+        socket.connect(new InetSocketAddress("localhost", acceptor.getPort()));
+        supplier = new InputStreamMessageSupplier(new DataInputStream(socket.getInputStream()));
+        consumer = new OutputStreamMessageConsumer(new DataOutputStream(socket.getOutputStream()));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        socket.close();
+        supplier.close();
+        acceptor.close();
+    }
+
+    @Test
+    void questionAndAnswer() throws Exception {
+        consumer.accept(Message.createEvent(
+                ServerApi.VIEW_INIT_EVENT,
+                new ClientInitializationInfo("Player", BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD)
+        ));
+
+        View view = acceptor.call();
+        view.initialize();
+        assertEquals("Player", view.getNickname());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> choice = executor.submit(
+                () -> view.select("Choose", Arrays.asList("first", "second"), ClientApi.TARGET_QUESTION)
+        );
+
+        Message question = supplier.get(5, TimeUnit.SECONDS);
+        assertEquals(Message.Type.QUESTION, question.getType());
+        consumer.accept(Message.createAnswer(ClientApi.TARGET_QUESTION, new Answer<>("second"), question.getFlowId()));
+
+        assertEquals("second", choice.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        view.close();
+    }
+
+    @Test
+    void multiplexedSessions() throws Exception {
+        MultiplexedSocket multiplexedSocket = new MultiplexedSocket(new InetSocketAddress("localhost", acceptor.getMultiplexedPort()));
+        Map<String, BlockingQueue<Message>> inputs = new HashMap<>();
+        Map<String, Integer> sessionIds = new HashMap<>();
+        for (String nickname : Arrays.asList("Player1", "Player2")) {
+            BlockingQueue<Message> input = new LinkedBlockingQueue<>();
+            int sessionId = multiplexedSocket.openSession(input);
+            inputs.put(nickname, input);
+            sessionIds.put(nickname, sessionId);
+            multiplexedSocket.send(sessionId, Collections.singletonList(Message.createEvent(
+                    ServerApi.VIEW_INIT_EVENT,
+                    new ClientInitializationInfo(nickname, BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD)
+            )));
+        }
+
+        // The plain socket opened by setUp is accepted too, only the sessions are initialized
+        Map<String, View> views = new HashMap<>();
+        while (views.size() < 2) {
+            View view = acceptor.call();
+            if (view instanceof MultiplexedSessionView) {
+                view.initialize();
+                views.put(view.getNickname(), view);
+            }
+        }
+        assertEquals(inputs.keySet(), views.keySet());
+
+        // Each session receives only its own question and answers it on the shared connection
+        CompletableFuture<String> first = views.get("Player1").selectAsync("Choose", Arrays.asList("a", "b"), ClientApi.TARGET_QUESTION);
+        CompletableFuture<String> second = views.get("Player2").selectAsync("Choose", Arrays.asList("c", "d"), ClientApi.TARGET_QUESTION);
+        for (String nickname : inputs.keySet()) {
+            Message question = inputs.get(nickname).poll(5, TimeUnit.SECONDS);
+            assertNotNull(question);
+            assertEquals(Message.Type.QUESTION, question.getType());
+            String answer = nickname.equals("Player1") ? "b" : "c";
+            multiplexedSocket.send(sessionIds.get(nickname), Collections.singletonList(
+                    Message.createAnswer(ClientApi.TARGET_QUESTION, new Answer<>(answer), question.getFlowId())
+            ));
+        }
+        assertEquals("b", first.get(5, TimeUnit.SECONDS));
+        assertEquals("c", second.get(5, TimeUnit.SECONDS));
+
+        // Closing a session leaves the connection open for the other one
+        views.get("Player1").close();
+        CompletableFuture<String> third = views.get("Player2").selectAsync("Choose", Arrays.asList("e", "f"), ClientApi.TARGET_QUESTION);
+        Message question = inputs.get("Player2").poll(5, TimeUnit.SECONDS);
+        assertNotNull(question);
+        multiplexedSocket.send(sessionIds.get("Player2"), Collections.singletonList(
+                Message.createAnswer(ClientApi.TARGET_QUESTION, new Answer<>("f"), question.getFlowId())
+        ));
+        assertEquals("f", third.get(5, TimeUnit.SECONDS));
+
+        // A session closed by the client disconnects its view
+        multiplexedSocket.closeSession(sessionIds.get("Player2"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (views.get("Player2").isConnected() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(views.get("Player2").isConnected());
+
+        views.get("Player2").close();
+        multiplexedSocket.close();
+    }
+}
@@ -0,0 +1,132 @@
+package it.polimi.ingsw.server.cluster;
+
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.FrameFormat;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.shared.messages.ServerApi;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterRouterTest {
+
+    private ClusterRouter router;
+    private final List<AutoCloseable> resources = new LinkedList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        router = new ClusterRouter(0, 0, 60000);
+        router.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+        router.close();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private ServerSocket node() throws Exception {
+        ServerSocket node = new ServerSocket(0);
+        node.setSoTimeout(5000);
+        resources.add(node);
+        NodeAgent agent = new NodeAgent(
+                new InetSocketAddress("localhost", router.getControlPort()),
+                new NodeRegistration("localhost", node.getLocalPort(), 10)
+        );
+        int nodes = router.getNodeCount();
+        agent.connect();
+        resources.add(agent);
+        await(() -> router.getNodeCount() == nodes + 1);
+        return node;
+    }
+
+    private Socket connect(String nickname) throws IOException {
+        Socket client = new Socket("localhost", router.getPublicPort());
+        resources.add(client);
+        byte[] frame = Message.createEvent(
+                ServerApi.VIEW_INIT_EVENT,
+                new ClientInitializationInfo(nickname, BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD)
+        ).toFrame(FrameFormat.JSON);
+        DataOutputStream output = new DataOutputStream(client.getOutputStream());
+        output.writeInt(frame.length);
+        output.write(frame);
+        output.flush();
+        return client;
+    }
+
+    private Socket accept(ServerSocket node, String nickname) throws IOException {
+        Socket relayed = node.accept();
+        resources.add(relayed);
+        DataInputStream input = new DataInputStream(relayed.getInputStream());
+        byte[] frame = new byte[input.readInt()];
+        input.readFully(frame);
+        // The initialization frame reaches the node unchanged
+        assertEquals(ServerApi.VIEW_INIT_EVENT.toString(), Message.fromFrame(frame).getName());
+        assertTrue(Message.fromFrame(frame).getPayload().toString().contains(nickname));
+        return relayed;
+    }
+
+    @Test
+    void leastLoadedAndReconnection() throws Exception {
+        ServerSocket first = node();
+        ServerSocket second = node();
+
+        Socket player0 = connect("Player0");
+        accept(first, "Player0");
+        Socket player1 = connect("Player1");
+        Socket relayed1 = accept(second, "Player1");
+
+        player0.close();
+        await(() -> router.getRelayedClientCount() == 1);
+        connect("Player2");
+        accept(first, "Player2");
+
+        // Both nodes host a player, then the second one gets free: the reconnecting player still goes to the first
+        player1.close();
+        await(() -> router.getRelayedClientCount() == 1);
+        connect("Player0");
+        accept(first, "Player0");
+
+        // The data flows in both directions once the client has been relayed
+        Socket player1Again = connect("Player1");
+        Socket relayed = accept(second, "Player1");
+        relayed.getOutputStream().write(42);
+        assertEquals(42, player1Again.getInputStream().read());
+        assertNotSame(relayed1, relayed);
+    }
+
+    @Test
+    void nodeLeaving() throws Exception {
+        node();
+        assertEquals(1, router.getNodeCount());
+        resources.get(1).close();
+        await(() -> router.getNodeCount() == 0);
+
+        // Without nodes the client is disconnected
+        Socket client = connect("Player");
+        assertEquals(-1, client.getInputStream().read());
+    }
+}
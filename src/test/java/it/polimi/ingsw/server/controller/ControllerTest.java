@@ -1,15 +1,29 @@
 package it.polimi.ingsw.server.controller;
 
+import com.google.gson.Gson;
+import it.polimi.ingsw.server.journal.DecisionLog;
+import it.polimi.ingsw.server.journal.JournalHeader;
+import it.polimi.ingsw.server.journal.MatchJournal;
 import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.currency.CurrencyColor;
+import it.polimi.ingsw.server.model.currency.PowerupTile;
 import it.polimi.ingsw.server.model.match.Match;
 import it.polimi.ingsw.server.model.match.MatchFactory;
+import it.polimi.ingsw.server.model.player.BasicAction;
+import it.polimi.ingsw.server.model.player.DamageToken;
 import it.polimi.ingsw.server.model.player.Player;
 import it.polimi.ingsw.server.view.Interviewer;
+import it.polimi.ingsw.server.view.MatchEventBroadcaster;
 import it.polimi.ingsw.server.view.View;
 import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.utils.concurrent.ExecutorFactory;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 
@@ -40,19 +54,19 @@ class ControllerTest {
 
 
         @Override
-        public <T> T select(String questionText, Collection<T> options, ClientApi messageName) {
+        public <T> CompletableFuture<T> selectAsync(String questionText, Collection<T> options, ClientApi messageName) {
             List<T> optionsList = new ArrayList<>(options);
             int i = 0;
             while (i < index && i < optionsList.size() - 1){ i++; }
-            return optionsList.get(i);
+            return CompletableFuture.completedFuture(optionsList.get(i));
         }
 
         @Override
-        public <T> Optional<T> selectOptional(String questionText, Collection<T> options, ClientApi messageName) {
+        public <T> CompletableFuture<Optional<T>> selectOptionalAsync(String questionText, Collection<T> options, ClientApi messageName) {
             List<T> optionsList = new ArrayList<>(options);
             int i = random.nextInt(options.size() + 1);
-            if (i >= options.size()) return Optional.empty();
-            return Optional.of(optionsList.get(i));
+            if (i >= options.size()) return CompletableFuture.completedFuture(Optional.empty());
+            return CompletableFuture.completedFuture(Optional.of(optionsList.get(i)));
         }
 
         public void setIndex(int newIndex){ index = newIndex; }
@@ -63,8 +77,251 @@ class ControllerTest {
         }
     }
 
+    /**
+     * A view whose answers are given by the test, one question at a time
+     */
+    private class PendingView extends View {
+
+        volatile ClientApi question;
+        volatile List<?> options;
+        volatile CompletableFuture<?> answer;
+
+        public PendingView() {
+            super(60, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> selectAsync(String questionText, Collection<T> options, ClientApi messageName) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            this.question = messageName;
+            this.options = new ArrayList<>(options);
+            this.answer = future;
+            return future;
+        }
+
+        @Override
+        public <T> CompletableFuture<Optional<T>> selectOptionalAsync(String questionText, Collection<T> options, ClientApi messageName) {
+            return selectAsync(questionText, options, messageName).thenApply(Optional::of);
+        }
+
+        void answerFirst() {
+            answer(options.get(0));
+        }
+
+        @SuppressWarnings("unchecked")
+        void answer(Object option) {
+            ((CompletableFuture<Object>) answer).complete(option);
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+
+    /**
+     * A view whose player always chooses the first option and uses every powerup it can
+     */
+    private class EagerView extends View {
+
+        public EagerView() {
+            super(60, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> selectAsync(String questionText, Collection<T> options, ClientApi messageName) {
+            return CompletableFuture.completedFuture(options.iterator().next());
+        }
+
+        @Override
+        public <T> CompletableFuture<Optional<T>> selectOptionalAsync(String questionText, Collection<T> options, ClientApi messageName) {
+            return selectAsync(questionText, options, messageName).thenApply(Optional::of);
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+
+    @Test
+    void start() {
+        List<String> playerNames = new ArrayList<>();
+        List<PendingView> pendingViews = new ArrayList<>();
+        for (int i = 0; i < 3; i++){
+            playerNames.add("Player" + i);
+            pendingViews.add(new PendingView());
+        }
+        Match match = MatchFactory.create(playerNames, BoardFactory.Preset.BOARD_1, 8, Match.Mode.STANDARD);
+        IntStream.range(0, 3).forEach(i -> pendingViews.get(i).setPlayer(match.getPlayers().get(i)));
+        Controller controller = new Controller(match, new ArrayList<>(pendingViews), 3);
+
+        CompletableFuture<Void> end = controller.start();
+
+        // The match waits for the first player without holding the calling thread
+        assertFalse(end.isDone());
+        PendingView first = pendingViews.get(0);
+        assertEquals(ClientApi.SPAWNPOINT_QUESTION, first.question);
+        assertNull(pendingViews.get(1).answer);
+        assertNull(pendingViews.get(2).answer);
+
+        CompletableFuture<?> spawnpointAnswer = first.answer;
+        first.answerFirst();
+
+        // The answer resumes the match, which asks the next question
+        assertNotSame(spawnpointAnswer, first.answer);
+        assertFalse(first.answer.isDone());
+        assertNotEquals(ClientApi.SPAWNPOINT_QUESTION, first.question);
+        assertFalse(end.isDone());
+
+        controller.close();
+    }
+
+    /**
+     * Creates the match of a journal header and its controller, whose players are asked through pending views
+     */
+    private Controller journaledController(JournalHeader header, List<PendingView> views, DecisionLog decisions) {
+        Match match = MatchFactory.create(header.getNicknames(), header.getPreset(), header.getSkulls(), header.getMode(), header.getSeed());
+        for (Player player : match.getPlayers()) {
+            PendingView view = new PendingView();
+            view.setPlayer(player);
+            views.add(view);
+        }
+        return new Controller(match, new ArrayList<>(views), header.getMinClients(), new MatchEventBroadcaster(match, Collections.emptyList()), Runnable::run, decisions);
+    }
+
+    /**
+     * Waits until one of the views is asked a question
+     */
+    private static int awaitQuestion(List<PendingView> views) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            for (int v = 0; v < views.size(); v++) {
+                CompletableFuture<?> answer = views.get(v).answer;
+                if (answer != null && !answer.isDone()) {
+                    return v;
+                }
+            }
+            Thread.sleep(10);
+        }
+        return fail("No question asked");
+    }
+
     @Test
-    void onPlayerDamaged() {
+    void replayFromJournal(@TempDir Path directory) throws Exception {
+        JournalHeader header = new JournalHeader(42, Arrays.asList("Player0", "Player1", "Player2"), BoardFactory.Preset.BOARD_1, 8, Match.Mode.STANDARD, 3);
+        List<PendingView> played = new ArrayList<>();
+        Controller controller = journaledController(header, played, new DecisionLog(MatchJournal.create(directory, header)));
+        controller.start();
+        for (int i = 0; i < 10; i++) {
+            PendingView view = played.get(awaitQuestion(played));
+            // The players only move, so that the answers do not depend on the order of the options
+            view.answer(view.options.contains(BasicAction.MOVE) ? BasicAction.MOVE : view.options.get(0));
+        }
+        int asked = awaitQuestion(played);
+
+        // After a crash the match is replayed from its journal up to the question that was pending
+        MatchJournal journal = MatchJournal.open(MatchJournal.list(directory).get(0));
+        DecisionLog decisions = new DecisionLog(journal, journal.getRecords());
+        List<PendingView> recovered = new ArrayList<>();
+        Controller recoveredController = journaledController(header, recovered, decisions);
+        recoveredController.start();
+
+        assertEquals(asked, awaitQuestion(recovered));
+        assertFalse(decisions.isReplaying());
+        assertEquals(played.get(asked).question, recovered.get(asked).question);
+        assertEquals(new Gson().toJson(played.get(asked).options), new Gson().toJson(recovered.get(asked).options));
+        for (int i = 0; i < played.size(); i++) {
+            if (i != asked) {
+                assertNull(recovered.get(i).answer);
+            }
+            Player original = played.get(i).getPlayer();
+            Player replayed = recovered.get(i).getPlayer();
+            assertEquals(original.getColor(), replayed.getColor());
+            assertEquals(original.getPowerups().size(), replayed.getPowerups().size());
+            assertEquals(original.getAmmoCubes().size(), replayed.getAmmoCubes().size());
+            assertEquals(original.getDamageTokens().size(), replayed.getDamageTokens().size());
+        }
+
+        controller.close();
+        recoveredController.close();
+    }
+
+    @Test
+    void closeKeepsJournal(@TempDir Path directory) throws Exception {
+        JournalHeader header = new JournalHeader(42, Arrays.asList("Player0", "Player1", "Player2"), BoardFactory.Preset.BOARD_1, 8, Match.Mode.STANDARD, 3);
+        List<PendingView> played = new ArrayList<>();
+        Controller controller = journaledController(header, played, new DecisionLog(MatchJournal.create(directory, header)));
+        CompletableFuture<Void> end = controller.start();
+        for (int i = 0; i < 3; i++) {
+            PendingView view = played.get(awaitQuestion(played));
+            view.answer(view.options.contains(BasicAction.MOVE) ? BasicAction.MOVE : view.options.get(0));
+        }
+        PendingView pending = played.get(awaitQuestion(played));
+
+        // Closing the server suspends the match: the answers given afterwards are not written and the journal survives
+        controller.close();
+        int recorded;
+        try (MatchJournal suspended = MatchJournal.open(MatchJournal.list(directory).get(0))) {
+            recorded = suspended.getRecords().size();
+        }
+        pending.answer(pending.options.contains(BasicAction.MOVE) ? BasicAction.MOVE : pending.options.get(0));
+        // The turn in progress goes on until its end, then the match stops
+        for (int i = 0; i < 500 && !end.isDone(); i++) {
+            for (PendingView view : played) {
+                CompletableFuture<?> answer = view.answer;
+                if (answer != null && !answer.isDone()) {
+                    view.answer(view.options.contains(BasicAction.MOVE) ? BasicAction.MOVE : view.options.get(0));
+                }
+            }
+            Thread.sleep(10);
+        }
+        end.get(5, TimeUnit.SECONDS);
+
+        List<Path> journals = MatchJournal.list(directory);
+        assertEquals(1, journals.size());
+        MatchJournal journal = MatchJournal.open(journals.get(0));
+        assertEquals(recorded, journal.getRecords().size());
+        assertFalse(played.get(0).getPlayer().getMatch().isEnded());
+        journal.close();
+    }
+
+    @Test
+    void onPlayerDamaged() throws Exception {
+        ExecutorFactory.ExecutionMode mode = ExecutorFactory.getExecutionMode();
+        int blockingThreads = ExecutorFactory.getBlockingThreads();
+        ExecutorFactory.initialize(mode, 1);
+        ExecutorFactory.shutdownBlockingExecutor();
+        try {
+            List<String> playerNames = Arrays.asList("Player0", "Player1", "Player2");
+            List<View> eagerViews = new ArrayList<>();
+            Match match = MatchFactory.create(playerNames, BoardFactory.Preset.BOARD_1, 8, Match.Mode.STANDARD);
+            for (Player player : match.getPlayers()) {
+                EagerView view = new EagerView();
+                view.setPlayer(player);
+                eagerViews.add(view);
+            }
+            new Controller(match, eagerViews, 3);
+            Player shooter = match.getPlayers().get(0);
+            Player victim = match.getPlayers().get(1);
+            PowerupTile spawnpoint = new PowerupTile(CurrencyColor.RED, "Newton");
+            shooter.selectSpawnpoint(spawnpoint);
+            victim.selectSpawnpoint(spawnpoint);
+            shooter.grabPowerup(new PowerupTile(CurrencyColor.BLUE, "Targeting Scope"));
+            victim.grabPowerup(new PowerupTile(CurrencyColor.YELLOW, "Tagback Grenade"));
+
+            // The shot, the scope and the grenade reacting to the scope share the only thread of the blocking executor
+            ExecutorFactory.getBlockingExecutor()
+                    .submit(() -> victim.addDamageTokens(Collections.singletonList(new DamageToken(shooter))))
+                    .get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, victim.getDamageTokens().size());
+            assertEquals(1, shooter.getMarks().size());
+            assertTrue(shooter.getPowerups().isEmpty());
+            assertTrue(victim.getPowerups().isEmpty());
+        } finally {
+            ExecutorFactory.initialize(mode, blockingThreads);
+            ExecutorFactory.shutdownBlockingExecutor();
+        }
     }
 
     @Test
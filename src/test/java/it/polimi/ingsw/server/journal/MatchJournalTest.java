@@ -0,0 +1,120 @@
+package it.polimi.ingsw.server.journal;
+
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.match.Match;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final JournalHeader header = new JournalHeader(42, Arrays.asList("Player0", "Player1"), BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD, 2);
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void appendAndOpen() throws IOException {
+        MatchJournal journal = MatchJournal.create(directory, header);
+        journal.append(MatchJournal.Type.ANSWER, bytes("first"));
+        journal.append(MatchJournal.Type.CHECKPOINT, bytes("second"));
+        long end = journal.getPosition();
+        journal.close();
+
+        // A record torn by a crash has everything but its length
+        try (FileChannel channel = FileChannel.open(journal.getFile(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) MatchJournal.Type.ANSWER.ordinal(), 1, 2, 3}), end + Integer.BYTES);
+        }
+
+        MatchJournal reopened = MatchJournal.open(journal.getFile());
+        assertEquals(42, reopened.getHeader().getSeed());
+        assertEquals(header.getNicknames(), reopened.getHeader().getNicknames());
+        assertEquals(Match.Mode.STANDARD, reopened.getHeader().getMode());
+        List<MatchJournal.Record> records = reopened.getRecords();
+        assertEquals(2, records.size());
+        assertEquals(MatchJournal.Type.ANSWER, records.get(0).getType());
+        assertArrayEquals(bytes("first"), records.get(0).getBody());
+        assertArrayEquals(bytes("second"), records.get(1).getBody());
+        assertEquals(end, reopened.getPosition());
+
+        // The new records are written after the last complete one
+        reopened.append(MatchJournal.Type.CONNECTION, new byte[]{7});
+        reopened.close();
+        MatchJournal again = MatchJournal.open(journal.getFile());
+        assertEquals(3, again.getRecords().size());
+        assertArrayEquals(new byte[]{7}, again.getRecords().get(2).getBody());
+
+        assertEquals(Arrays.asList(journal.getFile()), MatchJournal.list(directory));
+        again.delete();
+        assertFalse(Files.exists(journal.getFile()));
+        assertTrue(MatchJournal.list(directory).isEmpty());
+    }
+
+    @Test
+    void deleteEndsJournal() throws IOException {
+        // The links keep the content of the files as it was when they were deleted
+        MatchJournal running = MatchJournal.create(directory, header);
+        running.append(MatchJournal.Type.ANSWER, new byte[600 * 1024]);
+        running.append(MatchJournal.Type.ANSWER, new byte[600 * 1024]);
+        assertFalse(MatchJournal.isEnded(running.getFile()));
+        Path runningLink = Files.createLink(directory.resolve("running.link"), running.getFile());
+        running.delete();
+        assertTrue(MatchJournal.isEnded(runningLink));
+
+        MatchJournal suspended = MatchJournal.create(directory, header);
+        suspended.append(MatchJournal.Type.ANSWER, bytes("first"));
+        suspended.close();
+        Path suspendedLink = Files.createLink(directory.resolve("suspended.link"), suspended.getFile());
+        suspended.delete();
+        assertTrue(MatchJournal.isEnded(suspendedLink));
+        assertTrue(MatchJournal.list(directory).isEmpty());
+    }
+
+    @Test
+    void replayDecisions() throws IOException {
+        MatchJournal journal = MatchJournal.create(directory, header);
+        DecisionLog live = new DecisionLog(journal);
+        List<String> options = Arrays.asList("\"MOVE\"", "\"GRAB\"", "\"SHOOT\"");
+        live.recordAnswer(1, options, 2);
+        assertFalse(live.observeConnection(0, () -> false));
+        live.checkpoint(() -> "state");
+        live.recordAnswer(0, options, -1);
+        journal.close();
+
+        MatchJournal reopened = MatchJournal.open(journal.getFile());
+        DecisionLog replayed = new DecisionLog(reopened, reopened.getRecords());
+        // The options are matched by their serialized form, whatever their order
+        assertEquals(OptionalInt.of(0), replayed.replayAnswer(1, Arrays.asList("\"SHOOT\"", "\"MOVE\""), false));
+        assertFalse(replayed.observeConnection(0, () -> true));
+        replayed.checkpoint(() -> "state");
+        assertTrue(replayed.isReplaying());
+
+        // A decision the match does not expect ends the replay and removes the following ones from the journal
+        assertEquals(OptionalInt.empty(), replayed.replayAnswer(1, options, true));
+        assertFalse(replayed.isReplaying());
+        assertTrue(replayed.observeConnection(0, () -> true));
+        reopened.close();
+
+        MatchJournal truncated = MatchJournal.open(journal.getFile());
+        assertEquals(4, truncated.getRecords().size());
+        assertEquals(MatchJournal.Type.CHECKPOINT, truncated.getRecords().get(2).getType());
+        assertEquals(MatchJournal.Type.CONNECTION, truncated.getRecords().get(3).getType());
+        truncated.delete();
+    }
+}
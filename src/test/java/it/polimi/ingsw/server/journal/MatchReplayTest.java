@@ -0,0 +1,109 @@
+package it.polimi.ingsw.server.journal;
+
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.battlefield.SpawnpointBlock;
+import it.polimi.ingsw.server.model.currency.CurrencyColor;
+import it.polimi.ingsw.server.model.currency.PowerupTile;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.model.match.MatchFactory;
+import it.polimi.ingsw.server.model.player.DamageToken;
+import it.polimi.ingsw.server.model.player.Player;
+import it.polimi.ingsw.server.model.weapons.WeaponTile;
+import it.polimi.ingsw.server.view.MatchEventBroadcaster;
+import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.shared.messages.Message;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchReplayTest {
+
+    @TempDir
+    java.nio.file.Path directory;
+
+    private static int indexOf(MatchReplay replay, ClientApi name) {
+        for (int i = 0; i < replay.size(); i++) {
+            if (replay.getEvents().get(i).getName().equals(name.toString())) {
+                return i;
+            }
+        }
+        return fail(name + " was not logged");
+    }
+
+    @Test
+    void logAndReplay() throws IOException {
+        Match match = MatchFactory.create(Arrays.asList("Player0", "Player1", "Player2"), BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD, 42);
+        MatchEventLog log = MatchEventLog.create(directory, "match-test");
+        new MatchEventBroadcaster(match, Collections.emptyList(), 16, log);
+
+        match.start();
+        Player first = match.getPlayers().get(0);
+        Player second = match.getPlayers().get(1);
+        PowerupTile powerup = match.getPowerupDeck().pick().orElseThrow(() -> new IllegalStateException("No powerup"));
+        first.grabPowerup(powerup);
+        first.selectSpawnpoint(powerup);
+        second.addDamageTokens(Arrays.asList(new DamageToken(first), new DamageToken(first)));
+        match.changeTurn();
+        log.close();
+
+        // An event torn by a crash is ignored
+        Files.write(log.getFile(), new byte[] {0, 0, 1}, StandardOpenOption.APPEND);
+        MatchReplay replay = MatchReplay.load(log.getFile());
+        assertEquals(ClientApi.MATCH_RESUMED_EVENT.toString(), replay.getEvents().get(0).getName());
+
+        assertNull(replay.at(0).getPreset());
+        assertTrue(replay.at(0).getPlayers().isEmpty());
+
+        // The snapshot describes the match as it started
+        MatchProjection started = replay.at(1);
+        assertEquals(BoardFactory.Preset.BOARD_1, started.getPreset());
+        assertEquals(5, started.getSkulls());
+        assertEquals(Match.Mode.STANDARD, started.getMode());
+        assertEquals("Player0", started.getActivePlayer());
+        assertEquals(Arrays.asList("Player0", "Player1", "Player2"), started.getPlayers().stream().map(it.polimi.ingsw.shared.datatransferobjects.Player::getNickname).collect(Collectors.toList()));
+        for (CurrencyColor color : CurrencyColor.values()) {
+            SpawnpointBlock block = match.getBoard().getSpawnpoint(color);
+            assertEquals(
+                    block.getWeapons().stream().map(WeaponTile::getName).collect(Collectors.toList()),
+                    started.getSpawnpointWeapons(new Point(block.getColumn(), block.getRow()))
+            );
+        }
+        assertFalse(started.getLocation("Player0").isPresent());
+
+        // The state changes exactly at the event describing the change
+        int spawned = indexOf(replay, ClientApi.PLAYER_SPAWNED_EVENT);
+        SpawnpointBlock spawnpoint = match.getBoard().getSpawnpoint(powerup.getColor());
+        assertFalse(replay.at(spawned).getLocation("Player0").isPresent());
+        assertEquals(new Point(spawnpoint.getColumn(), spawnpoint.getRow()), replay.at(spawned + 1).getLocation("Player0").orElseThrow());
+        assertEquals(1, replay.at(spawned).getPlayer("Player0").orElseThrow().getWallet().getPowerups().size());
+
+        MatchProjection last = replay.last();
+        assertEquals(replay.size(), last.getIndex());
+        assertEquals(replay.getEvents().get(replay.size() - 1).getStateVersion(), last.getStateVersion());
+        assertEquals(2, last.getPlayer("Player1").orElseThrow().getDamage().size());
+        assertEquals("Player1", last.getActivePlayer());
+        assertFalse(last.isEnded());
+        assertEquals(spawned + 1, replay.atVersion(replay.getEvents().get(spawned).getStateVersion()).getIndex());
+
+        // The projections are independent of each other
+        assertEquals(0, replay.at(1).getPlayer("Player1").orElseThrow().getDamage().size());
+        assertThrows(IndexOutOfBoundsException.class, () -> replay.at(replay.size() + 1));
+    }
+
+    @Test
+    void foldWithoutSnapshot() {
+        // A sequence of events without a snapshot still moves the projection forward
+        MatchReplay replay = new MatchReplay(Collections.singletonList(Message.createEvent(ClientApi.MATCH_MODE_CHANGED_EVENT, new it.polimi.ingsw.shared.events.networkevents.MatchModeChanged(Match.Mode.FINAL_FRENZY), 3)));
+        assertEquals(Match.Mode.FINAL_FRENZY, replay.last().getMode());
+        assertEquals(3, replay.last().getStateVersion());
+    }
+}
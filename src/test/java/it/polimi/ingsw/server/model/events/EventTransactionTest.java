@@ -0,0 +1,62 @@
+package it.polimi.ingsw.server.model.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventTransactionTest {
+
+    @Test
+    void publishOutsideTransaction() {
+        EventTransaction transaction = new EventTransaction();
+        List<String> delivered = new LinkedList<>();
+        transaction.publish("health", () -> delivered.add("health"));
+        assertEquals(List.of("health"), delivered);
+        assertFalse(transaction.isOpen());
+    }
+
+    @Test
+    void commitMergesAndOrders() {
+        EventTransaction transaction = new EventTransaction();
+        List<String> delivered = new LinkedList<>();
+        transaction.begin();
+        transaction.publish("health", () -> delivered.add("health1"));
+        transaction.publish(null, () -> delivered.add("damaged"));
+        transaction.publish("wallet", () -> delivered.add("wallet"));
+        transaction.publish("health", () -> delivered.add("health2"));
+        assertTrue(delivered.isEmpty());
+
+        transaction.commit();
+        // The merged event is delivered in the position of the last one published
+        assertEquals(List.of("damaged", "wallet", "health2"), delivered);
+        assertEquals(1, transaction.getMergedCount());
+        assertFalse(transaction.isOpen());
+    }
+
+    @Test
+    void nestedScopes() {
+        EventTransaction transaction = new EventTransaction();
+        List<String> delivered = new LinkedList<>();
+        transaction.begin();
+        transaction.begin();
+        transaction.publish(null, () -> delivered.add("moved"));
+        transaction.commit();
+        assertTrue(delivered.isEmpty());
+        assertTrue(transaction.isOpen());
+
+        transaction.flush();
+        assertEquals(List.of("moved"), delivered);
+        transaction.publish(null, () -> delivered.add("died"));
+        transaction.commit();
+        assertEquals(List.of("moved", "died"), delivered);
+    }
+
+    @Test
+    void commitWithoutBegin() {
+        EventTransaction transaction = new EventTransaction();
+        assertThrows(IllegalStateException.class, transaction::commit);
+    }
+}
@@ -1,9 +1,11 @@
 package it.polimi.ingsw.server.model.match;
 
 import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.currency.CurrencyColor;
 import it.polimi.ingsw.server.model.player.*;
 import it.polimi.ingsw.server.model.rewards.Reward;
 import it.polimi.ingsw.server.model.rewards.RewardFactory;
+import it.polimi.ingsw.server.model.weapons.WeaponTile;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -46,6 +48,32 @@ class MatchTest {
     void tearDown() {
     }
 
+    /**
+     * This test verifies that two matches created with the same seed deal the same colors and cards
+     */
+    @Test
+    void seededMatch() {
+        List<String> nicknames = Arrays.asList("Player0", "Player1", "Player2");
+        Match first = MatchFactory.create(nicknames, BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD, 42);
+        Match second = MatchFactory.create(nicknames, BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD, 42);
+
+        for (int i = 0; i < nicknames.size(); i++) {
+            assertEquals(first.getPlayers().get(i).getColor(), second.getPlayers().get(i).getColor());
+        }
+        for (CurrencyColor color : CurrencyColor.values()) {
+            assertEquals(
+                    first.getBoard().getSpawnpoint(color).getWeapons().stream().map(WeaponTile::getName).collect(Collectors.toList()),
+                    second.getBoard().getSpawnpoint(color).getWeapons().stream().map(WeaponTile::getName).collect(Collectors.toList())
+            );
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(
+                    first.getPowerupDeck().pick().map(tile -> tile.getName() + tile.getColor()),
+                    second.getPowerupDeck().pick().map(tile -> tile.getName() + tile.getColor())
+            );
+        }
+    }
+
     /**
      * This test verifies that the turns are executed in circle
      */
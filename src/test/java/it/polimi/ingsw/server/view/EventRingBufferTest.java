@@ -0,0 +1,50 @@
+package it.polimi.ingsw.server.view;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.shared.messages.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventRingBufferTest {
+
+    private static Message event(long stateVersion) {
+        return Message.createEvent(ClientApi.PLAYER_MOVED_EVENT, new JsonObject(), stateVersion);
+    }
+
+    @Test
+    void replayAfter() {
+        EventRingBuffer buffer = new EventRingBuffer(4);
+        assertTrue(buffer.replayAfter(Message.NO_STATE_VERSION, message -> fail("Nothing to replay")));
+        for (long version = 1; version <= 6; version++) {
+            buffer.add(event(version));
+        }
+        assertEquals(4, buffer.size());
+        assertEquals(3, buffer.getFirstVersion());
+        assertEquals(6, buffer.getLastVersion());
+
+        List<Long> replayed = new LinkedList<>();
+        assertTrue(buffer.replayAfter(2, message -> replayed.add(message.getStateVersion())));
+        assertEquals(List.of(3L, 4L, 5L, 6L), replayed);
+
+        replayed.clear();
+        assertTrue(buffer.replayAfter(6, message -> replayed.add(message.getStateVersion())));
+        assertTrue(replayed.isEmpty());
+
+        // The events after version 1 have been partly overwritten, and version 7 does not exist yet
+        assertFalse(buffer.replayAfter(1, message -> fail("Version 2 was overwritten")));
+        assertFalse(buffer.replayAfter(7, message -> fail("Version 7 does not exist")));
+    }
+
+    @Test
+    void versionsMustFollow() {
+        EventRingBuffer buffer = new EventRingBuffer(4);
+        buffer.add(event(1));
+        assertThrows(IllegalArgumentException.class, () -> buffer.add(event(3)));
+        assertThrows(IllegalArgumentException.class, () -> new EventRingBuffer(0));
+    }
+}
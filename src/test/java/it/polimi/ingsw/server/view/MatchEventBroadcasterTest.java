@@ -0,0 +1,149 @@
+package it.polimi.ingsw.server.view;
+
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.events.PlayerEvent;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.server.model.match.MatchFactory;
+import it.polimi.ingsw.shared.messages.FrameFormat;
+import it.polimi.ingsw.shared.messages.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchEventBroadcasterTest {
+
+    private class MockView extends View {
+        private final long lastStateVersion;
+        private long snapshotVersion = -1;
+
+        MockView() {
+            this(Message.NO_STATE_VERSION);
+        }
+
+        MockView(long lastStateVersion) {
+            super(1, TimeUnit.SECONDS);
+            this.lastStateVersion = lastStateVersion;
+        }
+
+        MockView(OutputMessageQueue outputMessageQueue) {
+            super(1, TimeUnit.SECONDS, outputMessageQueue);
+            this.lastStateVersion = Message.NO_STATE_VERSION;
+        }
+
+        @Override
+        public long getLastStateVersion() {
+            return lastStateVersion;
+        }
+
+        @Override
+        void enqueueMatchInitializationEvent(Match match, boolean resumed, long stateVersion) {
+            snapshotVersion = stateVersion;
+        }
+    }
+
+    private Match match;
+    private List<View> views;
+    private MatchEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        match = MatchFactory.create(Arrays.asList("Player0", "Player1", "Player2"), BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD);
+        views = Arrays.asList(new MockView(), new MockView(), new MockView());
+        broadcaster = new MatchEventBroadcaster(match, views, 4);
+    }
+
+    private void broadcastEvents(int count) {
+        for (int i = 0; i < count; i++) {
+            broadcaster.onActivePlayerChanged(new PlayerEvent(match.getPlayers().get(i % match.getPlayers().size())));
+        }
+    }
+
+    @Test
+    void encodeOnce() {
+        broadcaster.onActivePlayerChanged(new PlayerEvent(match.getPlayers().get(0)));
+
+        Message first = views.get(0).outputMessageQueue.poll();
+        assertNotNull(first);
+        for (View view : views.subList(1, views.size())) {
+            Message message = view.outputMessageQueue.poll();
+            assertSame(first, message, "Expected the same message to be shared by all the views");
+            assertSame(first.toFrame(FrameFormat.JSON), message.toFrame(FrameFormat.JSON), "Expected the frame to be encoded once");
+        }
+    }
+
+    @Test
+    void stateVersions() {
+        broadcastEvents(3);
+
+        for (long version = 1; version <= 3; version++) {
+            assertEquals(version, views.get(0).outputMessageQueue.poll().getStateVersion());
+        }
+        assertEquals(3, broadcaster.getStateVersion());
+    }
+
+    @Test
+    void resumeWithMissedEvents() {
+        broadcastEvents(5);
+        MockView reconnected = new MockView(2);
+
+        assertTrue(broadcaster.resumeView(views.get(0), reconnected));
+        assertEquals(-1, reconnected.snapshotVersion);
+        for (long version = 3; version <= 5; version++) {
+            assertEquals(version, reconnected.outputMessageQueue.poll().getStateVersion());
+        }
+        assertTrue(reconnected.outputMessageQueue.isEmpty());
+
+        views.get(0).outputMessageQueue.clear();
+        broadcastEvents(1);
+        assertTrue(views.get(0).outputMessageQueue.isEmpty());
+        assertEquals(6, reconnected.outputMessageQueue.poll().getStateVersion());
+    }
+
+    @Test
+    void resumeWithSnapshot() {
+        broadcastEvents(6);
+
+        MockView tooOld = new MockView(1);
+        assertFalse(broadcaster.resumeView(views.get(0), tooOld));
+        assertEquals(6, tooOld.snapshotVersion);
+        assertTrue(tooOld.outputMessageQueue.isEmpty());
+
+        MockView stateless = new MockView();
+        assertFalse(broadcaster.resumeView(views.get(1), stateless));
+        assertEquals(6, stateless.snapshotVersion);
+
+        MockView upToDate = new MockView(6);
+        assertTrue(broadcaster.resumeView(views.get(2), upToDate));
+        assertEquals(-1, upToDate.snapshotVersion);
+        assertTrue(upToDate.outputMessageQueue.isEmpty());
+    }
+
+    @Test
+    void resyncSlowView() {
+        MockView slow = new MockView(new OutputMessageQueue(4, OutputMessageQueue.Policy.RESYNC));
+        broadcaster = new MatchEventBroadcaster(match, Arrays.asList(views.get(0), slow), 4);
+
+        broadcastEvents(6);
+        assertEquals(6, slow.getDroppedEventCount());
+        assertEquals(1, slow.getResyncCount());
+        assertEquals(0, slow.getOutputQueueDepth());
+
+        // The client has not read anything yet
+        broadcastEvents(1);
+        assertEquals(-1, slow.snapshotVersion);
+
+        // The client caught up, the next event is replaced by a snapshot
+        assertNull(slow.outputMessageQueue.poll());
+        broadcastEvents(1);
+        assertEquals(8, slow.snapshotVersion);
+        assertTrue(slow.outputMessageQueue.isEmpty());
+
+        broadcastEvents(1);
+        assertEquals(9, slow.outputMessageQueue.poll().getStateVersion());
+    }
+}
@@ -0,0 +1,86 @@
+package it.polimi.ingsw.server.view;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.shared.events.networkevents.ClientEvent;
+import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.shared.messages.Message;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputMessageQueueTest {
+
+    private static Message playerEvent(ClientApi name, String nickname, long stateVersion) {
+        JsonObject player = new JsonObject();
+        player.addProperty("nickname", nickname);
+        JsonObject payload = new JsonObject();
+        payload.add("player", player);
+        return Message.createEvent(name, payload, stateVersion);
+    }
+
+    @Test
+    void coalesce() {
+        OutputMessageQueue queue = new OutputMessageQueue(8, OutputMessageQueue.Policy.COALESCE);
+        long version = 0;
+        for (int i = 0; i < 4; i++) {
+            queue.add(playerEvent(ClientApi.PLAYER_MOVED_EVENT, "Player0", ++version));
+        }
+        // Below half of the capacity the events are left untouched
+        assertEquals(4, queue.size());
+        assertEquals(0, queue.getCoalescedEventCount());
+
+        queue.add(playerEvent(ClientApi.PLAYER_MOVED_EVENT, "Player1", ++version));
+        queue.add(playerEvent(ClientApi.PLAYER_MOVED_EVENT, "Player0", ++version));
+        queue.add(playerEvent(ClientApi.PLAYER_WALLET_CHANGED_EVENT, "Player0", ++version));
+
+        assertEquals(3, queue.size());
+        assertEquals(4, queue.getCoalescedEventCount());
+        assertEquals(5, queue.poll().getStateVersion());
+        assertEquals(6, queue.poll().getStateVersion());
+        assertEquals(7, queue.poll().getStateVersion());
+        assertFalse(queue.isResyncNeeded());
+    }
+
+    @Test
+    void resync() {
+        OutputMessageQueue queue = new OutputMessageQueue(8, OutputMessageQueue.Policy.RESYNC);
+        Message notification = Message.createEvent(ClientApi.LOGIN_SUCCESS_EVENT, new ClientEvent("Player1"));
+        queue.add(notification);
+        long version = 0;
+        for (int i = 0; i < 8; i++) {
+            queue.add(playerEvent(ClientApi.PLAYER_MOVED_EVENT, "Player0", ++version));
+        }
+
+        // The match events are dropped, the other messages are kept
+        assertTrue(queue.isResyncNeeded());
+        assertEquals(1, queue.getResyncCount());
+        assertEquals(8, queue.getDroppedEventCount());
+        assertEquals(0, queue.getCoalescedEventCount());
+        assertEquals(1, queue.size());
+
+        queue.add(playerEvent(ClientApi.PLAYER_MOVED_EVENT, "Player0", ++version));
+        queue.add(Message.createEvent(ClientApi.MATCH_ENDED_EVENT, new JsonObject(), ++version));
+        assertEquals(9, queue.getDroppedEventCount());
+        assertEquals(2, queue.size());
+        assertFalse(queue.isResyncDue());
+
+        assertSame(notification, queue.poll());
+        assertEquals(ClientApi.MATCH_ENDED_EVENT.toString(), queue.poll().getName());
+        assertTrue(queue.isResyncDue());
+
+        queue.resynced();
+        queue.add(playerEvent(ClientApi.PLAYER_MOVED_EVENT, "Player0", ++version));
+        assertFalse(queue.isResyncNeeded());
+        assertEquals(version, queue.poll().getStateVersion());
+    }
+
+    @Test
+    void questionsAreNeverDropped() {
+        OutputMessageQueue queue = new OutputMessageQueue(2, OutputMessageQueue.Policy.COALESCE);
+        for (int i = 0; i < 10; i++) {
+            queue.add(Message.createEvent(ClientApi.CLIENT_DISCONNECTED_EVENT, new ClientEvent("Player" + i)));
+        }
+        assertEquals(10, queue.size());
+        assertEquals(0, queue.getDroppedEventCount());
+    }
+}
@@ -0,0 +1,70 @@
+package it.polimi.ingsw.server.view.remote;
+
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.match.Match;
+import it.polimi.ingsw.shared.bootstrap.ClientInitializationInfo;
+import it.polimi.ingsw.shared.messages.ClientApi;
+import it.polimi.ingsw.shared.messages.Message;
+import it.polimi.ingsw.shared.messages.ServerApi;
+import it.polimi.ingsw.shared.messages.templates.Answer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.rmi.NoSuchObjectException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RMIStreamProviderTest {
+
+    private RMIStreamProvider provider;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        provider = new RMIStreamProvider(() -> new RMIView(1000, TimeUnit.MILLISECONDS));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        provider.close();
+    }
+
+    @Test
+    void sessionsAreRoutedByToken() throws Exception {
+        String firstToken = provider.connect();
+        RMIView first = provider.getRMIView(1, TimeUnit.SECONDS);
+        String secondToken = provider.connect();
+        RMIView second = provider.getRMIView(1, TimeUnit.SECONDS);
+        assertNotEquals(firstToken, secondToken);
+        assertEquals(2, provider.getSessionCount());
+
+        provider.sendMessages(secondToken, Collections.singletonList(Message.createEvent(
+                ServerApi.VIEW_INIT_EVENT,
+                new ClientInitializationInfo("Player2", BoardFactory.Preset.BOARD_1, 5, Match.Mode.STANDARD)
+        )));
+        second.initialize();
+        assertEquals("Player2", second.getNickname());
+
+        CompletableFuture<String> choice = second.selectAsync("Choose", Arrays.asList("a", "b"), ClientApi.TARGET_QUESTION);
+        List<Message> messages = provider.receiveMessages(secondToken, 10, 1, TimeUnit.SECONDS);
+        assertEquals(1, messages.size());
+        assertTrue(first.getOutputMessageQueue().isEmpty());
+        provider.sendMessages(secondToken, Collections.singletonList(
+                Message.createAnswer(ClientApi.TARGET_QUESTION, new Answer<>("b"), messages.get(0).getFlowId())
+        ));
+        assertEquals("b", choice.get(1, TimeUnit.SECONDS));
+
+        // Closing a view ends its session
+        second.close();
+        assertEquals(1, provider.getSessionCount());
+        assertThrows(NoSuchObjectException.class, () -> provider.sendMessages(secondToken, Collections.emptyList()));
+
+        provider.disconnect(firstToken);
+        assertEquals(0, provider.getSessionCount());
+    }
+}
@@ -5,6 +5,8 @@ import it.polimi.ingsw.shared.messages.templates.Question;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -25,6 +27,7 @@ class InputMessageQueueTest {
             queue.enqueue(question);
             assertEquals(question, queue.dequeueQuestion(1, TimeUnit.SECONDS), "Enqueued question does not match the expected instance");
             Message answer = Message.createAnswer("test", 1, question.getFlowId());
+            queue.expectAnswer(question.getFlowId());
             queue.enqueue(answer);
             assertEquals(answer, queue.dequeueAnswer(question.getFlowId(), 1, TimeUnit.SECONDS), "Expected the previously created answer");
         } catch (InterruptedException e) {
@@ -36,4 +39,44 @@ class InputMessageQueueTest {
             fail("Unable to dequeue");
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void futureAnswer() throws Exception {
+        InputMessageQueue queue = new InputMessageQueue();
+        Message question = Message.createQuestion("test", new Question<>("test", Arrays.asList(1, 2, 3)));
+        CompletableFuture<Message> pendingAnswer = queue.expectAnswer(question.getFlowId());
+        assertFalse(pendingAnswer.isDone());
+
+        Message answer = Message.createAnswer("test", 2, question.getFlowId());
+        queue.enqueue(answer);
+        assertSame(answer, pendingAnswer.get(1, TimeUnit.SECONDS));
+        assertEquals(0, queue.getDroppedAnswerCount());
+    }
+
+    @Test
+    void dropLateAndUnknownAnswers() {
+        InputMessageQueue queue = new InputMessageQueue();
+        Message question = Message.createQuestion("test", new Question<>("test", Arrays.asList(1, 2, 3)));
+
+        queue.enqueue(Message.createAnswer("test", 1, question.getFlowId()));
+        assertEquals(1, queue.getDroppedAnswerCount());
+
+        assertThrows(TimeoutException.class, () -> queue.dequeueAnswer(question.getFlowId(), 50, TimeUnit.MILLISECONDS));
+        queue.enqueue(Message.createAnswer("test", 1, question.getFlowId()));
+        assertEquals(2, queue.getDroppedAnswerCount());
+    }
+
+    @Test
+    void expireAnswer() {
+        InputMessageQueue queue = new InputMessageQueue();
+        Message question = Message.createQuestion("test", new Question<>("test", Arrays.asList(1, 2, 3)));
+        CompletableFuture<Message> pendingAnswer = queue.expectAnswer(question.getFlowId());
+
+        queue.expireAnswer(question.getFlowId());
+        ExecutionException e = assertThrows(ExecutionException.class, pendingAnswer::get);
+        assertTrue(e.getCause() instanceof TimeoutException);
+
+        queue.enqueue(Message.createAnswer("test", 1, question.getFlowId()));
+        assertEquals(1, queue.getDroppedAnswerCount());
+    }
+}
@@ -0,0 +1,70 @@
+package it.polimi.ingsw.shared;
+
+import it.polimi.ingsw.shared.messages.Message;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputStreamMessageConsumerTest {
+
+    /**
+     * Output stream that counts the writes and flushes reaching the underlying stream
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private int writes = 0;
+        private int flushes = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            writes++;
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writes++;
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushes++;
+            out.flush();
+        }
+    }
+
+    @Test
+    void acceptBatch() throws Exception {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        CountingOutputStream countingStream = new CountingOutputStream(sent);
+        OutputStreamMessageConsumer consumer = new OutputStreamMessageConsumer(new DataOutputStream(countingStream));
+
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            messages.add(Message.createEvent("Test", i));
+        }
+        consumer.accept(messages);
+
+        assertEquals(1, countingStream.writes);
+        assertEquals(1, countingStream.flushes);
+
+        InputStreamMessageSupplier supplier = new InputStreamMessageSupplier(
+                new DataInputStream(new BufferedInputStream(new ByteArrayInputStream(sent.toByteArray())))
+        );
+        for (int i = 0; i < 10; i++) {
+            Message message = supplier.get(1, TimeUnit.SECONDS);
+            assertEquals("Test", message.getName());
+            assertEquals(i, message.getPayload().getAsInt());
+        }
+        supplier.close();
+    }
+}
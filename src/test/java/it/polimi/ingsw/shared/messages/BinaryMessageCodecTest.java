@@ -0,0 +1,131 @@
+package it.polimi.ingsw.shared.messages;
+
+import com.google.gson.JsonParseException;
+import it.polimi.ingsw.server.model.battlefield.BoardFactory;
+import it.polimi.ingsw.server.model.currency.CurrencyColor;
+import it.polimi.ingsw.server.model.player.PlayerColor;
+import it.polimi.ingsw.shared.datatransferobjects.*;
+import it.polimi.ingsw.shared.events.networkevents.ClientEvent;
+import it.polimi.ingsw.shared.events.networkevents.MatchStarted;
+import it.polimi.ingsw.shared.messages.templates.Answer;
+import it.polimi.ingsw.shared.messages.templates.Question;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryMessageCodecTest {
+
+    private void assertRoundTrip(Message message) {
+        byte[] frame = BinaryMessageCodec.encode(message);
+        assertTrue(BinaryMessageCodec.isBinary(frame));
+
+        Message decoded = Message.fromFrame(frame);
+        assertEquals(message.getName(), decoded.getName());
+        assertEquals(message.getFlowId(), decoded.getFlowId());
+        assertEquals(message.getType(), decoded.getType());
+        assertEquals(Message.fromJson(message.toJson()).getPayload().toString(), decoded.getPayload().toString());
+    }
+
+    @Test
+    void roundTrip() {
+        Message question = Message.createQuestion(
+                ClientApi.TARGET_QUESTION,
+                new Question<>("Choose a target", Arrays.asList("Player1", "Player2"), true)
+        );
+        assertRoundTrip(question);
+        assertRoundTrip(Message.createAnswer(ClientApi.TARGET_QUESTION, new Answer<>("Player2"), question.getFlowId()));
+        assertRoundTrip(Message.createEvent(ServerApi.HEARTBEAT, new ClientEvent("Player")));
+        assertRoundTrip(Message.createEvent("CUSTOM", Arrays.asList(-1, 0, 1.5, Long.MAX_VALUE)));
+        assertRoundTrip(matchStarted());
+    }
+
+    @Test
+    void matchStartedIsSmaller() {
+        Message message = matchStarted();
+        int jsonSize = message.toJson().getBytes(StandardCharsets.UTF_8).length;
+        int binarySize = BinaryMessageCodec.encode(message).length;
+
+        assertTrue(binarySize * 3 < jsonSize, "Expected a binary frame at least three times smaller, got " + binarySize + " against " + jsonSize);
+    }
+
+    @Test
+    void jsonIsStillAccepted() {
+        Message message = Message.createEvent(ServerApi.HEARTBEAT, new ClientEvent("Player"));
+        Message decoded = Message.fromFrame(message.toJson().getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(message.getPayload(), decoded.getPayload());
+    }
+
+    private static byte[] header(int... rest) {
+        ByteBuffer frame = ByteBuffer.allocate(5 + rest.length).put((byte) 0xB1).putInt(BinaryMessageCodec.FINGERPRINT);
+        for (int b : rest) {
+            frame.put((byte) b);
+        }
+        return frame.array();
+    }
+
+    @Test
+    void malformedLengths() {
+        // A literal name announcing far more bytes than the frame has
+        assertThrows(JsonParseException.class, () -> Message.fromFrame(header(0, 0xF0, 0xFF, 0xFF, 0xFF, 0x07)));
+        // A length that becomes negative once narrowed to an int
+        assertThrows(JsonParseException.class, () -> Message.fromFrame(header(0, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F)));
+        // An array announcing more elements than the bytes left
+        assertThrows(JsonParseException.class, () -> Message.fromFrame(header(1, 0, 0, 0, 6, 0xF0, 0xFF, 0xFF, 0xFF, 0x07)));
+
+        // Arrays nested deeper than any payload
+        int[] nested = new int[4 + 2 * 10000];
+        nested[0] = 1;
+        for (int i = 4; i < nested.length; i += 2) {
+            nested[i] = 6;
+            nested[i + 1] = 1;
+        }
+        assertThrows(JsonParseException.class, () -> Message.fromFrame(header(nested)));
+    }
+
+    static Message matchStarted() {
+        List<String> weapons = Arrays.asList("Lock Rifle", "Electroscythe", "Machine Gun", "Tractor Beam", "T.H.O.R.",
+                "Vortex Cannon", "Furnace", "Plasma Gun", "Heatseeker");
+        List<Player> players = new LinkedList<>();
+        for (PlayerColor color : PlayerColor.values()) {
+            players.add(new Player(
+                    "Player" + color.ordinal(),
+                    color,
+                    new Wallet(
+                            weapons.subList(0, 2),
+                            weapons.subList(2, 3),
+                            Arrays.asList(CurrencyColor.RED, CurrencyColor.BLUE, CurrencyColor.YELLOW),
+                            Arrays.asList(new Powerup("Teleporter", CurrencyColor.RED), new Powerup("Newton", CurrencyColor.BLUE))
+                    ),
+                    new PlayerHealth(
+                            1,
+                            Arrays.asList(PlayerColor.YELLOW, PlayerColor.GREEN, PlayerColor.GREEN),
+                            Collections.singletonList(PlayerColor.PURPLE)
+                    ),
+                    false,
+                    false
+            ));
+        }
+        Set<BonusTile> bonusTiles = new HashSet<>();
+        for (int i = 0; i < 7; i++) {
+            bonusTiles.add(new BonusTile(Arrays.asList(CurrencyColor.RED, CurrencyColor.YELLOW), new Point(i % 4, i / 4)));
+        }
+        return Message.createEvent(ClientApi.MATCH_STARTED_EVENT, new MatchStarted(
+                8,
+                BoardFactory.Preset.BOARD_1,
+                players.get(0),
+                players.subList(1, players.size()),
+                weapons.subList(0, 3),
+                weapons.subList(3, 6),
+                weapons.subList(6, 9),
+                players.get(0),
+                bonusTiles
+        ));
+    }
+}
@@ -0,0 +1,48 @@
+package it.polimi.ingsw.shared.messages;
+
+import it.polimi.ingsw.shared.events.networkevents.ClientEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameDeflaterTest {
+
+    private static final int THRESHOLD = 256;
+
+    @Test
+    void roundTrip() throws IOException {
+        List<Message> messages = Arrays.asList(
+                BinaryMessageCodecTest.matchStarted(),
+                Message.createEvent(ServerApi.HEARTBEAT, new ClientEvent("Player")),
+                BinaryMessageCodecTest.matchStarted(),
+                Message.createEvent(ServerApi.HEARTBEAT, new ClientEvent("Player"))
+        );
+
+        try (FrameDeflater deflater = new FrameDeflater(THRESHOLD); FrameInflater inflater = new FrameInflater()) {
+            for (Message message : messages) {
+                byte[] content = message.toFrame(FrameFormat.JSON);
+                byte[] frame = deflater.deflate(content);
+
+                assertEquals(content.length >= THRESHOLD, FrameInflater.isCompressed(frame));
+                assertArrayEquals(content, inflater.inflate(frame));
+            }
+        }
+    }
+
+    @Test
+    void matchStartedIsSmaller() {
+        byte[] content = BinaryMessageCodecTest.matchStarted().toFrame(FrameFormat.JSON);
+
+        try (FrameDeflater deflater = new FrameDeflater(THRESHOLD)) {
+            int firstSize = deflater.deflate(content).length;
+            int secondSize = deflater.deflate(content).length;
+
+            assertTrue(firstSize * 5 < content.length, "Expected a compressed frame at least five times smaller, got " + firstSize + " against " + content.length);
+            assertTrue(secondSize < firstSize, "Expected a repeated frame to benefit from the previous ones");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package it.polimi.ingsw.shared.messages;
+
+import it.polimi.ingsw.shared.events.networkevents.ClientEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageTest {
+
+    private final Message message = Message.createEvent(ServerApi.HEARTBEAT, new ClientEvent("Player"));
+
+    @Test
+    void jsonRoundTrip() {
+        Message decoded = Message.fromJson(message.toJson());
+
+        assertEquals(message.getName(), decoded.getName());
+        assertEquals(message.getFlowId(), decoded.getFlowId());
+        assertEquals(message.getType(), decoded.getType());
+        assertEquals(message.getPayload(), decoded.getPayload());
+    }
+
+    @Test
+    void payloadIsNested() {
+        String json = message.toJson();
+
+        assertTrue(json.contains("\"payload\":{"), "Expected the payload to be a nested object");
+        assertFalse(json.contains("\\\""), "Expected no escaped payload");
+    }
+
+    @Test
+    void legacyRoundTrip() {
+        String json = message.toJson(Message.LEGACY_PROTOCOL_VERSION);
+        assertTrue(json.contains("\"payload\":\"{"), "Expected the payload to be a JSON string");
+
+        Message decoded = Message.fromJson(json);
+        assertEquals(message.getPayload(), decoded.getPayload());
+    }
+
+    @Test
+    void javaSerialization() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Message decoded = (Message) in.readObject();
+            assertEquals(message.getName(), decoded.getName());
+            assertEquals(message.getPayload(), decoded.getPayload());
+        }
+    }
+
+    @Test
+    void stateVersion() throws IOException, ClassNotFoundException {
+        Message versioned = Message.createEvent(ClientApi.ACTIVE_PLAYER_CHANGED_EVENT, "Player", 42);
+
+        assertEquals(42, Message.fromJson(versioned.toJson()).getStateVersion());
+        assertEquals(42, Message.fromFrame(BinaryMessageCodec.encode(versioned)).getStateVersion());
+        assertEquals(Message.NO_STATE_VERSION, Message.fromJson(message.toJson()).getStateVersion());
+        assertFalse(message.toJson().contains("stateVersion"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(versioned);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(42, ((Message) in.readObject()).getStateVersion());
+        }
+    }
+}
@@ -6,6 +6,7 @@ import it.polimi.ingsw.shared.messages.Message;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -55,6 +56,40 @@ class MessageDispatcherTest {
         }
     }
 
+    @Test
+    void dispatchBatches() throws InterruptedException {
+        dispatcher.close();
+        BlockingQueue<List<Message>> sentBatches = new LinkedBlockingQueue<>();
+        BlockingQueue<Message> pendingQueue = new LinkedBlockingQueue<>();
+        for (int i = 0; i < 10; i++) {
+            pendingQueue.add(testMessage);
+        }
+        dispatcher = new MessageDispatcher(
+                inputQueue,
+                pendingQueue,
+                4,
+                (timeout, unit) -> {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        throw new TimeoutException();
+                    }
+                    return List.of(testMessage, testMessage);
+                },
+                sentBatches::add
+        );
+
+        assertEquals(4, sentBatches.poll(1, TimeUnit.SECONDS).size());
+        assertEquals(4, sentBatches.poll(1, TimeUnit.SECONDS).size());
+        assertEquals(2, sentBatches.poll(1, TimeUnit.SECONDS).size());
+        try {
+            assertEquals(testMessage, inputQueue.dequeueEvent(1, TimeUnit.SECONDS));
+            assertEquals(testMessage, inputQueue.dequeueEvent(1, TimeUnit.SECONDS));
+        } catch (TimeoutException e) {
+            fail();
+        }
+    }
+
     @Test
     void close() {
         assertDoesNotThrow(() -> dispatcher.close(), "Unable to correctly close the dispatcher");
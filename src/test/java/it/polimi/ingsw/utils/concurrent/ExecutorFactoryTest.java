@@ -0,0 +1,41 @@
+package it.polimi.ingsw.utils.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorFactoryTest {
+
+    @AfterEach
+    void tearDown() {
+        ExecutorFactory.initialize(ExecutorFactory.ExecutionMode.PLATFORM);
+    }
+
+    @Test
+    void platformMode() throws Exception {
+        ExecutorFactory.initialize(ExecutorFactory.ExecutionMode.PLATFORM);
+        assertEquals(ExecutorFactory.ExecutionMode.PLATFORM, ExecutorFactory.getExecutionMode());
+
+        ExecutorService executor = ExecutorFactory.newFixedThreadPool(2);
+        assertEquals(42, (int) executor.submit(() -> 42).get(1, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    void virtualMode() throws Exception {
+        ExecutorFactory.initialize(ExecutorFactory.ExecutionMode.VIRTUAL);
+        // The requested mode is only honored if the runtime supports virtual threads
+        ExecutorService executor = ExecutorFactory.newSingleThreadExecutor();
+        assertEquals(42, (int) executor.submit(() -> 42).get(1, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        Thread thread = ExecutorFactory.newThread(() -> { });
+        thread.start();
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+    }
+}
@@ -0,0 +1,83 @@
+package it.polimi.ingsw.utils.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @BeforeEach
+    void setUp() {
+        timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        timer.close();
+    }
+
+    @Test
+    void expire() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(latch::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    void expireAfterManyRounds() throws InterruptedException {
+        // 8 buckets of 10 milliseconds, the deadline is more than two turns of the wheel away
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.newTimeout(latch::countDown, 200, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void cancel() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(latch::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+        assertFalse(timeout.isExpired());
+    }
+
+    @Test
+    void order() throws InterruptedException {
+        List<Integer> expired = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        timer.newTimeout(() -> { expired.add(3); latch.countDown(); }, 150, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> { expired.add(1); latch.countDown(); }, 10, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> { expired.add(2); latch.countDown(); }, 70, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3), expired);
+    }
+
+    @Test
+    void failingTask() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(() -> { throw new IllegalStateException("Test"); }, 10, TimeUnit.MILLISECONDS);
+        timer.newTimeout(latch::countDown, 30, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void closed() throws InterruptedException {
+        timer.close();
+        assertThrows(IllegalStateException.class, () -> timer.newTimeout(() -> { }, 10, TimeUnit.MILLISECONDS));
+    }
+}